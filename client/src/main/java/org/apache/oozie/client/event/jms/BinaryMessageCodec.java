@@ -0,0 +1,309 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.client.event.jms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.message.CoordinatorActionMessage;
+import org.apache.oozie.client.event.message.EventMessage;
+import org.apache.oozie.client.event.message.JobMessage;
+import org.apache.oozie.client.event.message.SLAMessage;
+import org.apache.oozie.client.event.message.WorkflowJobMessage;
+
+/**
+ * Compact binary encoding of the body of the event messages, the fields sent in the JMS headers are not encoded.
+ * <p>
+ * The body starts with the format version and the kind of message, followed by the fields of the message in a fixed
+ * order: strings and enums (by name) as a varint of the UTF-8 length plus one, 0 for null, dates as a varlong of the
+ * milliseconds plus one, 0 for null, and longs as zigzag varlongs. Later versions only append fields, so the decoder
+ * reads the fields it knows of any version and ignores the rest.
+ * <p>
+ * An encoder reuses its buffer between messages and is not thread safe, decoding is.
+ */
+public class BinaryMessageCodec {
+    public static final String MESSAGE_FORMAT = "binary";
+    public static final byte VERSION = 1;
+
+    static final byte WORKFLOW_JOB = 1;
+    static final byte COORDINATOR_ACTION = 2;
+    static final byte SLA = 3;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+
+    /**
+     * Encodes the body of the message.
+     *
+     * @param message the workflow job, coordinator action or SLA message
+     * @return the encoded body
+     */
+    public byte[] encode(EventMessage message) {
+        encodeToBuffer(message);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Encodes the body of the message into a BytesMessage, straight from the reused buffer.
+     *
+     * @param message the workflow job, coordinator action or SLA message
+     * @param bytesMessage the JMS message to write the encoded body to
+     * @throws JMSException if the body could not be written
+     */
+    public void encode(EventMessage message, BytesMessage bytesMessage) throws JMSException {
+        encodeToBuffer(message);
+        bytesMessage.writeBytes(buffer, 0, position);
+    }
+
+    private void encodeToBuffer(EventMessage message) {
+        position = 0;
+        writeByte(VERSION);
+        if (message instanceof WorkflowJobMessage) {
+            WorkflowJobMessage wfJobMessage = (WorkflowJobMessage) message;
+            writeByte(WORKFLOW_JOB);
+            writeJob(wfJobMessage);
+            writeEnum(wfJobMessage.getStatus());
+            writeString(wfJobMessage.getErrorCode());
+            writeString(wfJobMessage.getErrorMessage());
+        }
+        else if (message instanceof CoordinatorActionMessage) {
+            CoordinatorActionMessage coordActionMessage = (CoordinatorActionMessage) message;
+            writeByte(COORDINATOR_ACTION);
+            writeJob(coordActionMessage);
+            writeEnum(coordActionMessage.getStatus());
+            writeDate(coordActionMessage.getNominalTime());
+            writeString(coordActionMessage.getMissingDependency());
+            writeString(coordActionMessage.getErrorCode());
+            writeString(coordActionMessage.getErrorMessage());
+        }
+        else if (message instanceof SLAMessage) {
+            SLAMessage slaMessage = (SLAMessage) message;
+            writeByte(SLA);
+            writeString(slaMessage.getId());
+            writeString(slaMessage.getParentId());
+            writeDate(slaMessage.getNominalTime());
+            writeDate(slaMessage.getExpectedStartTime());
+            writeDate(slaMessage.getActualStartTime());
+            writeDate(slaMessage.getExpectedEndTime());
+            writeDate(slaMessage.getActualEndTime());
+            writeLong(slaMessage.getExpectedDuration());
+            writeLong(slaMessage.getActualDuration());
+            writeString(slaMessage.getNotificationMessage());
+            writeString(slaMessage.getUpstreamApps());
+        }
+        else {
+            throw new IllegalArgumentException("Binary encoding of " + (message == null ? null
+                    : message.getClass().getName()) + " is not supported");
+        }
+    }
+
+    /**
+     * Decodes the body of a message, the fields sent in the JMS headers are set by
+     * {@link EventMessage#setProperties(javax.jms.Message)}.
+     *
+     * @param <T> the type of the message
+     * @param body the encoded body
+     * @param clazz the class of the message
+     * @return the message
+     */
+    public static <T> T decode(byte[] body, Class<T> clazz) {
+        Reader reader = new Reader(body);
+        int version = reader.readByte();
+        if (version < 1) {
+            throw new IllegalArgumentException("Unknown binary message version " + version);
+        }
+        byte kind = reader.readByte();
+        Object message;
+        if (kind == WORKFLOW_JOB && clazz.isAssignableFrom(WorkflowJobMessage.class)) {
+            WorkflowJobMessage wfJobMessage = new WorkflowJobMessage();
+            reader.readJob(wfJobMessage);
+            wfJobMessage.setStatus(reader.readEnum(WorkflowJob.Status.class));
+            wfJobMessage.setErrorCode(reader.readString());
+            wfJobMessage.setErrorMessage(reader.readString());
+            message = wfJobMessage;
+        }
+        else if (kind == COORDINATOR_ACTION && clazz.isAssignableFrom(CoordinatorActionMessage.class)) {
+            CoordinatorActionMessage coordActionMessage = new CoordinatorActionMessage();
+            reader.readJob(coordActionMessage);
+            coordActionMessage.setStatus(reader.readEnum(CoordinatorAction.Status.class));
+            coordActionMessage.setNominalTime(reader.readDate());
+            coordActionMessage.setMissingDependency(reader.readString());
+            coordActionMessage.setErrorCode(reader.readString());
+            coordActionMessage.setErrorMessage(reader.readString());
+            message = coordActionMessage;
+        }
+        else if (kind == SLA && clazz.isAssignableFrom(SLAMessage.class)) {
+            SLAMessage slaMessage = new SLAMessage();
+            slaMessage.setId(reader.readString());
+            slaMessage.setParentId(reader.readString());
+            slaMessage.setNominalTime(reader.readDate());
+            slaMessage.setExpectedStartTime(reader.readDate());
+            slaMessage.setActualStartTime(reader.readDate());
+            slaMessage.setExpectedEndTime(reader.readDate());
+            slaMessage.setActualEndTime(reader.readDate());
+            slaMessage.setExpectedDuration(reader.readLong());
+            slaMessage.setActualDuration(reader.readLong());
+            slaMessage.setNotificationMessage(reader.readString());
+            slaMessage.setUpstreamApps(reader.readString());
+            message = slaMessage;
+        }
+        else {
+            throw new IllegalArgumentException("Could not decode binary message of kind " + kind + " as "
+                    + clazz.getCanonicalName());
+        }
+        return clazz.cast(message);
+    }
+
+    private void writeJob(JobMessage message) {
+        writeString(message.getId());
+        writeString(message.getParentId());
+        writeDate(message.getStartTime());
+        writeDate(message.getEndTime());
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeDate(Date date) {
+        writeVarLong(date == null ? 0 : date.getTime() + 1);
+    }
+
+    private void writeEnum(Enum<?> value) {
+        writeString(value == null ? null : value.name());
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            // the common case of ids and names, copied without encoding to an intermediate array
+            writeVarLong(length + 1);
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        }
+        else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+    private static class Reader {
+        private final byte[] body;
+        private int position;
+
+        Reader(byte[] body) {
+            this.body = body;
+        }
+
+        byte readByte() {
+            if (position >= body.length) {
+                throw new IllegalArgumentException("Truncated binary message of " + body.length + " bytes");
+            }
+            return body[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary message");
+        }
+
+        long readLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        Date readDate() {
+            long value = readVarLong();
+            return value == 0 ? null : new Date(value - 1);
+        }
+
+        <E extends Enum<E>> E readEnum(Class<E> enumClass) {
+            String name = readString();
+            return name == null ? null : Enum.valueOf(enumClass, name);
+        }
+
+        String readString() {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > body.length - position) {
+                throw new IllegalArgumentException("Truncated binary message of " + body.length + " bytes");
+            }
+            String value = new String(body, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+
+        void readJob(JobMessage message) {
+            message.setId(readString());
+            message.setParentId(readString());
+            message.setStartTime(readDate());
+            message.setEndTime(readDate());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.client.event.jms;
+
+/**
+ * Message deserializer to convert the compact binary body of a BytesMessage to java object
+ *
+ * @see BinaryMessageCodec
+ */
+public class BinaryMessageDeserializer extends MessageDeserializer {
+
+    @Override
+    protected <T> T getDeserializedObject(byte[] messageBody, Class<T> clazz) {
+        try {
+            return BinaryMessageCodec.decode(messageBody, clazz);
+        }
+        catch (RuntimeException exception) {
+            throw new IllegalArgumentException("Could not deserialize the JMS message using "
+                    + clazz.getCanonicalName(), exception);
+        }
+    }
+
+    @Override
+    public <T> T getDeserializedObject(String messageBody, Class<T> clazz) {
+        throw new IllegalArgumentException("Binary messages are sent as BytesMessage, could not deserialize text as "
+                + clazz.getCanonicalName());
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.oozie.client.event.jms;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -30,10 +32,15 @@ import org.apache.oozie.client.event.message.EventMessage;
 
 /**
  * Client utility to convert JMS message to EventMessage object
+ * <p>
+ * The deserializer is chosen by the message format header of each message, JSON and binary are supported by default
+ * and other formats can be mapped with <code>oozie.msg.deserializer.&lt;format&gt;</code> in
+ * <code>oozie_client.properties</code>.
  */
 public class JMSMessagingUtils {
     private static final String DESERIALIZER_PROP = "oozie.msg.deserializer.";
-    private static MessageDeserializer deserializer;
+    private static final ConcurrentMap<String, MessageDeserializer> deserializers =
+            new ConcurrentHashMap<String, MessageDeserializer>();
     private static Properties jmsDeserializerInfo;
     private static final String CLIENT_PROPERTIES = "oozie_client.properties";
 
@@ -41,7 +48,6 @@ public class JMSMessagingUtils {
         InputStream is = JMSMessagingUtils.class.getClassLoader().getResourceAsStream(CLIENT_PROPERTIES);
         if (is == null) {
             System.out.println("Using default JSON Deserializer");
-            deserializer = new JSONMessageDeserializer();
         }
         else {
             jmsDeserializerInfo = new Properties();
@@ -69,16 +75,28 @@ public class JMSMessagingUtils {
         if (msg == null) {
             throw new IllegalArgumentException("Could not extract EventMessage as JMS message is null");
         }
+        String msgFormat = msg.getStringProperty(JMSHeaderConstants.MESSAGE_FORMAT);
+        if (msgFormat == null) {
+            msgFormat = "json";
+        }
+        MessageDeserializer deserializer = deserializers.get(msgFormat);
         if (deserializer == null) {
-            String msgFormat = msg.getStringProperty(JMSHeaderConstants.MESSAGE_FORMAT);
             deserializer = getDeserializer(msgFormat);
+            MessageDeserializer existing = deserializers.putIfAbsent(msgFormat, deserializer);
+            if (existing != null) {
+                deserializer = existing;
+            }
         }
         return deserializer.getEventMessage(msg);
     }
 
     private static MessageDeserializer getDeserializer(String msgFormat) throws IOException {
-        String deserializerString = (String) jmsDeserializerInfo.get(DESERIALIZER_PROP + msgFormat);
+        String deserializerString = jmsDeserializerInfo == null ? null
+                : (String) jmsDeserializerInfo.get(DESERIALIZER_PROP + msgFormat);
         if (deserializerString == null) {
+            if (BinaryMessageCodec.MESSAGE_FORMAT.equals(msgFormat)) {
+                return new BinaryMessageDeserializer();
+            }
             return new JSONMessageDeserializer();
         }
         else {
@@ -24,6 +24,10 @@ import org.apache.oozie.client.event.message.EventMessage;
 import org.apache.oozie.client.event.message.WorkflowJobMessage;
 import org.apache.oozie.client.event.message.SLAMessage;
 import org.apache.oozie.AppType;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.jms.BytesMessage;
 import javax.jms.Message;
 import javax.jms.TextMessage;
 import javax.jms.JMSException;
@@ -33,8 +37,10 @@ import javax.jms.JMSException;
  */
 public abstract class MessageDeserializer {
 
+    private static final int MAX_DISPLAYED_BYTES = 16;
+
     /**
-     * Constructs the event message from JMS message
+     * Constructs the event message from JMS message, a TextMessage or a BytesMessage
      *
      * @param <T> the type
      * @param message the JMS message
@@ -43,29 +49,41 @@ public abstract class MessageDeserializer {
      */
     @SuppressWarnings("unchecked")
     public <T extends EventMessage> T getEventMessage(Message message) throws JMSException {
-        TextMessage textMessage = (TextMessage) message;
-        String appTypeString = textMessage.getStringProperty(JMSHeaderConstants.APP_TYPE);
-        String msgType = textMessage.getStringProperty(JMSHeaderConstants.MESSAGE_TYPE);
-        String messageBody = textMessage.getText();
+        String appTypeString = message.getStringProperty(JMSHeaderConstants.APP_TYPE);
+        String msgType = message.getStringProperty(JMSHeaderConstants.MESSAGE_TYPE);
+        Object messageBody;
+        boolean empty;
+        if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            messageBody = bytes;
+            empty = bytes.length == 0;
+        }
+        else {
+            String text = ((TextMessage) message).getText();
+            messageBody = text;
+            empty = text == null || text.isEmpty();
+        }
         T eventMsg = null;
 
-        if (appTypeString == null || appTypeString.isEmpty() || messageBody == null || messageBody.isEmpty()) {
+        if (appTypeString == null || appTypeString.isEmpty() || empty) {
             throw new IllegalArgumentException("Could not extract OozieEventMessage. "
                     + "AppType and/or MessageBody is null/empty." + "Apptype is " + appTypeString + " MessageBody is "
-                    + messageBody);
+                    + toDisplayString(messageBody));
         }
 
         if (MessageType.valueOf(msgType) == MessageType.JOB) {
             switch (AppType.valueOf(appTypeString)) {
                 case WORKFLOW_JOB:
-                    WorkflowJobMessage wfJobMsg = getDeserializedObject(messageBody, WorkflowJobMessage.class);
-                    wfJobMsg.setProperties(textMessage);
+                    WorkflowJobMessage wfJobMsg = deserialize(messageBody, WorkflowJobMessage.class);
+                    wfJobMsg.setProperties(message);
                     eventMsg = (T) wfJobMsg;
                     break;
                 case COORDINATOR_ACTION:
-                    CoordinatorActionMessage caActionMsg = getDeserializedObject(messageBody,
+                    CoordinatorActionMessage caActionMsg = deserialize(messageBody,
                             CoordinatorActionMessage.class);
-                    caActionMsg.setProperties(textMessage);
+                    caActionMsg.setProperties(message);
                     eventMsg = (T) caActionMsg;
                     break;
                 default:
@@ -74,14 +92,51 @@ public abstract class MessageDeserializer {
             }
         }
         else if (MessageType.valueOf(msgType) == MessageType.SLA) {
-            SLAMessage SLAMsg = getDeserializedObject(messageBody, SLAMessage.class);
-            SLAMsg.setProperties(textMessage);
+            SLAMessage SLAMsg = deserialize(messageBody, SLAMessage.class);
+            SLAMsg.setProperties(message);
             eventMsg = (T) SLAMsg;
         }
 
         return eventMsg;
     }
 
+    /**
+     * Returns a printable form of a message body, the length and the first bytes in hex for a binary body.
+     */
+    static String toDisplayString(Object messageBody) {
+        if (!(messageBody instanceof byte[])) {
+            return String.valueOf(messageBody);
+        }
+        byte[] bytes = (byte[]) messageBody;
+        StringBuilder sb = new StringBuilder("[").append(bytes.length).append(" bytes");
+        for (int i = 0; i < Math.min(bytes.length, MAX_DISPLAYED_BYTES); i++) {
+            sb.append(i == 0 ? ": " : " ").append(String.format("%02x", bytes[i] & 0xff));
+        }
+        if (bytes.length > MAX_DISPLAYED_BYTES) {
+            sb.append(" ...");
+        }
+        return sb.append("]").toString();
+    }
+
+    private <T> T deserialize(Object messageBody, Class<T> clazz) {
+        if (messageBody instanceof byte[]) {
+            return getDeserializedObject((byte[]) messageBody, clazz);
+        }
+        return getDeserializedObject((String) messageBody, clazz);
+    }
+
     protected abstract <T> T getDeserializedObject(String s, Class<T> clazz);
 
+    /**
+     * Deserializes the body of a BytesMessage, as UTF-8 text by default.
+     *
+     * @param <T> the type
+     * @param body the message body
+     * @param clazz the class of the object
+     * @return the deserialized object
+     */
+    protected <T> T getDeserializedObject(byte[] body, Class<T> clazz) {
+        return getDeserializedObject(new String(body, StandardCharsets.UTF_8), clazz);
+    }
+
 }
@@ -262,4 +262,9 @@ public interface JsonTags {
 
 
     String PURGE = "purge";
+
+    String EVENTS = "events";
+    String EVENTS_FIRST_OFFSET = "firstOffset";
+    String EVENTS_NEXT_OFFSET = "nextOffset";
+    String EVENT_OFFSET = "offset";
 }
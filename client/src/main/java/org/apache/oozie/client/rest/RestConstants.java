@@ -167,6 +167,8 @@ public interface RestConstants {
 
     String ADMIN_PROMETHEUS_RESOURCE = "prometheus";
 
+    String ADMIN_EVENTS_RESOURCE = "events";
+
     String OOZIE_ERROR_CODE = "oozie-error-code";
 
     String OOZIE_ERROR_MESSAGE = "oozie-error-message";
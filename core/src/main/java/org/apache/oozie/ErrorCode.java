@@ -26,6 +26,7 @@ public enum ErrorCode {
     E0002(XLog.STD, "System is in safe mode"),
     E0003(XLog.OPS, "Oozie home directory must be an absolute path [{0}]"),
     E0004(XLog.OPS, "Oozie home directory does not exist [{0}]"),
+    E0005(XLog.STD, "Request rejected by admission control, {0}, retry after [{1}] seconds"),
 
     E0010(XLog.OPS, "Could not initialize log service, {0}"),
     E0011(XLog.OPS, "Log4j file must be a file name [{0}]"),
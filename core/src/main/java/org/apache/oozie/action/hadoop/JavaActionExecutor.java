@@ -1251,7 +1251,15 @@ public class JavaActionExecutor extends ActionExecutor {
         ugi.doAs(new PrivilegedExceptionAction<Object>() {
             public Object run() throws Exception {
                 setEnvironmentVariables(launcherJobConf, amContainer);
-                ClientDistributedCacheManager.determineTimestampsAndCacheVisibilities(launcherJobConf);
+                // the statuses of the share lib jars are looked up once per share lib version if caching them is enabled
+                ShareLibService shareLibService = Services.get().get(ShareLibService.class);
+                Map<URI, FileStatus> statCache = shareLibService != null ? shareLibService.getCachedFileStatuses()
+                        : new HashMap<URI, FileStatus>();
+                ClientDistributedCacheManager.determineTimestamps(launcherJobConf, statCache);
+                ClientDistributedCacheManager.determineCacheVisibilities(launcherJobConf, statCache);
+                if (shareLibService != null) {
+                    shareLibService.cacheFileStatuses(statCache);
+                }
                 MRApps.setupDistributedCache(launcherJobConf, localResources);
                 return null;
             }
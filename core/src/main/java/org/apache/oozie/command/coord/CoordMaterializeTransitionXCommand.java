@@ -62,9 +62,15 @@ import org.jdom2.JDOMException;
 import java.io.IOException;
 import java.io.StringReader;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Materialize actions for specified start and end time for coordinator job.
@@ -91,6 +97,14 @@ import java.util.TimeZone;
  * a maximum number of `oozie.service.CoordMaterializeTriggerService.action.batch.size` will be materialized in every
  * 5 minutes.
  *
+ *
+ * - Backfill of the actions of a job catching up:
+ *
+ * When `oozie.service.CoordMaterializeTriggerService.backfill.threads` is more than 1 and the materialization window is
+ * in the past, the nominal times and numbers of the actions of the run are computed first, then the actions are
+ * materialized in parallel by the threads of the CoordMaterializeTriggerService, each one taking a contiguous range of
+ * nominal times and registering the SLA of its actions, and stored in order in the batch insert. The number of actions of a run is bounded as above.
+ *
  */
 @SuppressWarnings("deprecation")
 public class CoordMaterializeTransitionXCommand extends TransitionXCommand<Void> {
@@ -493,6 +507,14 @@ public class CoordMaterializeTransitionXCommand extends TransitionXCommand<Void>
 
         boolean firstMater = true;
 
+        // the instances of a run catching up are materialized in parallel after the loop
+        CoordMaterializeTriggerService triggerService = Services.get().get(CoordMaterializeTriggerService.class);
+        List<ActionInstance> backfill = null;
+        if (!dryrun && triggerService != null && triggerService.getBackfillExecutor() != null
+                && endMatdTime.before(new Date())) {
+            backfill = new ArrayList<ActionInstance>();
+        }
+
         while (effStart.compareTo(end) < 0 && (ignoreMaxActionsToBeCreated || maxActionsToBeCreated-- > 0)) {
             if (pause != null && effStart.compareTo(pause) >= 0) {
                 break;
@@ -523,16 +545,21 @@ public class CoordMaterializeTransitionXCommand extends TransitionXCommand<Void>
                 LOG.debug("Materializing action for time=" + DateUtils.formatDateOozieTZ(effStart.getTime())
                         + ", lastactionnumber=" + lastActionNumber + " timeout=" + timeout + " minutes");
                 Date actualTime = new Date();
-                action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(),
-                        nextTime, actualTime, lastActionNumber, jobConf, actionBean);
-                actionBean.setTimeOut(timeout);
-                if (!dryrun) {
-                    storeToDB(actionBean, action, jobConf); // Storing to table
-
+                if (backfill != null) {
+                    backfill.add(new ActionInstance(nextTime, actualTime, lastActionNumber, actionBean));
                 }
                 else {
-                    actionStrings.append("action for new instance");
-                    actionStrings.append(action);
+                    action = CoordCommandUtils.materializeOneInstance(jobId, dryrun, (Element) eJob.clone(),
+                            nextTime, actualTime, lastActionNumber, jobConf, actionBean);
+                    actionBean.setTimeOut(timeout);
+                    if (!dryrun) {
+                        storeToDB(actionBean, action, jobConf); // Storing to table
+
+                    }
+                    else {
+                        actionStrings.append("action for new instance");
+                        actionStrings.append(action);
+                    }
                 }
             }
             else {
@@ -555,6 +582,11 @@ public class CoordMaterializeTransitionXCommand extends TransitionXCommand<Void>
             }
         }
 
+        if (backfill != null && !backfill.isEmpty()) {
+            action = materializeInParallel(backfill, eJob, jobConf, triggerService.getBackfillExecutor(),
+                    triggerService.getBackfillThreads());
+        }
+
         endMatdTime = effStart.getTime();
 
         if (!dryrun) {
@@ -590,27 +622,115 @@ public class CoordMaterializeTransitionXCommand extends TransitionXCommand<Void>
         nextTime.setTime(nextTime.getTime() + dstOffset);
     }
 
+    /**
+     * Materialize the action instances of a run catching up in parallel, each task taking a contiguous range of
+     * nominal times with its own copy of the job XML and configuration and registering the SLA of its actions, then
+     * store them in the order of their numbers.
+     *
+     * @param instances action instances in the order of their numbers
+     * @param eJob the job XML
+     * @param jobConf the job configuration
+     * @param executor the backfill executor
+     * @param threads the number of threads of the executor
+     * @return the XML of the last action
+     * @throws Exception thrown if an action could not be materialized
+     */
+    private String materializeInParallel(List<ActionInstance> instances, Element eJob, Configuration jobConf,
+            ExecutorService executor, int threads) throws Exception {
+        int rangeSize = (instances.size() + threads - 1) / threads;
+        int timeout = coordJob.getTimeout();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try {
+            for (int from = 0; from < instances.size(); from += rangeSize) {
+                final List<ActionInstance> range = instances.subList(from, Math.min(from + rangeSize,
+                        instances.size()));
+                final Element eRange = (Element) eJob.clone();
+                final Configuration rangeConf = new XConfiguration(new StringReader(coordJob.getConf()));
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        LogUtils.setLogInfo(coordJob);
+                        for (ActionInstance instance : range) {
+                            instance.actionXml = CoordCommandUtils.materializeOneInstance(jobId, false,
+                                    (Element) eRange.clone(), instance.nominalTime, instance.actualTime,
+                                    instance.actionNumber, rangeConf, instance.actionBean);
+                            instance.slaEvent = writeActionSlaRegistration(instance.actionXml, instance.actionBean,
+                                    rangeConf);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        }
+        catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        finally {
+            // stops the other ranges if one failed
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+        LOG.info("Materialized [{0}] actions in [{1}] parallel ranges", instances.size(), futures.size());
+        String action = null;
+        for (ActionInstance instance : instances) {
+            instance.actionBean.setTimeOut(timeout);
+            addToInsertList(instance.actionBean, instance.actionXml, instance.slaEvent);
+            action = instance.actionXml;
+        }
+        return action;
+    }
+
+    /**
+     * Action of a run catching up, materialized in parallel.
+     */
+    private static class ActionInstance {
+        private final Date nominalTime;
+        private final Date actualTime;
+        private final int actionNumber;
+        private final CoordinatorActionBean actionBean;
+        private String actionXml;
+        private SLAEventBean slaEvent;
+
+        ActionInstance(Date nominalTime, Date actualTime, int actionNumber, CoordinatorActionBean actionBean) {
+            this.nominalTime = nominalTime;
+            this.actualTime = actualTime;
+            this.actionNumber = actionNumber;
+            this.actionBean = actionBean;
+        }
+    }
+
     private void storeToDB(CoordinatorActionBean actionBean, String actionXml, Configuration jobConf) throws Exception {
         LOG.debug("In storeToDB() coord action id = " + actionBean.getId() + ", size of actionXml = "
                 + actionXml.length());
+        addToInsertList(actionBean, actionXml, writeActionSlaRegistration(actionXml, actionBean, jobConf));
+    }
+
+    private void addToInsertList(CoordinatorActionBean actionBean, String actionXml, SLAEventBean slaEvent) {
         actionBean.setActionXml(actionXml);
         insertList.add(actionBean);
-        writeActionSlaRegistration(actionXml, actionBean, jobConf);
+        if (slaEvent != null) {
+            insertList.add(slaEvent);
+        }
     }
 
-    private void writeActionSlaRegistration(String actionXml, CoordinatorActionBean actionBean, Configuration jobConf)
-            throws Exception {
+    /**
+     * Register the SLA of an action, the returned event of the old SLA table is to be added to the batch insert.
+     */
+    private SLAEventBean writeActionSlaRegistration(String actionXml, CoordinatorActionBean actionBean,
+            Configuration jobConf) throws Exception {
         Element eAction = XmlUtils.parseXml(actionXml);
         Element eSla = eAction.getChild("action", eAction.getNamespace()).getChild("info", eAction.getNamespace("sla"));
-                SLAEventBean slaEvent = SLADbOperations.createSlaRegistrationEvent(eSla, actionBean.getId(),
-                                 SlaAppType.COORDINATOR_ACTION, coordJob.getUser(), coordJob.getGroup(), LOG);
-                         if (slaEvent != null) {
-            insertList.add(slaEvent);
-        }
+        SLAEventBean slaEvent = SLADbOperations.createSlaRegistrationEvent(eSla, actionBean.getId(),
+                SlaAppType.COORDINATOR_ACTION, coordJob.getUser(), coordJob.getGroup(), LOG);
         // inserting into new table also
         SLAOperations.createSlaRegistrationEvent(eSla, actionBean.getId(), actionBean.getJobId(),
                 AppType.COORDINATOR_ACTION, coordJob.getUser(), coordJob.getAppName(), LOG, false,
                 CoordUtils.isSlaAlertDisabled(actionBean, coordJob.getAppName(), jobConf));
+        return slaEvent;
     }
 
     private void updateJobMaterializeInfo(CoordinatorJobBean job) throws CommandException {
@@ -35,6 +35,7 @@ import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.sla.SLACalcStatus;
 import org.apache.oozie.sla.SLASummaryBean;
+import org.apache.oozie.sla.SLASummaryWriter;
 
 public abstract class SLAJobEventXCommand extends XCommand<Void> {
     private long lockTimeOut = 0 ;
@@ -43,6 +44,7 @@ public abstract class SLAJobEventXCommand extends XCommand<Void> {
     final static String SLA_LOCK_PREFIX = "sla_";
     private boolean isEnded = false;
     private boolean isEndMiss = false;
+    private SLASummaryWriter summaryWriter;
 
     public SLAJobEventXCommand(SLACalcStatus slaCalc, long lockTimeOut) {
         super("SLA.job.event", "SLA.job.event", 1);
@@ -50,6 +52,15 @@ public abstract class SLAJobEventXCommand extends XCommand<Void> {
         this.lockTimeOut = lockTimeOut;
     }
 
+    /**
+     * Sets the writer of the SLA summary, it is written right away if null.
+     *
+     * @param summaryWriter the write-behind writer of the SLA summaries
+     */
+    public void setSummaryWriter(SLASummaryWriter summaryWriter) {
+        this.summaryWriter = summaryWriter;
+    }
+
     @Override
     protected boolean isLockRequired() {
         return true;
@@ -161,8 +172,13 @@ public abstract class SLAJobEventXCommand extends XCommand<Void> {
         slaSummaryBean.setJobStatus(slaCalc.getJobStatus());
         slaSummaryBean.setLastModifiedTime(new Date());
 
-        SLASummaryQueryExecutor.getInstance().executeUpdate(SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES,
-                slaSummaryBean);
+        if (summaryWriter != null) {
+            summaryWriter.write(slaSummaryBean);
+        }
+        else {
+            SLASummaryQueryExecutor.getInstance().executeUpdate(
+                    SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES, slaSummaryBean);
+        }
 
         LOG.debug(" Stored SLA SummaryBean Job [{0}] eventProc = [{1}], status = [{2}]", slaCalc.getId(),
                 slaCalc.getEventProcessed(), slaCalc.getJobStatus());
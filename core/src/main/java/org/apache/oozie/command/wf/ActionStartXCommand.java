@@ -340,7 +340,7 @@ public class ActionStartXCommand extends ActionXCommand<org.apache.oozie.command
         }
         finally {
             try {
-                BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(insertList, updateList, null);
+                persist(insertList, updateList);
                 if (!(executor instanceof ControlNodeActionExecutor) && EventHandlerService.isEnabled()) {
                     generateEvent(wfAction, wfJob.getUser());
                 }
@@ -360,6 +360,17 @@ public class ActionStartXCommand extends ActionXCommand<org.apache.oozie.command
         return null;
     }
 
+    /**
+     * Persist the action and job updates of the command.
+     *
+     * @param insertList the beans to insert
+     * @param updateList the updates
+     * @throws JPAExecutorException if the updates could not be persisted
+     */
+    protected void persist(List<JsonBean> insertList, List<UpdateEntry> updateList) throws JPAExecutorException {
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(insertList, updateList, null);
+    }
+
     protected void callActionEnd() throws CommandException {
         new ActionEndXCommand(wfAction.getId(), wfAction.getType()).call();
     }
@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -39,8 +41,10 @@ import org.apache.oozie.action.ActionExecutor;
 import org.apache.oozie.client.Job;
 import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
 import org.apache.oozie.service.CallbackService;
 import org.apache.oozie.service.ConfigurationService;
 import org.apache.oozie.service.ELService;
@@ -511,6 +515,9 @@ public abstract class ActionXCommand<T> extends WorkflowXCommand<T> {
 
     public static class ForkedActionExecutorContext extends ActionExecutorContext {
         private Map<String, String> contextVariableMap = new HashMap<String, String>();
+        private List<JsonBean> insertList = new ArrayList<JsonBean>();
+        private List<UpdateEntry> updateList = new ArrayList<UpdateEntry>();
+        private boolean eventDeferred;
 
         public ForkedActionExecutorContext(WorkflowJobBean workflow, WorkflowActionBean action, boolean isRetry,
                 boolean isUserRetry) {
@@ -533,6 +540,39 @@ public abstract class ActionXCommand<T> extends WorkflowXCommand<T> {
         public Map<String, String> getContextMap() {
             return contextVariableMap;
         }
+
+        /**
+         * Set the updates of the action left to the command starting the forked actions to persist.
+         *
+         * @param insertList the beans to insert
+         * @param updateList the updates
+         */
+        public void setUpdates(List<JsonBean> insertList, List<UpdateEntry> updateList) {
+            this.insertList = insertList;
+            this.updateList = updateList;
+        }
+
+        public List<JsonBean> getInsertList() {
+            return insertList;
+        }
+
+        public List<UpdateEntry> getUpdateList() {
+            return updateList;
+        }
+
+        /**
+         * Set if the event of the action is left to the command starting the forked actions, to generate once the
+         * updates are persisted.
+         *
+         * @param eventDeferred true if the event of the action is to be generated
+         */
+        public void setEventDeferred(boolean eventDeferred) {
+            this.eventDeferred = eventDeferred;
+        }
+
+        public boolean isEventDeferred() {
+            return eventDeferred;
+        }
     }
 
     /*
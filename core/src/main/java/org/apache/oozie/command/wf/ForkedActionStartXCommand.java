@@ -18,18 +18,29 @@
 
 package org.apache.oozie.command.wf;
 
+import java.util.List;
+
 import org.apache.oozie.WorkflowActionBean;
 import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.action.ActionExecutor;
 import org.apache.oozie.client.Job;
 import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.XCommand;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.util.LogUtils;
 
 public class ForkedActionStartXCommand extends ActionStartXCommand {
 
     private final static String FORKED_ACTION_START_NAME = "action.forkedstart";
 
+    private boolean deferPersist;
+    private List<JsonBean> deferredInsertList;
+    private List<UpdateEntry> deferredUpdateList;
+    private boolean eventDeferred;
+
     public ForkedActionStartXCommand(String actionId, String type) {
         super(actionId, type, FORKED_ACTION_START_NAME);
     }
@@ -38,11 +49,91 @@ public class ForkedActionStartXCommand extends ActionStartXCommand {
         super(wfJob, id, type, FORKED_ACTION_START_NAME);
     }
 
+    /**
+     * Start a forked action already loaded by the signal command, leaving the updates of the action to the signal
+     * command so that the updates of all the forked actions are persisted in a single batch. The event of the action
+     * is generated by the signal command once the updates are persisted.
+     *
+     * @param wfJob the workflow job
+     * @param action the forked action, as persisted by the signal command
+     */
+    public ForkedActionStartXCommand(WorkflowJobBean wfJob, WorkflowActionBean action) {
+        super(wfJob, action.getId(), action.getType(), FORKED_ACTION_START_NAME);
+        this.wfAction = action;
+        this.deferPersist = true;
+    }
+
+    @Override
+    protected void loadState() throws CommandException {
+        if (deferPersist) {
+            // the job and the action are the ones the signal command has just persisted
+            LogUtils.setLogInfo(wfJob);
+            LogUtils.setLogInfo(wfAction);
+        }
+        else {
+            super.loadState();
+        }
+    }
+
     protected ActionExecutorContext execute() throws CommandException {
-        super.execute();
+        try {
+            super.execute();
+        }
+        catch (CommandException | RuntimeException e) {
+            // the signal command does not get the updates of a failed command
+            try {
+                persistDeferred();
+            }
+            catch (CommandException pe) {
+                LOG.warn("Could not persist the updates of action [{0}]", actionId, pe);
+            }
+            throw e;
+        }
+        if (deferredInsertList != null && context != null) {
+            ((ForkedActionExecutorContext) context).setUpdates(deferredInsertList, deferredUpdateList);
+            ((ForkedActionExecutorContext) context).setEventDeferred(eventDeferred);
+        }
         return context;
     }
 
+    @Override
+    protected void persist(List<JsonBean> insertList, List<UpdateEntry> updateList) throws JPAExecutorException {
+        if (deferPersist) {
+            deferredInsertList = insertList;
+            deferredUpdateList = updateList;
+        }
+        else {
+            super.persist(insertList, updateList);
+        }
+    }
+
+    @Override
+    protected void generateEvent(WorkflowActionBean wfAction, String wfUser) {
+        if (deferredInsertList != null) {
+            eventDeferred = true;
+        }
+        else {
+            super.generateEvent(wfAction, wfUser);
+        }
+    }
+
+    private void persistDeferred() throws CommandException {
+        if (deferredInsertList != null) {
+            try {
+                super.persist(deferredInsertList, deferredUpdateList);
+                deferredInsertList = null;
+                deferredUpdateList = null;
+            }
+            catch (JPAExecutorException e) {
+                throw new CommandException(e);
+            }
+            if (eventDeferred) {
+                eventDeferred = false;
+                super.generateEvent(wfAction, wfJob.getUser());
+            }
+        }
+    }
+
     @Override
     public String getEntityKey() {
         return actionId;
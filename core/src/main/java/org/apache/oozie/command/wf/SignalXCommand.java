@@ -93,6 +93,7 @@ public class SignalXCommand extends WorkflowXCommand<Void> {
     private String wfJobErrorCode;
     private String wfJobErrorMsg;
     public final static String FORK_PARALLEL_JOBSUBMISSION = "oozie.workflow.parallel.fork.action.start";
+    public final static String FORK_PARALLEL_BATCH_PERSIST = "oozie.workflow.parallel.fork.action.start.batch.persist";
 
     public SignalXCommand(String name, int priority, String jobId) {
         super(name, name, priority);
@@ -518,11 +519,15 @@ public class SignalXCommand extends WorkflowXCommand<Void> {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Starting forked actions parallely: " + workflowActionBeanListForForked);
                     }
+                    boolean batchPersist = ConfigurationService.getBoolean(FORK_PARALLEL_BATCH_PERSIST);
                     for (WorkflowActionBean workflowActionBean : workflowActionBeanListForForked) {
+                        ForkedActionStartXCommand command = batchPersist
+                                ? new ForkedActionStartXCommand(wfJob, workflowActionBean)
+                                : new ForkedActionStartXCommand(wfJob, workflowActionBean.getId(),
+                                        workflowActionBean.getType());
                         futures.add(
                                 callableQueueService.submit(callableQueueService.new CallableWrapper<ActionExecutorContext>(
-                                        new ForkedActionStartXCommand(wfJob,
-                                                workflowActionBean.getId(), workflowActionBean.getType()), 0))
+                                        command, 0))
                         );
                     }
 
@@ -535,12 +540,34 @@ public class SignalXCommand extends WorkflowXCommand<Void> {
                 }
             }
 
+            // Collect the updates left by all the started actions before handling any failure, they are persisted
+            // even if the forked actions are queued again
+            List<ActionExecutorContext> contexts = new ArrayList<>();
+            List<ForkedActionExecutorContext> forkedContexts = new ArrayList<>();
+            Exception failure = null;
             for (Future<ActionExecutorContext> result : futures) {
                 if (result == null) {
                     submitJobByQueuing = true;
                     continue;
                 }
-                ActionExecutorContext context = result.get();
+                try {
+                    ActionExecutorContext context = result.get();
+                    if (context instanceof ForkedActionExecutorContext) {
+                        forkedContexts.add((ForkedActionExecutorContext) context);
+                    }
+                    contexts.add(context);
+                }
+                catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            persistForkedActions(forkedContexts);
+            if (failure != null) {
+                throw failure;
+            }
+            for (ActionExecutorContext context : contexts) {
                 Map<String, String> contextVariableMap = ((ForkedActionExecutorContext) context).getContextMap();
                 LOG.debug("contextVariableMap size of action " + context.getAction().getId() + " is " + contextVariableMap.size());
                 for (String key : contextVariableMap.keySet()) {
@@ -596,6 +623,53 @@ public class SignalXCommand extends WorkflowXCommand<Void> {
         LOG.debug("forked actions submitted parallely");
     }
 
+    /**
+     * Persist the updates left by the forked actions before the updates of the workflow job, so that the external ids
+     * of the started actions are kept even if the final batch of the command fails. The updates of all the actions are
+     * persisted in a single batch, if it fails they are persisted action by action. The events of the actions are
+     * generated once their updates are persisted.
+     *
+     * @param contexts the contexts of the started forked actions
+     * @throws CommandException if the updates of an action could not be persisted
+     */
+    private void persistForkedActions(List<ForkedActionExecutorContext> contexts) throws CommandException {
+        List<JsonBean> insertList = new ArrayList<>();
+        List<UpdateEntry> updateList = new ArrayList<>();
+        for (ForkedActionExecutorContext context : contexts) {
+            insertList.addAll(context.getInsertList());
+            updateList.addAll(context.getUpdateList());
+        }
+        if (insertList.isEmpty() && updateList.isEmpty()) {
+            return;
+        }
+        try {
+            BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(insertList, updateList, null);
+        }
+        catch (JPAExecutorException e) {
+            LOG.warn("Could not persist the forked actions in a single batch, persisting them one by one", e);
+            for (ForkedActionExecutorContext context : contexts) {
+                try {
+                    BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(context.getInsertList(),
+                            context.getUpdateList(), null);
+                }
+                catch (JPAExecutorException ae) {
+                    throw new CommandException(ae);
+                }
+                generateForkedActionEvent(context);
+            }
+            return;
+        }
+        for (ForkedActionExecutorContext context : contexts) {
+            generateForkedActionEvent(context);
+        }
+    }
+
+    private void generateForkedActionEvent(ForkedActionExecutorContext context) {
+        if (context.isEventDeferred()) {
+            generateEvent((WorkflowActionBean) context.getAction(), context.getWorkflow().getUser());
+        }
+    }
+
     public void startForkedActionsByQueuing(List<WorkflowActionBean> workflowActionBeanListForForked) throws CommandException {
         //queuing all jobs, submitted job will fail in precondition
         for (WorkflowActionBean workflowActionBean : workflowActionBeanListForForked) {
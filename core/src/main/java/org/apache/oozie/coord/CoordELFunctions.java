@@ -968,6 +968,11 @@ public class CoordELFunctions {
             return "";
         } else {
             Calendar initInstance = getInitialInstanceCal();
+            List<String> cachedInstances = getCachedInstances(initInstance, datasetFrequency, dsTimeUnit,
+                    instCount.get(), start, end);
+            if (cachedInstances != null) {
+                return StringUtils.join(cachedInstances, CoordELFunctions.INSTANCE_SEPARATOR);
+            }
             // Add in the reverse order - newest instance first.
             nominalInstanceCal = (Calendar) initInstance.clone();
             nominalInstanceCal.add(dsTimeUnit.getCalendarUnit(), (instCount.get() + start) * datasetFrequency);
@@ -989,6 +994,42 @@ public class CoordELFunctions {
         }
     }
 
+    /**
+     * Resolve the instances of a range from the precomputed instance times of the dataset.
+     *
+     * @param initInstance initial instance of the dataset
+     * @param datasetFrequency frequency of the dataset
+     * @param dsTimeUnit time unit of the frequency
+     * @param currentIndex index of the current instance
+     * @param start start of the range relative to the current instance
+     * @param end end of the range relative to the current instance
+     * @return the instances of the range, newest instance first, null if they could not be resolved
+     */
+    private static List<String> getCachedInstances(Calendar initInstance, int datasetFrequency, TimeUnit dsTimeUnit,
+            int currentIndex, int start, int end) {
+        DatasetInstanceCalendar calendar = DatasetInstanceCalendar.get(initInstance.getTime(), datasetFrequency,
+                dsTimeUnit, initInstance.getTimeZone());
+        if (calendar == null) {
+            return null;
+        }
+        List<String> instances = new ArrayList<String>();
+        for (int i = end; i >= start; i--) {
+            if (currentIndex + i < 0) {
+                XLog.getLog(CoordELFunctions.class).warn("If the initial instance of the dataset is later than the"
+                        + " current-instance specified, such as coord:current({0}) in this case, an empty string is"
+                        + " returned. This means that no data is available at the current-instance specified by the user"
+                        + " and the user could try modifying his initial-instance to an earlier time.", start);
+                continue;
+            }
+            String instance = calendar.getFormattedInstance(currentIndex + i);
+            if (instance == null) {
+                return null;
+            }
+            instances.add(instance);
+        }
+        return instances;
+    }
+
     /**
      *
      * @param n offset amount (integer)
@@ -1244,6 +1285,17 @@ public class CoordELFunctions {
             return null;
         }
 
+        DatasetInstanceCalendar instances = DatasetInstanceCalendar.get(datasetInitialInstance, dsFreq, dsTimeUnit,
+                dsTZ);
+        if (instances != null) {
+            int index = instances.getCurrentIndex(effectiveTime);
+            if (index != DatasetInstanceCalendar.UNRESOLVED) {
+                instanceCount.set(index);
+                current.setTimeInMillis(instances.getInstanceTime(index));
+                return current;
+            }
+        }
+
         switch(dsTimeUnit) {
             case MINUTE:
                 instanceCount.set((int) ((effectiveTime.getTime() - datasetInitialInstance.getTime()) / MINUTE_MSEC));
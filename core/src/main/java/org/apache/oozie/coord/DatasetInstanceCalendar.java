@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.coord;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.oozie.util.DateUtils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Precomputed instance times of a dataset, shared by the EL functions resolving the instances of the dataset.
+ * <p>
+ * The instance {@code i} of a dataset is its initial instance plus {@code i} times its frequency, added to a
+ * {@link Calendar} in the time zone of the dataset, so daylight saving time transitions are taken into account. The
+ * times of a window of consecutive instances are computed at once and looked up by index afterwards, as are their
+ * formatted times once formatted. A few windows are kept, each in the slot given by its start, so lookups far apart,
+ * like the current and the oldest instances of a long range, do not replace each other's window.
+ * <p>
+ * Calendar arithmetic is only equivalent to stepping from one instance to the next when no instance is adjusted, for
+ * example a monthly dataset starting on the 31st or a daily dataset starting at a wall clock time skipped by a daylight
+ * saving time transition. A window containing such an instance is not used and {@link #UNRESOLVED} or
+ * {@link #UNRESOLVED_TIME} is returned, the callers then fall back to the Calendar arithmetic.
+ */
+public class DatasetInstanceCalendar {
+
+    /**
+     * Returned when the index of an instance can not be resolved from the precomputed instance times.
+     */
+    public static final int UNRESOLVED = -1;
+
+    /**
+     * Returned when the time of an instance can not be resolved from the precomputed instance times.
+     */
+    public static final long UNRESOLVED_TIME = Long.MIN_VALUE;
+
+    @VisibleForTesting
+    static final int WINDOW_SIZE = 1024;
+
+    private static final int WINDOW_SLOTS = 4;
+
+    private static final int MAX_DATASETS = 10000;
+
+    private static final Cache<Key, DatasetInstanceCalendar> CALENDARS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_DATASETS).build();
+
+    private final long initialInstance;
+    private final int frequency;
+    private final int calendarUnit;
+    private final long unitMillis;
+    private final TimeZone timeZone;
+    private final AtomicReferenceArray<Window> windows = new AtomicReferenceArray<Window>(WINDOW_SLOTS);
+
+    /**
+     * Return the instance times of a dataset.
+     *
+     * @param initialInstance the initial instance of the dataset, adjusted to the end of day, week or month if needed
+     * @param frequency the frequency of the dataset
+     * @param timeUnit the time unit of the frequency
+     * @param timeZone the time zone of the dataset
+     * @return the instance times of the dataset, null if the time unit is not supported
+     */
+    public static DatasetInstanceCalendar get(final Date initialInstance, final int frequency, final TimeUnit timeUnit,
+            final TimeZone timeZone) {
+        final long unitMillis = getUnitMillis(timeUnit);
+        if (unitMillis <= 0 || frequency <= 0) {
+            return null;
+        }
+        try {
+            return CALENDARS.get(new Key(initialInstance.getTime(), frequency, timeUnit, timeZone.getID()),
+                    new Callable<DatasetInstanceCalendar>() {
+                        @Override
+                        public DatasetInstanceCalendar call() {
+                            return new DatasetInstanceCalendar(initialInstance.getTime(), frequency,
+                                    timeUnit.getCalendarUnit(), unitMillis, timeZone);
+                        }
+                    });
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        CALENDARS.invalidateAll();
+    }
+
+    private DatasetInstanceCalendar(long initialInstance, int frequency, int calendarUnit, long unitMillis,
+            TimeZone timeZone) {
+        this.initialInstance = initialInstance;
+        this.frequency = frequency;
+        this.calendarUnit = calendarUnit;
+        this.unitMillis = unitMillis;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Return the index of the latest instance not after the given time.
+     *
+     * @param effectiveTime the time, not earlier than the initial instance
+     * @return the index of the instance, {@link #UNRESOLVED} if it can not be resolved
+     */
+    public int getCurrentIndex(Date effectiveTime) {
+        long time = effectiveTime.getTime();
+        long estimate = (time - initialInstance) / (unitMillis * frequency);
+        if (estimate >= Integer.MAX_VALUE - WINDOW_SIZE) {
+            return UNRESOLVED;
+        }
+        int index = (int) estimate;
+        long instance = getInstanceTime(index);
+        while (instance != UNRESOLVED_TIME && instance > time && index > 0) {
+            instance = getInstanceTime(--index);
+        }
+        if (instance == UNRESOLVED_TIME) {
+            return UNRESOLVED;
+        }
+        long next = getInstanceTime(index + 1);
+        while (next != UNRESOLVED_TIME && next <= time) {
+            next = getInstanceTime(++index + 1);
+        }
+        return next == UNRESOLVED_TIME ? UNRESOLVED : index;
+    }
+
+    /**
+     * Return the time of an instance.
+     *
+     * @param index the index of the instance, not negative
+     * @return the time of the instance in milliseconds, {@link #UNRESOLVED_TIME} if it can not be resolved
+     */
+    public long getInstanceTime(int index) {
+        Window current = getWindow(index);
+        return current.times == null ? UNRESOLVED_TIME : current.times[index - current.start];
+    }
+
+    /**
+     * Return the time of an instance formatted in the Oozie processing timezone, as
+     * {@link DateUtils#formatDateOozieTZ(Date)} does.
+     *
+     * @param index the index of the instance, not negative
+     * @return the formatted time of the instance, null if it can not be resolved
+     */
+    public String getFormattedInstance(int index) {
+        Window current = getWindow(index);
+        if (current.times == null) {
+            return null;
+        }
+        String mask = DateUtils.getOozieTimeMask();
+        FormattedInstances formatted = current.formatted;
+        if (formatted == null || !formatted.mask.equals(mask)) {
+            formatted = new FormattedInstances(mask);
+            current.formatted = formatted;
+        }
+        int i = index - current.start;
+        String instance = formatted.instances[i];
+        if (instance == null) {
+            instance = DateUtils.formatDateOozieTZ(new Date(current.times[i]));
+            formatted.instances[i] = instance;
+        }
+        return instance;
+    }
+
+    private Window getWindow(int index) {
+        int windowIndex = index / WINDOW_SIZE;
+        int slot = windowIndex % WINDOW_SLOTS;
+        Window current = windows.get(slot);
+        if (current == null || current.start != windowIndex * WINDOW_SIZE) {
+            current = new Window(windowIndex * WINDOW_SIZE);
+            windows.set(slot, current);
+        }
+        return current;
+    }
+
+    private Calendar getInstance(int index) {
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.setTimeInMillis(initialInstance);
+        cal.add(calendarUnit, index * frequency);
+        return cal;
+    }
+
+    private static long getUnitMillis(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case MINUTE:
+                return CoordELFunctions.MINUTE_MSEC;
+            case HOUR:
+                return CoordELFunctions.HOUR_MSEC;
+            case DAY:
+            case END_OF_DAY:
+                return CoordELFunctions.DAY_MSEC;
+            case WEEK:
+            case END_OF_WEEK:
+                return CoordELFunctions.WEEK_MSEC;
+            case MONTH:
+            case END_OF_MONTH:
+                // the shortest month and year, the estimated index is then never lower than the actual one
+                return 28 * CoordELFunctions.DAY_MSEC;
+            case YEAR:
+                return 365 * CoordELFunctions.DAY_MSEC;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * The times of consecutive instances, or null times if stepping from one instance to the next and back does not
+     * give the same times as computing each instance from the initial instance.
+     */
+    private final class Window {
+        private final int start;
+        private final long[] times;
+        private volatile FormattedInstances formatted;
+
+        private Window(int start) {
+            this.start = start;
+            long[] instances = new long[WINDOW_SIZE];
+            Calendar cal = getInstance(start);
+            instances[0] = cal.getTimeInMillis();
+            for (int i = 1; i < WINDOW_SIZE; i++) {
+                cal.add(calendarUnit, frequency);
+                instances[i] = cal.getTimeInMillis();
+                if (instances[i] != getInstance(start + i).getTimeInMillis()) {
+                    instances = null;
+                    break;
+                }
+                Calendar previous = (Calendar) cal.clone();
+                previous.add(calendarUnit, -frequency);
+                if (previous.getTimeInMillis() != instances[i - 1]) {
+                    instances = null;
+                    break;
+                }
+            }
+            this.times = instances;
+        }
+    }
+
+    /**
+     * The formatted times of the instances of a window, formatted when first requested. The mask identifies the Oozie
+     * processing timezone they are formatted in.
+     */
+    private static final class FormattedInstances {
+        private final String mask;
+        private final String[] instances = new String[WINDOW_SIZE];
+
+        private FormattedInstances(String mask) {
+            this.mask = mask;
+        }
+    }
+
+    private static final class Key {
+        private final long initialInstance;
+        private final int frequency;
+        private final TimeUnit timeUnit;
+        private final String timeZone;
+
+        private Key(long initialInstance, int frequency, TimeUnit timeUnit, String timeZone) {
+            this.initialInstance = initialInstance;
+            this.frequency = frequency;
+            this.timeUnit = timeUnit;
+            this.timeZone = timeZone;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return initialInstance == other.initialInstance && frequency == other.frequency
+                    && timeUnit == other.timeUnit && timeZone.equals(other.timeZone);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[] {initialInstance, frequency, timeUnit, timeZone});
+        }
+    }
+}
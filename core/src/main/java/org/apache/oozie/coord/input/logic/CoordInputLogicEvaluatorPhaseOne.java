@@ -25,6 +25,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +54,13 @@ public class CoordInputLogicEvaluatorPhaseOne implements CoordInputLogicEvaluato
     protected CoordinatorActionBean coordAction = null;
     protected XLog log = XLog.getLog(getClass());
 
+    /**
+     * Availability of the paths checked by this evaluation. A path used by several datasets or branches of the input
+     * logic is checked once, the availability found is kept in the input instances between evaluations.
+     */
+    private final Map<String, Boolean> checkedPaths = new HashMap<String, Boolean>();
+    private Configuration actionConf;
+
     public CoordInputLogicEvaluatorPhaseOne(CoordinatorActionBean coordAction) {
         this(coordAction, coordAction.getPullInputDependencies());
     }
@@ -96,12 +104,12 @@ public class CoordInputLogicEvaluatorPhaseOne implements CoordInputLogicEvaluato
         }
         boolean allFound = true;
         try {
-            Configuration actionConf = new XConfiguration(new StringReader(coordAction.getRunConf()));
+            Configuration actionConf = getActionConf();
             List<CoordInputInstance> firstInputSetList = coordInputDependency.getDependencyMap().get(dataSet);
             for (int i = 0; i < firstInputSetList.size(); i++) {
                 CoordInputInstance coordInputInstance = firstInputSetList.get(i);
                 if (!coordInputInstance.isAvailable()) {
-                    if (pathExists(coordInputInstance.getInputDataInstance(), actionConf)) {
+                    if (isPathAvailable(coordInputInstance.getInputDataInstance(), actionConf)) {
                         availableList.add(coordInputInstance.getInputDataInstance());
                         coordInputDependency.addToAvailableDependencies(dataSet, coordInputInstance);
                     }
@@ -156,19 +164,19 @@ public class CoordInputLogicEvaluatorPhaseOne implements CoordInputLogicEvaluato
 
         try {
 
-            Configuration jobConf = new XConfiguration(new StringReader(coordAction.getRunConf()));
+            Configuration jobConf = getActionConf();
             String firstInputSet = inputSets[0];
             List<CoordInputInstance> firstInputSetList = coordInputDependency.getDependencyMap().get(firstInputSet);
             for (int i = 0; i < firstInputSetList.size(); i++) {
                 CoordInputInstance coordInputInstance = firstInputSetList.get(i);
                 boolean found = false;
                 if (!coordInputInstance.isAvailable()) {
-                    if (!pathExists(coordInputInstance.getInputDataInstance(), jobConf)) {
+                    if (!isPathAvailable(coordInputInstance.getInputDataInstance(), jobConf)) {
                         log.debug(MessageFormat.format("{0} is not found. Looking from other datasets.",
                                 coordInputInstance.getInputDataInstance()));
                         for (int j = 1; j < inputSets.length; j++) {
                             if (!coordInputDependency.getDependencyMap().get(inputSets[j]).get(i).isAvailable()) {
-                                if (pathExists(coordInputDependency.getDependencyMap().get(inputSets[j]).get(i)
+                                if (isPathAvailable(coordInputDependency.getDependencyMap().get(inputSets[j]).get(i)
                                         .getInputDataInstance(), jobConf)) {
                                     coordInputDependency.addToAvailableDependencies(inputSets[j], coordInputDependency
                                             .getDependencyMap().get(inputSets[j]).get(i));
@@ -257,6 +265,33 @@ public class CoordInputLogicEvaluatorPhaseOne implements CoordInputLogicEvaluato
         return retData;
     }
 
+    /**
+     * Check if a path exists, once per evaluation.
+     *
+     * @param sPath the path
+     * @param jobConf the action configuration
+     * @return true if the path exists
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws URISyntaxException if the path is not a valid URI
+     * @throws URIHandlerException if the path could not be checked
+     */
+    protected boolean isPathAvailable(String sPath, Configuration jobConf) throws IOException, URISyntaxException,
+            URIHandlerException {
+        Boolean available = checkedPaths.get(sPath);
+        if (available == null) {
+            available = pathExists(sPath, jobConf);
+            checkedPaths.put(sPath, available);
+        }
+        return available;
+    }
+
+    private Configuration getActionConf() throws IOException {
+        if (actionConf == null) {
+            actionConf = getConf();
+        }
+        return actionConf;
+    }
+
     protected boolean pathExists(String sPath, Configuration jobConf) throws IOException, URISyntaxException,
             URIHandlerException {
         return CoordCommandUtils.pathExists(sPath, jobConf);
@@ -56,13 +56,13 @@ public class CoordInputLogicEvaluatorPhaseTwo extends CoordInputLogicEvaluatorPh
     public CoordInputLogicEvaluatorResult evalInput(String dataSet, int min, int wait) {
         try {
             CoordPullInputDependency coordPullInputDependency = (CoordPullInputDependency) coordInputDependency;
-            ELEvaluator eval = CoordELEvaluator.createLazyEvaluator(actualTime, coordAction.getNominalTime(),
-                    getInputSetEvent(dataSet), getConf());
             if (coordPullInputDependency.getUnResolvedDependency(dataSet) == null) {
                 return super.evalInput(dataSet, min, wait);
 
             }
             else {
+                ELEvaluator eval = CoordELEvaluator.createLazyEvaluator(actualTime, coordAction.getNominalTime(),
+                        getInputSetEvent(dataSet), getConf());
                 cleanPreviousCheckData(coordPullInputDependency, dataSet);
                 List<String> unresolvedList = coordPullInputDependency.getUnResolvedDependency(dataSet)
                         .getDependencies();
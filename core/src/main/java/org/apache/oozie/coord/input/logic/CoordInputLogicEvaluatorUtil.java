@@ -23,7 +23,11 @@ import java.util.Date;
 import org.apache.commons.jexl2.Expression;
 import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.JexlInfo;
 import org.apache.commons.jexl2.NamespaceResolver;
+import org.apache.commons.jexl2.introspection.JexlPropertyGet;
+import org.apache.commons.jexl2.introspection.JexlPropertySet;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.oozie.CoordinatorActionBean;
 import org.apache.oozie.ErrorCode;
@@ -41,6 +45,19 @@ import org.jdom2.JDOMException;
 
 public class CoordInputLogicEvaluatorUtil {
 
+    private static final int EXPRESSION_CACHE_SIZE = 1024;
+
+    /**
+     * Engine shared by all the evaluations, so the input logic expression of a coordinator is parsed once and not on
+     * every input check of each of its actions. The contexts of the evaluations resolve their properties without the
+     * parser of the engine, see {@link OozieJexlParser}.
+     */
+    private static final JexlEngine JEXL = new OozieJexlEngine();
+
+    static {
+        JEXL.setCache(EXPRESSION_CACHE_SIZE);
+    }
+
     private CoordinatorActionBean coordAction = null;
     private XLog log = XLog.getLog(getClass());
 
@@ -60,15 +77,13 @@ public class CoordInputLogicEvaluatorUtil {
      * @throws JDOMException the JDOM exception
      */
     public boolean checkPullMissingDependencies() throws JDOMException {
-        JexlEngine jexl = new OozieJexlEngine();
-
         String expression = CoordUtils.getInputLogic(coordAction.getActionXml().toString());
         if (StringUtils.isEmpty(expression)) {
             return true;
         }
-        Expression e = jexl.createExpression(expression);
+        Expression e = JEXL.createExpression(expression);
 
-        JexlContext jc = new OozieJexlParser(jexl, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseOne(
+        JexlContext jc = new OozieJexlParser(JEXL, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseOne(
                 coordAction, coordAction.getPullInputDependencies())));
         CoordInputLogicEvaluatorResult result = (CoordInputLogicEvaluatorResult) e.evaluate(jc);
         log.debug("Input logic expression for [{0}] and evaluate result is [{1}]", expression, result.getStatus());
@@ -86,13 +101,12 @@ public class CoordInputLogicEvaluatorUtil {
      * @throws CommandException when evaluation fails
      */
     public void validateInputLogic() throws JDOMException, CommandException {
-        JexlEngine jexl = new OozieJexlEngine();
         String expression = CoordUtils.getInputLogic(coordAction.getActionXml().toString());
         if (StringUtils.isEmpty(expression)) {
             return;
         }
-        Expression e = jexl.createExpression(expression);
-        JexlContext jc = new OozieJexlParser(jexl, new CoordInputLogicBuilder(
+        Expression e = JEXL.createExpression(expression);
+        JexlContext jc = new OozieJexlParser(JEXL, new CoordInputLogicBuilder(
                 new CoordInputLogicEvaluatorPhaseValidate(coordAction)));
         try {
             Object result = e.evaluate(jc);
@@ -114,15 +128,13 @@ public class CoordInputLogicEvaluatorUtil {
      * @throws JDOMException the JDOM exception
      */
     public String getInputDependencies(String name, SyncCoordAction syncCoordAction) throws JDOMException {
-        JexlEngine jexl = new OozieJexlEngine();
-
         CoordinatorActionBean coordAction = new CoordinatorActionBean();
         ELEvaluator eval = ELEvaluator.getCurrent();
         coordAction.setId(syncCoordAction.getActionId());
         Element eJob = XmlUtils.parseXml(eval.getVariable(".actionInputLogic").toString());
         String expression = new InputLogicParser().parseWithName(eJob, name);
 
-        Expression e = jexl.createExpression(expression);
+        Expression e = JEXL.createExpression(expression);
 
         CoordPullInputDependency pull = (CoordPullInputDependency) syncCoordAction.getPullDependencies();
         CoordPushInputDependency push = (CoordPushInputDependency) syncCoordAction.getPushDependencies();
@@ -131,7 +143,7 @@ public class CoordInputLogicEvaluatorUtil {
 
         coordAction.setPullInputDependencies(pull);
 
-        JexlContext jc = new OozieJexlParser(jexl, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseThree(
+        JexlContext jc = new OozieJexlParser(JEXL, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseThree(
                 coordAction, eval)));
         CoordInputLogicEvaluatorResult result = (CoordInputLogicEvaluatorResult) e.evaluate(jc);
 
@@ -154,15 +166,13 @@ public class CoordInputLogicEvaluatorUtil {
      * @throws JDOMException the JDOM exception
      */
     public boolean checkPushDependencies() throws JDOMException {
-        JexlEngine jexl = new OozieJexlEngine();
-
         String expression = CoordUtils.getInputLogic(coordAction.getActionXml().toString());
         if (StringUtils.isEmpty(expression)) {
             return true;
         }
 
-        Expression e = jexl.createExpression(expression);
-        JexlContext jc = new OozieJexlParser(jexl, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseOne(
+        Expression e = JEXL.createExpression(expression);
+        JexlContext jc = new OozieJexlParser(JEXL, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseOne(
                 coordAction, coordAction.getPushInputDependencies())));
         CoordInputLogicEvaluatorResult result = (CoordInputLogicEvaluatorResult) e.evaluate(jc);
         log.debug("Input logic expression for [{0}] and evaluate result is [{1}]", expression, result.getStatus());
@@ -181,15 +191,13 @@ public class CoordInputLogicEvaluatorUtil {
      * @throws JDOMException the JDOM exception
      */
     public boolean checkUnResolved(Date actualTime) throws JDOMException {
-        JexlEngine jexl = new OozieJexlEngine();
-
         String expression = CoordUtils.getInputLogic(coordAction.getActionXml().toString());
         if (StringUtils.isEmpty(expression)) {
             return true;
         }
 
-        Expression e = jexl.createExpression(expression);
-        JexlContext jc = new OozieJexlParser(jexl, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseTwo(
+        Expression e = JEXL.createExpression(expression);
+        JexlContext jc = new OozieJexlParser(JEXL, new CoordInputLogicBuilder(new CoordInputLogicEvaluatorPhaseTwo(
                 coordAction, actualTime)));
         CoordInputLogicEvaluatorResult result = (CoordInputLogicEvaluatorResult) e.evaluate(jc);
         log.debug("Input logic expression for [{0}] and evaluate result is [{1}]", expression, result.getStatus());
@@ -215,12 +223,34 @@ public class CoordInputLogicEvaluatorUtil {
             this.object = wrapped;
         }
 
+        /*
+         * The properties are resolved with the uberspect rather than JexlEngine.getProperty/setProperty, which parse
+         * "#0.name" with a parser flag that is set outside of the engine lock and are not safe on the shared engine.
+         */
         public Object get(String name) {
-            return jexl.getProperty(object, name);
+            JexlPropertyGet getter = jexl.getUberspect().getPropertyGet(object, name, null);
+            if (getter == null) {
+                return null;
+            }
+            try {
+                return getter.invoke(object);
+            }
+            catch (Exception e) {
+                throw new JexlException((JexlInfo) null, "get property " + name + " failed", e);
+            }
         }
 
         public void set(String name, Object value) {
-            jexl.setProperty(object, name, value);
+            JexlPropertySet setter = jexl.getUberspect().getPropertySet(object, name, value, null);
+            if (setter == null) {
+                throw new JexlException((JexlInfo) null, "undefined property " + name);
+            }
+            try {
+                setter.invoke(object, value);
+            }
+            catch (Exception e) {
+                throw new JexlException((JexlInfo) null, "set property " + name + " failed", e);
+            }
         }
 
         public boolean has(String name) {
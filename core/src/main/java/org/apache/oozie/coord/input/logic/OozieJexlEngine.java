@@ -24,24 +24,17 @@ import org.apache.commons.jexl2.JexlEngine;
 
 /**
  * Oozie implementation of Jexl Engine
- *
+ * <p>
+ * An interpreter is created for each evaluation as it is bound to the context of the evaluation, so a single engine
+ * and the expressions it parsed can be shared by concurrent evaluations.
  */
 public class OozieJexlEngine extends JexlEngine {
-    OozieJexlInterpreter oozieInterpreter;
 
     public OozieJexlEngine() {
     }
 
     protected Interpreter createInterpreter(JexlContext context, boolean strictFlag, boolean silentFlag) {
-        if (oozieInterpreter == null) {
-            oozieInterpreter = new OozieJexlInterpreter(this, context == null ? EMPTY_CONTEXT : context, true,
-                    silentFlag);
-        }
-        return oozieInterpreter;
-    }
-
-    public OozieJexlInterpreter getOozieInterpreter() {
-        return oozieInterpreter;
+        return new OozieJexlInterpreter(this, context == null ? EMPTY_CONTEXT : context, true, silentFlag);
     }
 
 }
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.dependency.hcat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File based overflow tier of the {@link IndexedHCatDependencyCache}, holding the waiting actions of the missing
+ * partitions not kept in memory. Records are appended to a single file, an update appends a new record, and only the
+ * keys and the file offsets of their last records are kept in memory, as the disk store of Ehcache does. The file is
+ * compacted once it holds more garbage than live records, and is deleted on close as the store is not persistent.
+ */
+class DependencyOverflowStore {
+
+    private static final int MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final File file;
+    private final int maxEntries;
+    private final Map<String, Long> offsets = new HashMap<String, Long>();
+    private RandomAccessFile data;
+    private long garbage;
+
+    /**
+     * @param file the file of the store, replaced if it exists
+     * @param maxEntries maximum number of keys in the store
+     * @throws IOException thrown if the file could not be created
+     */
+    DependencyOverflowStore(File file, int maxEntries) throws IOException {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+        data = new RandomAccessFile(file, "rw");
+    }
+
+    synchronized int size() {
+        return offsets.size();
+    }
+
+    synchronized boolean isFull() {
+        return offsets.size() >= maxEntries;
+    }
+
+    synchronized Collection<String> keys() {
+        return new ArrayList<String>(offsets.keySet());
+    }
+
+    /**
+     * @param key the key
+     * @return the waiting actions of the key, null if it is not in the store
+     * @throws IOException thrown if the record could not be read
+     */
+    synchronized List<WaitingAction> get(String key) throws IOException {
+        Long offset = offsets.get(key);
+        return offset == null ? null : read(offset);
+    }
+
+    /**
+     * @param key the key
+     * @param waitingActions the waiting actions of the key, replacing the ones in the store
+     * @return false if the key is not in the store and the store is full
+     * @throws IOException thrown if the record could not be written
+     */
+    synchronized boolean put(String key, Collection<WaitingAction> waitingActions) throws IOException {
+        Long previous = offsets.get(key);
+        if (previous == null && offsets.size() >= maxEntries) {
+            return false;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeUTF(key);
+        out.writeInt(waitingActions.size());
+        for (WaitingAction waitingAction : waitingActions) {
+            out.writeUTF(waitingAction.getActionID());
+            out.writeUTF(waitingAction.getDependencyURI());
+        }
+        out.close();
+        byte[] record = bytes.toByteArray();
+        int length = record.length - 4;
+        record[0] = (byte) (length >>> 24);
+        record[1] = (byte) (length >>> 16);
+        record[2] = (byte) (length >>> 8);
+        record[3] = (byte) length;
+        long offset = data.length();
+        data.seek(offset);
+        data.write(record);
+        offsets.put(key, offset);
+        if (previous != null) {
+            discard(previous);
+        }
+        return true;
+    }
+
+    /**
+     * @param key the key
+     * @return the waiting actions of the removed key, null if it is not in the store
+     * @throws IOException thrown if the record could not be read
+     */
+    synchronized List<WaitingAction> remove(String key) throws IOException {
+        Long offset = offsets.remove(key);
+        if (offset == null) {
+            return null;
+        }
+        List<WaitingAction> waitingActions = read(offset);
+        discard(offset);
+        return waitingActions;
+    }
+
+    synchronized void close() {
+        offsets.clear();
+        try {
+            data.close();
+        }
+        catch (IOException e) {
+            // ignored, the file is deleted
+        }
+        file.delete();
+    }
+
+    private List<WaitingAction> read(long offset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(readRecord(offset)));
+        in.readUTF();
+        int count = in.readInt();
+        List<WaitingAction> waitingActions = new ArrayList<WaitingAction>(count);
+        for (int i = 0; i < count; i++) {
+            waitingActions.add(new WaitingAction(in.readUTF(), in.readUTF()));
+        }
+        return waitingActions;
+    }
+
+    private byte[] readRecord(long offset) throws IOException {
+        data.seek(offset);
+        byte[] record = new byte[data.readInt()];
+        data.readFully(record);
+        return record;
+    }
+
+    private void discard(long offset) throws IOException {
+        data.seek(offset);
+        garbage += 4 + data.readInt();
+        if (garbage > MIN_COMPACTION_BYTES && garbage > data.length() - garbage) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the live records to a new file replacing the current one.
+     */
+    private void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        try {
+            out.setLength(0);
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                byte[] record = readRecord(entry.getValue());
+                entry.setValue(out.getFilePointer());
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        }
+        finally {
+            out.close();
+        }
+        data.close();
+        if (!compacted.renameTo(file)) {
+            throw new IOException("Could not rename " + compacted + " to " + file);
+        }
+        data = new RandomAccessFile(file, "rw");
+        garbage = 0;
+    }
+}
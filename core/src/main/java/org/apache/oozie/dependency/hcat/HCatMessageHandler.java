@@ -60,9 +60,7 @@ public class HCatMessageHandler implements MessageHandler {
                 LOG.info("Partition available event: db [{0}]  table [{1}] partitions [{2}]", db, table,
                         partMsg.getPartitions());
                 List<Map<String, String>> partitions = partMsg.getPartitions();
-                for (int i = 0; i < partitions.size(); i++) {
-                    pdmService.partitionAvailable(this.server, db, table, partitions.get(i));
-                }
+                pdmService.partitionsAvailable(this.server, db, table, partitions);
             }
             else {
                 LOG.debug("Ignoring message of event type [{0}] ", hcatMsg.getEventType());
@@ -0,0 +1,966 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.dependency.hcat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.HCatAccessorService;
+import org.apache.oozie.service.PartitionDependencyManagerService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.util.HCatURI;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Partition dependency cache indexing the missing partitions of a table by sorted partition key pattern
+ * (country;dt;state), and the partitions of a pattern in a trie of their values. Partition values, action IDs and
+ * URIs are interned as int symbols shared by all the tables, so a missing partition costs a few int arrays instead of
+ * string keys and a notification of partition added looks up the values of each pattern of the table without building
+ * any string. Missing partitions beyond {@link #CONF_MAX_MEMORY_ENTRIES} go to a file based overflow tier, bounded by
+ * {@link #CONF_MAX_OVERFLOW_ENTRIES}; the ones beyond both are dropped as the ones evicted by the Ehcache cache are,
+ * and registered again when the recovery service checks their waiting actions.
+ */
+public class IndexedHCatDependencyCache implements HCatDependencyCache {
+
+    private static XLog LOG = XLog.getLog(IndexedHCatDependencyCache.class);
+    private static final String DELIMITER = ";";
+    private static final String TABLE_DELIMITER = "#";
+
+    public static final String CONF_MAX_MEMORY_ENTRIES = PartitionDependencyManagerService.CONF_PREFIX
+            + "cache.indexed.max.memory.entries";
+    public static final String CONF_MAX_OVERFLOW_ENTRIES = PartitionDependencyManagerService.CONF_PREFIX
+            + "cache.indexed.max.overflow.entries";
+    public static final String CONF_OVERFLOW_DIR = PartitionDependencyManagerService.CONF_PREFIX
+            + "cache.indexed.overflow.dir";
+
+    private boolean useCanonicalHostName = false;
+
+    private int maxMemoryEntries;
+
+    private SymbolTable symbols;
+
+    /**
+     * Map of server;db;table - partition key patterns of the missing partitions of the table
+     */
+    private ConcurrentMap<String, TableIndex> tables;
+
+    /**
+     * Number of missing partitions in memory, over all the tables
+     */
+    private int memoryEntries;
+
+    /**
+     * Missing partitions beyond the ones in memory, null if disabled
+     */
+    private DependencyOverflowStore overflow;
+
+    /**
+     * Map of actionIDs and collection of available URIs
+     */
+    private ConcurrentMap<String, Collection<String>> availableDeps;
+
+    @Override
+    public void init(Configuration conf) {
+        symbols = new SymbolTable();
+        tables = new ConcurrentHashMap<String, TableIndex>();
+        availableDeps = new ConcurrentHashMap<String, Collection<String>>();
+        memoryEntries = 0;
+        useCanonicalHostName = ConfigurationService.getBoolean(conf,
+                SimpleHCatDependencyCache.USE_CANONICAL_HOSTNAME);
+        maxMemoryEntries = ConfigurationService.getInt(conf, CONF_MAX_MEMORY_ENTRIES);
+        int maxOverflowEntries = ConfigurationService.getInt(conf, CONF_MAX_OVERFLOW_ENTRIES);
+        if (maxMemoryEntries >= 0 && maxOverflowEntries > 0) {
+            File dir = new File(ConfigurationService.get(conf, CONF_OVERFLOW_DIR));
+            try {
+                overflow = new DependencyOverflowStore(new File(dir, "hcat-dependencies.overflow"),
+                        maxOverflowEntries);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Could not create the overflow store of the dependency cache in "
+                        + dir, e);
+            }
+        }
+    }
+
+    @Override
+    public void addMissingDependency(HCatURI hcatURI, String actionID) {
+        String server = canonicalizeHostname(hcatURI.getServer());
+        String tableKey = server + DELIMITER + hcatURI.getDb() + DELIMITER + hcatURI.getTable();
+        Map<String, String> partitions = hcatURI.getPartitionMap();
+        String[] partKeys = sortedPartKeys(partitions);
+        String partKey = join(partKeys);
+        while (true) {
+            TableIndex index = tables.get(tableKey);
+            if (index == null) {
+                index = new TableIndex(server, hcatURI.getDb(), hcatURI.getTable());
+                TableIndex existing = tables.putIfAbsent(tableKey, index);
+                if (existing != null) {
+                    index = existing;
+                }
+            }
+            synchronized (index) {
+                if (index.removed) {
+                    // Removed by a concurrent notification or removal, add to the new one
+                    continue;
+                }
+                PartitionPattern pattern = index.patterns.get(partKey);
+                if (pattern == null) {
+                    pattern = new PartitionPattern(partKeys);
+                    index.patterns.put(partKey, pattern);
+                }
+                addMissingDependency(tableKey, pattern, partitions, actionID, hcatURI.toURIString());
+                if (pattern.isEmpty()) {
+                    index.patterns.remove(partKey);
+                    if (index.patterns.isEmpty()) {
+                        index.removed = true;
+                        tables.remove(tableKey, index);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void addMissingDependency(String tableKey, PartitionPattern pattern, Map<String, String> partitions,
+            String actionID, String uri) {
+        Node[] nodes = new Node[pattern.partKeys.length];
+        int[] ids = new int[pattern.partKeys.length];
+        Leaf leaf = find(pattern, partitions, nodes, ids);
+        if (leaf != null) {
+            if (leaf.indexOf(symbols.lookup(actionID), symbols.lookup(uri)) < 0) {
+                leaf.add(symbols.acquire(actionID), symbols.acquire(uri));
+            }
+            return;
+        }
+        String overflowKey = null;
+        if (pattern.overflowEntries > 0) {
+            overflowKey = overflowKey(tableKey, pattern, partitions);
+            try {
+                List<WaitingAction> waitingActions = overflow.get(overflowKey);
+                if (waitingActions != null) {
+                    WaitingAction waitingAction = new WaitingAction(actionID, uri);
+                    if (!waitingActions.contains(waitingAction)) {
+                        waitingActions.add(waitingAction);
+                        overflow.put(overflowKey, waitingActions);
+                    }
+                    return;
+                }
+            }
+            catch (IOException e) {
+                LOG.warn("Add missing dependency - Could not read overflow entry - uri={0}, actionID={1}", uri,
+                        actionID, e);
+            }
+        }
+        if (reserveMemoryEntry()) {
+            leaf = create(pattern, partitions);
+            leaf.add(symbols.acquire(actionID), symbols.acquire(uri));
+            pattern.memoryEntries++;
+            return;
+        }
+        if (overflow != null) {
+            try {
+                List<WaitingAction> waitingActions = new ArrayList<WaitingAction>(1);
+                waitingActions.add(new WaitingAction(actionID, uri));
+                if (overflowKey == null) {
+                    overflowKey = overflowKey(tableKey, pattern, partitions);
+                }
+                if (overflow.put(overflowKey, waitingActions)) {
+                    pattern.overflowEntries++;
+                    return;
+                }
+            }
+            catch (IOException e) {
+                LOG.warn("Add missing dependency - Could not write overflow entry - uri={0}, actionID={1}", uri,
+                        actionID, e);
+                return;
+            }
+        }
+        LOG.warn("Add missing dependency - Cache is full, dropping dependency - uri={0}, actionID={1}", uri,
+                actionID);
+    }
+
+    @Override
+    public boolean removeMissingDependency(HCatURI hcatURI, String actionID) {
+        String tableKey = canonicalizeHostname(hcatURI.getServer()) + DELIMITER + hcatURI.getDb() + DELIMITER
+                + hcatURI.getTable();
+        Map<String, String> partitions = hcatURI.getPartitionMap();
+        String partKey = join(sortedPartKeys(partitions));
+        String uri = hcatURI.toURIString();
+        TableIndex index = tables.get(tableKey);
+        if (index == null) {
+            LOG.warn("Remove missing dependency - Missing table entry - uri={0}, actionID={1}", uri, actionID);
+            return false;
+        }
+        synchronized (index) {
+            PartitionPattern pattern = index.patterns.get(partKey);
+            if (pattern == null) {
+                LOG.warn("Remove missing dependency - Missing partition pattern - uri={0}, actionID={1}", uri,
+                        actionID);
+                return false;
+            }
+            boolean removed = false;
+            Node[] nodes = new Node[pattern.partKeys.length];
+            int[] ids = new int[pattern.partKeys.length];
+            Leaf leaf = find(pattern, partitions, nodes, ids);
+            if (leaf != null) {
+                int i = leaf.indexOf(symbols.lookup(actionID), symbols.lookup(uri));
+                if (i >= 0) {
+                    symbols.release(leaf.actions[i]);
+                    symbols.release(leaf.uris[i]);
+                    leaf.remove(i);
+                    removed = true;
+                }
+                if (leaf.size == 0) {
+                    prune(pattern, nodes, ids);
+                }
+            }
+            else if (pattern.overflowEntries > 0) {
+                String overflowKey = overflowKey(tableKey, pattern, partitions);
+                try {
+                    List<WaitingAction> waitingActions = overflow.get(overflowKey);
+                    if (waitingActions == null) {
+                        LOG.warn("Remove missing dependency - Missing partition value - uri={0}, actionID={1}", uri,
+                                actionID);
+                        return false;
+                    }
+                    removed = waitingActions.remove(new WaitingAction(actionID, uri));
+                    if (waitingActions.isEmpty()) {
+                        overflow.remove(overflowKey);
+                        pattern.overflowEntries--;
+                    }
+                    else if (removed) {
+                        overflow.put(overflowKey, waitingActions);
+                    }
+                }
+                catch (IOException e) {
+                    LOG.warn("Remove missing dependency - Could not update overflow entry - uri={0}, actionID={1}",
+                            uri, actionID, e);
+                    return false;
+                }
+            }
+            else {
+                LOG.warn("Remove missing dependency - Missing partition value - uri={0}, actionID={1}", uri,
+                        actionID);
+                return false;
+            }
+            if (!removed) {
+                LOG.warn("Remove missing dependency - Missing action ID - uri={0}, actionID={1}", uri, actionID);
+            }
+            if (pattern.isEmpty()) {
+                index.patterns.remove(partKey);
+                removeIfEmpty(tableKey, index);
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public Collection<String> getWaitingActions(HCatURI hcatURI) {
+        String tableKey = canonicalizeHostname(hcatURI.getServer()) + DELIMITER + hcatURI.getDb() + DELIMITER
+                + hcatURI.getTable();
+        Map<String, String> partitions = hcatURI.getPartitionMap();
+        TableIndex index = tables.get(tableKey);
+        if (index == null) {
+            return null;
+        }
+        URI uri = hcatURI.getURI();
+        String uriString = null;
+        try {
+            uriString = new URI(uri.getScheme(), canonicalizeHostname(uri.getAuthority()), uri.getPath(),
+                    uri.getQuery(), uri.getFragment()).toString();
+        }
+        catch (URISyntaxException e) {
+            uriString = hcatURI.toURIString();
+        }
+        synchronized (index) {
+            PartitionPattern pattern = index.patterns.get(join(sortedPartKeys(partitions)));
+            if (pattern == null) {
+                return null;
+            }
+            Leaf leaf = find(pattern, partitions, new Node[pattern.partKeys.length],
+                    new int[pattern.partKeys.length]);
+            Collection<String> actionIDs = null;
+            if (leaf != null) {
+                actionIDs = new ArrayList<String>();
+                int uriId = symbols.lookup(uriString);
+                for (int i = 0; i < leaf.size; i++) {
+                    if (leaf.uris[i] == uriId) {
+                        actionIDs.add(symbols.get(leaf.actions[i]));
+                    }
+                }
+            }
+            else if (pattern.overflowEntries > 0) {
+                try {
+                    List<WaitingAction> waitingActions = overflow.get(overflowKey(tableKey, pattern, partitions));
+                    if (waitingActions != null) {
+                        actionIDs = new ArrayList<String>();
+                        for (WaitingAction action : waitingActions) {
+                            if (action.getDependencyURI().equals(uriString)) {
+                                actionIDs.add(action.getActionID());
+                            }
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    LOG.warn("Could not read overflow entry - uri={0}", hcatURI.toURIString(), e);
+                }
+            }
+            return actionIDs;
+        }
+    }
+
+    @Override
+    public Collection<String> markDependencyAvailable(String server, String db, String table,
+            Map<String, String> partitions) {
+        String tableKey = canonicalizeHostname(server) + DELIMITER + db + DELIMITER + table;
+        TableIndex index = tables.get(tableKey);
+        if (index == null) {
+            LOG.warn("Got partition available notification for " + tableKey
+                    + ". Unexpected and should not be listening to topic. Unregistering topic");
+            unregisterFromNotifications(server, db, table);
+            return null;
+        }
+        Collection<String> actionsWithAvailDep = new HashSet<String>();
+        synchronized (index) {
+            // If partition patterns are date, date;country and date;country;state, look up the values of each
+            // pattern from the available partitions map and mark the waiting actions of the matching partition.
+            Iterator<PartitionPattern> patternItr = index.patterns.values().iterator();
+            while (patternItr.hasNext()) {
+                PartitionPattern pattern = patternItr.next();
+                Node[] nodes = new Node[pattern.partKeys.length];
+                int[] ids = new int[pattern.partKeys.length];
+                Leaf leaf = find(pattern, partitions, nodes, ids);
+                if (leaf != null) {
+                    for (int i = 0; i < leaf.size; i++) {
+                        markAvailable(symbols.get(leaf.actions[i]), symbols.get(leaf.uris[i]), actionsWithAvailDep);
+                        symbols.release(leaf.actions[i]);
+                        symbols.release(leaf.uris[i]);
+                    }
+                    leaf.size = 0;
+                    prune(pattern, nodes, ids);
+                }
+                else if (pattern.overflowEntries > 0 && hasValues(pattern, partitions)) {
+                    try {
+                        List<WaitingAction> waitingActions = overflow.remove(overflowKey(tableKey, pattern,
+                                partitions));
+                        if (waitingActions != null) {
+                            pattern.overflowEntries--;
+                            for (WaitingAction waitingAction : waitingActions) {
+                                markAvailable(waitingAction.getActionID(), waitingAction.getDependencyURI(),
+                                        actionsWithAvailDep);
+                            }
+                        }
+                    }
+                    catch (IOException e) {
+                        LOG.warn("Could not read overflow entry of partition available notification for "
+                                + tableKey, e);
+                    }
+                }
+                if (pattern.isEmpty()) {
+                    patternItr.remove();
+                }
+            }
+            removeIfEmpty(tableKey, index);
+        }
+        return actionsWithAvailDep;
+    }
+
+    private void markAvailable(String actionID, String dependencyURI, Collection<String> actionsWithAvailDep) {
+        actionsWithAvailDep.add(actionID);
+        Collection<String> depURIs = availableDeps.get(actionID);
+        if (depURIs == null) {
+            depURIs = new ArrayList<String>();
+            Collection<String> existing = availableDeps.putIfAbsent(actionID, depURIs);
+            if (existing != null) {
+                depURIs = existing;
+            }
+        }
+        synchronized (depURIs) {
+            depURIs.add(dependencyURI);
+            availableDeps.put(actionID, depURIs);
+        }
+    }
+
+    @Override
+    public Collection<String> getAvailableDependencyURIs(String actionID) {
+        Collection<String> available = availableDeps.get(actionID);
+        if (available !=  null) {
+            // Return a copy
+            available = new ArrayList<String>(available);
+        }
+        return available;
+    }
+
+    @Override
+    public boolean removeAvailableDependencyURIs(String actionID, Collection<String> dependencyURIs) {
+        if (!availableDeps.containsKey(actionID)) {
+            return false;
+        }
+        else {
+            Collection<String> availList = availableDeps.get(actionID);
+            if (!availList.removeAll(dependencyURIs)) {
+                return false;
+            }
+            synchronized (availList) {
+                if (availList.isEmpty()) {
+                    availableDeps.remove(actionID);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        tables.clear();
+        availableDeps.clear();
+        if (overflow != null) {
+            overflow.close();
+        }
+    }
+
+    @Override
+    public void removeNonWaitingCoordActions(Set<String> staleActions) {
+        Set<Integer> staleIds = new HashSet<Integer>();
+        for (String actionID : staleActions) {
+            int id = symbols.lookup(actionID);
+            if (id >= 0) {
+                staleIds.add(id);
+            }
+        }
+        if (!staleIds.isEmpty()) {
+            for (Map.Entry<String, TableIndex> entry : tables.entrySet()) {
+                TableIndex index = entry.getValue();
+                synchronized (index) {
+                    Iterator<PartitionPattern> patternItr = index.patterns.values().iterator();
+                    while (patternItr.hasNext()) {
+                        PartitionPattern pattern = patternItr.next();
+                        removeActions(pattern, pattern.root, 0, staleIds);
+                        if (pattern.isEmpty()) {
+                            patternItr.remove();
+                        }
+                    }
+                    removeIfEmpty(entry.getKey(), index);
+                }
+            }
+        }
+        if (overflow != null && overflow.size() > 0) {
+            removeOverflowActions(staleActions);
+        }
+    }
+
+    /**
+     * Removes the stale actions from the partitions under a node of the trie of a pattern, and the partitions left
+     * without waiting action.
+     *
+     * @return true if the node is left empty
+     */
+    private boolean removeActions(PartitionPattern pattern, Node node, int depth, Set<Integer> staleIds) {
+        List<Integer> emptied = new ArrayList<Integer>();
+        for (int slot = 0; slot < node.capacity(); slot++) {
+            Object child = node.valueAt(slot);
+            if (child == null) {
+                continue;
+            }
+            boolean empty;
+            if (depth == pattern.partKeys.length - 1) {
+                Leaf leaf = (Leaf) child;
+                for (int i = leaf.size - 1; i >= 0; i--) {
+                    if (staleIds.contains(leaf.actions[i])) {
+                        LOG.info("Removing non waiting coord action {0} from partition dependency map",
+                                symbols.get(leaf.actions[i]));
+                        symbols.release(leaf.actions[i]);
+                        symbols.release(leaf.uris[i]);
+                        leaf.remove(i);
+                    }
+                }
+                empty = leaf.size == 0;
+                if (empty) {
+                    pattern.memoryEntries--;
+                    releaseMemoryEntry();
+                }
+            }
+            else {
+                empty = removeActions(pattern, (Node) child, depth + 1, staleIds);
+            }
+            if (empty) {
+                emptied.add(node.keyAt(slot));
+            }
+        }
+        for (int id : emptied) {
+            node.remove(id);
+            symbols.release(id);
+        }
+        return node.isEmpty();
+    }
+
+    private void removeOverflowActions(Set<String> staleActions) {
+        for (String overflowKey : overflow.keys()) {
+            int tableEnd = overflowKey.indexOf(TABLE_DELIMITER);
+            int partKeyEnd = overflowKey.indexOf(TABLE_DELIMITER, tableEnd + 1);
+            String tableKey = overflowKey.substring(0, tableEnd);
+            TableIndex index = tables.get(tableKey);
+            if (index == null) {
+                continue;
+            }
+            synchronized (index) {
+                String partKey = overflowKey.substring(tableEnd + 1, partKeyEnd);
+                PartitionPattern pattern = index.patterns.get(partKey);
+                if (pattern == null) {
+                    continue;
+                }
+                try {
+                    List<WaitingAction> waitingActions = overflow.get(overflowKey);
+                    if (waitingActions == null) {
+                        continue;
+                    }
+                    boolean removed = false;
+                    Iterator<WaitingAction> waitingActionItr = waitingActions.iterator();
+                    while (waitingActionItr.hasNext()) {
+                        WaitingAction waitingAction = waitingActionItr.next();
+                        if (staleActions.contains(waitingAction.getActionID())) {
+                            LOG.info("Removing non waiting coord action {0} from partition dependency map",
+                                    waitingAction.getActionID());
+                            waitingActionItr.remove();
+                            removed = true;
+                        }
+                    }
+                    if (waitingActions.isEmpty()) {
+                        overflow.remove(overflowKey);
+                        pattern.overflowEntries--;
+                        if (pattern.isEmpty()) {
+                            index.patterns.remove(partKey);
+                            removeIfEmpty(tableKey, index);
+                        }
+                    }
+                    else if (removed) {
+                        overflow.put(overflowKey, waitingActions);
+                    }
+                }
+                catch (IOException e) {
+                    LOG.warn("Could not purge overflow entry {0}", overflowKey, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeCoordActionWithDependenciesAvailable(String coordAction) {
+        // No reverse lookup of the actions is kept, purging scans the partitions
+    }
+
+    public String canonicalizeHostname(String name) {
+        return SimpleHCatDependencyCache.canonicalizeHostname(name, useCanonicalHostName);
+    }
+
+    /**
+     * @return the number of missing partitions in memory
+     */
+    @VisibleForTesting
+    public synchronized int getMemoryEntries() {
+        return memoryEntries;
+    }
+
+    /**
+     * @return the number of missing partitions in the overflow tier
+     */
+    @VisibleForTesting
+    public int getOverflowEntries() {
+        return overflow == null ? 0 : overflow.size();
+    }
+
+    /**
+     * @return the number of interned partition values, action IDs and URIs
+     */
+    @VisibleForTesting
+    public int getSymbolCount() {
+        return symbols.size();
+    }
+
+    protected void unregisterFromNotifications(String server, String db, String table) {
+        // Close JMS session. Stop listening on topic
+        HCatAccessorService hcatService = Services.get().get(HCatAccessorService.class);
+        hcatService.unregisterFromNotification(server, db, table);
+    }
+
+    private void removeIfEmpty(String tableKey, TableIndex index) {
+        if (index.patterns.isEmpty()) {
+            index.removed = true;
+            tables.remove(tableKey, index);
+            unregisterFromNotifications(index.server, index.db, index.table);
+        }
+    }
+
+    private synchronized boolean reserveMemoryEntry() {
+        if (maxMemoryEntries >= 0 && memoryEntries >= maxMemoryEntries) {
+            return false;
+        }
+        memoryEntries++;
+        return true;
+    }
+
+    private synchronized void releaseMemoryEntry() {
+        memoryEntries--;
+    }
+
+    /**
+     * Looks up the partition of the values of a pattern, and the path of nodes and value symbols to it.
+     *
+     * @return the leaf of the partition, null if it is not in memory
+     */
+    private Leaf find(PartitionPattern pattern, Map<String, String> partitions, Node[] nodes, int[] ids) {
+        Node node = pattern.root;
+        int last = pattern.partKeys.length - 1;
+        for (int depth = 0; depth <= last; depth++) {
+            String value = partitions.get(pattern.partKeys[depth]);
+            int id = value == null ? -1 : symbols.lookup(value);
+            if (id < 0) {
+                return null;
+            }
+            Object child = node.get(id);
+            if (child == null) {
+                return null;
+            }
+            nodes[depth] = node;
+            ids[depth] = id;
+            if (depth == last) {
+                return (Leaf) child;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * Creates the path to the partition of the values of a pattern.
+     *
+     * @return the new leaf of the partition
+     */
+    private Leaf create(PartitionPattern pattern, Map<String, String> partitions) {
+        Node node = pattern.root;
+        int last = pattern.partKeys.length - 1;
+        for (int depth = 0; depth <= last; depth++) {
+            String value = partitions.get(pattern.partKeys[depth]);
+            int id = symbols.lookup(value);
+            Object child = id < 0 ? null : node.get(id);
+            if (child == null) {
+                child = depth == last ? new Leaf() : new Node();
+                node.put(symbols.acquire(value), child);
+            }
+            if (depth == last) {
+                return (Leaf) child;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the empty leaf at the end of a path found by {@link #find}, and the nodes left empty.
+     */
+    private void prune(PartitionPattern pattern, Node[] nodes, int[] ids) {
+        for (int depth = nodes.length - 1; depth >= 0; depth--) {
+            nodes[depth].remove(ids[depth]);
+            symbols.release(ids[depth]);
+            if (depth > 0 && !nodes[depth].isEmpty()) {
+                break;
+            }
+        }
+        pattern.memoryEntries--;
+        releaseMemoryEntry();
+    }
+
+    private static boolean hasValues(PartitionPattern pattern, Map<String, String> partitions) {
+        for (String key : pattern.partKeys) {
+            if (partitions.get(key) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String overflowKey(String tableKey, PartitionPattern pattern, Map<String, String> partitions) {
+        StringBuilder sb = new StringBuilder(tableKey).append(TABLE_DELIMITER).append(pattern.partKey)
+                .append(TABLE_DELIMITER);
+        for (String key : pattern.partKeys) {
+            sb.append(partitions.get(key)).append(DELIMITER);
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    private static String[] sortedPartKeys(Map<String, String> partitions) {
+        String[] keys = partitions.keySet().toArray(new String[partitions.size()]);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static String join(String[] keys) {
+        StringBuilder sb = new StringBuilder();
+        for (String key : keys) {
+            sb.append(key).append(DELIMITER);
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    private static class TableIndex {
+        private final String server;
+        private final String db;
+        private final String table;
+        /**
+         * Map of sorted partition key pattern (country;dt;state) - missing partitions of the pattern
+         */
+        private final Map<String, PartitionPattern> patterns = new HashMap<String, PartitionPattern>();
+        private boolean removed;
+
+        TableIndex(String server, String db, String table) {
+            this.server = server;
+            this.db = db;
+            this.table = table;
+        }
+    }
+
+    /**
+     * Missing partitions of a partition key pattern, in memory in a trie of the values of the sorted keys whose
+     * leaves hold the waiting actions, and counted in the overflow tier.
+     */
+    private static class PartitionPattern {
+        private final String[] partKeys;
+        private final String partKey;
+        private final Node root = new Node();
+        private int memoryEntries;
+        private int overflowEntries;
+
+        PartitionPattern(String[] partKeys) {
+            this.partKeys = partKeys;
+            this.partKey = join(partKeys);
+        }
+
+        boolean isEmpty() {
+            return memoryEntries == 0 && overflowEntries == 0;
+        }
+    }
+
+    /**
+     * Node of a trie of partition values, an open addressing hash map of value symbols to child nodes or leaves.
+     */
+    private static class Node {
+        private static final int FREE = -1;
+        private int[] keys = {FREE, FREE};
+        private Object[] values = new Object[2];
+        private int size;
+
+        private static int hash(int key, int mask) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        Object get(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key, mask); keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, Object value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                int[] oldKeys = keys;
+                Object[] oldValues = values;
+                keys = new int[oldKeys.length * 2];
+                Arrays.fill(keys, FREE);
+                values = new Object[oldKeys.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != FREE) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int i = hash(key, mask);
+            while (keys[i] != FREE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == FREE) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == FREE) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = FREE;
+            values[i] = null;
+            size--;
+            // Shifts back the following entries of the probe sequence into the freed slot
+            for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+                int home = hash(keys[j], mask);
+                if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    keys[j] = FREE;
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int keyAt(int slot) {
+            return keys[slot];
+        }
+
+        Object valueAt(int slot) {
+            return values[slot];
+        }
+    }
+
+    /**
+     * Waiting actions of a missing partition, as the symbols of the action IDs and of the dependency URIs.
+     */
+    private static class Leaf {
+        private int[] actions = new int[1];
+        private int[] uris = new int[1];
+        private int size;
+
+        int indexOf(int action, int uri) {
+            for (int i = 0; i < size; i++) {
+                if (actions[i] == action && uris[i] == uri) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void add(int action, int uri) {
+            if (size == actions.length) {
+                actions = Arrays.copyOf(actions, size * 2);
+                uris = Arrays.copyOf(uris, size * 2);
+            }
+            actions[size] = action;
+            uris[size] = uri;
+            size++;
+        }
+
+        void remove(int i) {
+            size--;
+            actions[i] = actions[size];
+            uris[i] = uris[size];
+        }
+    }
+
+    /**
+     * Interned strings, each with an int symbol reference counted by its uses in the tries and the leaves, and
+     * reused once released by all of them.
+     */
+    private static class SymbolTable {
+        private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+        private String[] names = new String[1024];
+        private int[] references = new int[1024];
+        private int[] free = new int[64];
+        private int freeCount;
+        private int next;
+
+        /**
+         * @return the symbol of a string, -1 if it is not interned
+         */
+        int lookup(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        /**
+         * @return the symbol of a string, interned if needed, with one more reference
+         */
+        synchronized int acquire(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                if (freeCount > 0) {
+                    id = free[--freeCount];
+                }
+                else {
+                    if (next == names.length) {
+                        names = Arrays.copyOf(names, next * 2);
+                        references = Arrays.copyOf(references, next * 2);
+                    }
+                    id = next++;
+                }
+                names[id] = name;
+                ids.put(name, id);
+            }
+            references[id]++;
+            return id;
+        }
+
+        synchronized void release(int id) {
+            if (--references[id] == 0) {
+                ids.remove(names[id]);
+                names[id] = null;
+                if (freeCount == free.length) {
+                    free = Arrays.copyOf(free, freeCount * 2);
+                }
+                free[freeCount++] = id;
+            }
+        }
+
+        synchronized String get(int id) {
+            return names[id];
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * An append-only journal of records kept in memory-mapped segment files of a local directory.
+ * <p>
+ * Each record gets the next offset, a sequence number starting at 0 which is not reused. A segment file is named after
+ * the offset of its first record and preallocated to the segment size; a record is written as its length, its CRC32
+ * and its bytes, a length of 0 marks the end of the segment. When a record does not fit, the segment is forced to disk
+ * and a new one is started. The segments whose last record is older than the retention are deleted, except the
+ * current one, when a segment is started and by {@link #purge()}, which the owner of the journal calls periodically.
+ * <p>
+ * The records written are in the page cache as soon as they are appended, so they survive a restart of the process;
+ * torn records at the end of the current segment, after a crash of the host, are detected by their checksum and
+ * dropped when the journal is opened. The records after a corrupted record of an older segment are skipped, reading
+ * goes on from the next segment.
+ * <p>
+ * Consumers keep their position as a checkpoint file next to the segments. The checkpoints are also the high-water mark
+ * of the offsets: if a consumer got past the records dropped with a torn tail, the journal goes on from a new segment
+ * at the highest checkpoint when it is opened, so that the offsets the consumers have seen are not given again.
+ */
+public class EventJournal {
+    private static final XLog LOG = XLog.getLog(EventJournal.class);
+
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    // length and checksum
+    private static final int RECORD_HEADER = 8;
+
+    private final File dir;
+    private final int segmentSize;
+    private final long retention;
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment current;
+    private long nextOffset;
+
+    /**
+     * A record read from the journal.
+     */
+    public static class Record {
+        private final long offset;
+        private final byte[] data;
+
+        Record(long offset, byte[] data) {
+            this.offset = offset;
+            this.data = data;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Creates the journal, {@link #open()} loads the existing segments.
+     *
+     * @param dir the directory of the segment and checkpoint files
+     * @param segmentSize the size of a segment file in bytes
+     * @param retention the time in milliseconds the segments are kept after their last record
+     */
+    public EventJournal(File dir, int segmentSize, long retention) {
+        Preconditions.checkArgument(segmentSize > RECORD_HEADER * 2, "segmentSize must be >%s, is %s",
+                RECORD_HEADER * 2, segmentSize);
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+    }
+
+    /**
+     * Maps the existing segments and finds the end of the last one, creating the directory if needed.
+     *
+     * @throws IOException if the directory or a segment could not be read
+     */
+    public synchronized void open() throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create the event journal directory " + dir);
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(baseOffset, new Segment(file, baseOffset));
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            segment.load();
+        }
+        if (segments.isEmpty()) {
+            current = createSegment(0);
+        }
+        else {
+            current = segments.lastEntry().getValue();
+            current.remapForWrite();
+        }
+        nextOffset = current.baseOffset + current.count;
+        long highWater = getHighestCheckpoint(files);
+        if (highWater > nextOffset) {
+            LOG.warn("Event journal records of offsets [{0}] to [{1}] were lost, going on from offset [{1}]", nextOffset,
+                    highWater);
+            current.force();
+            current = createSegment(highWater);
+            nextOffset = highWater;
+        }
+        LOG.info("Event journal opened in [{0}] with [{1}] segments, offsets [{2}] to [{3}]", dir, segments.size(),
+                getFirstOffset(), nextOffset);
+        purge();
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param data the record
+     * @return the offset of the record
+     * @throws IOException if the record is larger than a segment or a new segment could not be created
+     */
+    public synchronized long append(byte[] data) throws IOException {
+        Preconditions.checkState(current != null, "Event journal is not open");
+        if (data.length + RECORD_HEADER * 2 > segmentSize) {
+            throw new IOException("Record of [" + data.length + "] bytes larger than the segment size " + segmentSize);
+        }
+        if (!current.fits(data.length)) {
+            rotate();
+        }
+        current.write(data);
+        return nextOffset++;
+    }
+
+    /**
+     * Reads records from an offset, starting from the first offset kept if the records have been deleted.
+     *
+     * @param offset the offset of the first record to read
+     * @param max the maximum number of records
+     * @return the records in offset order, empty if there is no record at or after the offset
+     */
+    public synchronized List<Record> read(long offset, int max) {
+        List<Record> records = new ArrayList<Record>();
+        long position = Math.max(offset, getFirstOffset());
+        while (records.size() < max && position < nextOffset) {
+            Segment segment = segments.floorEntry(position).getValue();
+            int read = segment.read(position, max - records.size(), records);
+            if (read == 0) {
+                // the records after a corrupted one were dropped when the segment was loaded
+                Long next = segments.higherKey(position);
+                if (next == null) {
+                    break;
+                }
+                if (!segment.skipLogged) {
+                    segment.skipLogged = true;
+                    LOG.warn("Skipping the corrupted records of event journal segment [{0}], offsets [{1}] to [{2}]",
+                            segment.file, position, next);
+                }
+                position = next;
+                continue;
+            }
+            position += read;
+        }
+        return records;
+    }
+
+    /**
+     * @return the offset of the oldest record kept
+     */
+    public synchronized long getFirstOffset() {
+        return segments.isEmpty() ? nextOffset : segments.firstKey();
+    }
+
+    /**
+     * @return the offset the next record gets
+     */
+    public synchronized long getNextOffset() {
+        return nextOffset;
+    }
+
+    private long getHighestCheckpoint(File[] files) {
+        long highest = -1;
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(CHECKPOINT_SUFFIX)) {
+                    try {
+                        highest = Math.max(highest, readCheckpoint(name.substring(0,
+                                name.length() - CHECKPOINT_SUFFIX.length())));
+                    }
+                    catch (IOException | NumberFormatException ex) {
+                        LOG.warn("Could not read event journal checkpoint [{0}], {1}", file, ex.getMessage());
+                    }
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Reads the checkpoint of a consumer.
+     *
+     * @param name the name of the consumer
+     * @return the offset the consumer reads next, -1 if there is no checkpoint
+     * @throws IOException if the checkpoint could not be read
+     */
+    public long readCheckpoint(String name) throws IOException {
+        File file = new File(dir, name + CHECKPOINT_SUFFIX);
+        if (!file.exists()) {
+            return -1;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * Writes the checkpoint of a consumer, replacing the previous one atomically.
+     *
+     * @param name the name of the consumer
+     * @param offset the offset the consumer reads next
+     * @throws IOException if the checkpoint could not be written
+     */
+    public void writeCheckpoint(String name, long offset) throws IOException {
+        File tmp = new File(dir, name + CHECKPOINT_SUFFIX + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(Long.toString(offset).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        finally {
+            out.close();
+        }
+        Files.move(tmp.toPath(), new File(dir, name + CHECKPOINT_SUFFIX).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Forces the current segment to disk and releases the segments.
+     */
+    public synchronized void close() {
+        if (current != null) {
+            current.force();
+        }
+        segments.clear();
+        current = null;
+    }
+
+    /**
+     * Deletes the segments older than the retention, the current segment is kept.
+     */
+    public synchronized void purge() {
+        long oldest = System.currentTimeMillis() - retention;
+        Iterator<Map.Entry<Long, Segment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next().getValue();
+            if (segment == current || segment.file.lastModified() >= oldest) {
+                break;
+            }
+            iterator.remove();
+            if (!segment.file.delete()) {
+                LOG.warn("Could not delete event journal segment [{0}]", segment.file);
+            }
+            else {
+                LOG.info("Deleted event journal segment [{0}] of offsets [{1}] to [{2}]", segment.file,
+                        segment.baseOffset, segment.baseOffset + segment.count);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void rotate() throws IOException {
+        current.force();
+        current = createSegment(nextOffset);
+        purge();
+    }
+
+    private Segment createSegment(long baseOffset) throws IOException {
+        Segment segment = new Segment(new File(dir, String.format("%020d", baseOffset) + SEGMENT_SUFFIX), baseOffset);
+        segment.remapForWrite();
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    private class Segment {
+        private final File file;
+        private final long baseOffset;
+        private ByteBuffer buffer;
+        // start of each record
+        private int[] positions = new int[64];
+        private int count;
+        private int end;
+        private boolean skipLogged;
+
+        Segment(File file, long baseOffset) {
+            this.file = file;
+            this.baseOffset = baseOffset;
+        }
+
+        /**
+         * Maps the segment read only and indexes its valid records.
+         */
+        void load() throws IOException {
+            buffer = map(FileChannel.MapMode.READ_ONLY, file.length());
+            index();
+        }
+
+        void remapForWrite() throws IOException {
+            // keeps the records of a segment written with a larger segment size
+            buffer = map(FileChannel.MapMode.READ_WRITE, Math.max(segmentSize, file.length()));
+            if (count == 0) {
+                index();
+            }
+            // clears a torn record left after the end
+            if (end + RECORD_HEADER <= buffer.capacity()) {
+                buffer.putInt(end, 0);
+            }
+        }
+
+        private MappedByteBuffer map(FileChannel.MapMode mode, long size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+            try {
+                // the mapping stays valid once the channel is closed
+                return raf.getChannel().map(mode, 0, size);
+            }
+            finally {
+                raf.close();
+            }
+        }
+
+        private void index() {
+            CRC32 crc = new CRC32();
+            int position = 0;
+            count = 0;
+            while (position + RECORD_HEADER <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] data = new byte[length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position + RECORD_HEADER);
+                view.get(data);
+                crc.reset();
+                crc.update(data);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    LOG.warn("Dropping the corrupted records of event journal segment [{0}] from offset [{1}]", file,
+                            baseOffset + count);
+                    break;
+                }
+                addPosition(position);
+                position += RECORD_HEADER + length;
+            }
+            end = position;
+        }
+
+        boolean fits(int length) {
+            // keeps room for the end marker
+            return end + RECORD_HEADER + length + 4 <= buffer.capacity();
+        }
+
+        void write(byte[] data) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            ByteBuffer view = buffer.duplicate();
+            view.position(end + RECORD_HEADER);
+            view.put(data);
+            buffer.putInt(end + RECORD_HEADER + data.length, 0);
+            buffer.putInt(end + 4, (int) crc.getValue());
+            // the length makes the record visible when the segment is indexed
+            buffer.putInt(end, data.length);
+            addPosition(end);
+            end += RECORD_HEADER + data.length;
+        }
+
+        int read(long offset, int max, List<Record> records) {
+            int index = (int) (offset - baseOffset);
+            int read = 0;
+            while (read < max && index + read < count) {
+                int position = positions[index + read];
+                byte[] data = new byte[buffer.getInt(position)];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position + RECORD_HEADER);
+                view.get(data);
+                records.add(new Record(offset + read, data));
+                read++;
+            }
+            return read;
+        }
+
+        void force() {
+            if (buffer instanceof MappedByteBuffer && !((MappedByteBuffer) buffer).isReadOnly()) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+
+        private void addPosition(int position) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = position;
+        }
+    }
+}
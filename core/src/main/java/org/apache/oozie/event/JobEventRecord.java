@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.apache.oozie.AppType;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.WorkflowAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.JobEvent;
+import org.apache.oozie.client.rest.JsonUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Converts the job events to the JSON records of the {@link EventJournal}, also returned as is by the events resource
+ * of the admin REST API, and back.
+ */
+public class JobEventRecord {
+    public static final String APP_TYPE = "appType";
+    public static final String ID = "id";
+    public static final String PARENT_ID = "parentId";
+    public static final String USER = "user";
+    public static final String APP_NAME = "appName";
+    public static final String STATUS = "status";
+    public static final String EVENT_STATUS = "eventStatus";
+    public static final String START_TIME = "startTime";
+    public static final String END_TIME = "endTime";
+    public static final String NOMINAL_TIME = "nominalTime";
+    public static final String MISSING_DEPENDENCY = "missingDependency";
+    public static final String HADOOP_ID = "hadoopId";
+    public static final String ERROR_CODE = "errorCode";
+    public static final String ERROR_MESSAGE = "errorMessage";
+
+    private JobEventRecord() {
+    }
+
+    /**
+     * @param event the job event
+     * @return the UTF-8 bytes of the JSON record of the event
+     */
+    public static byte[] toBytes(JobEvent event) {
+        return toJSONObject(event).toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param data the UTF-8 bytes of a JSON record
+     * @return the JSON record
+     */
+    public static JSONObject parse(byte[] data) {
+        return (JSONObject) JSONValue.parse(new String(data, StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static JSONObject toJSONObject(JobEvent event) {
+        JSONObject json = new JSONObject();
+        json.put(APP_TYPE, event.getAppType().name());
+        json.put(ID, event.getId());
+        json.put(PARENT_ID, event.getParentId());
+        json.put(USER, event.getUser());
+        json.put(APP_NAME, event.getAppName());
+        json.put(EVENT_STATUS, event.getEventStatus() == null ? null : event.getEventStatus().name());
+        json.put(START_TIME, JsonUtils.formatDateRfc822(event.getStartTime()));
+        json.put(END_TIME, JsonUtils.formatDateRfc822(event.getEndTime()));
+        if (event instanceof WorkflowJobEvent) {
+            WorkflowJobEvent wfJobEvent = (WorkflowJobEvent) event;
+            json.put(STATUS, name(wfJobEvent.getStatus()));
+            json.put(ERROR_CODE, wfJobEvent.getErrorCode());
+            json.put(ERROR_MESSAGE, wfJobEvent.getErrorMessage());
+        }
+        else if (event instanceof WorkflowActionEvent) {
+            WorkflowActionEvent wfActionEvent = (WorkflowActionEvent) event;
+            json.put(STATUS, name(wfActionEvent.getStatus()));
+            json.put(HADOOP_ID, wfActionEvent.getHadoopId());
+            json.put(ERROR_CODE, wfActionEvent.getErrorCode());
+            json.put(ERROR_MESSAGE, wfActionEvent.getErrorMessage());
+        }
+        else if (event instanceof CoordinatorJobEvent) {
+            json.put(STATUS, name(((CoordinatorJobEvent) event).getStatus()));
+        }
+        else if (event instanceof CoordinatorActionEvent) {
+            CoordinatorActionEvent coordActionEvent = (CoordinatorActionEvent) event;
+            json.put(STATUS, name(coordActionEvent.getStatus()));
+            json.put(NOMINAL_TIME, JsonUtils.formatDateRfc822(coordActionEvent.getNominalTime()));
+            json.put(MISSING_DEPENDENCY, coordActionEvent.getMissingDeps());
+            json.put(ERROR_CODE, coordActionEvent.getErrorCode());
+            json.put(ERROR_MESSAGE, coordActionEvent.getErrorMessage());
+        }
+        else if (event instanceof BundleJobEvent) {
+            json.put(STATUS, name(((BundleJobEvent) event).getStatus()));
+        }
+        return json;
+    }
+
+    /**
+     * Creates the job event of a JSON record.
+     *
+     * @param json the JSON record
+     * @return the job event
+     * @throws IllegalArgumentException if the app type of the record has no job event
+     */
+    public static JobEvent toEvent(JSONObject json) {
+        AppType appType = AppType.valueOf((String) json.get(APP_TYPE));
+        String id = (String) json.get(ID);
+        String parentId = (String) json.get(PARENT_ID);
+        String user = (String) json.get(USER);
+        String appName = (String) json.get(APP_NAME);
+        String status = (String) json.get(STATUS);
+        Date startTime = date(json, START_TIME);
+        Date endTime = date(json, END_TIME);
+        JobEvent event;
+        switch (appType) {
+            case WORKFLOW_JOB:
+                WorkflowJobEvent wfJobEvent = new WorkflowJobEvent(id, parentId, WorkflowJob.Status.valueOf(status),
+                        user, appName, startTime, endTime);
+                wfJobEvent.setErrorCode((String) json.get(ERROR_CODE));
+                wfJobEvent.setErrorMessage((String) json.get(ERROR_MESSAGE));
+                event = wfJobEvent;
+                break;
+            case WORKFLOW_ACTION:
+                WorkflowActionEvent wfActionEvent = new WorkflowActionEvent(id, parentId,
+                        WorkflowAction.Status.valueOf(status), user, appName, startTime, endTime);
+                wfActionEvent.setHadoopId((String) json.get(HADOOP_ID));
+                wfActionEvent.setErrorCode((String) json.get(ERROR_CODE));
+                wfActionEvent.setErrorMessage((String) json.get(ERROR_MESSAGE));
+                event = wfActionEvent;
+                break;
+            case COORDINATOR_JOB:
+                event = new CoordinatorJobEvent(id, parentId, CoordinatorJob.Status.valueOf(status), user, appName,
+                        startTime, endTime);
+                break;
+            case COORDINATOR_ACTION:
+                CoordinatorActionEvent coordActionEvent = new CoordinatorActionEvent(id, parentId,
+                        CoordinatorAction.Status.valueOf(status), user, appName, date(json, NOMINAL_TIME), startTime,
+                        (String) json.get(MISSING_DEPENDENCY));
+                coordActionEvent.setErrorCode((String) json.get(ERROR_CODE));
+                coordActionEvent.setErrorMessage((String) json.get(ERROR_MESSAGE));
+                event = coordActionEvent;
+                break;
+            case BUNDLE_JOB:
+                event = new BundleJobEvent(id, BundleJob.Status.valueOf(status), user, appName, startTime, endTime);
+                break;
+            default:
+                throw new IllegalArgumentException("No job event for app type " + appType);
+        }
+        // the end time recorded, not the one set by the status
+        event.setEndTime(endTime);
+        if (json.get(EVENT_STATUS) != null) {
+            event.setEventStatus(JobEvent.EventStatus.valueOf((String) json.get(EVENT_STATUS)));
+        }
+        return event;
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static Date date(JSONObject json, String key) {
+        String value = (String) json.get(key);
+        return value == null ? null : JsonUtils.parseDateRfc822(value);
+    }
+}
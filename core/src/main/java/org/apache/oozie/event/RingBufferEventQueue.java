@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.client.event.Event;
+import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.EventHandlerService;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * An implementation of the EventQueue holding the events in a preallocated ring buffer, without allocating anything
+ * per event.
+ * <p>
+ * The capacity is the queue size rounded up to a power of two. Each slot has a sequence number telling whether it is
+ * free or holds a published event for the current lap: producers claim a free slot with a CAS on the tail, consumers
+ * claim all the consecutive published events of a batch with a single CAS on the head.
+ * <p>
+ * When the ring is full the event is dropped, or with the <code>BLOCK</code> policy the producer waits, according to the
+ * wait strategy, until a slot is freed or the block timeout is reached and the event is dropped.
+ */
+public class RingBufferEventQueue implements EventQueue {
+
+    public static final String CONF_FULL_POLICY = EventHandlerService.CONF_PREFIX + "ring.buffer.full.policy";
+    public static final String CONF_WAIT_STRATEGY = EventHandlerService.CONF_PREFIX + "ring.buffer.wait.strategy";
+    public static final String CONF_BLOCK_TIMEOUT = EventHandlerService.CONF_PREFIX + "ring.buffer.block.timeout";
+    public static final String INSTRUMENTATION_GROUP = "event-queue";
+    public static final String INSTRUMENTATION_DROPPED = "dropped";
+    public static final String INSTRUMENTATION_BLOCKED = "blocked";
+
+    private static final XLog LOG = XLog.getLog(RingBufferEventQueue.class);
+
+    /**
+     * What a producer does when the ring is full.
+     */
+    public enum FullPolicy {
+        DROP, BLOCK
+    }
+
+    /**
+     * How a blocked producer waits for a free slot.
+     */
+    public enum WaitStrategy {
+        /**
+         * Busy spin, the lowest latency at the cost of a CPU.
+         */
+        SPIN {
+            @Override
+            void idle() {
+            }
+        },
+        /**
+         * Yield the CPU to other threads between attempts.
+         */
+        YIELD {
+            @Override
+            void idle() {
+                Thread.yield();
+            }
+        },
+        /**
+         * Sleep 100 microseconds between attempts.
+         */
+        SLEEP {
+            @Override
+            void idle() {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        };
+
+        private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        abstract void idle();
+    }
+
+    private AtomicReferenceArray<Event> slots;
+    private AtomicLongArray sequences;
+    private int capacity;
+    private int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private int batchSize;
+    private FullPolicy fullPolicy;
+    private WaitStrategy waitStrategy;
+    private long blockTimeout;
+    private Instrumentation instrumentation;
+
+    @Override
+    public void init(Configuration conf) {
+        int maxSize = ConfigurationService.getInt(conf, EventHandlerService.CONF_QUEUE_SIZE);
+        capacity = Integer.highestOneBit(Math.max(2, maxSize) - 1) << 1;
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<Event>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        head.set(0);
+        tail.set(0);
+        batchSize = ConfigurationService.getInt(conf, EventHandlerService.CONF_BATCH_SIZE);
+        fullPolicy = FullPolicy.valueOf(ConfigurationService.get(conf, CONF_FULL_POLICY).trim().toUpperCase());
+        waitStrategy = WaitStrategy.valueOf(ConfigurationService.get(conf, CONF_WAIT_STRATEGY).trim().toUpperCase());
+        blockTimeout = ConfigurationService.getLong(conf, CONF_BLOCK_TIMEOUT);
+        instrumentation = Services.get() != null && Services.get().get(InstrumentationService.class) != null
+                ? Services.get().get(InstrumentationService.class).get() : null;
+        LOG.info("Ring Buffer Event Queue initialized with capacity = [{0}], Batch drain size = [{1}], "
+                + "full policy = [{2}], wait strategy = [{3}]", capacity, batchSize, fullPolicy, waitStrategy);
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void add(Event e) {
+        long deadline = 0;
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, e);
+                    // publishes the event to the consumers
+                    sequences.set(index, position + 1);
+                    return;
+                }
+            }
+            else if (sequence < position) {
+                // the slot still holds the event of the previous lap, the ring is full
+                long now = System.currentTimeMillis();
+                if (fullPolicy == FullPolicy.DROP || (deadline != 0 && now >= deadline)) {
+                    dropped.incrementAndGet();
+                    incr(INSTRUMENTATION_DROPPED);
+                    LOG.warn("Queue size [{0}] reached max limit. Element [{1}] not added", size(), e);
+                    return;
+                }
+                if (deadline == 0) {
+                    deadline = now + blockTimeout;
+                    blocked.incrementAndGet();
+                    incr(INSTRUMENTATION_BLOCKED);
+                }
+                waitStrategy.idle();
+            }
+            // else another producer claimed the slot, retry with the next one
+        }
+    }
+
+    @Override
+    public List<Event> pollBatch() {
+        List<Event> eventBatch = new ArrayList<Event>(batchSize);
+        drain(eventBatch, batchSize);
+        if (eventBatch.size() < batchSize) {
+            LOG.trace("Current queue size [{0}] less than polling batch size [{1}]", size(), batchSize);
+        }
+        return eventBatch;
+    }
+
+    @Override
+    public Event poll() {
+        List<Event> events = new ArrayList<Event>(1);
+        drain(events, 1);
+        return events.isEmpty() ? null : events.get(0);
+    }
+
+    /**
+     * Claims up to <code>max</code> consecutive published events at once and frees their slots.
+     */
+    private void drain(List<Event> events, int max) {
+        while (true) {
+            long position = head.get();
+            int count = 0;
+            while (count < max && sequences.get((int) (position + count) & mask) == position + count + 1) {
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            if (head.compareAndSet(position, position + count)) {
+                for (int i = 0; i < count; i++) {
+                    int index = (int) (position + i) & mask;
+                    events.add(slots.get(index));
+                    slots.set(index, null);
+                    // frees the slot for the next lap
+                    sequences.set(index, position + i + capacity);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        long consumed = head.get();
+        return (int) Math.max(0, Math.min(capacity, tail.get() - consumed));
+    }
+
+    @Override
+    public Event peek() {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) == position + 1) {
+            return slots.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        List<Event> events = new ArrayList<Event>(batchSize);
+        do {
+            events.clear();
+            drain(events, capacity);
+        }
+        while (!events.isEmpty());
+    }
+
+    /**
+     * @return the number of events dropped because the ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of events whose producer had to wait for a free slot
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    @VisibleForTesting
+    int getCapacity() {
+        return capacity;
+    }
+
+    private void incr(String name) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+}
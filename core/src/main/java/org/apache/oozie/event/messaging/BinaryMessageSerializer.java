@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event.messaging;
+
+import java.util.Base64;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+import org.apache.oozie.client.event.jms.BinaryMessageCodec;
+import org.apache.oozie.client.event.message.EventMessage;
+
+/**
+ * Serializes the messages to the compact binary format of {@link BinaryMessageCodec}, sent as BytesMessage and read
+ * by the BinaryMessageDeserializer of the client. Each thread reuses the buffer of its own codec. As a string, the
+ * message is the Base64 encoding of the bytes.
+ */
+public class BinaryMessageSerializer extends MessageSerializer {
+    public static final String MESSAGE_FORMAT = BinaryMessageCodec.MESSAGE_FORMAT;
+
+    private static final ThreadLocal<BinaryMessageCodec> CODEC = new ThreadLocal<BinaryMessageCodec>() {
+        @Override
+        protected BinaryMessageCodec initialValue() {
+            return new BinaryMessageCodec();
+        }
+    };
+
+    @Override
+    public String getSerializedObject(Object object) {
+        return Base64.getEncoder().encodeToString(getSerializedBytes(object));
+    }
+
+    @Override
+    public byte[] getSerializedBytes(Object object) {
+        return CODEC.get().encode(toEventMessage(object));
+    }
+
+    @Override
+    public void writeSerializedBytes(Object object, BytesMessage message) throws JMSException {
+        CODEC.get().encode(toEventMessage(object), message);
+    }
+
+    private static EventMessage toEventMessage(Object object) {
+        if (!(object instanceof EventMessage)) {
+            throw new IllegalArgumentException("Could not construct binary message of " + object);
+        }
+        return (EventMessage) object;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    @Override
+    public String getMessageFormat() {
+        return MESSAGE_FORMAT;
+    }
+
+}
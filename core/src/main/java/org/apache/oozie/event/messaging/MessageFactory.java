@@ -18,6 +18,9 @@
 
 package org.apache.oozie.event.messaging;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.oozie.client.event.SLAEvent;
 import org.apache.oozie.client.event.message.CoordinatorActionMessage;
@@ -35,6 +38,9 @@ public class MessageFactory {
     public static final String OOZIE_MESSAGE_FORMAT = Services.get().getConf().get("message.format", "json");
     public static final String OOZIE_MESSAGE_SERIALIZE = "oozie.jms.serialize.";
 
+    private static final ConcurrentMap<String, MessageSerializer> SERIALIZERS =
+            new ConcurrentHashMap<String, MessageSerializer>();
+
     private static class MessageSerializerHolder {
         private static String messageSerializerInstance = Services
                 .get()
@@ -62,6 +68,44 @@ public class MessageFactory {
         return MessageSerializerHolder.INSTANCE;
     }
 
+    /**
+     * Gets the serializer of a message format, the class is configured by <code>oozie.jms.serialize.&lt;format&gt;</code>
+     * and defaults to the JSON and binary serializers for their formats
+     *
+     * @param messageFormat the message format, the configured serializer if null
+     * @return MessageSerializer the serializer of the message format
+     */
+    public static MessageSerializer getMessageSerializer(String messageFormat) {
+        if (messageFormat == null) {
+            return getMessageSerializer();
+        }
+        MessageSerializer serializer = SERIALIZERS.get(messageFormat);
+        if (serializer == null) {
+            String defaultClass = null;
+            if (JSONMessageSerializer.MESSAGE_FORMAT.equals(messageFormat)) {
+                defaultClass = JSONMessageSerializer.class.getName();
+            }
+            else if (BinaryMessageSerializer.MESSAGE_FORMAT.equals(messageFormat)) {
+                defaultClass = BinaryMessageSerializer.class.getName();
+            }
+            String serializerClass = Services.get().getConf().get(OOZIE_MESSAGE_SERIALIZE + messageFormat, defaultClass);
+            if (serializerClass == null) {
+                throw new IllegalArgumentException("No serializer configured for message format " + messageFormat);
+            }
+            try {
+                serializer = (MessageSerializer) ReflectionUtils.newInstance(Class.forName(serializerClass), null);
+            }
+            catch (ClassNotFoundException cnfe) {
+                throw new IllegalStateException("Could not construct the serializer ", cnfe);
+            }
+            MessageSerializer existing = SERIALIZERS.putIfAbsent(messageFormat, serializer);
+            if (existing != null) {
+                serializer = existing;
+            }
+        }
+        return serializer;
+    }
+
     /**
      * Constructs and returns the workflow job message for workflow job event
      *
@@ -19,6 +19,11 @@
 package org.apache.oozie.event.messaging;
 
 
+import java.nio.charset.StandardCharsets;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -41,4 +46,31 @@ public abstract class MessageSerializer {
      */
     public abstract String getMessageFormat();
 
+    /**
+     * Whether the serialized object is sent as bytes instead of text
+     * @return true if the messages are sent as BytesMessage
+     */
+    public boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Get the serialized bytes from object, the UTF-8 bytes of the serialized string by default
+     * @param object the java object
+     * @return returns serialized bytes from object
+     */
+    public byte[] getSerializedBytes(Object object) {
+        return getSerializedObject(object).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the serialized bytes of the object to a BytesMessage
+     * @param object the java object
+     * @param message the message to write to
+     * @throws JMSException if the bytes could not be written
+     */
+    public void writeSerializedBytes(Object object, BytesMessage message) throws JMSException {
+        message.writeBytes(getSerializedBytes(object));
+    }
+
 }
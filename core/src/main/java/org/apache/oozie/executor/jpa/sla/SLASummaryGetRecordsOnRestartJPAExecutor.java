@@ -19,6 +19,7 @@
 package org.apache.oozie.executor.jpa.sla;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -30,15 +31,28 @@ import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.sla.SLASummaryBean;
 
 /**
- * Load the list of SLASummaryBean when Oozie restarts and return the list.
+ * Load the list of SLASummaryBean when Oozie restarts and return the list, either all the ones modified in the last days
+ * or the ones modified in a time range.
  */
 public class SLASummaryGetRecordsOnRestartJPAExecutor implements JPAExecutor<List<SLASummaryBean>> {
 
     private int days;
+    private Date modifiedFrom;
+    private Date modifiedTo;
+
     public SLASummaryGetRecordsOnRestartJPAExecutor (int days) {
         this.days = days;
     }
 
+    /**
+     * @param modifiedFrom the start of the range of the last modified time, inclusive
+     * @param modifiedTo the end of the range of the last modified time, exclusive
+     */
+    public SLASummaryGetRecordsOnRestartJPAExecutor(Date modifiedFrom, Date modifiedTo) {
+        this.modifiedFrom = modifiedFrom;
+        this.modifiedTo = modifiedTo;
+    }
+
     @Override
     public String getName() {
         return "SLASummaryGetRecordsOnRestartJPAExecutor";
@@ -49,9 +63,17 @@ public class SLASummaryGetRecordsOnRestartJPAExecutor implements JPAExecutor<Lis
     public List<SLASummaryBean> execute(EntityManager em) throws JPAExecutorException {
         List<SLASummaryBean> ssBean;
         try {
-            Query q = em.createNamedQuery("GET_SLA_SUMMARY_RECORDS_RESTART");
-            Timestamp ts = new Timestamp(System.currentTimeMillis() - days * 24 * 60 * 60 * 1000);
-            q.setParameter("lastModifiedTime", ts);
+            Query q;
+            if (modifiedFrom != null) {
+                q = em.createNamedQuery("GET_SLA_SUMMARY_RECORDS_RESTART_RANGE");
+                q.setParameter("lastModifiedTime", new Timestamp(modifiedFrom.getTime()));
+                q.setParameter("lastModifiedTimeEnd", new Timestamp(modifiedTo.getTime()));
+            }
+            else {
+                q = em.createNamedQuery("GET_SLA_SUMMARY_RECORDS_RESTART");
+                Timestamp ts = new Timestamp(System.currentTimeMillis() - days * 24 * 60 * 60 * 1000);
+                q.setParameter("lastModifiedTime", ts);
+            }
             ssBean = q.getResultList();
             return ssBean;
         }
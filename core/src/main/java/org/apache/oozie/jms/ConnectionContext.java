@@ -65,6 +65,14 @@ public interface ConnectionContext {
      */
     Session createSession(int sessionOpts) throws JMSException;
 
+    /**
+     * Creates a transacted session, its messages are sent when it is committed
+     *
+     * @return Session returns a transacted session
+     * @throws JMSException if JMS issue occurs
+     */
+    Session createTransactedSession() throws JMSException;
+
     /**
      * Creates consumer using session and topic name
      *
@@ -94,6 +94,14 @@ public class DefaultConnectionContext implements ConnectionContext {
         return connection.createSession(false, sessionOpts);
     }
 
+    @Override
+    public Session createTransactedSession() throws JMSException {
+        if (connection == null) {
+            throw new JMSException ("Connection is not initialized");
+        }
+        return connection.createSession(true, Session.SESSION_TRANSACTED);
+    }
+
     @Override
     public MessageConsumer createConsumer(Session session, String topicName) throws JMSException {
         Topic topic = session.createTopic(topicName);
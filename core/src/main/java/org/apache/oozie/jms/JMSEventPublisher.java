@@ -0,0 +1,367 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.jms;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.oozie.event.messaging.MessageSerializer;
+import org.apache.oozie.service.InstrumentationService;
+import org.apache.oozie.service.JMSAccessorService;
+import org.apache.oozie.service.Services;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.NamedThreadFactory;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Publishes the JMS messages of the events asynchronously, in batches, so that a slow JMS server does not hold the
+ * event worker threads.
+ * <p>
+ * Up to <code>maxInFlight</code> messages are queued, {@link #publish(String, Map, Object)} waits when the queue is full.
+ * Each sender thread takes up to <code>batchSize</code> queued messages at once and sends them in a single transaction
+ * of its own transacted session, with a producer per topic kept open for the next batches. The session and the
+ * producers are closed when a batch fails or when the connection has been created again; as with the synchronous send,
+ * the messages of a failed batch are not sent again.
+ */
+public class JMSEventPublisher {
+    public static final String INSTRUMENTATION_GROUP = "jms";
+    public static final String INSTRUMENTATION_BACKLOG = "publish-backlog";
+    public static final String INSTRUMENTATION_PUBLISHED = "published";
+    public static final String INSTRUMENTATION_FAILED = "publish-failed";
+    public static final String INSTRUMENTATION_DROPPED = "publish-dropped";
+    public static final String INSTRUMENTATION_LATENCY = "publish";
+
+    private static final XLog LOG = XLog.getLog(JMSEventPublisher.class);
+    // producers kept open per sender thread, the default topic is the user name
+    private static final int MAX_PRODUCERS = 100;
+    private static final long POLL_INTERVAL = 100;
+
+    private final JMSAccessorService jmsService;
+    private final JMSConnectionInfo connInfo;
+    private final int deliveryMode;
+    private final long timeToLive;
+    private final int threads;
+    private final int batchSize;
+    private final BlockingQueue<PendingMessage> queue;
+    private final List<Thread> senders = new ArrayList<Thread>();
+    private final Instrumentation instrumentation;
+    private volatile boolean stopped;
+
+    /**
+     * Constructs the JMSEventPublisher.
+     *
+     * @param jmsService the JMS accessor service providing the producer connection
+     * @param connInfo the JMS connection info
+     * @param deliveryMode the delivery mode of the messages
+     * @param timeToLive the time to live of the messages in milliseconds, 0 for unlimited
+     * @param threads the number of sender threads, the messages are sent in order with 1
+     * @param batchSize the maximum number of messages sent in a transaction
+     * @param maxInFlight the maximum number of messages queued
+     */
+    public JMSEventPublisher(JMSAccessorService jmsService, JMSConnectionInfo connInfo, int deliveryMode,
+            long timeToLive, int threads, int batchSize, int maxInFlight) {
+        Preconditions.checkArgument(threads > 0, "threads must be >0, is %s", threads);
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be >0, is %s", batchSize);
+        this.jmsService = jmsService;
+        this.connInfo = connInfo;
+        this.deliveryMode = deliveryMode;
+        this.timeToLive = timeToLive;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<PendingMessage>(maxInFlight);
+        this.instrumentation = Services.get() != null && Services.get().get(InstrumentationService.class) != null
+                ? Services.get().get(InstrumentationService.class).get() : null;
+    }
+
+    /**
+     * Starts the sender threads.
+     */
+    public synchronized void start() {
+        NamedThreadFactory threadFactory = new NamedThreadFactory("JMSEventPublisher");
+        for (int i = 0; i < threads; i++) {
+            Thread sender = threadFactory.newThread(new Sender());
+            sender.setDaemon(true);
+            senders.add(sender);
+            sender.start();
+        }
+        LOG.info("JMS event publisher started with [{0}] threads, batch size [{1}], max in flight [{2}]", threads,
+                batchSize, queue.remainingCapacity());
+    }
+
+    /**
+     * Queues a message, waiting if there are <code>maxInFlight</code> messages queued already.
+     *
+     * @param topicName the topic name
+     * @param properties the message properties
+     * @param body the message text, or the {@link BinaryBody} or the bytes of a binary message
+     * @return false if the message was dropped as the publisher is stopped or the thread has been interrupted
+     */
+    public boolean publish(String topicName, Map<String, String> properties, Object body) {
+        if (!stopped) {
+            try {
+                queue.put(new PendingMessage(topicName, properties, body));
+                incr(INSTRUMENTATION_BACKLOG, 1);
+                return true;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        LOG.warn("JMS event publisher stopped. Not sending message [{0}]", body);
+        incr(INSTRUMENTATION_DROPPED, 1);
+        return false;
+    }
+
+    /**
+     * @return the number of messages queued
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Stops the publisher, the messages queued are sent within the timeout.
+     *
+     * @param timeout the time to wait for the messages queued in milliseconds
+     */
+    public synchronized void destroy(long timeout) {
+        stopped = true;
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Thread sender : senders) {
+            try {
+                sender.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+        senders.clear();
+        if (!queue.isEmpty()) {
+            LOG.warn("JMS event publisher stopped with [{0}] messages not sent", queue.size());
+        }
+    }
+
+    ConnectionContext getConnectionContext() {
+        return jmsService.createProducerConnectionContext(connInfo);
+    }
+
+    /**
+     * Creates a BytesMessage for a binary body or a byte array body, a TextMessage otherwise.
+     *
+     * @param session the session
+     * @param body the message text, binary body or bytes
+     * @return the message
+     * @throws JMSException if the message could not be created
+     */
+    static Message createMessage(Session session, Object body) throws JMSException {
+        if (body instanceof BinaryBody) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            ((BinaryBody) body).writeTo(bytesMessage);
+            return bytesMessage;
+        }
+        if (body instanceof byte[]) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            bytesMessage.writeBytes((byte[]) body);
+            return bytesMessage;
+        }
+        return session.createTextMessage((String) body);
+    }
+
+    private void incr(String name, long count) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+
+    /**
+     * Body of a binary message, serialized by the thread creating the JMS message straight into the BytesMessage.
+     */
+    public static class BinaryBody {
+        private final MessageSerializer serializer;
+        private final Object message;
+
+        public BinaryBody(MessageSerializer serializer, Object message) {
+            this.serializer = serializer;
+            this.message = message;
+        }
+
+        void writeTo(BytesMessage bytesMessage) throws JMSException {
+            serializer.writeSerializedBytes(message, bytesMessage);
+        }
+
+        @Override
+        public String toString() {
+            return serializer.getMessageFormat() + " message " + message;
+        }
+    }
+
+    private static class PendingMessage {
+        private final String topicName;
+        private final Map<String, String> properties;
+        private final Object body;
+        private final Instrumentation.Cron cron = new Instrumentation.Cron();
+
+        PendingMessage(String topicName, Map<String, String> properties, Object body) {
+            this.topicName = topicName;
+            this.properties = properties;
+            this.body = body;
+            cron.start();
+        }
+    }
+
+    /**
+     * Sends batches of queued messages with its own transacted session until the publisher is stopped and the queue is
+     * empty.
+     */
+    private class Sender implements Runnable {
+        private ConnectionContext context;
+        private Session session;
+        private final Map<String, MessageProducer> producers = new LinkedHashMap<String, MessageProducer>(16, 0.75f,
+                true);
+
+        @Override
+        public void run() {
+            List<PendingMessage> batch = new ArrayList<PendingMessage>(batchSize);
+            try {
+                while (true) {
+                    PendingMessage first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (stopped) {
+                            break;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    incr(INSTRUMENTATION_BACKLOG, -batch.size());
+                    send(batch);
+                    batch.clear();
+                }
+            }
+            catch (InterruptedException e) {
+                LOG.debug("JMS event publisher interrupted");
+            }
+            finally {
+                close();
+            }
+        }
+
+        private void send(List<PendingMessage> batch) {
+            ConnectionContext current = getConnectionContext();
+            if (current == null) {
+                LOG.warn("No connection. Not sending [{0}] messages", batch.size());
+                incr(INSTRUMENTATION_FAILED, batch.size());
+                return;
+            }
+            try {
+                if (current != context || session == null) {
+                    close();
+                    context = current;
+                    session = current.createTransactedSession();
+                }
+                for (PendingMessage message : batch) {
+                    Message jmsMessage = createMessage(session, message.body);
+                    for (Map.Entry<String, String> property : message.properties.entrySet()) {
+                        jmsMessage.setStringProperty(property.getKey(), property.getValue());
+                    }
+                    LOG.trace("Event related JMS body [{0}]", message.body);
+                    getProducer(message.topicName).send(jmsMessage);
+                }
+                session.commit();
+                incr(INSTRUMENTATION_PUBLISHED, batch.size());
+                for (PendingMessage message : batch) {
+                    message.cron.stop();
+                    if (instrumentation != null) {
+                        instrumentation.addCron(INSTRUMENTATION_GROUP, INSTRUMENTATION_LATENCY, message.cron);
+                    }
+                }
+            }
+            catch (JMSException e) {
+                failed(batch, e);
+            }
+            catch (RuntimeException e) {
+                failed(batch, e);
+            }
+        }
+
+        private void failed(List<PendingMessage> batch, Exception e) {
+            LOG.error("Exception happened while sending [{0}] event related jms messages", batch.size(), e);
+            incr(INSTRUMENTATION_FAILED, batch.size());
+            close();
+        }
+
+        private MessageProducer getProducer(String topicName) throws JMSException {
+            MessageProducer producer = producers.get(topicName);
+            if (producer == null) {
+                producer = context.createProducer(session, topicName);
+                producer.setDeliveryMode(deliveryMode);
+                producer.setTimeToLive(timeToLive);
+                producers.put(topicName, producer);
+                if (producers.size() > MAX_PRODUCERS) {
+                    String eldest = producers.keySet().iterator().next();
+                    closeQuietly(producers.remove(eldest));
+                }
+            }
+            return producer;
+        }
+
+        private void close() {
+            for (MessageProducer producer : producers.values()) {
+                closeQuietly(producer);
+            }
+            producers.clear();
+            if (session != null) {
+                try {
+                    session.close();
+                }
+                catch (JMSException e) {
+                    LOG.debug("Unable to close the session", e);
+                }
+                session = null;
+            }
+            context = null;
+        }
+
+        private void closeQuietly(MessageProducer producer) {
+            try {
+                producer.close();
+            }
+            catch (JMSException e) {
+                LOG.debug("Unable to close the producer", e);
+            }
+        }
+    }
+}
@@ -18,13 +18,14 @@
 
 package org.apache.oozie.jms;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
-import javax.jms.TextMessage;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.event.jms.JMSHeaderConstants;
@@ -57,10 +58,17 @@ public class JMSJobEventListener extends JobEventListener {
     public static final String JMS_SESSION_OPTS = "oozie.jms.producer.session.opts";
     public static final String JMS_DELIVERY_MODE = "oozie.jms.delivery.mode";
     public static final String JMS_EXPIRATION_DATE = "oozie.jms.expiration.date";
+    public static final String JMS_PRODUCER_ASYNC = "oozie.jms.producer.async";
+    public static final String JMS_PRODUCER_THREADS = "oozie.jms.producer.threads";
+    public static final String JMS_PRODUCER_BATCH_SIZE = "oozie.jms.producer.batch.size";
+    public static final String JMS_PRODUCER_MAX_IN_FLIGHT = "oozie.jms.producer.max.in.flight";
+    // time to send the messages queued when the listener is destroyed
+    static final long PUBLISHER_DESTROY_TIMEOUT = 10 * 1000;
     private int jmsSessionOpts;
     private int jmsDeliveryMode;
     private int jmsExpirationDate;
     private ConnectionContext jmsContext;
+    private JMSEventPublisher publisher;
     private static XLog LOG;
 
     @Override
@@ -72,26 +80,49 @@ public class JMSJobEventListener extends JobEventListener {
         jmsSessionOpts = conf.getInt(JMS_SESSION_OPTS, Session.AUTO_ACKNOWLEDGE);
         jmsDeliveryMode = conf.getInt(JMS_DELIVERY_MODE, DeliveryMode.PERSISTENT);
         jmsExpirationDate = conf.getInt(JMS_EXPIRATION_DATE, 0);
+        publisher = createPublisher(conf, jmsService, connInfo, jmsDeliveryMode, jmsExpirationDate);
+    }
 
+    /**
+     * Creates and starts the asynchronous publisher if enabled.
+     *
+     * @return the publisher, null if the messages are sent synchronously
+     */
+    static JMSEventPublisher createPublisher(Configuration conf, JMSAccessorService jmsService,
+            JMSConnectionInfo connInfo, int deliveryMode, int expirationDate) {
+        if (!conf.getBoolean(JMS_PRODUCER_ASYNC, false)) {
+            return null;
+        }
+        JMSEventPublisher publisher = new JMSEventPublisher(jmsService, connInfo, deliveryMode, expirationDate,
+                conf.getInt(JMS_PRODUCER_THREADS, 1), conf.getInt(JMS_PRODUCER_BATCH_SIZE, 100),
+                conf.getInt(JMS_PRODUCER_MAX_IN_FLIGHT, 10000));
+        publisher.start();
+        return publisher;
     }
 
-    protected void sendMessage(Map<String, String> messageProperties, String messageBody, String topicName,
+    protected void sendMessage(Map<String, String> messageProperties, Object messageBody, String topicName,
             String messageFormat) {
+        if (publisher != null) {
+            Map<String, String> properties = new HashMap<String, String>(messageProperties);
+            properties.put(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
+            publisher.publish(topicName, properties, messageBody);
+            return;
+        }
         jmsContext = jmsService.createProducerConnectionContext(connInfo);
         if (jmsContext != null) {
             try {
                 Session session = jmsContext.createThreadLocalSession(jmsSessionOpts);
-                TextMessage textMessage = session.createTextMessage(messageBody);
+                Message message = JMSEventPublisher.createMessage(session, messageBody);
                 for (Map.Entry<String, String> property : messageProperties.entrySet()) {
-                    textMessage.setStringProperty(property.getKey(), property.getValue());
+                    message.setStringProperty(property.getKey(), property.getValue());
                 }
-                textMessage.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
-                LOG.trace("Event related JMS text body [{0}]", textMessage.getText());
-                LOG.trace("Event related JMS entire message [{0}]", textMessage.toString());
+                message.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
+                LOG.trace("Event related JMS body [{0}]", messageBody);
+                LOG.trace("Event related JMS entire message [{0}]", message.toString());
                 MessageProducer producer = jmsContext.createProducer(session, topicName);
                 producer.setDeliveryMode(jmsDeliveryMode);
                 producer.setTimeToLive(jmsExpirationDate);
-                producer.send(textMessage);
+                producer.send(message);
                 producer.close();
             }
             catch (JMSException jmse) {
@@ -115,8 +146,10 @@ public class JMSJobEventListener extends JobEventListener {
     }
 
     private void serializeJMSMessage(JobMessage jobMessage, String topicName) {
-        MessageSerializer serializer = MessageFactory.getMessageSerializer();
-        String messageBody = serializer.getSerializedObject(jobMessage);
+        MessageSerializer serializer = MessageFactory.getMessageSerializer(
+                jmsTopicService == null ? null : jmsTopicService.getMessageFormat(jobMessage.getAppType()));
+        Object messageBody = serializer.isBinary() ? new JMSEventPublisher.BinaryBody(serializer, jobMessage)
+                : serializer.getSerializedObject(jobMessage);
         sendMessage(jobMessage.getMessageProperties(), messageBody, topicName, serializer.getMessageFormat());
     }
 
@@ -152,6 +185,10 @@ public class JMSJobEventListener extends JobEventListener {
 
     @Override
     public void destroy() {
-}
+        if (publisher != null) {
+            publisher.destroy(PUBLISHER_DESTROY_TIMEOUT);
+            publisher = null;
+        }
+    }
 
 }
@@ -18,11 +18,14 @@
 
 package org.apache.oozie.jms;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
-import javax.jms.TextMessage;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.sla.listener.SLAEventListener;
@@ -45,6 +48,7 @@ public class JMSSLAEventListener extends SLAEventListener {
     private int jmsDeliveryMode;
     private int jmsExpirationDate;
     private ConnectionContext jmsContext;
+    private JMSEventPublisher publisher;
     private static XLog LOG;
 
     @Override
@@ -55,6 +59,8 @@ public class JMSSLAEventListener extends SLAEventListener {
         jmsSessionOpts = conf.getInt(JMSJobEventListener.JMS_SESSION_OPTS, Session.AUTO_ACKNOWLEDGE);
         jmsDeliveryMode = conf.getInt(JMSJobEventListener.JMS_DELIVERY_MODE, DeliveryMode.PERSISTENT);
         jmsExpirationDate = conf.getInt(JMSJobEventListener.JMS_EXPIRATION_DATE, 0);
+        publisher = JMSJobEventListener.createPublisher(conf, jmsService, connInfo, jmsDeliveryMode,
+                jmsExpirationDate);
     }
 
     @Override
@@ -89,33 +95,47 @@ public class JMSSLAEventListener extends SLAEventListener {
 
     protected void sendSLANotification(SLAEvent event) {
         SLAMessage slaMsg = MessageFactory.createSLAMessage(event);
-        MessageSerializer serializer = MessageFactory.getMessageSerializer();
-        String messageBody = serializer.getSerializedObject(slaMsg);
+        MessageSerializer serializer = MessageFactory.getMessageSerializer(
+                jmsTopicService == null ? null : jmsTopicService.getMessageFormat(slaMsg.getAppType()));
+        Object messageBody = serializer.isBinary() ? new JMSEventPublisher.BinaryBody(serializer, slaMsg)
+                : serializer.getSerializedObject(slaMsg);
         String serializerMessageFormat = serializer.getMessageFormat();
         String topicName = getTopic(event);
         sendJMSMessage(slaMsg, messageBody, topicName, serializerMessageFormat);
     }
 
-    protected void sendJMSMessage(SLAMessage slaMsg, String messageBody, String topicName,
+    protected void sendJMSMessage(SLAMessage slaMsg, Object messageBody, String topicName,
             String messageFormat) {
+        if (publisher != null) {
+            Map<String, String> properties = new HashMap<String, String>();
+            properties.put(JMSHeaderConstants.EVENT_STATUS, slaMsg.getEventStatus().toString());
+            properties.put(JMSHeaderConstants.SLA_STATUS, slaMsg.getSLAStatus().toString());
+            properties.put(JMSHeaderConstants.APP_TYPE, slaMsg.getAppType().toString());
+            properties.put(JMSHeaderConstants.MESSAGE_TYPE, slaMsg.getMessageType().toString());
+            properties.put(JMSHeaderConstants.APP_NAME, slaMsg.getAppName());
+            properties.put(JMSHeaderConstants.USER, slaMsg.getUser());
+            properties.put(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
+            publisher.publish(topicName, properties, messageBody);
+            return;
+        }
         jmsContext = jmsService.createProducerConnectionContext(connInfo);
         if (jmsContext != null) {
             try {
                 Session session = jmsContext.createThreadLocalSession(jmsSessionOpts);
-                TextMessage textMessage = session.createTextMessage(messageBody);
-                textMessage.setStringProperty(JMSHeaderConstants.EVENT_STATUS, slaMsg.getEventStatus().toString());
-                textMessage.setStringProperty(JMSHeaderConstants.SLA_STATUS, slaMsg.getSLAStatus().toString());
-                textMessage.setStringProperty(JMSHeaderConstants.APP_TYPE, slaMsg.getAppType().toString());
-                textMessage.setStringProperty(JMSHeaderConstants.MESSAGE_TYPE, slaMsg.getMessageType().toString());
-                textMessage.setStringProperty(JMSHeaderConstants.APP_NAME, slaMsg.getAppName());
-                textMessage.setStringProperty(JMSHeaderConstants.USER, slaMsg.getUser());
-                textMessage.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
-                LOG.trace("Event related JMS text body [{0}]", textMessage.getText());
-                LOG.trace("Event related JMS message [{0}]", textMessage.toString());
+                Message message = JMSEventPublisher.createMessage(session, messageBody);
+                message.setStringProperty(JMSHeaderConstants.EVENT_STATUS, slaMsg.getEventStatus().toString());
+                message.setStringProperty(JMSHeaderConstants.SLA_STATUS, slaMsg.getSLAStatus().toString());
+                message.setStringProperty(JMSHeaderConstants.APP_TYPE, slaMsg.getAppType().toString());
+                message.setStringProperty(JMSHeaderConstants.MESSAGE_TYPE, slaMsg.getMessageType().toString());
+                message.setStringProperty(JMSHeaderConstants.APP_NAME, slaMsg.getAppName());
+                message.setStringProperty(JMSHeaderConstants.USER, slaMsg.getUser());
+                message.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, messageFormat);
+                LOG.trace("Event related JMS body [{0}]", messageBody);
+                LOG.trace("Event related JMS message [{0}]", message.toString());
                 MessageProducer producer = jmsContext.createProducer(session, topicName);
                 producer.setDeliveryMode(jmsDeliveryMode);
                 producer.setTimeToLive(jmsExpirationDate);
-                producer.send(textMessage);
+                producer.send(message);
                 producer.close();
             }
             catch (JMSException jmse) {
@@ -138,5 +158,9 @@ public class JMSSLAEventListener extends SLAEventListener {
 
     @Override
     public void destroy() {
+        if (publisher != null) {
+            publisher.destroy(JMSJobEventListener.PUBLISHER_DESTROY_TIMEOUT);
+            publisher = null;
+        }
     }
 }
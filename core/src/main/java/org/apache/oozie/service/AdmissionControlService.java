@@ -0,0 +1,313 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.TokenBucket;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Admission control for the write operations of the REST API.
+ * <p>
+ * Submissions, reruns and bulk operations are admitted only if both the global and the per user token buckets of the
+ * operation have a token left. Besides, requests are shed when the server is overloaded: when the callable queue or the
+ * JDBC connection pool usage is above the soft threshold, requests are rejected with a probability growing linearly
+ * up to the hard threshold, above which all of them are rejected. This keeps the server responsive instead of
+ * accepting work that would only be rejected later when the callable queue is full.
+ * <p>
+ * A rejected request gets an HTTP 429 response with a <code>Retry-After</code> header.
+ * <p>
+ * The service is optional, it has to be added to <code>oozie.services.ext</code>.
+ */
+public class AdmissionControlService implements Service, Instrumentable {
+    private static final XLog LOG = XLog.getLog(AdmissionControlService.class);
+
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "AdmissionControlService.";
+
+    public static final String CONF_GLOBAL_RATE = ".global.rate";
+    public static final String CONF_USER_RATE = ".user.rate";
+    public static final String CONF_BURST_SECONDS = CONF_PREFIX + "burst.seconds";
+    public static final String CONF_QUEUE_SOFT_THRESHOLD = CONF_PREFIX + "queue.soft.threshold";
+    public static final String CONF_QUEUE_HARD_THRESHOLD = CONF_PREFIX + "queue.hard.threshold";
+    public static final String CONF_DB_POOL_SOFT_THRESHOLD = CONF_PREFIX + "db.pool.soft.threshold";
+    public static final String CONF_DB_POOL_HARD_THRESHOLD = CONF_PREFIX + "db.pool.hard.threshold";
+    public static final String CONF_SHED_RETRY_AFTER_SECONDS = CONF_PREFIX + "shed.retry.after.seconds";
+
+    private static final String INSTRUMENTATION_GROUP = "admission";
+
+    /**
+     * Operations subject to admission control.
+     */
+    public enum Operation {
+        SUBMIT, RERUN, BULK;
+
+        String getConfName(String suffix) {
+            return CONF_PREFIX + name().toLowerCase(Locale.ROOT) + suffix;
+        }
+    }
+
+    /**
+     * Rejection of a request.
+     */
+    public static class Rejection {
+        private final String reason;
+        private final long retryAfterSeconds;
+
+        Rejection(String reason, long retryAfterSeconds) {
+            this.reason = reason;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private static class Limits {
+        private final double globalRate;
+        private final double userRate;
+        private final double userCapacity;
+        private final TokenBucket global;
+        // a bucket idle for the time it takes to refill is full again, so it is evicted and recreated when needed
+        private final Cache<String, TokenBucket> users;
+
+        Limits(double globalRate, double userRate, double burstSeconds) {
+            this.globalRate = globalRate;
+            this.userRate = userRate;
+            this.global = globalRate > 0 ? new TokenBucket(globalRate, Math.max(1, globalRate * burstSeconds)) : null;
+            this.userCapacity = Math.max(1, userRate * burstSeconds);
+            long refillMs = userRate > 0 ? (long) Math.ceil(userCapacity * 1000 / userRate) : 0;
+            this.users = CacheBuilder.newBuilder().expireAfterAccess(Math.max(1000, refillMs), TimeUnit.MILLISECONDS)
+                    .build();
+        }
+
+        TokenBucket getUserBucket(String user) {
+            try {
+                return users.get(user, new Callable<TokenBucket>() {
+                    @Override
+                    public TokenBucket call() {
+                        return new TokenBucket(userRate, userCapacity);
+                    }
+                });
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private final Map<Operation, Limits> limits = new EnumMap<>(Operation.class);
+    private double burstSeconds;
+    private float queueSoftThreshold;
+    private float queueHardThreshold;
+    private float dbPoolSoftThreshold;
+    private float dbPoolHardThreshold;
+    private long shedRetryAfterSeconds;
+    private Instrumentation instrumentation;
+
+    @Override
+    public void init(Services services) throws ServiceException {
+        init(services.getConf());
+    }
+
+    @VisibleForTesting
+    void init(Configuration conf) {
+        burstSeconds = ConfigurationService.getFloat(conf, CONF_BURST_SECONDS);
+        for (Operation op : Operation.values()) {
+            double globalRate = ConfigurationService.getFloat(conf, op.getConfName(CONF_GLOBAL_RATE));
+            double userRate = ConfigurationService.getFloat(conf, op.getConfName(CONF_USER_RATE));
+            limits.put(op, new Limits(globalRate, userRate, burstSeconds));
+            LOG.info("Admission control for [{0}], global rate [{1}]/s, user rate [{2}]/s", op, globalRate, userRate);
+        }
+        queueSoftThreshold = ConfigurationService.getFloat(conf, CONF_QUEUE_SOFT_THRESHOLD);
+        queueHardThreshold = ConfigurationService.getFloat(conf, CONF_QUEUE_HARD_THRESHOLD);
+        dbPoolSoftThreshold = ConfigurationService.getFloat(conf, CONF_DB_POOL_SOFT_THRESHOLD);
+        dbPoolHardThreshold = ConfigurationService.getFloat(conf, CONF_DB_POOL_HARD_THRESHOLD);
+        shedRetryAfterSeconds = ConfigurationService.getLong(conf, CONF_SHED_RETRY_AFTER_SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        limits.clear();
+    }
+
+    @Override
+    public Class<? extends Service> getInterface() {
+        return AdmissionControlService.class;
+    }
+
+    @Override
+    public void instrument(Instrumentation instr) {
+        this.instrumentation = instr;
+        instr.addVariable(INSTRUMENTATION_GROUP, "queue.load", new Instrumentation.Variable<Float>() {
+            public Float getValue() {
+                return getQueueLoad();
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, "db.pool.load", new Instrumentation.Variable<Float>() {
+            public Float getValue() {
+                return getDbPoolLoad();
+            }
+        });
+    }
+
+    /**
+     * Check whether a request can be admitted.
+     *
+     * @param op operation of the request.
+     * @param user user of the request.
+     * @return null if the request is admitted, the rejection otherwise.
+     */
+    public Rejection admit(Operation op, String user) {
+        Rejection rejection = checkLoad();
+        if (rejection == null) {
+            rejection = checkRate(op, user);
+        }
+        if (rejection != null) {
+            incrCounter(op.name().toLowerCase(Locale.ROOT) + ".rejected", 1);
+            LOG.debug("Rejected [{0}] request of user [{1}], {2}", op, user, rejection.getReason());
+        }
+        else {
+            incrCounter(op.name().toLowerCase(Locale.ROOT) + ".admitted", 1);
+        }
+        return rejection;
+    }
+
+    private Rejection checkRate(Operation op, String user) {
+        Limits opLimits = limits.get(op);
+        if (opLimits == null) {
+            return null;
+        }
+        TokenBucket userBucket = null;
+        if (opLimits.userRate > 0 && user != null) {
+            userBucket = opLimits.getUserBucket(user);
+            long waitMs = userBucket.tryAcquire();
+            if (waitMs > 0) {
+                return new Rejection("user [" + user + "] exceeded the [" + op + "] rate of [" + opLimits.userRate
+                        + "] requests per second", toRetryAfterSeconds(waitMs));
+            }
+        }
+        if (opLimits.global != null) {
+            long waitMs = opLimits.global.tryAcquire();
+            if (waitMs > 0) {
+                // the request is not admitted, it must not use up the quota of the user
+                if (userBucket != null) {
+                    userBucket.release();
+                }
+                return new Rejection("server exceeded the [" + op + "] rate of [" + opLimits.globalRate
+                        + "] requests per second", toRetryAfterSeconds(waitMs));
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    long getUserBucketCount(Operation op) {
+        Limits opLimits = limits.get(op);
+        if (opLimits == null) {
+            return 0;
+        }
+        opLimits.users.cleanUp();
+        return opLimits.users.size();
+    }
+
+    private Rejection checkLoad() {
+        float queueLoad = getQueueLoad();
+        if (shouldShed(queueLoad, queueSoftThreshold, queueHardThreshold)) {
+            return new Rejection("callable queue is [" + Math.round(queueLoad * 100) + "%] full",
+                    shedRetryAfterSeconds);
+        }
+        float dbPoolLoad = getDbPoolLoad();
+        if (shouldShed(dbPoolLoad, dbPoolSoftThreshold, dbPoolHardThreshold)) {
+            return new Rejection("database connection pool is [" + Math.round(dbPoolLoad * 100) + "%] used",
+                    shedRetryAfterSeconds);
+        }
+        return null;
+    }
+
+    /**
+     * Decide whether to shed a request: never below the soft threshold, always above the hard threshold and with a
+     * linearly growing probability in between.
+     */
+    @VisibleForTesting
+    boolean shouldShed(float load, float softThreshold, float hardThreshold) {
+        if (load < 0 || hardThreshold <= 0 || load < softThreshold) {
+            return false;
+        }
+        if (load >= hardThreshold || softThreshold >= hardThreshold) {
+            return true;
+        }
+        float probability = (load - softThreshold) / (hardThreshold - softThreshold);
+        return ThreadLocalRandom.current().nextFloat() < probability;
+    }
+
+    /**
+     * @return the usage of the callable queue, between 0 and 1, or -1 if it is not known.
+     */
+    @VisibleForTesting
+    float getQueueLoad() {
+        Services services = Services.get();
+        CallableQueueService callableQueueService = services != null ? services.get(CallableQueueService.class) : null;
+        if (callableQueueService == null || callableQueueService.getMaxQueueSize() <= 0) {
+            return -1;
+        }
+        return (float) callableQueueService.getQueueSizeEstimate() / callableQueueService.getMaxQueueSize();
+    }
+
+    /**
+     * @return the usage of the JDBC connection pool, between 0 and 1, or -1 if it is not known.
+     */
+    @VisibleForTesting
+    float getDbPoolLoad() {
+        Services services = Services.get();
+        JPAService jpaService = services != null ? services.get(JPAService.class) : null;
+        if (jpaService == null) {
+            return -1;
+        }
+        return jpaService.getConnectionPoolUsage();
+    }
+
+    private static long toRetryAfterSeconds(long waitMs) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMs + 999));
+    }
+
+    private void incrCounter(String name, int count) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, count);
+        }
+    }
+}
@@ -40,6 +40,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.oozie.service.CallableQueueService.CallableWrapper;
+import org.apache.oozie.util.HashedWheelTimer;
 import org.apache.oozie.util.NamedThreadFactory;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
@@ -68,6 +69,8 @@ public class AsyncXCommandExecutor {
     private final BlockingQueue<AccessibleRunnableScheduledFuture<ScheduledXCallable>> delayWorkQueue;
     private final ConcurrentHashMap<String, Set<CallableWrapper<?>>> pendingCommandsPerType;
     private long lastAntiStarvationCheck = 0;
+    private HashedWheelTimer delayedTimer;
+    private UserFairShareScheduler fairShareScheduler;
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @SuppressFBWarnings( value = "SIC_INNER_SHOULD_BE_STATIC_ANON",
@@ -167,15 +170,23 @@ public class AsyncXCommandExecutor {
                 }
 
                 if (initialDelay == 0) {
-                    executor.execute(wrapper);
+                    execute(wrapper);
                 } else {
                     ScheduledXCallable scheduledXCallable = new ScheduledXCallable(wrapper);
                     long schedDelay = wrapper.getDelay(TimeUnit.MILLISECONDS);
-                    scheduledExecutor.schedule(scheduledXCallable,
-                            schedDelay, TimeUnit.MILLISECONDS);
+                    if (delayedTimer != null) {
+                        delayedTimer.newTimeout(new ExpiredXCallable(scheduledXCallable), schedDelay,
+                                TimeUnit.MILLISECONDS);
+                    } else {
+                        scheduledExecutor.schedule(scheduledXCallable,
+                                schedDelay, TimeUnit.MILLISECONDS);
+                    }
                 }
 
                 activeCommands.incrementAndGet();
+                if (fairShareScheduler != null) {
+                    fairShareScheduler.queued(wrapper.getUser());
+                }
             } catch (Throwable ree) {
                 wrapper.removeFromUniqueCallables();
                 throw new RuntimeException(ree);
@@ -234,8 +245,11 @@ public class AsyncXCommandExecutor {
                         if (activeCommands.get() >= maxActiveCommands) {
                             log.warn("queue full, ignoring queuing for [{0}]", command.getElement().getKey());
                             activeCommands.decrementAndGet();
+                            if (fairShareScheduler != null) {
+                                fairShareScheduler.dequeued(command.getUser(), null);
+                            }
                         } else {
-                            executor.execute(command);
+                            execute(command);
                         }
 
                         itr.remove();
@@ -253,6 +267,55 @@ public class AsyncXCommandExecutor {
         }
     }
 
+    /**
+     * Use a hashed wheel timer instead of the scheduled executor for delayed callables. Insertion into the wheel is
+     * O(1) regardless of the number of pending delayed callables, at the price of a precision of one tick.
+     *
+     * @param delayedTimer the timer, must be set before the first callable is queued
+     */
+    public void setDelayedTimer(HashedWheelTimer delayedTimer) {
+        this.delayedTimer = delayedTimer;
+        if (delayedTimer != null) {
+            delayedTimer.start();
+        }
+    }
+
+    public HashedWheelTimer getDelayedTimer() {
+        return delayedTimer;
+    }
+
+    /**
+     * Order the callables of the same priority by the weighted fair share of their users.
+     *
+     * @param fairShareScheduler the scheduler, must be set before the first callable is queued
+     */
+    public void setFairShareScheduler(UserFairShareScheduler fairShareScheduler) {
+        this.fairShareScheduler = fairShareScheduler;
+    }
+
+    public UserFairShareScheduler getFairShareScheduler() {
+        return fairShareScheduler;
+    }
+
+    /**
+     * Execute again a callable that still holds its slot in the queue, e.g. a callable parked at the cap of its user.
+     *
+     * @param wrapper the callable
+     */
+    public void requeue(CallableWrapper<?> wrapper) {
+        if (fairShareScheduler != null) {
+            fairShareScheduler.queued(wrapper.getUser());
+        }
+        execute(wrapper);
+    }
+
+    private void execute(CallableWrapper<?> wrapper) {
+        if (fairShareScheduler != null) {
+            wrapper.setFairShareTag(fairShareScheduler.nextTag(wrapper.getUser()));
+        }
+        executor.execute(wrapper);
+    }
+
     public void commandFinished() {
         // Note: this is to track the number of elements. Otherwise we'd have to combine the size of
         // two queues + a list.
@@ -267,13 +330,18 @@ public class AsyncXCommandExecutor {
         try {
             shutdownExecutor(executor, "executor");
             shutdownExecutor(scheduledExecutor, "scheduled executor");
+            if (delayedTimer != null) {
+                List<Runnable> unprocessed = delayedTimer.stop();
+                log.info("Delayed timer stopped, [{0}] delayed callables discarded", unprocessed.size());
+            }
         } catch (InterruptedException e) {
             log.warn("Interrupted while waiting for executor shutdown");
         }
     }
 
     public boolean isShutDown() {
-        return executor.isShutdown() || scheduledExecutor.isShutdown();
+        return executor.isShutdown() || scheduledExecutor.isShutdown()
+                || (delayedTimer != null && delayedTimer.isStopped());
     }
 
     public boolean isTerminated() {
@@ -301,6 +369,12 @@ public class AsyncXCommandExecutor {
             queueDump.add(delayedXCallable.getCallableWrapper().toString());
         }
 
+        if (delayedTimer != null) {
+            for (final Runnable task : delayedTimer.getPendingTasks()) {
+                queueDump.add(((ExpiredXCallable) task).getScheduledXCallable().getCallableWrapper().toString());
+            }
+        }
+
         for (final CallableWrapper<?> wrapper : copyOfPending) {
             queueDump.add(wrapper.toString());
         }
@@ -331,7 +405,7 @@ public class AsyncXCommandExecutor {
                 // against this condition.
                 checkMaxConcurrency(callable.getType());
             } else {
-                executor.execute(target);
+                execute(target);
             }
         }
 
@@ -340,12 +414,38 @@ public class AsyncXCommandExecutor {
         }
     }
 
+    /**
+     * Expired task of the timer wheel. It hands the callable over to the scheduled executor, so that the concurrency
+     * check does not run on the single worker thread of the wheel.
+     */
+    public class ExpiredXCallable implements Runnable {
+        private final ScheduledXCallable scheduledXCallable;
+
+        public ExpiredXCallable(ScheduledXCallable scheduledXCallable) {
+            this.scheduledXCallable = scheduledXCallable;
+        }
+
+        @Override
+        public void run() {
+            scheduledExecutor.execute(scheduledXCallable);
+        }
+
+        public ScheduledXCallable getScheduledXCallable() {
+            return scheduledXCallable;
+        }
+    }
+
     @SuppressFBWarnings(value = "SE_COMPARATOR_SHOULD_BE_SERIALIZABLE",
             justification = "PriorityBlockingQueue which uses this comparator will never be serialized")
     public static class PriorityComparator implements Comparator<CallableWrapper<?>> {
         @Override
         public int compare(CallableWrapper<?> o1, CallableWrapper<?> o2) {
-            return Integer.compare(o2.getPriority(), o1.getPriority());
+            int result = Integer.compare(o2.getPriority(), o1.getPriority());
+            if (result == 0) {
+                // fair share tags are all zero unless the fair share is enabled
+                result = Long.compare(o1.getFairShareTag(), o2.getFairShareTag());
+            }
+            return result;
         }
     }
 
@@ -41,6 +41,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
+import org.apache.oozie.command.XCommand;
+import org.apache.oozie.util.HashedWheelTimer;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.NamedThreadFactory;
@@ -83,6 +85,9 @@ public class CallableQueueService implements Service, Instrumentable {
     private static final String INSTR_QUEUED_COUNTER = "queued";
     private static final String INSTR_QUEUE_SIZE_SAMPLER = "queue.size";
     private static final String INSTR_THREADS_ACTIVE_SAMPLER = "threads.active";
+    private static final String INSTR_DELAYED_TIMER_PENDING_SAMPLER = "delayed.timer.pending";
+    private static final String INSTR_DELAYED_TIMER_LAG_SAMPLER = "delayed.timer.lag";
+    private static final String INSTR_DELAYED_TIMER_MAX_LAG_VARIABLE = "delayed.timer.max.lag";
 
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "CallableQueueService.";
 
@@ -92,10 +97,18 @@ public class CallableQueueService implements Service, Instrumentable {
     public static final String CONF_QUEUE_AWAIT_TERMINATION_TIMEOUT_SECONDS =
             CONF_PREFIX + "queue.awaitTermination.timeout.seconds";
     public static final String CONF_DELAYED_CALLABLE_THREADS = CONF_PREFIX + "delayedcallable.threads";
+    public static final String CONF_DELAYED_CALLABLE_TIMER_WHEEL = CONF_PREFIX + "delayedcallable.timer.wheel";
+    public static final String CONF_DELAYED_CALLABLE_TIMER_TICK_MS = CONF_PREFIX + "delayedcallable.timer.tick.ms";
+    public static final String CONF_DELAYED_CALLABLE_TIMER_TICKS_PER_WHEEL =
+            CONF_PREFIX + "delayedcallable.timer.ticks.per.wheel";
     public static final String CONF_CALLABLE_CONCURRENCY = CONF_PREFIX + "callable.concurrency";
     public static final String CONF_CALLABLE_NEXT_ELIGIBLE = CONF_PREFIX + "callable.next.eligible";
     public static final String CONF_CALLABLE_INTERRUPT_TYPES = CONF_PREFIX + "InterruptTypes";
     public static final String CONF_CALLABLE_INTERRUPT_MAP_MAX_SIZE = CONF_PREFIX + "InterruptMapMaxSize";
+    public static final String CONF_FAIRSHARE_ENABLED = CONF_PREFIX + "fairshare.enabled";
+    public static final String CONF_FAIRSHARE_WEIGHTS = CONF_PREFIX + "fairshare.weights";
+    public static final String CONF_FAIRSHARE_DEFAULT_WEIGHT = CONF_PREFIX + "fairshare.default.weight";
+    public static final String CONF_FAIRSHARE_MAX_RUNNING_PER_USER = CONF_PREFIX + "fairshare.max.running.per.user";
 
     public static final int CONCURRENCY_DELAY = 500;
     public static final int SAFE_MODE_DELAY = 60000;
@@ -184,17 +197,51 @@ public class CallableQueueService implements Service, Instrumentable {
     // executor and a priority queue.
     public class CallableWrapper<E> extends PriorityDelayQueue.QueueElement<E> implements Runnable, Callable<E> {
         private Instrumentation.Cron cron;
+        // time in queue of the fair share, restarted when the callable is queued again
+        private Instrumentation.Cron userCron;
+        private final String user;
+        private volatile long fairShareTag;
 
         public CallableWrapper(XCallable<E> callable, long delay) {
             super(callable, callable.getPriority(), delay, TimeUnit.MILLISECONDS);
             cron = new Instrumentation.Cron();
             cron.start();
+            user = resolveUser(callable);
+            if (fairShareScheduler != null) {
+                userCron = new Instrumentation.Cron();
+                userCron.start();
+            }
+        }
+
+        // the owner of the job of a command once a command of the job has run, so commands queued by services are
+        // accounted to it, otherwise the user of the log context
+        private String resolveUser(XCallable<E> callable) {
+            if (fairShareScheduler != null && callable instanceof XCommand) {
+                String jobUser = fairShareScheduler.getJobUser(((XCommand<?>) callable).getEntityKey());
+                if (jobUser != null) {
+                    return jobUser;
+                }
+            }
+            return UserFairShareScheduler.toUser(XLog.Info.get().getParameter(XLogService.USER));
         }
 
         public void run() {
             XCallable<?> callable = null;
+            boolean userBegun = false;
+            boolean failed = false;
             try {
                 removeFromUniqueCallables();
+                if (fairShareScheduler != null) {
+                    // the instrumentation only takes stopped crons
+                    Instrumentation.Cron queueCron = userCron;
+                    if (queueCron != null) {
+                        queueCron.stop();
+                    }
+                    userCron = new Instrumentation.Cron();
+                    userCron.start();
+                    fairShareScheduler.dequeued(user, queueCron);
+                    fairShareScheduler.advance(fairShareTag);
+                }
                 if (Services.get().getSystemMode() == SYSTEM_MODE.SAFEMODE) {
                     log.info("Oozie is in SAFEMODE, requeuing callable [{0}] with [{1}]ms delay", getElement().getType(),
                             SAFE_MODE_DELAY);
@@ -202,6 +249,24 @@ public class CallableQueueService implements Service, Instrumentable {
                     queue(this, true);
                     return;
                 }
+                if (fairShareScheduler != null) {
+                    // a callable of a user at the cap keeps its slot in the queue and its key, it is queued again
+                    // when a callable of the user finishes
+                    boolean capped = fairShareScheduler.getMaxRunningPerUser() > 0;
+                    if (capped) {
+                        addToUniqueCallables();
+                    }
+                    userBegun = fairShareScheduler.tryBegin(user, this);
+                    if (!userBegun) {
+                        log.debug("max running callables for user [{0}] exceeded, parking [{1}]", user,
+                                getElement().getType());
+                        incrCounter("user#exceeded.concurrency", 1);
+                        return;
+                    }
+                    if (capped) {
+                        removeFromUniqueCallables();
+                    }
+                }
                 callable = getElement();
                 if (callableBegin(callable)) {
                     cron.stop();
@@ -210,8 +275,15 @@ public class CallableQueueService implements Service, Instrumentable {
                     log.trace("executing callable [{0}]", callable.getName());
 
                     try {
+                        if (fairShareScheduler != null) {
+                            XLog.Info.get().clearParameter(XLogService.USER);
+                        }
                         //FutureTask.run() will invoke cllable.call()
                         super.run();
+                        if (fairShareScheduler != null && callable instanceof XCommand) {
+                            fairShareScheduler.setJobUser(((XCommand<?>) callable).getEntityKey(),
+                                    XLog.Info.get().getParameter(XLogService.USER));
+                        }
                         incrCounter(INSTR_EXECUTED_COUNTER, 1);
                         log.trace("executed callable [{0}]", callable.getName());
                     }
@@ -229,6 +301,7 @@ public class CallableQueueService implements Service, Instrumentable {
                 }
             }
             catch (Throwable t) {
+                failed = true;
                 incrCounter(INSTR_FAILED_COUNTER, 1);
                 log.warn("exception callable [{0}], {1}", callable == null ? "N/A" : callable.getName(),
                         t.getMessage(), t);
@@ -237,9 +310,45 @@ public class CallableQueueService implements Service, Instrumentable {
                 if (callable != null) {
                     callableEnd(callable);
                 }
+                else if (failed && newImpl) {
+                    asyncXCommandExecutor.commandFinished();
+                }
+                if (userBegun) {
+                    CallableWrapper<?> parked = (CallableWrapper<?>) fairShareScheduler.end(user);
+                    if (parked != null) {
+                        parked.unpark();
+                    }
+                }
             }
         }
 
+        // queue again a callable parked at the cap of its user, it still holds its slot in the queue
+        private void unpark() {
+            try {
+                asyncXCommandExecutor.requeue(this);
+            }
+            catch (Throwable t) {
+                removeFromUniqueCallables();
+                asyncXCommandExecutor.commandFinished();
+                log.warn("exception queuing parked callable [{0}], {1}", getElement().getName(), t.getMessage(), t);
+            }
+        }
+
+        /**
+         * @return the user the callable is accounted to for the fair share.
+         */
+        public String getUser() {
+            return user;
+        }
+
+        public long getFairShareTag() {
+            return fairShareTag;
+        }
+
+        public void setFairShareTag(long fairShareTag) {
+            this.fairShareTag = fairShareTag;
+        }
+
         /**
          * Filter the duplicate callables from the list before queue this.
          * <p>
@@ -451,6 +560,7 @@ public class CallableQueueService implements Service, Instrumentable {
     private Instrumentation instrumentation;
     private boolean newImpl = false;
     private AsyncXCommandExecutor asyncXCommandExecutor;
+    private UserFairShareScheduler fairShareScheduler;
 
     /**
      * Convenience method for instrumentation counters.
@@ -549,6 +659,25 @@ public class CallableQueueService implements Service, Instrumentable {
                     PRIORITIES,
                     queueAwaitTerminationTimeoutSeconds);
 
+            if (ConfigurationService.getBoolean(conf, CONF_DELAYED_CALLABLE_TIMER_WHEEL)) {
+                long tickMs = ConfigurationService.getLong(conf, CONF_DELAYED_CALLABLE_TIMER_TICK_MS);
+                int ticksPerWheel = ConfigurationService.getInt(conf, CONF_DELAYED_CALLABLE_TIMER_TICKS_PER_WHEEL);
+                log.info("Using hashed wheel timer for delayed callables, tick [{0}]ms, ticks per wheel [{1}]", tickMs,
+                        ticksPerWheel);
+                asyncXCommandExecutor.setDelayedTimer(new HashedWheelTimer("DelayedCallableTimer", tickMs,
+                        TimeUnit.MILLISECONDS, ticksPerWheel));
+            }
+
+            if (ConfigurationService.getBoolean(conf, CONF_FAIRSHARE_ENABLED)) {
+                fairShareScheduler = new UserFairShareScheduler(
+                        UserFairShareScheduler.parseWeights(ConfigurationService.getStrings(conf, CONF_FAIRSHARE_WEIGHTS)),
+                        ConfigurationService.getInt(conf, CONF_FAIRSHARE_DEFAULT_WEIGHT),
+                        ConfigurationService.getInt(conf, CONF_FAIRSHARE_MAX_RUNNING_PER_USER));
+                log.info("Using per user fair share, max running callables per user [{0}]",
+                        fairShareScheduler.getMaxRunningPerUser());
+                asyncXCommandExecutor.setFairShareScheduler(fairShareScheduler);
+            }
+
             executor = asyncXCommandExecutor.getExecutorService();
         } else {
             executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, (BlockingQueue) queue,
@@ -637,6 +766,23 @@ public class CallableQueueService implements Service, Instrumentable {
         return newImpl ? asyncXCommandExecutor.getSize() : queue.size();
     }
 
+    /**
+     * Return the size of the queue without locking the service, for callers that only need an estimate on every
+     * request.
+     *
+     * @return the number of active commands of the queue
+     */
+    public int getQueueSizeEstimate() {
+        return newImpl ? asyncXCommandExecutor.getSize() : queue.size();
+    }
+
+    /**
+     * @return the maximum size of the queue, callables are rejected when it is reached
+     */
+    public int getMaxQueueSize() {
+        return queueSize;
+    }
+
     private synchronized boolean queue(CallableWrapper<?> wrapper, boolean ignoreQueueSize) {
         if (newImpl) {
             if (asyncXCommandExecutor.isShutDown() || asyncXCommandExecutor.isTerminated()) {
@@ -773,6 +919,37 @@ public class CallableQueueService implements Service, Instrumentable {
                         return (long) executor.getActiveCount();
                     }
                 });
+        if (newImpl && asyncXCommandExecutor.getDelayedTimer() != null) {
+            final HashedWheelTimer delayedTimer = asyncXCommandExecutor.getDelayedTimer();
+            instr.addSampler(INSTRUMENTATION_GROUP, INSTR_DELAYED_TIMER_PENDING_SAMPLER, 60, 1,
+                    new Instrumentation.Variable<Long>() {
+                        public Long getValue() {
+                            return (long) delayedTimer.pendingTimeouts();
+                        }
+                    });
+            instr.addSampler(INSTRUMENTATION_GROUP, INSTR_DELAYED_TIMER_LAG_SAMPLER, 60, 1,
+                    new Instrumentation.Variable<Long>() {
+                        public Long getValue() {
+                            return delayedTimer.getLastLagMillis();
+                        }
+                    });
+            instr.addVariable(INSTRUMENTATION_GROUP, INSTR_DELAYED_TIMER_MAX_LAG_VARIABLE,
+                    new Instrumentation.Variable<Long>() {
+                        public Long getValue() {
+                            return delayedTimer.getMaxLagMillis();
+                        }
+                    });
+        }
+        if (fairShareScheduler != null) {
+            fairShareScheduler.instrument(instr);
+        }
+    }
+
+    /**
+     * @return the per user fair share scheduler, null if the fair share is not enabled.
+     */
+    public UserFairShareScheduler getFairShareScheduler() {
+        return fairShareScheduler;
     }
 
     /**
@@ -580,6 +580,10 @@ public class ConfigurationService implements Service, Instrumentable {
 
     public static float getFloat(String name) {
         Configuration conf = Services.get().getConf();
+        return getFloat(conf, name);
+    }
+
+    public static float getFloat(Configuration conf, String name) {
         return conf.getFloat(name, ConfigUtils.FLOAT_DEFAULT);
     }
 
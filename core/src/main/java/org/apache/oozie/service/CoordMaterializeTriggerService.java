@@ -22,6 +22,10 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.oozie.CoordinatorJobBean;
 import org.apache.oozie.command.coord.CoordMaterializeTransitionXCommand;
@@ -34,6 +38,7 @@ import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.NamedThreadFactory;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 
@@ -68,6 +73,11 @@ public class CoordMaterializeTriggerService implements Service, Instrumentable {
      */
     public static final String CONF_MATERIALIZATION_SYSTEM_LIMIT = CONF_PREFIX + "materialization.system.limit";
 
+    /**
+     * The number of threads materializing in parallel the actions of the coordinator jobs catching up.
+     */
+    public static final String CONF_BACKFILL_THREADS = CONF_PREFIX + "backfill.threads";
+
     private static final String INSTRUMENTATION_GROUP = "coord_job_mat";
     private static final String INSTR_MAT_JOBS_COUNTER = "jobs";
     private static final String INSTR_MAT_QUEUE_SIZE = "mat_queue_size";
@@ -76,6 +86,9 @@ public class CoordMaterializeTriggerService implements Service, Instrumentable {
     private static int currentMaterializedJobsCount = 0;
     private static int currentMaterializedDelayedJobsCount = 0;
 
+    private ExecutorService backfillExecutor;
+    private int backfillThreads;
+
     /**
      * This runnable class will run in every "interval" to queue CoordMaterializeTransitionXCommand.
      */
@@ -237,10 +250,37 @@ public class CoordMaterializeTriggerService implements Service, Instrumentable {
 
         services.get(SchedulerService.class).schedule(lookupTriggerJobsRunnable, 10, schedulingInterval,
                                                       SchedulerService.Unit.SEC);
+
+        backfillThreads = ConfigurationService.getInt(services.getConf(), CONF_BACKFILL_THREADS);
+        if (backfillThreads > 1) {
+            backfillExecutor = new ThreadPoolExecutor(backfillThreads, backfillThreads, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("CoordBackfill"));
+        }
     }
 
     @Override
     public void destroy() {
+        if (backfillExecutor != null) {
+            backfillExecutor.shutdownNow();
+            backfillExecutor = null;
+        }
+    }
+
+    /**
+     * Get the executor shared by the coordinator jobs catching up to materialize their actions in parallel, so the
+     * number of threads bounds the materialization of all of them.
+     *
+     * @return the executor, null if the actions are materialized sequentially
+     */
+    public ExecutorService getBackfillExecutor() {
+        return backfillExecutor;
+    }
+
+    /**
+     * @return the number of threads of the backfill executor
+     */
+    public int getBackfillThreads() {
+        return backfillThreads;
     }
 
     @Override
@@ -19,6 +19,8 @@
 package org.apache.oozie.service;
 
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,7 +40,9 @@ import org.apache.oozie.client.event.SLAEvent;
 import org.apache.oozie.event.BundleJobEvent;
 import org.apache.oozie.event.CoordinatorActionEvent;
 import org.apache.oozie.event.CoordinatorJobEvent;
+import org.apache.oozie.event.EventJournal;
 import org.apache.oozie.event.EventQueue;
+import org.apache.oozie.event.JobEventRecord;
 import org.apache.oozie.event.MemoryEventQueue;
 import org.apache.oozie.event.WorkflowActionEvent;
 import org.apache.oozie.event.WorkflowJobEvent;
@@ -62,6 +66,11 @@ public class EventHandlerService implements Service {
     public static final String CONF_BATCH_SIZE = CONF_PREFIX + "batch.size";
     public static final String CONF_WORKER_THREADS = CONF_PREFIX + "worker.threads";
     public static final String CONF_WORKER_INTERVAL = CONF_PREFIX + "worker.interval";
+    public static final String CONF_JOURNAL_ENABLED = CONF_PREFIX + "journal.enabled";
+    public static final String CONF_JOURNAL_DIR = CONF_PREFIX + "journal.dir";
+    public static final String CONF_JOURNAL_SEGMENT_SIZE = CONF_PREFIX + "journal.segment.size";
+    public static final String CONF_JOURNAL_RETENTION = CONF_PREFIX + "journal.retention";
+    public static final String CONF_JOURNAL_LISTENERS = CONF_PREFIX + "journal.listeners";
 
     private static EventQueue eventQueue;
     private XLog LOG;
@@ -69,6 +78,8 @@ public class EventHandlerService implements Service {
     private Set<String> apptypes;
     private static boolean eventsEnabled = false;
     private int numWorkers;
+    private volatile EventJournal journal;
+    private List<JobEventListener> journalListeners = new ArrayList<JobEventListener>();
 
     @Override
     public void init(Services services) throws ServiceException {
@@ -81,6 +92,7 @@ public class EventHandlerService implements Service {
             eventQueue.init(conf);
             // initialize app-types to switch on events for
             initApptypes(conf);
+            initJournal(conf);
             // initialize event listeners
             initEventListeners(conf);
             // initialize worker threads via Scheduler
@@ -106,6 +118,26 @@ public class EventHandlerService implements Service {
         }
     }
 
+    private void initJournal(Configuration conf) throws Exception {
+        if (!ConfigurationService.getBoolean(conf, CONF_JOURNAL_ENABLED)) {
+            return;
+        }
+        journal = new EventJournal(new File(ConfigurationService.get(conf, CONF_JOURNAL_DIR)),
+                ConfigurationService.getInt(conf, CONF_JOURNAL_SEGMENT_SIZE),
+                ConfigurationService.getLong(conf, CONF_JOURNAL_RETENTION) * 60 * 60 * 1000);
+        journal.open();
+        for (Class<?> listenerClass : ConfigurationService.getClasses(conf, CONF_JOURNAL_LISTENERS)) {
+            Object listener = listenerClass.newInstance();
+            if (listener instanceof JobEventListener) {
+                ((JobEventListener) listener).init(conf);
+                journalListeners.add((JobEventListener) listener);
+            }
+            else {
+                LOG.warn("Journal event listener [{0}] is not a JobEventListener", listenerClass.getName());
+            }
+        }
+    }
+
     private void initEventListeners(Configuration conf) throws Exception {
         Class<?>[] listenerClass = ConfigurationService.getClasses(conf, CONF_LISTENERS);
         for (int i = 0; i < listenerClass.length; i++) {
@@ -157,7 +189,7 @@ public class EventHandlerService implements Service {
         int interval = ConfigurationService.getInt(conf, CONF_WORKER_INTERVAL);
         SchedulerService ss = services.get(SchedulerService.class);
         int available = ss.getSchedulableThreads(conf);
-        if (numWorkers + 3 > available) {
+        if (numWorkers + journalListeners.size() + 3 > available) {
             throw new ServiceException(ErrorCode.E0100, getClass().getName(), "Event worker threads requested ["
                     + numWorkers + "] cannot be handled with current settings. Increase "
                     + SchedulerService.SCHEDULER_THREADS);
@@ -167,6 +199,21 @@ public class EventHandlerService implements Service {
         for (int i = 0; i < numWorkers; i++) {
             ss.schedule(eventWorker, 10 + i * 20, interval, SchedulerService.Unit.SEC);
         }
+        for (JobEventListener listener : journalListeners) {
+            ss.schedule(new JournalConsumer(listener), 10, interval, SchedulerService.Unit.SEC);
+        }
+        if (journal != null) {
+            // the retention is also enforced when no segment is started
+            ss.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    EventJournal eventJournal = journal;
+                    if (eventJournal != null) {
+                        eventJournal.purge();
+                    }
+                }
+            }, interval, interval, SchedulerService.Unit.SEC);
+        }
     }
 
     @Override
@@ -185,6 +232,14 @@ public class EventHandlerService implements Service {
                 }
             }
         }
+        for (JobEventListener listener : journalListeners) {
+            listener.destroy();
+        }
+        journalListeners.clear();
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
     }
 
     @Override
@@ -215,6 +270,15 @@ public class EventHandlerService implements Service {
         LOG = LogUtils.setLogPrefix(LOG, event);
         LOG.debug("Queueing event : {0}", event);
         LOG.trace("Stack trace while queueing event : {0}", event, new Throwable());
+        EventJournal eventJournal = journal;
+        if (eventJournal != null && event instanceof JobEvent) {
+            try {
+                eventJournal.append(JobEventRecord.toBytes((JobEvent) event));
+            }
+            catch (IOException e) {
+                LOG.warn("Could not write event [{0}] to the journal", event, e);
+            }
+        }
         eventQueue.add(event);
         LogUtils.clearLogPrefix();
     }
@@ -223,6 +287,94 @@ public class EventHandlerService implements Service {
         return eventQueue;
     }
 
+    /**
+     * @return the journal of the job events, null if not enabled
+     */
+    public EventJournal getEventJournal() {
+        return journal;
+    }
+
+    private void invokeJobEventListener(JobEventListener jobListener, JobEvent event) {
+        switch (event.getAppType()) {
+            case WORKFLOW_JOB:
+                jobListener.onWorkflowJobEvent((WorkflowJobEvent)event);
+                break;
+            case WORKFLOW_ACTION:
+                jobListener.onWorkflowActionEvent((WorkflowActionEvent)event);
+                break;
+            case COORDINATOR_JOB:
+                jobListener.onCoordinatorJobEvent((CoordinatorJobEvent)event);
+                break;
+            case COORDINATOR_ACTION:
+                jobListener.onCoordinatorActionEvent((CoordinatorActionEvent)event);
+                break;
+            case BUNDLE_JOB:
+                jobListener.onBundleJobEvent((BundleJobEvent)event);
+                break;
+            default:
+                XLog.getLog(EventHandlerService.class).info("Undefined Job Event app-type - {0}",
+                        event.getAppType());
+        }
+    }
+
+    /**
+     * Delivers the job events of the journal to a listener from its checkpoint, so that the listener resumes where it
+     * stopped after a restart and gets the events dropped by a full event queue. A listener without checkpoint starts
+     * with the events queued after its first start.
+     */
+    public class JournalConsumer implements Runnable {
+        private final JobEventListener listener;
+        private final String name;
+        private long offset = -1;
+
+        public JournalConsumer(JobEventListener listener) {
+            this.listener = listener;
+            this.name = listener.getClass().getName();
+        }
+
+        @Override
+        public void run() {
+            if (Thread.currentThread().isInterrupted() || journal == null) {
+                return;
+            }
+            try {
+                if (offset < 0) {
+                    offset = journal.readCheckpoint(name);
+                    if (offset < 0) {
+                        offset = journal.getNextOffset();
+                        journal.writeCheckpoint(name, offset);
+                    }
+                }
+                int batchSize = eventQueue.getBatchSize();
+                List<EventJournal.Record> records = journal.read(offset, batchSize);
+                while (!records.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                    if (records.get(0).getOffset() > offset) {
+                        LOG.warn("Journal event listener [{0}] missed the events from offset [{1}] to [{2}],"
+                                + " deleted from the journal", name, offset, records.get(0).getOffset());
+                    }
+                    for (EventJournal.Record record : records) {
+                        try {
+                            invokeJobEventListener(listener, JobEventRecord.toEvent(JobEventRecord.parse(
+                                    record.getData())));
+                        }
+                        catch (Throwable error) {
+                            XLog.getLog(EventHandlerService.class).warn("Throwable in JournalConsumer of [{0}] at "
+                                    + "offset [{1}]. Error message: {2}", name, record.getOffset(),
+                                    new PasswordMasker().maskPasswordsIfNecessary(error.getMessage()));
+                        }
+                    }
+                    offset = records.get(records.size() - 1).getOffset() + 1;
+                    journal.writeCheckpoint(name, offset);
+                    records = journal.read(offset, batchSize);
+                }
+            }
+            catch (Throwable error) {
+                XLog.getLog(EventHandlerService.class).warn("Throwable in JournalConsumer of [{0}]. Error message: {1}",
+                        name, new PasswordMasker().maskPasswordsIfNecessary(error.getMessage()));
+            }
+        }
+    }
+
     public class EventWorker implements Runnable {
 
         @Override
@@ -273,29 +425,6 @@ public class EventHandlerService implements Service {
             }
         }
 
-        private void invokeJobEventListener(JobEventListener jobListener, JobEvent event) {
-            switch (event.getAppType()) {
-                case WORKFLOW_JOB:
-                    jobListener.onWorkflowJobEvent((WorkflowJobEvent)event);
-                    break;
-                case WORKFLOW_ACTION:
-                    jobListener.onWorkflowActionEvent((WorkflowActionEvent)event);
-                    break;
-                case COORDINATOR_JOB:
-                    jobListener.onCoordinatorJobEvent((CoordinatorJobEvent)event);
-                    break;
-                case COORDINATOR_ACTION:
-                    jobListener.onCoordinatorActionEvent((CoordinatorActionEvent)event);
-                    break;
-                case BUNDLE_JOB:
-                    jobListener.onBundleJobEvent((BundleJobEvent)event);
-                    break;
-                default:
-                    XLog.getLog(EventHandlerService.class).info("Undefined Job Event app-type - {0}",
-                            event.getAppType());
-            }
-        }
-
         private void invokeSLAEventListener(SLAEventListener slaListener, SLAEvent event) {
             switch (event.getEventStatus()) {
                 case START_MET:
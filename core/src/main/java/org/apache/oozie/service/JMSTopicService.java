@@ -45,9 +45,11 @@ public class JMSTopicService implements Service {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "JMSTopicService.";
     public static final String TOPIC_NAME = CONF_PREFIX + "topic.name";
     public static final String TOPIC_PREFIX = CONF_PREFIX + "topic.prefix";
+    public static final String TOPIC_MESSAGE_FORMAT = CONF_PREFIX + "topic.message.format";
     private static XLog LOG;
     private Configuration conf;
     private final Map<String, String> topicMap = new HashMap<String, String>();
+    private final Map<String, String> messageFormatMap = new HashMap<String, String>();
     private static final List<String> JOB_TYPE_CONSTANTS = new ArrayList<String>();
     private static final List<String> ALLOWED_TOPIC_NAMES = new ArrayList<String>();
     private JPAService jpaService = Services.get().get(JPAService.class);
@@ -99,9 +101,32 @@ public class JMSTopicService implements Service {
         LOG = XLog.getLog(getClass());
         conf = services.getConf();
         parseTopicConfiguration();
+        parseMessageFormatConfiguration();
         topicPrefix = conf.get(TOPIC_PREFIX, "");
     }
 
+    private void parseMessageFormatConfiguration() throws ServiceException {
+        String messageFormats = conf.get(TOPIC_MESSAGE_FORMAT, "").trim();
+        if (messageFormats.isEmpty()) {
+            return;
+        }
+        LOG.info("Topic message formats are [{0}]", messageFormats);
+        for (String messageFormat : messageFormats.split(",")) {
+            String[] split = messageFormat.trim().split("=");
+            if (split.length != 2) {
+                throw new ServiceException(ErrorCode.E0100, getClass().getName(), "Property " + messageFormat
+                        + " has incorrect syntax; It should be specified as key value pair");
+            }
+            String jobType = split[0].trim();
+            if (!jobType.equals("default") && !JOB_TYPE_CONSTANTS.contains(jobType)) {
+                throw new ServiceException(ErrorCode.E0100, getClass().getName(),
+                        "Incorrect job type for defining JMS message format: " + jobType + " ;"
+                                + "allowed job types are " + JOB_TYPE_CONSTANTS);
+            }
+            messageFormatMap.put(jobType, split[1].trim());
+        }
+    }
+
     private void parseTopicConfiguration() throws ServiceException {
         String topicName = ConfigurationService.get(conf, TOPIC_NAME);
         if (topicName == null) {
@@ -217,6 +242,30 @@ public class JMSTopicService implements Service {
         return topicPrefix + topicName;
     }
 
+    /**
+     * Retrieve the message format of the topic of an application type
+     *
+     * @param appType application type
+     * @return the message format configured for the job type or as default, null for the format of the serializer
+     * configured for all the topics
+     */
+    public String getMessageFormat(AppType appType) {
+        String messageFormat = null;
+        if (appType == AppType.COORDINATOR_JOB || appType == AppType.COORDINATOR_ACTION) {
+            messageFormat = messageFormatMap.get(JobType.COORDINATOR.value);
+        }
+        else if (appType == AppType.WORKFLOW_JOB || appType == AppType.WORKFLOW_ACTION) {
+            messageFormat = messageFormatMap.get(JobType.WORKFLOW.value);
+        }
+        else if (appType == AppType.BUNDLE_JOB || appType == AppType.BUNDLE_ACTION) {
+            messageFormat = messageFormatMap.get(JobType.BUNDLE.value);
+        }
+        if (messageFormat == null) {
+            messageFormat = messageFormatMap.get("default");
+        }
+        return messageFormat;
+    }
+
     private String getTopicForWorkflow(String jobId) throws JPAExecutorException {
         String topicName = topicMap.get(JobType.WORKFLOW.value);
         if (topicName == null) {
@@ -131,6 +131,19 @@ public class JPAService implements Service, Instrumentable {
         }
     }
 
+    /**
+     * Return the usage of the JDBC connection pool.
+     *
+     * @return the ratio of active connections to the maximum number of active connections, or -1 if it is not known.
+     */
+    public float getConnectionPoolUsage() {
+        final BasicDataSource dataSource = getBasicDataSource();
+        if (dataSource == null || dataSource.getMaxActive() <= 0) {
+            return -1;
+        }
+        return (float) dataSource.getNumActive() / dataSource.getMaxActive();
+    }
+
     private BasicDataSource getBasicDataSource() {
         // Get the BasicDataSource object; it could be wrapped in a DecoratingDataSource
         // It might also not be a BasicDataSource if the user configured something different
@@ -19,10 +19,15 @@
 package org.apache.oozie.service;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -54,6 +59,8 @@ public class PartitionDependencyManagerService implements Service {
     public static final String CACHE_MANAGER_IMPL = CONF_PREFIX + "cache.manager.impl";
     public static final String CACHE_PURGE_INTERVAL = CONF_PREFIX + "cache.purge.interval";
     public static final String CACHE_PURGE_TTL = CONF_PREFIX + "cache.purge.ttl";
+    public static final String NOTIFICATION_BATCH_WINDOW = CONF_PREFIX + "notification.batch.window";
+    public static final String NOTIFICATION_BATCH_SIZE = CONF_PREFIX + "notification.batch.size";
 
     private static XLog LOG = XLog.getLog(PartitionDependencyManagerService.class);
 
@@ -66,6 +73,17 @@ public class PartitionDependencyManagerService implements Service {
 
     private boolean purgeEnabled = false;
 
+    /**
+     * Map of server#db#table and the available partitions of the table notified since the last batch was processed
+     */
+    private Map<String, AvailablePartitions> pendingPartitions;
+
+    private boolean batchNotifications = false;
+
+    private int pendingPartitionCount;
+
+    private int notificationBatchSize;
+
     @Override
     public void init(Services services) throws ServiceException {
         init(services.getConf());
@@ -88,6 +106,43 @@ public class PartitionDependencyManagerService implements Service {
                             SchedulerService.Unit.SEC);
             registeredCoordActionMap = new ConcurrentHashMap<String, Long>();
         }
+        int batchWindow = ConfigurationService.getInt(conf, NOTIFICATION_BATCH_WINDOW);
+        if (batchWindow > 0) {
+            batchNotifications = true;
+            pendingPartitions = new LinkedHashMap<String, AvailablePartitions>();
+            notificationBatchSize = ConfigurationService.getInt(conf, NOTIFICATION_BATCH_SIZE);
+            Services.get().get(SchedulerService.class).schedule(new NotificationBatchWorker(), batchWindow,
+                    batchWindow, SchedulerService.Unit.MILLISEC);
+            LOG.info("Partition available notifications are batched every {0} ms", batchWindow);
+        }
+    }
+
+    private static class AvailablePartitions {
+        private final String server;
+        private final String db;
+        private final String table;
+        private final List<Map<String, String>> partitions = new ArrayList<Map<String, String>>();
+
+        AvailablePartitions(String server, String db, String table) {
+            this.server = server;
+            this.db = db;
+            this.table = table;
+        }
+    }
+
+    private class NotificationBatchWorker implements Runnable {
+        @Override
+        public void run() {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                processPendingPartitions();
+            }
+            catch (Throwable error) {
+                LOG.warn("Error processing batch of partition available notifications", error);
+            }
+        }
     }
 
     private class CachePurgeWorker implements Runnable {
@@ -144,6 +199,13 @@ public class PartitionDependencyManagerService implements Service {
 
     @Override
     public void destroy() {
+        try {
+            // Actions waiting on the partitions of the last batch are updated before the cache goes away
+            processPendingPartitions();
+        }
+        catch (RuntimeException ex) {
+            LOG.warn("Error processing batch of partition available notifications on shutdown", ex);
+        }
         dependencyCache.destroy();
     }
 
@@ -198,15 +260,89 @@ public class PartitionDependencyManagerService implements Service {
         Collection<String> actionsWithAvailableDep = dependencyCache.markDependencyAvailable(server, db, table,
                 partitions);
         if (actionsWithAvailableDep != null) {
-            for (String actionID : actionsWithAvailableDep) {
-                boolean ret = Services.get().get(CallableQueueService.class)
-                        .queue(new CoordActionUpdatePushMissingDependency(actionID), 100);
-                if (ret == false) {
-                    XLog.getLog(getClass()).warn(
-                            "Unable to queue the callable commands for PartitionDependencyManagerService for actionID "
-                                    + actionID + ".Most possibly command queue is full. Queue size is :"
-                                    + Services.get().get(CallableQueueService.class).queueSize());
+            queueUpdates(actionsWithAvailableDep);
+        }
+    }
+
+    /**
+     * Mark the partitions of a notification as available. The waiting actions of all the partitions get a single
+     * update each, right away or with the other partitions notified in the batch window if notifications are batched.
+     *
+     * @param server host:port of the server
+     * @param db name of the database
+     * @param table name of the table
+     * @param partitions list of available partitions
+     */
+    public void partitionsAvailable(String server, String db, String table, List<Map<String, String>> partitions) {
+        if (!batchNotifications) {
+            AvailablePartitions available = new AvailablePartitions(server, db, table);
+            available.partitions.addAll(partitions);
+            queueUpdates(markAvailable(Collections.singletonList(available)));
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            String tableKey = server + "#" + db + "#" + table;
+            AvailablePartitions available = pendingPartitions.get(tableKey);
+            if (available == null) {
+                available = new AvailablePartitions(server, db, table);
+                pendingPartitions.put(tableKey, available);
+            }
+            available.partitions.addAll(partitions);
+            pendingPartitionCount += partitions.size();
+            full = pendingPartitionCount >= notificationBatchSize;
+        }
+        if (full) {
+            processPendingPartitions();
+        }
+    }
+
+    /**
+     * Mark the partitions notified since the last batch as available, and queue a single update for each of their
+     * waiting actions.
+     */
+    @VisibleForTesting
+    public void processPendingPartitions() {
+        Collection<AvailablePartitions> batch;
+        synchronized (this) {
+            if (!batchNotifications || pendingPartitions.isEmpty()) {
+                return;
+            }
+            batch = pendingPartitions.values();
+            pendingPartitions = new LinkedHashMap<String, AvailablePartitions>();
+            pendingPartitionCount = 0;
+        }
+        queueUpdates(markAvailable(batch));
+    }
+
+    private Collection<String> markAvailable(Collection<AvailablePartitions> batch) {
+        Set<String> actionsWithAvailableDep = new LinkedHashSet<String>();
+        int count = 0;
+        for (AvailablePartitions available : batch) {
+            for (Map<String, String> partition : available.partitions) {
+                Collection<String> actionIDs = dependencyCache.markDependencyAvailable(available.server,
+                        available.db, available.table, partition);
+                if (actionIDs == null) {
+                    // No missing dependency left for the table
+                    break;
                 }
+                actionsWithAvailableDep.addAll(actionIDs);
+                count++;
+            }
+        }
+        LOG.debug("Marked {0} partitions available for {1} waiting actions", count, actionsWithAvailableDep.size());
+        return actionsWithAvailableDep;
+    }
+
+    private void queueUpdates(Collection<String> actionIDs) {
+        for (String actionID : actionIDs) {
+            boolean ret = Services.get().get(CallableQueueService.class)
+                    .queue(new CoordActionUpdatePushMissingDependency(actionID), 100);
+            if (ret == false) {
+                XLog.getLog(getClass()).warn(
+                        "Unable to queue the callable commands for PartitionDependencyManagerService for actionID "
+                                + actionID + ".Most possibly command queue is full. Queue size is :"
+                                + Services.get().get(CallableQueueService.class).queueSize());
             }
         }
     }
@@ -34,6 +34,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
@@ -44,6 +45,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map.Entry;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -78,6 +80,8 @@ public class ShareLibService implements Service, Instrumentable {
 
     public static final String PURGE_INTERVAL = CONF_PREFIX + "ShareLibService.purge.interval";
 
+    public static final String CACHE_FILE_STATUS = CONF_PREFIX + "ShareLibService.cache.file.status";
+
     public static final String FAIL_FAST_ON_STARTUP = CONF_PREFIX + "ShareLibService.fail.fast.on.startup";
 
     private static final String PERMISSION_STRING = "-rwxr-xr-x";
@@ -105,6 +109,11 @@ public class ShareLibService implements Service, Instrumentable {
 
     private boolean isShipLauncherEnabled = false;
 
+    private boolean isFileStatusCacheEnabled = false;
+
+    // statuses of the share lib and launcher jars, replaced when the jars are reloaded
+    private volatile FileStatusCache fileStatusCache = new FileStatusCache(Collections.<Path>emptySet());
+
     public static String SHARE_LIB_CONF_PREFIX = "oozie";
 
     private boolean shareLibLoadAttempted = false;
@@ -131,6 +140,7 @@ public class ShareLibService implements Service, Instrumentable {
         this.services = services;
         sharelibMappingFile = ConfigurationService.get(services.getConf(), SHARELIB_MAPPING_FILE);
         isShipLauncherEnabled = ConfigurationService.getBoolean(services.getConf(), SHIP_LAUNCHER_JAR);
+        isFileStatusCacheEnabled = ConfigurationService.getBoolean(services.getConf(), CACHE_FILE_STATUS);
         boolean failOnfailure = ConfigurationService.getBoolean(services.getConf(), FAIL_FAST_ON_STARTUP);
         Path launcherlibPath = getLauncherlibPath();
         HadoopAccessorService has = Services.get().get(HadoopAccessorService.class);
@@ -281,7 +291,7 @@ public class ShareLibService implements Service, Instrumentable {
             LOG.info(localJar.getName() + " uploaded to " + executorDir.toString());
         }
         launcherLibMap.put(type, listOfPaths);
-
+        resetFileStatusCache();
     }
 
     private static boolean copyFromLocalFile(File src, FileSystem dstFS, Path dstDir) throws IOException {
@@ -409,6 +419,7 @@ public class ShareLibService implements Service, Instrumentable {
                     shareLibMap = tmpShareLibMap;
                     symlinkMapping = tmpSymlinkMapping;
                     shareLibConfigMap = tmpShareLibConfigMap;
+                    resetFileStatusCache();
                     return;
                 }
             }
@@ -615,9 +626,74 @@ public class ShareLibService implements Service, Instrumentable {
         shareLibMap = tempShareLibMap;
         symlinkMapping = tmpSymlinkMapping;
         shareLibConfigMap = tmpShareLibConfigMap;
+        resetFileStatusCache();
         return status;
     }
 
+    /**
+     * Returns the cached statuses of the share lib and launcher jars, keyed by their qualified URI.
+     * <p>
+     * The returned map is a copy, it can be used to determine the timestamps and visibilities of the distributed cache
+     * files of a launcher and then be passed to {@link #cacheFileStatuses(Map)}. It is empty if caching the statuses
+     * is disabled.
+     *
+     * @return the cached file statuses
+     */
+    public Map<URI, FileStatus> getCachedFileStatuses() {
+        return new HashMap<URI, FileStatus>(fileStatusCache.statuses);
+    }
+
+    /**
+     * Caches the statuses of the share lib and launcher jars among the given statuses, so the NameNode is not asked for
+     * them on every launcher submission. The cache is cleared when the share lib or the launcher jars are reloaded.
+     *
+     * @param fileStatuses the file statuses keyed by their qualified URI
+     */
+    public void cacheFileStatuses(Map<URI, FileStatus> fileStatuses) {
+        if (!isFileStatusCacheEnabled) {
+            return;
+        }
+        FileStatusCache cache = fileStatusCache;
+        for (Entry<URI, FileStatus> entry : fileStatuses.entrySet()) {
+            FileStatus status = entry.getValue();
+            if (status != null && !status.isDirectory() && !cache.statuses.containsKey(entry.getKey())
+                    && cache.jars.contains(new Path(entry.getKey()))) {
+                cache.statuses.put(entry.getKey(), status);
+            }
+        }
+    }
+
+    /**
+     * Replaces the file status cache with an empty one for the current share lib and launcher jars.
+     */
+    private void resetFileStatusCache() {
+        Set<Path> jars = new HashSet<Path>();
+        if (isFileStatusCacheEnabled) {
+            List<List<Path>> libs = new ArrayList<List<Path>>(shareLibMap.values());
+            libs.addAll(launcherLibMap.values());
+            for (List<Path> paths : libs) {
+                for (Path path : paths) {
+                    if (!isLocalFile(path.toString())) {
+                        jars.add(fs.makeQualified(path));
+                    }
+                }
+            }
+        }
+        fileStatusCache = new FileStatusCache(jars);
+    }
+
+    /**
+     * The qualified paths of the share lib and launcher jars, computed when they are loaded, and their cached statuses.
+     */
+    private static class FileStatusCache {
+        private final Set<Path> jars;
+        private final Map<URI, FileStatus> statuses = new ConcurrentHashMap<URI, FileStatus>();
+
+        FileStatusCache(Set<Path> jars) {
+            this.jars = jars;
+        }
+    }
+
     /**
      * Get the latest share lib root path
      *
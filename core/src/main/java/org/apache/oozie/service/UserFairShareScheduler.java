@@ -0,0 +1,373 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Weighted fair share of the callable queue across users.
+ * <p>
+ * The scheduler implements start-time fair queuing: every callable that becomes eligible for execution gets a virtual
+ * start tag, which is the maximum of the current virtual time and the finish tag of the previous callable of the same
+ * user. The finish tag is the start tag plus a cost that is inversely proportional to the weight of the user. Callables
+ * of the same priority are executed in the order of their start tags, so a user who queues thousands of callables at
+ * once only gets its weighted share of the threads while other users have callables waiting.
+ * <p>
+ * The fair share is layered below the callable priority: a higher priority callable always goes first, and the
+ * anti-starvation logic of {@link AsyncXCommandExecutor} keeps promoting callables that have been waiting for too long.
+ * <p>
+ * Optionally, the number of callables of a user running at the same time can be capped. A callable of a user at the
+ * cap is parked until a callable of the user finishes, instead of being requeued again and again.
+ */
+public class UserFairShareScheduler {
+    public static final String UNKNOWN_USER = "_unknown_";
+    public static final String INSTRUMENTATION_GROUP = "callablequeue.fairshare";
+
+    static final long VIRTUAL_TIME_UNIT = 1_000_000L;
+
+    private static final int MAX_JOB_USERS = 10_000;
+
+    private static final String DO_AS = " doAs ";
+    private static final XLog LOG = XLog.getLog(UserFairShareScheduler.class);
+
+    private final Map<String, Integer> weights;
+    private final int defaultWeight;
+    private final int maxRunningPerUser;
+    private final ConcurrentHashMap<String, UserShare> shares = new ConcurrentHashMap<>();
+    // owners of the jobs whose commands have run, commands queued by services are accounted to them
+    private final Cache<String, String> jobUsers = CacheBuilder.newBuilder().maximumSize(MAX_JOB_USERS).build();
+    private long virtualTime;
+    private volatile Instrumentation instrumentation;
+
+    private static class UserShare {
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        // callables waiting for a callable of the user to finish, guarded by the share
+        private final ArrayDeque<Runnable> parked = new ArrayDeque<>();
+        private long lastFinishTag;
+    }
+
+    /**
+     * Create a fair share scheduler.
+     *
+     * @param weights weights of the users, users not in the map get the default weight.
+     * @param defaultWeight weight of the users not in the weights map.
+     * @param maxRunningPerUser maximum number of callables of a user running at the same time, 0 or less means
+     *        no limit.
+     */
+    public UserFairShareScheduler(Map<String, Integer> weights, int defaultWeight, int maxRunningPerUser) {
+        Preconditions.checkArgument(defaultWeight > 0, "Default weight must be >0, is %s", defaultWeight);
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Preconditions.checkArgument(entry.getValue() > 0, "Weight of user [%s] must be >0, is %s",
+                    entry.getKey(), entry.getValue());
+        }
+        this.weights = Collections.unmodifiableMap(new HashMap<>(weights));
+        this.defaultWeight = defaultWeight;
+        this.maxRunningPerUser = maxRunningPerUser;
+    }
+
+    /**
+     * Parse a weights configuration of the form <code>user1:weight1,user2:weight2</code>.
+     *
+     * @param entries the entries of the configuration.
+     * @return the weights by user.
+     */
+    public static Map<String, Integer> parseWeights(String[] entries) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : entries) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int idx = entry.lastIndexOf(':');
+            if (idx <= 0 || idx == entry.length() - 1) {
+                throw new IllegalArgumentException("Invalid fair share weight [" + entry + "], expected user:weight");
+            }
+            weights.put(entry.substring(0, idx).trim(), Integer.parseInt(entry.substring(idx + 1).trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * Return the user a callable is accounted to, from the user of the log context.
+     * <p>
+     * For proxied requests the log context holds <code>user doAs proxyUser</code>, the proxy user is used then.
+     *
+     * @param logUser the user of the log context, may be null.
+     * @return the user to account the callable to.
+     */
+    public static String toUser(String logUser) {
+        if (logUser == null || logUser.trim().isEmpty()) {
+            return UNKNOWN_USER;
+        }
+        int idx = logUser.indexOf(DO_AS);
+        if (idx >= 0) {
+            return logUser.substring(idx + DO_AS.length()).trim();
+        }
+        return logUser.trim();
+    }
+
+    /**
+     * Return the owner of a job, known once a command of the job has run.
+     *
+     * @param jobId the job id, the entity key of the command.
+     * @return the owner of the job, null if not known.
+     */
+    public String getJobUser(String jobId) {
+        return jobId == null ? null : jobUsers.getIfPresent(jobId);
+    }
+
+    /**
+     * Record the owner of a job, taken from the log context of a command of the job once it has run.
+     *
+     * @param jobId the job id, the entity key of the command.
+     * @param logUser the user of the log context, ignored if null.
+     */
+    public void setJobUser(String jobId, String logUser) {
+        String user = toUser(logUser);
+        if (jobId != null && !UNKNOWN_USER.equals(user)) {
+            jobUsers.put(jobId, user);
+        }
+    }
+
+    public int getWeight(String user) {
+        Integer weight = weights.get(user);
+        return weight != null ? weight : defaultWeight;
+    }
+
+    public int getMaxRunningPerUser() {
+        return maxRunningPerUser;
+    }
+
+    /**
+     * Assign the virtual start tag of a callable of the given user that is becoming eligible for execution.
+     *
+     * @param user user of the callable.
+     * @return the start tag, callables with a lower tag are executed first within the same priority.
+     */
+    public synchronized long nextTag(String user) {
+        UserShare share = getShare(user);
+        long startTag = Math.max(virtualTime, share.lastFinishTag);
+        share.lastFinishTag = startTag + VIRTUAL_TIME_UNIT / getWeight(user);
+        return startTag;
+    }
+
+    /**
+     * Advance the virtual time to the start tag of a callable that is taken from the queue.
+     *
+     * @param tag the start tag of the callable.
+     */
+    public synchronized void advance(long tag) {
+        if (tag > virtualTime) {
+            virtualTime = tag;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized long getVirtualTime() {
+        return virtualTime;
+    }
+
+    /**
+     * Account a callable of the user that has been queued.
+     *
+     * @param user user of the callable.
+     */
+    public void queued(String user) {
+        getShare(user).queued.incrementAndGet();
+    }
+
+    /**
+     * Account a callable of the user that has been taken from the queue.
+     *
+     * @param user user of the callable.
+     * @param cron stopped cron measuring the time the callable spent in the queue, it may be null.
+     */
+    public void dequeued(String user, Instrumentation.Cron cron) {
+        UserShare share = getShare(user);
+        if (share.queued.decrementAndGet() < 0) {
+            share.queued.set(0);
+        }
+        Instrumentation instr = instrumentation;
+        if (instr != null && cron != null) {
+            instr.addCron(INSTRUMENTATION_GROUP, toInstrumentationName(user) + ".time.in.queue", cron);
+        }
+    }
+
+    /**
+     * Try to start a callable of the user, checking the running callables cap.
+     *
+     * @param user user of the callable.
+     * @return true if the callable can run, false if the user has reached the maximum of running callables.
+     */
+    public boolean tryBegin(String user) {
+        return tryBegin(user, null);
+    }
+
+    /**
+     * Try to start a callable of the user, checking the running callables cap. If the user has reached the cap, the
+     * callable is parked, it is handed back by {@link #end(String)} when a callable of the user finishes.
+     *
+     * @param user user of the callable.
+     * @param callable callable to park if the user has reached the cap, it may be null.
+     * @return true if the callable can run, false if the user has reached the maximum of running callables.
+     */
+    public boolean tryBegin(String user, Runnable callable) {
+        UserShare share = getShare(user);
+        if (maxRunningPerUser <= 0) {
+            share.running.incrementAndGet();
+            return true;
+        }
+        synchronized (share) {
+            if (share.running.get() >= maxRunningPerUser) {
+                if (callable != null) {
+                    share.parked.add(callable);
+                }
+                return false;
+            }
+            share.running.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Account a callable of the user that has finished running.
+     *
+     * @param user user of the callable.
+     * @return a parked callable of the user to queue again, null if there is none.
+     */
+    public Runnable end(String user) {
+        UserShare share = getShare(user);
+        if (maxRunningPerUser <= 0) {
+            share.running.decrementAndGet();
+            return null;
+        }
+        synchronized (share) {
+            share.running.decrementAndGet();
+            return share.parked.poll();
+        }
+    }
+
+    /**
+     * @return the number of parked callables by user.
+     */
+    public Map<String, Integer> getParkedCounts() {
+        Map<String, Integer> parked = new TreeMap<>();
+        for (Map.Entry<String, UserShare> entry : shares.entrySet()) {
+            UserShare share = entry.getValue();
+            synchronized (share) {
+                parked.put(entry.getKey(), share.parked.size());
+            }
+        }
+        return parked;
+    }
+
+    /**
+     * @return the number of queued callables by user.
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        for (Map.Entry<String, UserShare> entry : shares.entrySet()) {
+            depths.put(entry.getKey(), entry.getValue().queued.get());
+        }
+        return depths;
+    }
+
+    /**
+     * @return the number of running callables by user.
+     */
+    public Map<String, Integer> getRunningCounts() {
+        Map<String, Integer> running = new TreeMap<>();
+        for (Map.Entry<String, UserShare> entry : shares.entrySet()) {
+            running.put(entry.getKey(), entry.getValue().running.get());
+        }
+        return running;
+    }
+
+    /**
+     * Instrument the per user queue depth, running and parked callables and time in queue.
+     *
+     * @param instr instrumentation instance.
+     */
+    public void instrument(Instrumentation instr) {
+        instrumentation = instr;
+        for (Map.Entry<String, UserShare> entry : shares.entrySet()) {
+            addVariables(instr, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private UserShare getShare(String user) {
+        if (user == null) {
+            user = UNKNOWN_USER;
+        }
+        UserShare share = shares.get(user);
+        if (share == null) {
+            UserShare newShare = new UserShare();
+            share = shares.putIfAbsent(user, newShare);
+            if (share == null) {
+                share = newShare;
+                LOG.debug("Tracking fair share of user [{0}] with weight [{1}]", user, getWeight(user));
+                Instrumentation instr = instrumentation;
+                if (instr != null) {
+                    addVariables(instr, user, share);
+                }
+            }
+        }
+        return share;
+    }
+
+    private static void addVariables(Instrumentation instr, String user, final UserShare share) {
+        String name = toInstrumentationName(user);
+        instr.addVariable(INSTRUMENTATION_GROUP, name + ".queued", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) share.queued.get();
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, name + ".running", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                return (long) share.running.get();
+            }
+        });
+        instr.addVariable(INSTRUMENTATION_GROUP, name + ".parked", new Instrumentation.Variable<Long>() {
+            public Long getValue() {
+                synchronized (share) {
+                    return (long) share.parked.size();
+                }
+            }
+        });
+    }
+
+    private static String toInstrumentationName(String user) {
+        return "user." + user;
+    }
+}
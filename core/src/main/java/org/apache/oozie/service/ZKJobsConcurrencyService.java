@@ -19,21 +19,28 @@ package org.apache.oozie.service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.event.listener.ZKConnectionListener;
+import org.apache.oozie.util.ConsistentHashRing;
 import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
 import org.apache.oozie.util.ZKUtils;
 
 /**
@@ -50,6 +57,11 @@ import org.apache.oozie.util.ZKUtils;
  * require (or are better off) being done by only one server (e.g. database purging).  Note that the leader server isn't a
  * "traditional leader" in the sense that it doesn't command or have authority over the other servers.  This leader election uses
  * a znode under /oozie.zookeeper.namespace/ZK_BASE_SERVICES_PATH/ZK_LEADER_PATH (default is /oozie/services/concurrencyleader).
+ * <p>
+ * When job ownership is enabled, jobs are assigned to servers with a consistent hash ring of the server ids instead of the mod,
+ * so only a fraction of the jobs move when a server joins or leaves. The owner of a job can then take the locks of the job
+ * locally (see {@link ZKLocksService}); right after a change of the servers, during the rebalance window, no server is
+ * considered as the owner and all of them go through ZooKeeper again.
  */
 public class ZKJobsConcurrencyService extends JobsConcurrencyService implements Service, Instrumentable {
 
@@ -62,6 +74,22 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
     private static final String ZK_LEADER_PATH = "concurrencyleader";
     private static LeaderLatch leaderLatch = null;
 
+    public static final String CONF_JOB_OWNERSHIP_ENABLED = CONF_PREFIX + "ZKJobsConcurrencyService.job.ownership.enabled";
+    public static final String CONF_JOB_OWNERSHIP_VIRTUAL_NODES = CONF_PREFIX
+            + "ZKJobsConcurrencyService.job.ownership.virtual.nodes";
+    public static final String CONF_JOB_OWNERSHIP_REBALANCE_WINDOW = CONF_PREFIX
+            + "ZKJobsConcurrencyService.job.ownership.rebalance.window.seconds";
+
+    private static final XLog LOG = XLog.getLog(ZKJobsConcurrencyService.class);
+
+    private boolean jobOwnershipEnabled;
+    private int virtualNodes;
+    private long rebalanceWindowMs;
+    private volatile ConsistentHashRing ring;
+    private volatile long ringChangeTime;
+    private volatile boolean ringStale;
+    private ServiceCacheListener ringListener;
+
     /**
      * Initialize the zookeeper jobs concurrency service
      *
@@ -79,6 +107,29 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
         catch (Exception ex) {
             throw new ServiceException(ErrorCode.E1700, ex.getMessage(), ex);
         }
+        jobOwnershipEnabled = ConfigurationService.getBoolean(services.getConf(), CONF_JOB_OWNERSHIP_ENABLED);
+        virtualNodes = ConfigurationService.getInt(services.getConf(), CONF_JOB_OWNERSHIP_VIRTUAL_NODES);
+        rebalanceWindowMs = TimeUnit.SECONDS.toMillis(
+                ConfigurationService.getLong(services.getConf(), CONF_JOB_OWNERSHIP_REBALANCE_WINDOW));
+        ring = null;
+        ringListener = new ServiceCacheListener() {
+            @Override
+            public void cacheChanged() {
+                ringStale = true;
+            }
+
+            @Override
+            public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                if (newState == ConnectionState.RECONNECTED) {
+                    ringStale = true;
+                }
+            }
+        };
+        zk.addServiceCacheListener(ringListener);
+        if (jobOwnershipEnabled) {
+            LOG.info("Job ownership enabled, virtual nodes [{0}], rebalance window [{1}] ms", virtualNodes,
+                    rebalanceWindowMs);
+        }
     }
 
     /**
@@ -90,8 +141,12 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
             IOUtils.closeSafely(leaderLatch);
         }
         if (zk != null) {
+            if (ringListener != null) {
+                zk.removeServiceCacheListener(ringListener);
+            }
             zk.unregister(this);
         }
+        ringListener = null;
         zk = null;
         super.destroy();
     }
@@ -104,6 +159,14 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
     @Override
     public void instrument(Instrumentation instr) {
         super.instrument(instr);
+        if (jobOwnershipEnabled) {
+            instr.addVariable("oozie", "job.ownership.rebalancing", new Instrumentation.Variable<Boolean>() {
+                @Override
+                public Boolean getValue() {
+                    return isRebalancing();
+                }
+            });
+        }
     }
 
     /**
@@ -119,7 +182,8 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
 
     /**
      * Check to see if jobId should be processed by this server.  This implementation only returns true if the index of this server
-     * in ZooKeeper's list of servers is equal to the id of the job mod the number of servers.
+     * in ZooKeeper's list of servers is equal to the id of the job mod the number of servers, or, when job ownership is enabled,
+     * if this server owns the job on the consistent hash ring.
      *
      * @param jobId The jobId to check
      * @return true if this server should process this jobId; false if not
@@ -127,6 +191,9 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
      */
     @Override
     public boolean isJobIdForThisServer(String jobId) throws ServiceException {
+        if (jobOwnershipEnabled) {
+            return checkJobIdForServer(jobId, getRing());
+        }
         List<ServiceInstance<Map>> oozies = getServiceInstances();
         int numOozies = oozies.size();
         int myIndex = zk.getZKIdIndex(oozies);
@@ -144,6 +211,15 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
     @Override
     public List<String> getJobIdsForThisServer(List<String> ids) throws ServiceException {
         List<String> filteredIds = new ArrayList<>();
+        if (jobOwnershipEnabled) {
+            ConsistentHashRing currentRing = getRing();
+            for (String id : ids) {
+                if (checkJobIdForServer(id, currentRing)) {
+                    filteredIds.add(id);
+                }
+            }
+            return filteredIds;
+        }
         List<ServiceInstance<Map>> oozies = getServiceInstances();
         int numOozies = oozies.size();
         int myIndex = zk.getZKIdIndex(oozies);
@@ -182,6 +258,121 @@ public class ZKJobsConcurrencyService extends JobsConcurrencyService implements
         return belongs;
     }
 
+    private boolean checkJobIdForServer(String jobId, ConsistentHashRing currentRing) {
+        String key = getJobKey(jobId);
+        return key == null || zk.getZKId().equals(currentRing.getOwner(key));
+    }
+
+    /**
+     * Return whether job ownership is enabled.
+     *
+     * @return true if jobs are assigned to servers with the consistent hash ring
+     */
+    public boolean isJobOwnershipEnabled() {
+        return jobOwnershipEnabled;
+    }
+
+    /**
+     * Check whether this server currently owns the job of a lock resource, in which case it can lock the resource locally.
+     * <p>
+     * This returns false if job ownership is disabled, if the resource is not a job (or action) id, if the ZooKeeper
+     * connection is not healthy or during the rebalance window following a change of the servers.
+     *
+     * @param resource the lock resource, a job id or an action id
+     * @return true if this server owns the job of the resource
+     */
+    public boolean isJobOwnedByThisServer(String resource) {
+        if (!jobOwnershipEnabled || zk == null) {
+            return false;
+        }
+        String key = getJobKey(resource);
+        if (key == null) {
+            return false;
+        }
+        ConnectionState connectionState = ZKConnectionListener.getZKConnectionState();
+        if (connectionState == ConnectionState.SUSPENDED || connectionState == ConnectionState.LOST) {
+            return false;
+        }
+        try {
+            ConsistentHashRing currentRing = getRing();
+            if (isRebalancing()) {
+                return false;
+            }
+            return zk.getZKId().equals(currentRing.getOwner(key));
+        }
+        catch (ServiceException ex) {
+            LOG.debug("Could not check the owner of [{0}], {1}", resource, ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Return whether the servers changed less than the rebalance window ago.
+     *
+     * @return true during the rebalance window
+     */
+    public boolean isRebalancing() {
+        return ring == null || System.currentTimeMillis() - ringChangeTime < rebalanceWindowMs;
+    }
+
+    /**
+     * Return the consistent hash ring of the current servers. The ring is only checked against the servers when the service
+     * cache notified a change, and rebuilt if the servers changed.
+     *
+     * @return the consistent hash ring
+     * @throws ServiceException if the list of servers is empty
+     */
+    @VisibleForTesting
+    ConsistentHashRing getRing() throws ServiceException {
+        ConsistentHashRing currentRing = ring;
+        if (currentRing != null && !ringStale) {
+            return currentRing;
+        }
+        return refreshRing();
+    }
+
+    private synchronized ConsistentHashRing refreshRing() throws ServiceException {
+        if (ring != null && !ringStale) {
+            return ring;
+        }
+        // Cleared before reading the servers so that a change notified meanwhile is not lost
+        ringStale = false;
+        Set<String> ids = new HashSet<>();
+        try {
+            for (ServiceInstance<Map> oozie : getServiceInstances()) {
+                Map<String, String> metadata = oozie.getPayload();
+                ids.add(metadata.get(ZKUtils.ZKMetadataKeys.OOZIE_ID));
+            }
+        }
+        catch (ServiceException ex) {
+            ringStale = true;
+            throw ex;
+        }
+        if (ring == null || !ring.getMembers().equals(ids)) {
+            LOG.info("Oozie servers changed to {0}, rebalancing job ownership", ids);
+            // Set first as isRebalancing() reads both without locking
+            ringChangeTime = System.currentTimeMillis();
+            ring = new ConsistentHashRing(ids, virtualNodes);
+        }
+        return ring;
+    }
+
+    /**
+     * Return the job id part of a lock resource or job id: the workflow, coordinator or bundle id without any action suffix.
+     *
+     * @param resource the lock resource or id
+     * @return the job id, or null if the resource is not a job id
+     */
+    @VisibleForTesting
+    static String getJobKey(String resource) {
+        if (resource == null) {
+            return null;
+        }
+        int actionSeparator = resource.indexOf('@');
+        String jobId = actionSeparator >= 0 ? resource.substring(0, actionSeparator) : resource;
+        return ID_PATTERN.matcher(jobId).matches() ? jobId : null;
+    }
+
     /**
      * Return a map of instance id to Oozie server URL.  This implementation always returns a map with where the key is the instance
      * id and the value is the URL of each Oozie server that we can see in the service discovery in ZooKeeper.
@@ -17,11 +17,25 @@
  */
 package org.apache.oozie.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.ErrorCode;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
@@ -39,11 +53,20 @@ import org.apache.curator.utils.ThreadUtils;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.MapMaker;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 
 /**
  * Service that provides distributed locks via ZooKeeper.  Requires that a ZooKeeper ensemble is available.  The locks will be
  * located under a ZNode named "locks" under the namespace (see {@link ZKUtils}).  For example, with default settings, if the
  * resource we're locking is called "foo", then the ZNode backing the lock will be at /oozie/locks/foo.
+ * <p>
+ * When job ownership is enabled in {@link ZKJobsConcurrencyService}, the server owning a job locks it with an in-memory lock
+ * and keeps holding the ZooKeeper write lock of the job between commands ("owner lock"), so only the first command of a job
+ * costs ZooKeeper calls. Other servers still use the ZooKeeper lock and wait for the owner lock to be given up: owner locks
+ * are released as soon as another server contends for them (watching the children of the lock ZNode), when they are idle,
+ * when the job is not owned by this server anymore and when the ZooKeeper connection is suspended. As Curator locks belong to the thread acquiring them, owner locks are acquired and
+ * released by a few dedicated threads.
  */
 public class ZKLocksService extends MemoryLocksService implements Service, Instrumentable {
 
@@ -59,6 +82,17 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
     static final String REAPING_THREADS = CONF_PREFIX + "ZKLocksService.locks.reaper.threads";
     private static final String RELEASE_RETRY_TIME_LIMIT_MINUTES = CONF_PREFIX + "ZKLocksService.lock.release.retry.time.limit"
             + ".minutes";
+    static final String OWNER_LOCK_HOLDER_THREADS = CONF_PREFIX + "ZKLocksService.owner.lock.holder.threads";
+    static final String OWNER_LOCK_IDLE_TIMEOUT = CONF_PREFIX + "ZKLocksService.owner.lock.idle.timeout.seconds";
+    static final String OWNER_LOCK_CHECK_INTERVAL = CONF_PREFIX + "ZKLocksService.owner.lock.check.interval.seconds";
+
+    private final ConcurrentMap<String, OwnerLock> ownerLocks = new ConcurrentHashMap<>();
+    private ExecutorService[] ownerLockHolders;
+    private ScheduledExecutorService ownerLockChecker;
+    private ConnectionStateListener ownerLockConnectionListener;
+    private volatile boolean ownerLocksSuspended;
+    private long ownerLockIdleTimeoutMs;
+    private Instrumentation instrumentation;
 
     /**
      * Initialize the zookeeper locks service
@@ -77,6 +111,49 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
         catch (Exception ex) {
             throw new ServiceException(ErrorCode.E1700, ex.getMessage(), ex);
         }
+        if (ConfigurationService.getBoolean(services.getConf(), ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED)) {
+            initOwnerLocks(services.getConf());
+        }
+    }
+
+    private void initOwnerLocks(Configuration conf) {
+        int holderThreads = ConfigurationService.getInt(conf, OWNER_LOCK_HOLDER_THREADS);
+        ownerLockHolders = new ExecutorService[holderThreads];
+        for (int i = 0; i < holderThreads; i++) {
+            ownerLockHolders[i] = ThreadUtils.newSingleThreadExecutor("ZKOwnerLockHolder-" + i);
+        }
+        ownerLockIdleTimeoutMs = TimeUnit.SECONDS.toMillis(ConfigurationService.getLong(conf, OWNER_LOCK_IDLE_TIMEOUT));
+        long checkInterval = ConfigurationService.getLong(conf, OWNER_LOCK_CHECK_INTERVAL);
+        ownerLockChecker = ThreadUtils.newSingleThreadScheduledExecutor("ZKOwnerLockChecker");
+        ownerLockChecker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkOwnerLocks();
+            }
+        }, checkInterval, checkInterval, TimeUnit.SECONDS);
+        ownerLockConnectionListener = new ConnectionStateListener() {
+            @Override
+            public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                // runs on the single connection state thread of Curator, nothing here may block
+                if (newState == ConnectionState.SUSPENDED) {
+                    // the session may still be alive, the ephemeral lock nodes are left to its expiry
+                    LOG.warn("ZooKeeper connection suspended, not granting owner locks until it is reconnected");
+                    ownerLocksSuspended = true;
+                }
+                else if (newState == ConnectionState.LOST) {
+                    LOG.warn("ZooKeeper connection lost, giving up [{0}] owner locks once they are not in use",
+                            ownerLocks.size());
+                    ownerLocksSuspended = true;
+                    expireOwnerLocks();
+                }
+                else if (newState == ConnectionState.RECONNECTED) {
+                    LOG.info("ZooKeeper connection reconnected, granting owner locks again");
+                    ownerLocksSuspended = false;
+                }
+            }
+        };
+        zk.getClient().getConnectionStateListenable().addListener(ownerLockConnectionListener);
+        LOG.info("Owner locks enabled, holder threads [{0}], idle timeout [{1}] ms", holderThreads, ownerLockIdleTimeoutMs);
     }
 
     /**
@@ -84,6 +161,25 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
      */
     @Override
     public void destroy() {
+        if (ownerLockHolders != null) {
+            if (ownerLockConnectionListener != null && zk != null) {
+                zk.getClient().getConnectionStateListenable().removeListener(ownerLockConnectionListener);
+            }
+            ownerLockChecker.shutdownNow();
+            releaseAllOwnerLocks();
+            for (ExecutorService holder : ownerLockHolders) {
+                holder.shutdown();
+            }
+            for (ExecutorService holder : ownerLockHolders) {
+                try {
+                    holder.awaitTermination(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ownerLockHolders = null;
+        }
         if (reaper != null) {
             try {
                 reaper.close();
@@ -113,6 +209,15 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
                 return zkLocks.size();
             }
         });
+        if (ownerLockHolders != null) {
+            this.instrumentation = instr;
+            instr.addVariable(INSTRUMENTATION_GROUP, "owner.locks", new Instrumentation.Variable<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return ownerLocks.size();
+                }
+            });
+        }
     }
 
     /**
@@ -142,24 +247,12 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
     }
 
     private LockToken acquireLock(final String resource, final Type type, final long wait) throws InterruptedException {
+        if (ownerLockHolders != null && isOwnedByThisServer(resource)) {
+            return acquireOwnerLock(resource, type, wait);
+        }
         LOG.debug("Acquiring ZooKeeper lock. [resource={};type={};wait={}]", resource, type, wait);
 
-        InterProcessReadWriteLock lockEntry;
-        final String zkPath = LOCKS_NODE + "/" + resource;
-        LOG.debug("Checking existing Curator lock or creating new one. [zkPath={}]", zkPath);
-
-        // Creating a Curator InterProcessReadWriteLock is lightweight - only calling acquire() costs real ZooKeeper calls
-        final InterProcessReadWriteLock newLockEntry = new InterProcessReadWriteLock(zk.getClient(), zkPath);
-        final InterProcessReadWriteLock existingLockEntry = zkLocks.putIfAbsent(resource, newLockEntry);
-        if (existingLockEntry == null) {
-            lockEntry = newLockEntry;
-            LOG.debug("No existing Curator lock present, new one created successfully. [zkPath={}]", zkPath);
-        }
-        else {
-            // We can't destoy newLockEntry and we don't have to - it's taken care of by Curator and JVM GC
-            lockEntry = existingLockEntry;
-            LOG.debug("Reusing existing Curator lock. [zkPath={}]", zkPath);
-        }
+        InterProcessReadWriteLock lockEntry = getLockEntry(resource);
 
         ZKLockToken token = null;
         try {
@@ -188,6 +281,357 @@ public class ZKLocksService extends MemoryLocksService implements Service, Instr
         return token;
     }
 
+    private InterProcessReadWriteLock getLockEntry(String resource) {
+        InterProcessReadWriteLock lockEntry;
+        final String zkPath = LOCKS_NODE + "/" + resource;
+        LOG.debug("Checking existing Curator lock or creating new one. [zkPath={}]", zkPath);
+
+        // Creating a Curator InterProcessReadWriteLock is lightweight - only calling acquire() costs real ZooKeeper calls
+        final InterProcessReadWriteLock newLockEntry = new InterProcessReadWriteLock(zk.getClient(), zkPath);
+        final InterProcessReadWriteLock existingLockEntry = zkLocks.putIfAbsent(resource, newLockEntry);
+        if (existingLockEntry == null) {
+            lockEntry = newLockEntry;
+            LOG.debug("No existing Curator lock present, new one created successfully. [zkPath={}]", zkPath);
+        }
+        else {
+            // We can't destoy newLockEntry and we don't have to - it's taken care of by Curator and JVM GC
+            lockEntry = existingLockEntry;
+            LOG.debug("Reusing existing Curator lock. [zkPath={}]", zkPath);
+        }
+        return lockEntry;
+    }
+
+    private boolean isOwnedByThisServer(String resource) {
+        JobsConcurrencyService jcs = Services.get() != null ? Services.get().get(JobsConcurrencyService.class) : null;
+        return jcs instanceof ZKJobsConcurrencyService && ((ZKJobsConcurrencyService) jcs).isJobOwnedByThisServer(resource);
+    }
+
+    /**
+     * Lock a resource owned by this server: take the in-memory lock, then make sure that this server holds the ZooKeeper write
+     * lock of the resource, which is kept after the in-memory lock is released.
+     */
+    private LockToken acquireOwnerLock(final String resource, final Type type, final long wait) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        LockToken memoryToken = (type == Type.READ) ? super.getReadLock(resource, wait) : super.getWriteLock(resource, wait);
+        if (memoryToken == null) {
+            return null;
+        }
+        OwnerLock ownerLock = ownerLocks.get(resource);
+        if (ownerLocksSuspended || (ownerLock != null && ownerLock.expired)) {
+            // ZooKeeper may not consider this server the holder of the lock anymore
+            memoryToken.release();
+            LOG.warn("ZooKeeper connection suspended or lost, not granting owner lock. [resource={0};type={1}]", resource,
+                    type);
+            return null;
+        }
+        if (ownerLock == null) {
+            OwnerLock newOwnerLock = new OwnerLock(resource, getLockEntry(resource));
+            ownerLock = ownerLocks.putIfAbsent(resource, newOwnerLock);
+            if (ownerLock == null) {
+                ownerLock = newOwnerLock;
+            }
+        }
+        long remaining = (wait == -1) ? -1 : Math.max(0, wait - (System.currentTimeMillis() - start));
+        boolean held;
+        try {
+            held = ownerLock.ensureHeld(remaining);
+        }
+        catch (InterruptedException ex) {
+            memoryToken.release();
+            throw ex;
+        }
+        if (!held) {
+            memoryToken.release();
+            LOG.warn("Could not acquire ZooKeeper owner lock. [resource={0};type={1};wait={2}]", resource, type, wait);
+            return null;
+        }
+        ownerLock.touch();
+        return new OwnerLockToken(memoryToken, ownerLock);
+    }
+
+    /**
+     * Give up the owner locks which are not used locally right now and which are idle, contended, or of jobs this server does
+     * not own anymore. Contention is reported by the ZooKeeper watch of each owner lock, so this check costs no ZooKeeper call.
+     */
+    @VisibleForTesting
+    void checkOwnerLocks() {
+        long now = System.currentTimeMillis();
+        for (OwnerLock ownerLock : ownerLocks.values()) {
+            boolean release = !ownerLock.held
+                    || ownerLock.contended
+                    || now - ownerLock.lastUsed > ownerLockIdleTimeoutMs
+                    || !isOwnedByThisServer(ownerLock.resource);
+            if (release && !releaseIfUnused(ownerLock)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Give up an owner lock unless a local command is using it, which the in-memory write lock of the resource guarantees. This
+     * must not run on a thread holding in-memory locks as they are reentrant.
+     *
+     * @return <code>false</code> if the thread was interrupted.
+     */
+    private boolean releaseIfUnused(OwnerLock ownerLock) {
+        try {
+            LockToken memoryToken = super.getWriteLock(ownerLock.resource, 0);
+            if (memoryToken != null) {
+                try {
+                    ownerLocks.remove(ownerLock.resource, ownerLock);
+                    ownerLock.release();
+                }
+                finally {
+                    memoryToken.release();
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch (Exception ex) {
+            LOG.warn("Error releasing owner lock [{0}], {1}", ownerLock.resource, ex.getMessage(), ex);
+        }
+        return true;
+    }
+
+    private void scheduleRelease(final OwnerLock ownerLock) {
+        try {
+            ownerLockChecker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    releaseIfUnused(ownerLock);
+                }
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            LOG.debug("Service destroyed, not releasing owner lock [{0}]", ownerLock.resource);
+        }
+    }
+
+    /**
+     * Called when the participants of a held owner lock changed. The lock is given up right away when it is contended and not
+     * in use, or when the command using it releases it; otherwise the one-shot watch is registered again.
+     */
+    private void onOwnerLockChanged(final OwnerLock ownerLock) {
+        try {
+            ownerLockChecker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!ownerLock.held || ownerLocks.get(ownerLock.resource) != ownerLock) {
+                        return;
+                    }
+                    boolean contended;
+                    try {
+                        contended = ownerLock.isContended();
+                    }
+                    catch (Exception ex) {
+                        LOG.warn("Could not check owner lock [{0}], giving it up, {1}", ownerLock.resource, ex.getMessage(),
+                                ex);
+                        contended = true;
+                    }
+                    if (contended) {
+                        ownerLock.contended = true;
+                        incrCounter("owner.locks.contended");
+                        releaseIfUnused(ownerLock);
+                    }
+                    else {
+                        ownerLock.watch();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException ex) {
+            LOG.debug("Service destroyed, ignoring change of owner lock [{0}]", ownerLock.resource);
+        }
+    }
+
+    /**
+     * Give up all the owner locks after the ZooKeeper connection was lost: the locks which are not in use are released by the
+     * checker thread, the others when the command using them releases them. They are not granted again in the meantime.
+     */
+    private void expireOwnerLocks() {
+        for (OwnerLock ownerLock : ownerLocks.values()) {
+            ownerLock.expired = true;
+            ownerLock.contended = true;
+            scheduleRelease(ownerLock);
+        }
+    }
+
+    private void releaseAllOwnerLocks() {
+        for (OwnerLock ownerLock : ownerLocks.values()) {
+            ownerLocks.remove(ownerLock.resource, ownerLock);
+            ownerLock.release();
+        }
+    }
+
+    @VisibleForTesting
+    ConnectionStateListener getOwnerLockConnectionListener() {
+        return ownerLockConnectionListener;
+    }
+
+    @VisibleForTesting
+    Map<String, OwnerLock> getOwnerLocks() {
+        return ownerLocks;
+    }
+
+    /**
+     * ZooKeeper write lock kept by this server for a resource it owns. It is acquired and released by the holder thread of the
+     * resource as Curator locks are bound to their thread.
+     */
+    class OwnerLock {
+        private final String resource;
+        private final InterProcessReadWriteLock lockEntry;
+        private final ExecutorService holder;
+        private volatile boolean held;
+        private volatile boolean contended;
+        private volatile boolean expired;
+        private volatile long lastUsed;
+
+        private OwnerLock(String resource, InterProcessReadWriteLock lockEntry) {
+            this.resource = resource;
+            this.lockEntry = lockEntry;
+            this.holder = ownerLockHolders[(resource.hashCode() & Integer.MAX_VALUE) % ownerLockHolders.length];
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        synchronized boolean ensureHeld(final long wait) throws InterruptedException {
+            if (held) {
+                incrCounter("owner.locks.hits");
+                return true;
+            }
+            Future<Boolean> future = holder.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    if (held) {
+                        // An earlier acquisition completed after its caller gave up, Curator locks are reentrant
+                        return true;
+                    }
+                    boolean acquired;
+                    if (wait == -1) {
+                        lockEntry.writeLock().acquire();
+                        acquired = true;
+                    }
+                    else {
+                        acquired = lockEntry.writeLock().acquire(wait, TimeUnit.MILLISECONDS);
+                    }
+                    // Set by the holder so that a lock acquired after the caller gave up is still released
+                    held = acquired;
+                    return acquired;
+                }
+            });
+            try {
+                if (wait == -1) {
+                    future.get();
+                }
+                else {
+                    future.get(wait + TimeUnit.SECONDS.toMillis(10), TimeUnit.MILLISECONDS);
+                }
+            }
+            catch (ExecutionException ex) {
+                LOG.warn("Could not acquire ZooKeeper owner lock [{0}], {1}", resource, ex.getCause().getMessage(),
+                        ex.getCause());
+            }
+            catch (TimeoutException ex) {
+                LOG.warn("Timed out acquiring ZooKeeper owner lock [{0}]", resource);
+            }
+            if (held) {
+                incrCounter("owner.locks.acquired");
+                watch();
+            }
+            return held;
+        }
+
+        /**
+         * Register a one-shot watch on the participants of the lock. Another server waiting for the lock adds a participant.
+         */
+        void watch() {
+            try {
+                List<String> participants = zk.getClient().getChildren().usingWatcher(new CuratorWatcher() {
+                    @Override
+                    public void process(WatchedEvent event) {
+                        if (event.getType() == Watcher.Event.EventType.NodeChildrenChanged) {
+                            onOwnerLockChanged(OwnerLock.this);
+                        }
+                    }
+                }).forPath(LOCKS_NODE + "/" + resource);
+                if (participants.size() > 1) {
+                    // Contended before the watch was set
+                    onOwnerLockChanged(this);
+                }
+            }
+            catch (Exception ex) {
+                LOG.warn("Could not watch owner lock [{0}], giving it up, {1}", resource, ex.getMessage(), ex);
+                contended = true;
+            }
+        }
+
+        synchronized void release() {
+            Future<?> future = holder.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (held) {
+                        held = false;
+                        new ZKLockToken(lockEntry, Type.WRITE).release();
+                        LOG.debug("Released ZooKeeper owner lock [{0}]", resource);
+                    }
+                }
+            });
+            try {
+                future.get();
+                incrCounter("owner.locks.released");
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException ex) {
+                LOG.warn("Could not release ZooKeeper owner lock [{0}], {1}", resource, ex.getCause().getMessage(),
+                        ex.getCause());
+            }
+        }
+
+        void touch() {
+            lastUsed = System.currentTimeMillis();
+        }
+
+        boolean isHeld() {
+            return held;
+        }
+
+        private boolean isContended() throws Exception {
+            return lockEntry.writeLock().getParticipantNodes().size() + lockEntry.readLock().getParticipantNodes().size() > 1;
+        }
+    }
+
+    /**
+     * Token of an owner lock, releasing the in-memory lock and then giving up the owner lock if another server contended for it
+     * while it was in use.
+     */
+    private class OwnerLockToken implements LockToken {
+        private final LockToken memoryToken;
+        private final OwnerLock ownerLock;
+
+        private OwnerLockToken(LockToken memoryToken, OwnerLock ownerLock) {
+            this.memoryToken = memoryToken;
+            this.ownerLock = ownerLock;
+        }
+
+        @Override
+        public void release() {
+            memoryToken.release();
+            if (ownerLock.contended) {
+                scheduleRelease(ownerLock);
+            }
+        }
+    }
+
+    private void incrCounter(String name) {
+        if (instrumentation != null) {
+            instrumentation.incr(INSTRUMENTATION_GROUP, name, 1);
+        }
+    }
+
     /**
      * Implementation of {@link LockToken} for zookeeper locks.
      */
@@ -38,6 +38,12 @@ import com.google.common.annotations.VisibleForTesting;
  * Service that provides distributed job id sequence via ZooKeeper. Requires that a ZooKeeper ensemble is available. The
  * sequence path will be located under a ZNode named "job_id_sequence" under the namespace (see {@link ZKUtils}). The
  * sequence will be reset to 0, once max is reached.
+ * <p>
+ * Instead of incrementing the ZooKeeper sequence for every id, a server can lease a block of sequence numbers and hand them
+ * out from memory. The block size starts at <code>jobid.block.size</code> and is doubled, up to
+ * <code>jobid.block.max.size</code>, every time a block is used up in less than <code>jobid.block.grow.threshold.ms</code>;
+ * it shrinks back when blocks last much longer. Ids stay unique, but with blocks of more than one id they are not ordered by
+ * creation time across servers anymore, and the unused ids of the block of a server are lost when it stops.
  */
 
 public class ZKUUIDService extends UUIDService {
@@ -45,6 +51,9 @@ public class ZKUUIDService extends UUIDService {
     public static final String CONF_PREFIX = Service.CONF_PREFIX + "ZKUUIDService.";
 
     public static final String CONF_SEQUENCE_MAX = CONF_PREFIX + "jobid.sequence.max";
+    public static final String CONF_BLOCK_SIZE = CONF_PREFIX + "jobid.block.size";
+    public static final String CONF_BLOCK_MAX_SIZE = CONF_PREFIX + "jobid.block.max.size";
+    public static final String CONF_BLOCK_GROW_THRESHOLD_MS = CONF_PREFIX + "jobid.block.grow.threshold.ms";
     public static final String LOCKS_NODE = "/SEQUENCE_LOCK";
 
     public static final String ZK_SEQUENCE_PATH = "/job_id_sequence";
@@ -59,6 +68,14 @@ public class ZKUUIDService extends UUIDService {
 
     DistributedAtomicLong atomicIdGenerator;
 
+    private int minBlockSize;
+    private int maxBlockSize;
+    private long growThresholdMs;
+    private int blockSize;
+    private long blockNext;
+    private long blockEnd;
+    private long blockLeaseTime;
+
     public static final ThreadLocal<SimpleDateFormat> dt = new ThreadLocal<SimpleDateFormat>() {
         @Override
         protected SimpleDateFormat initialValue() {
@@ -82,6 +99,15 @@ public class ZKUUIDService extends UUIDService {
         catch (Exception ex) {
             throw new ServiceException(ErrorCode.E1700, ex.getMessage(), ex);
         }
+        minBlockSize = Math.max(1, ConfigurationService.getInt(services.getConf(), CONF_BLOCK_SIZE));
+        maxBlockSize = Math.max(minBlockSize, ConfigurationService.getInt(services.getConf(), CONF_BLOCK_MAX_SIZE));
+        growThresholdMs = ConfigurationService.getLong(services.getConf(), CONF_BLOCK_GROW_THRESHOLD_MS);
+        blockSize = minBlockSize;
+        blockNext = 0;
+        blockEnd = 0;
+        if (minBlockSize > 1 || maxBlockSize > 1) {
+            LOG.info("Leasing job id blocks of [{0}] to [{1}] ids", minBlockSize, maxBlockSize);
+        }
 
     }
 
@@ -106,23 +132,60 @@ public class ZKUUIDService extends UUIDService {
     }
 
     protected synchronized long getZKSequence() throws Exception {
-        long id = getDistributedSequence();
+        if (blockNext < blockEnd) {
+            return blockNext++;
+        }
+        leaseBlock();
+        return blockNext++;
+    }
+
+    /**
+     * Lease the next block of sequence numbers from ZooKeeper, resetting the sequence if the max was reached. The block is cut
+     * at the max so that ids stay below it, as with single increments.
+     *
+     * @throws Exception if the sequence could not be incremented or reset
+     */
+    private void leaseBlock() throws Exception {
+        long now = System.currentTimeMillis();
+        if (blockEnd > 0) {
+            adaptBlockSize(now - blockLeaseTime);
+        }
+        long start = getDistributedSequence(blockSize);
 
-        if (id >= maxSequence) {
+        if (start >= maxSequence) {
             resetSequence();
-            id = getDistributedSequence();
+            start = getDistributedSequence(blockSize);
         }
-        return id;
+        blockNext = start;
+        blockEnd = Math.min(start + blockSize, Math.max(maxSequence, start + 1));
+        blockLeaseTime = now;
+    }
+
+    @VisibleForTesting
+    void adaptBlockSize(long blockDurationMs) {
+        if (blockDurationMs < growThresholdMs && blockSize < maxBlockSize) {
+            blockSize = (int) Math.min((long) blockSize * 2, maxBlockSize);
+            LOG.debug("Job id block used in [{0}] ms, growing blocks to [{1}] ids", blockDurationMs, blockSize);
+        }
+        else if (blockDurationMs > growThresholdMs * 10 && blockSize > minBlockSize) {
+            blockSize = Math.max(blockSize / 2, minBlockSize);
+            LOG.debug("Job id block used in [{0}] ms, shrinking blocks to [{1}] ids", blockDurationMs, blockSize);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getBlockSize() {
+        return blockSize;
     }
 
     @SuppressWarnings("finally")
-    private long getDistributedSequence() throws Exception {
+    private long getDistributedSequence(long delta) throws Exception {
         if (atomicIdGenerator == null) {
             throw new Exception("Sequence generator can't be null. Path : " + ZK_SEQUENCE_PATH);
         }
         AtomicValue<Long> value = null;
         try {
-            value = atomicIdGenerator.increment();
+            value = (delta == 1) ? atomicIdGenerator.increment() : atomicIdGenerator.add(delta);
         }
         catch (Exception e) {
             throw new Exception("Exception incrementing UID for session ", e);
@@ -19,15 +19,26 @@ package org.apache.oozie.service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.io.Writer;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -36,8 +47,10 @@ import org.apache.oozie.ErrorCode;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.util.AuthUrlClient;
+import org.apache.oozie.util.IOUtils;
 import org.apache.oozie.util.Instrumentable;
 import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.NamedThreadFactory;
 import org.apache.oozie.util.SimpleTimestampedMessageParser;
 import org.apache.oozie.util.TimestampedMessageParser;
 import org.apache.oozie.util.XLog;
@@ -50,8 +63,22 @@ import org.apache.oozie.util.ZKUtils;
  */
 public class ZKXLogStreamingService extends XLogStreamingService implements Service, Instrumentable {
 
+    public static final String CONF_PREFIX = Service.CONF_PREFIX + "ZKXLogStreamingService.";
+    /**
+     * Maximum time to wait for the log of another Oozie server to start or continue, after that it is considered incomplete.
+     */
+    public static final String CONF_PEER_TIMEOUT = CONF_PREFIX + "peer.timeout.seconds";
+    /**
+     * Number of chunks of the log of another Oozie server read ahead.
+     */
+    public static final String CONF_PEER_BUFFER_CHUNKS = CONF_PREFIX + "peer.buffer.chunks";
+
+    private static final int PEER_CHUNK_SIZE = 8 * 1024;
+
     private ZKUtils zk;
     private XLog log;
+    private long peerTimeout;
+    private int peerBufferChunks;
 
     /**
      * Initialize the log streaming service.
@@ -69,6 +96,8 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
             throw new ServiceException(ErrorCode.E1700, ex.getMessage(), ex);
         }
         log = XLog.getLog(this.getClass());
+        peerTimeout = TimeUnit.SECONDS.toMillis(ConfigurationService.getLong(services.getConf(), CONF_PEER_TIMEOUT));
+        peerBufferChunks = ConfigurationService.getInt(services.getConf(), CONF_PEER_BUFFER_CHUNKS);
     }
 
     /**
@@ -124,6 +153,10 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
      * Writer.  It will make sure to not read all of the log messages into memory at the same time to not use up the heap.  If there
      * is a problem talking to one of the other servers, it will ignore that server and prepend a message to the Writer about it.
      * For getting the logs from this server, it won't use the REST API and instead get them directly to be more efficient.
+     * <p>
+     * The other servers are called at the same time and their logs are read ahead by a thread each, so the collated log
+     * flows as fast as the slowest server instead of the sum of all of them.  If a server does not send anything for
+     * {@link #CONF_PEER_TIMEOUT} its log is ended with a message saying it is incomplete.
      *
      * @param logStreamer the XLogStreamer
      * @param startTime the job start time
@@ -141,7 +174,27 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
             throw new IOException("Issue communicating with ZooKeeper: " + ex.getMessage(), ex);
         }
         List<TimestampedMessageParser> parsers = new ArrayList<>(oozies.size());
+        List<PeerLogReader> peers = new ArrayList<>(oozies.size());
+        ExecutorService executor = null;
         try {
+            // Start getting the logs of the other servers using the REST API, all at the same time
+            String jobId = logStreamer.getXLogFilter().getFilterParams().get(DagXLogInfoService.JOB);
+            Map<String, PeerLogReader> peersById = new HashMap<>();
+            for (ServiceInstance<Map> oozie : oozies) {
+                Map<String, String> oozieMeta = oozie.getPayload();
+                String otherId = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_ID);
+                if (!otherId.equals(zk.getZKId())) {
+                    String otherUrl = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_URL);
+                    if (executor == null) {
+                        executor = Executors.newFixedThreadPool(oozies.size(), new NamedThreadFactory("ZKXLogStreaming"));
+                    }
+                    PeerLogReader peer = new PeerLogReader(otherId, otherUrl, getServerUrl(logStreamer, otherUrl, jobId),
+                            peerTimeout, peerBufferChunks);
+                    executor.execute(peer);
+                    peers.add(peer);
+                    peersById.put(otherId, peer);
+                }
+            }
             // Create a BufferedReader for getting the logs of each server and put them in a TimestampedMessageParser
             for (ServiceInstance<Map> oozie : oozies) {
                 Map<String, String> oozieMeta = oozie.getPayload();
@@ -152,39 +205,19 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
                             endTime);
                     parsers.add(new TimestampedMessageParser(reader, logStreamer.getXLogFilter()));
                 }
-                // If it's another server, we'll have to use the REST API
+                // If it's another server, wait for its response
                 else {
-                    String otherUrl = oozieMeta.get(ZKUtils.ZKMetadataKeys.OOZIE_URL);
-                    String jobId = logStreamer.getXLogFilter().getFilterParams().get(DagXLogInfoService.JOB);
-                    try {
-                        // It's important that we specify ALL_SERVERS_PARAM=false in the GET request to prevent the other Oozie
-                        // Server from trying aggregate logs from the other Oozie servers (and creating an infinite recursion)
-                        final String url = otherUrl + "/v" + OozieClient.WS_PROTOCOL_VERSION + "/" + RestConstants.JOB
-                                + "/" + jobId + "?" + RestConstants.JOB_SHOW_PARAM + "=" + logStreamer.getLogType()
-                                + "&" + RestConstants.ALL_SERVER_REQUEST + "=false"
-                                + AuthUrlClient.getQueryParamString(logStreamer.getRequestParam());
-                        // remove doAs from url to avoid failure while fetching
-                        // logs in case of HA mode
-                        String key = "doAs";
-                        String[] value = null;
-                        if (logStreamer.getRequestParam() != null) {
-                            value = logStreamer.getRequestParam().get(key);
-                        }
-                        String urlWithoutdoAs = null;
-                        if (value != null && value.length > 0 && value[0] != null && value[0].length() > 0) {
-                            urlWithoutdoAs = url.replace("&" + key + "=" + URLEncoder.encode(value[0],
-                                    StandardCharsets.UTF_8.name()), "");
-                        }
-                        else {
-                            urlWithoutdoAs = url;
-                        }
-                        BufferedReader reader = AuthUrlClient.callServer(urlWithoutdoAs);
-                        parsers.add(new SimpleTimestampedMessageParser(reader, logStreamer.getXLogFilter()));
+                    PeerLogReader peer = peersById.get(otherId);
+                    IOException ioe = peer.awaitConnection();
+                    if (ioe == null) {
+                        parsers.add(new SimpleTimestampedMessageParser(new BufferedReader(peer),
+                                logStreamer.getXLogFilter()));
                     }
-                    catch(IOException ioe) {
+                    else {
                         log.warn("Failed to retrieve logs for job [" + jobId + "] from Oozie server with ID [" + otherId
-                                + "] at [" + otherUrl + "]; log information may be incomplete", ioe);
+                                + "] at [" + peer.serverUrl + "]; log information may be incomplete", ioe);
                         badOozies.add(otherId);
+                        peer.close();
                     }
                 }
             }
@@ -262,9 +295,38 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
             for (TimestampedMessageParser parser : parsers) {
                 parser.closeReader();
             }
+            for (PeerLogReader peer : peers) {
+                peer.close();
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
     }
 
+    /**
+     * Returns the URL to get the log of a job from another Oozie server.
+     */
+    private String getServerUrl(XLogStreamer logStreamer, String otherUrl, String jobId) throws IOException {
+        // It's important that we specify ALL_SERVERS_PARAM=false in the GET request to prevent the other Oozie
+        // Server from trying aggregate logs from the other Oozie servers (and creating an infinite recursion)
+        final String url = otherUrl + "/v" + OozieClient.WS_PROTOCOL_VERSION + "/" + RestConstants.JOB
+                + "/" + jobId + "?" + RestConstants.JOB_SHOW_PARAM + "=" + logStreamer.getLogType()
+                + "&" + RestConstants.ALL_SERVER_REQUEST + "=false"
+                + AuthUrlClient.getQueryParamString(logStreamer.getRequestParam());
+        // remove doAs from url to avoid failure while fetching
+        // logs in case of HA mode
+        String key = "doAs";
+        String[] value = null;
+        if (logStreamer.getRequestParam() != null) {
+            value = logStreamer.getRequestParam().get(key);
+        }
+        if (value != null && value.length > 0 && value[0] != null && value[0].length() > 0) {
+            return url.replace("&" + key + "=" + URLEncoder.encode(value[0], StandardCharsets.UTF_8.name()), "");
+        }
+        return url;
+    }
+
     /**
      * Retrieves and removes the first parser entry value from the provided TreeMap.
      *
@@ -310,4 +372,146 @@ public class ZKXLogStreamingService extends XLogStreamingService implements Serv
         }
         return parserAmount;
     }
+
+    /**
+     * Reader of the log of another Oozie server, read ahead in chunks by its own thread.  If the server fails or does not send
+     * anything for the timeout, the log ends with a WARN message, timestamped now, saying that it is incomplete.
+     */
+    static class PeerLogReader extends Reader implements Runnable {
+        private static final Object EOF = new Object();
+        private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+
+        private final String serverId;
+        private final String serverUrl;
+        private final String url;
+        private final long timeout;
+        private final BlockingQueue<Object> queue;
+        private final CountDownLatch connected = new CountDownLatch(1);
+        private volatile IOException connectionError;
+        private volatile boolean closed;
+        private char[] chunk;
+        private int chunkPosition;
+        private boolean done;
+        private boolean lineStart = true;
+
+        PeerLogReader(String serverId, String serverUrl, String url, long timeout, int bufferChunks) {
+            this.serverId = serverId;
+            this.serverUrl = serverUrl;
+            this.url = url;
+            this.timeout = timeout;
+            this.queue = new ArrayBlockingQueue<Object>(bufferChunks);
+        }
+
+        @Override
+        public void run() {
+            BufferedReader reader;
+            try {
+                reader = AuthUrlClient.callServer(url, (int) timeout);
+                if (reader == null) {
+                    throw new IOException("No log returned");
+                }
+            }
+            catch (IOException ex) {
+                connectionError = ex;
+                connected.countDown();
+                return;
+            }
+            connected.countDown();
+            Object last = EOF;
+            try {
+                char[] buffer = new char[PEER_CHUNK_SIZE];
+                int numRead;
+                while (!closed && (numRead = reader.read(buffer)) != -1) {
+                    queue.put(Arrays.copyOf(buffer, numRead));
+                }
+            }
+            catch (InterruptedException ex) {
+                return;
+            }
+            catch (IOException ex) {
+                last = ex;
+            }
+            finally {
+                IOUtils.closeSafely(reader);
+            }
+            try {
+                queue.put(last);
+            }
+            catch (InterruptedException ex) {
+                // closed
+            }
+        }
+
+        /**
+         * Waits for the connection to the server.
+         *
+         * @return the error connecting to the server, null if connected
+         * @throws IOException if interrupted
+         */
+        IOException awaitConnection() throws IOException {
+            try {
+                if (!connected.await(timeout, TimeUnit.MILLISECONDS)) {
+                    return new IOException("No response in [" + timeout + "] ms");
+                }
+            }
+            catch (InterruptedException ex) {
+                throw new InterruptedIOException("Interrupted connecting to Oozie server " + serverId);
+            }
+            return connectionError;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (chunk == null || chunkPosition >= chunk.length) {
+                if (done) {
+                    return -1;
+                }
+                Object next;
+                try {
+                    next = queue.poll(timeout, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException ex) {
+                    throw new InterruptedIOException("Interrupted reading the log of Oozie server " + serverId);
+                }
+                if (next == EOF) {
+                    done = true;
+                    return -1;
+                }
+                if (next == null) {
+                    chunk = getIncompleteMessage("sent nothing in [" + timeout + "] ms");
+                    done = true;
+                }
+                else if (next instanceof IOException) {
+                    chunk = getIncompleteMessage("failed, " + ((IOException) next).getMessage());
+                    done = true;
+                }
+                else {
+                    chunk = (char[]) next;
+                }
+                chunkPosition = 0;
+            }
+            int numRead = Math.min(len, chunk.length - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, cbuf, off, numRead);
+            chunkPosition += numRead;
+            lineStart = cbuf[off + numRead - 1] == '\n';
+            return numRead;
+        }
+
+        private char[] getIncompleteMessage(String reason) {
+            XLog.getLog(ZKXLogStreamingService.class).warn("Log streaming from Oozie server [{0}] at [{1}] {2}", serverId,
+                    serverUrl, reason);
+            String message = new SimpleDateFormat(TIMESTAMP_FORMAT).format(new Date()) + " WARN "
+                    + ZKXLogStreamingService.class.getSimpleName() + " - Log streaming from Oozie server [" + serverId
+                    + "] " + reason + "; log information may be incomplete\n";
+            return ((lineStart ? "" : "\n") + message).toCharArray();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
 }
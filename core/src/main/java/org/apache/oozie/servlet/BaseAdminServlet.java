@@ -39,9 +39,12 @@ import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.PurgeXCommand;
+import org.apache.oozie.event.EventJournal;
+import org.apache.oozie.event.JobEventRecord;
 import org.apache.oozie.service.AuthorizationException;
 import org.apache.oozie.service.AuthorizationService;
 import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.EventHandlerService;
 import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.JobsConcurrencyService;
 import org.apache.oozie.service.PurgeService;
@@ -189,6 +192,57 @@ public abstract class BaseAdminServlet extends JsonRestServlet {
         else if (resource.equals(RestConstants.ADMIN_PROMETHEUS_RESOURCE)) {
             sendPrometheusResponse(response);
         }
+        else if (resource.equals(RestConstants.ADMIN_EVENTS_RESOURCE)) {
+            authorizeForSystemInfo(request);
+            sendJsonResponse(response, HttpServletResponse.SC_OK, getJournalEvents(request));
+        }
+    }
+
+    /**
+     * Returns the job events of the journal from the offset parameter, the oldest kept by default, up to the len
+     * parameter, 100 by default. The next offset of the response is the offset of the next page.
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject getJournalEvents(HttpServletRequest request) throws XServletException {
+        EventHandlerService eventHandler = Services.get().get(EventHandlerService.class);
+        EventJournal journal = eventHandler == null ? null : eventHandler.getEventJournal();
+        if (journal == null) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0307,
+                    "Event journal is not enabled");
+        }
+        long offset = 0;
+        int len = 100;
+        try {
+            String offsetStr = request.getParameter(RestConstants.OFFSET_PARAM);
+            if (offsetStr != null) {
+                offset = Long.parseLong(offsetStr);
+            }
+            String lenStr = request.getParameter(RestConstants.LEN_PARAM);
+            if (lenStr != null) {
+                len = Integer.parseInt(lenStr);
+            }
+        }
+        catch (NumberFormatException ex) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0302, ex.getMessage());
+        }
+        if (len < 1 || len > 1000) {
+            throw new XServletException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.E0303,
+                    RestConstants.LEN_PARAM, len);
+        }
+        List<EventJournal.Record> records = journal.read(offset, len);
+        JSONArray events = new JSONArray();
+        for (EventJournal.Record record : records) {
+            JSONObject event = JobEventRecord.parse(record.getData());
+            event.put(JsonTags.EVENT_OFFSET, record.getOffset());
+            events.add(event);
+        }
+        JSONObject json = new JSONObject();
+        json.put(JsonTags.EVENTS_FIRST_OFFSET, journal.getFirstOffset());
+        json.put(JsonTags.EVENTS_NEXT_OFFSET, records.isEmpty()
+                ? Math.min(Math.max(offset, journal.getFirstOffset()), journal.getNextOffset())
+                : records.get(records.size() - 1).getOffset() + 1);
+        json.put(JsonTags.EVENTS, events);
+        return json;
     }
 
     private String schedulePurgeCommand(HttpServletRequest request) throws XServletException {
@@ -33,6 +33,7 @@ import org.apache.oozie.client.XOozieClient;
 import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.client.rest.JsonTags;
 import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.service.AdmissionControlService;
 import org.apache.oozie.service.AuthorizationException;
 import org.apache.oozie.service.AuthorizationService;
 import org.apache.oozie.service.Services;
@@ -78,6 +79,10 @@ public abstract class BaseJobServlet extends JsonRestServlet {
         }
 
         String action = request.getParameter(RestConstants.ACTION_PARAM);
+        if (action.equals(RestConstants.JOB_ACTION_RERUN) || action.equals(RestConstants.JOB_COORD_ACTION_RERUN)
+                || action.equals(RestConstants.JOB_BUNDLE_ACTION_RERUN)) {
+            checkAdmission(request, response, AdmissionControlService.Operation.RERUN);
+        }
         if (action.equals(RestConstants.JOB_ACTION_START)) {
             stopCron();
             startJob(request, response);
@@ -33,6 +33,7 @@ import org.apache.oozie.ErrorCode;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.XOozieClient;
 import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.service.AdmissionControlService;
 import org.apache.oozie.service.ConfigurationService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.AuthorizationException;
@@ -91,6 +92,7 @@ public abstract class BaseJobsServlet extends JsonRestServlet {
         String action = request.getParameter(RestConstants.ACTION_PARAM);
         request.setAttribute(AUDIT_OPERATION,
                 (action != null) ? action : RestConstants.JOB_ACTION_SUBMIT);
+        checkAdmission(request, response, AdmissionControlService.Operation.SUBMIT);
 
         XConfiguration conf = new XConfiguration(request.getInputStream());
 
@@ -194,6 +196,8 @@ public abstract class BaseJobsServlet extends JsonRestServlet {
             throw new XServletException(HttpServletResponse.SC_UNAUTHORIZED, ex);
         }
 
+        checkAdmission(request, response, AdmissionControlService.Operation.BULK);
+
         String action = request.getParameter(RestConstants.ACTION_PARAM);
         JSONObject json = null;
         if (action.equals(RestConstants.JOB_ACTION_KILL)) {
@@ -22,6 +22,7 @@ import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.oozie.client.OozieClient.SYSTEM_MODE;
 import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.service.AdmissionControlService;
 import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.service.InstrumentationService;
 import org.apache.oozie.service.ProxyUserService;
@@ -309,8 +310,14 @@ public abstract class JsonRestServlet extends HttpServlet {
         }
         catch (XServletException ex) {
             XLog log = XLog.getLog(getClass());
-            log.warn("URL[{0} {1}] error[{2}], {3}", request.getMethod(), getRequestUrl(request), ex.getErrorCode(), ex
-                    .getMessage(), ex);
+            if (ex.getHttpStatusCode() == SC_TOO_MANY_REQUESTS) {
+                // throttled requests are expected under overload, a warning for each of them would flood the log
+                log.debug("URL[{0} {1}] throttled, {2}", request.getMethod(), getRequestUrl(request), ex.getMessage());
+            }
+            else {
+                log.warn("URL[{0} {1}] error[{2}], {3}", request.getMethod(), getRequestUrl(request), ex.getErrorCode(),
+                        ex.getMessage(), ex);
+            }
             request.setAttribute(AUDIT_ERROR_MESSAGE, ex.getMessage());
             request.setAttribute(AUDIT_ERROR_CODE, ex.getErrorCode().toString());
             request.setAttribute(AUDIT_HTTP_STATUS_CODE, ex.getHttpStatusCode());
@@ -555,6 +562,37 @@ public abstract class JsonRestServlet extends HttpServlet {
 
     protected static final String UNDEF = "?";
 
+    /**
+     * HTTP status code for requests rejected by admission control, not defined by the servlet API.
+     */
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * HTTP header telling the client how many seconds to wait before retrying a rejected request.
+     */
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    /**
+     * Check the request against the admission control, if the {@link AdmissionControlService} is enabled.
+     *
+     * @param request request.
+     * @param response response, the <code>Retry-After</code> header is set on it if the request is rejected.
+     * @param op operation of the request.
+     * @throws XServletException with HTTP status 429 if the request is rejected.
+     */
+    protected void checkAdmission(HttpServletRequest request, HttpServletResponse response,
+            AdmissionControlService.Operation op) throws XServletException {
+        AdmissionControlService admissionControl = Services.get().get(AdmissionControlService.class);
+        if (admissionControl != null) {
+            AdmissionControlService.Rejection rejection = admissionControl.admit(op, getUser(request));
+            if (rejection != null) {
+                response.setHeader(RETRY_AFTER_HEADER, Long.toString(rejection.getRetryAfterSeconds()));
+                throw new XServletException(SC_TOO_MANY_REQUESTS, ErrorCode.E0005, rejection.getReason(),
+                        rejection.getRetryAfterSeconds());
+            }
+        }
+    }
+
     /**
      * Return the user name of the request if any.
      *
@@ -40,7 +40,7 @@ public class V1AdminServlet extends BaseAdminServlet {
 
     private static final long serialVersionUID = 1L;
     private static final String INSTRUMENTATION_NAME = "v1admin";
-    private static final ResourceInfo RESOURCES_INFO[] = new ResourceInfo[15];
+    private static final ResourceInfo RESOURCES_INFO[] = new ResourceInfo[16];
 
     static {
         RESOURCES_INFO[0] = new ResourceInfo(RestConstants.ADMIN_STATUS_RESOURCE, Arrays.asList("PUT", "GET"),
@@ -73,6 +73,8 @@ public class V1AdminServlet extends BaseAdminServlet {
         RESOURCES_INFO[13] = new ResourceInfo(RestConstants.ADMIN_PURGE, Arrays.asList("PUT"), Collections.EMPTY_LIST);
         RESOURCES_INFO[14] = new ResourceInfo(RestConstants.ADMIN_PROMETHEUS_RESOURCE, Arrays.asList("GET"),
                 Collections.EMPTY_LIST);
+        RESOURCES_INFO[15] = new ResourceInfo(RestConstants.ADMIN_EVENTS_RESOURCE, Arrays.asList("GET"),
+                Collections.EMPTY_LIST);
     }
 
     protected V1AdminServlet(String name) {
@@ -20,45 +20,65 @@ package org.apache.oozie.sla;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.oozie.AppType;
 import org.apache.oozie.client.OozieClient;
 import org.apache.oozie.client.event.SLAEvent;
-import org.apache.oozie.util.LogUtils;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.SLARegistrationQueryExecutor;
+import org.apache.oozie.executor.jpa.SLARegistrationQueryExecutor.SLARegQuery;
+import org.apache.oozie.util.StringUtils;
 import org.apache.oozie.util.XLog;
 
 /**
  * Class used by SLAService to store SLA objects and perform calculations and
  * sla decisions
+ * <p>
+ * The SLACalculatorMemory keeps one for every job with an SLA, so they are kept small: times are epoch milliseconds,
+ * the event processed flags, the SLA status and the event status are packed in one int and {@link #compact()} shrinks
+ * the registration.
  */
 public class SLACalcStatus extends SLAEvent {
 
+    private static final XLog LOG = XLog.getLog(SLACalcStatus.class);
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    // state bits: 0-7 event processed, 8-11 SLA status ordinal + 1, 12-15 event status ordinal + 1, 16 details elided,
+    // 17 compacted, 18 first check after restart pending
+    private static final int EVENT_PROCESSED_MASK = 0xFF;
+    private static final int SLA_STATUS_SHIFT = 8;
+    private static final int EVENT_STATUS_SHIFT = 12;
+    private static final int ENUM_MASK = 0xF;
+    private static final int DETAILS_ELIDED = 1 << 16;
+    private static final int COMPACT = 1 << 17;
+    private static final int CHECK_AFTER_RESTART = 1 << 18;
+    private static final AtomicIntegerFieldUpdater<SLACalcStatus> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(SLACalcStatus.class, "state");
+    private static final SLAStatus[] SLA_STATUSES = SLAStatus.values();
+    private static final EventStatus[] EVENT_STATUSES = EventStatus.values();
+
     public static String SLA_ENTITYKEY_PREFIX = "sla-";
     private SLARegistrationBean regBean;
+    private SLARegistrationBean details;
     private SLASummaryBean summary;
     private String jobStatus;
-    private SLAStatus slaStatus;
-    private EventStatus eventStatus;
-    private Date actualStart;
-    private Date actualEnd;
+    private long actualStart = NULL_TIME;
+    private long actualEnd = NULL_TIME;
     private long actualDuration = -1;
-    private Date lastModifiedTime;
-    private byte eventProcessed;
+    private long lastModifiedTime = NULL_TIME;
+    private volatile int state;
     private String jobId;
     private int retryCount = 0;
 
-    private XLog LOG;
-
     public SLACalcStatus(SLARegistrationBean reg) {
         this();
         setSLARegistrationBean(reg);
-        LOG = LogUtils.setLogPrefix(LOG, this);
     }
 
     public SLACalcStatus(SLASummaryBean summary, SLARegistrationBean regBean) {
         this(summary);
         updateSLARegistrationBean(regBean);
-        LOG = LogUtils.setLogPrefix(LOG, this);
     }
 
     public SLACalcStatus(SLASummaryBean summary) {
@@ -90,13 +110,15 @@ public class SLACalcStatus extends SLAEvent {
         setActualEnd(a.getActualEnd());
         setActualDuration(a.getActualDuration());
         setEventProcessed(a.getEventProcessed());
-        LOG = LogUtils.setLogPrefix(LOG, this);
+        if ((a.state & DETAILS_ELIDED) != 0) {
+            updateState(DETAILS_ELIDED, DETAILS_ELIDED);
+            details = a.details;
+        }
     }
 
     public SLACalcStatus() {
         setMsgType(MessageType.SLA);
         setLastModifiedTime(new Date());
-        LOG = XLog.getLog(getClass());
     }
 
     public SLARegistrationBean getSLARegistrationBean() {
@@ -112,6 +134,8 @@ public class SLACalcStatus extends SLAEvent {
             this.jobId = slaBean.getId();
         }
         this.regBean = slaBean;
+        this.details = null;
+        updateState(DETAILS_ELIDED | COMPACT, 0);
     }
 
     @Override
@@ -125,20 +149,20 @@ public class SLACalcStatus extends SLAEvent {
 
     @Override
     public Date getActualStart() {
-        return actualStart;
+        return toDate(actualStart);
     }
 
     public void setActualStart(Date actualStart) {
-        this.actualStart = actualStart;
+        this.actualStart = toTime(actualStart);
     }
 
     @Override
     public Date getActualEnd() {
-        return actualEnd;
+        return toDate(actualEnd);
     }
 
     public void setActualEnd(Date actualEnd) {
-        this.actualEnd = actualEnd;
+        this.actualEnd = toTime(actualEnd);
     }
 
     @Override
@@ -156,29 +180,31 @@ public class SLACalcStatus extends SLAEvent {
     }
 
     public void setJobStatus(String status) {
-        this.jobStatus = status;
+        this.jobStatus = StringUtils.intern(status);
     }
 
     @Override
     public SLAStatus getSLAStatus() {
-        return slaStatus;
+        int ordinal = (state >> SLA_STATUS_SHIFT) & ENUM_MASK;
+        return ordinal == 0 ? null : SLA_STATUSES[ordinal - 1];
     }
 
     public void setSLAStatus(SLAStatus slaStatus) {
-        this.slaStatus = slaStatus;
+        updateState(ENUM_MASK << SLA_STATUS_SHIFT, (slaStatus == null ? 0 : slaStatus.ordinal() + 1) << SLA_STATUS_SHIFT);
     }
 
     @Override
     public EventStatus getEventStatus() {
-        return eventStatus;
+        int ordinal = (state >> EVENT_STATUS_SHIFT) & ENUM_MASK;
+        return ordinal == 0 ? null : EVENT_STATUSES[ordinal - 1];
     }
 
     public void setEventStatus(EventStatus es) {
-        this.eventStatus = es;
+        updateState(ENUM_MASK << EVENT_STATUS_SHIFT, (es == null ? 0 : es.ordinal() + 1) << EVENT_STATUS_SHIFT);
     }
 
     public void setLastModifiedTime(Date lastModifiedTime) {
-        this.lastModifiedTime = lastModifiedTime;
+        this.lastModifiedTime = toTime(lastModifiedTime);
     }
 
     /**
@@ -191,11 +217,44 @@ public class SLACalcStatus extends SLAEvent {
      * only 4th bit set = everything processed
      */
     public byte getEventProcessed() {
-        return eventProcessed;
+        return (byte) (state & EVENT_PROCESSED_MASK);
     }
 
     public void setEventProcessed(int eventProcessed) {
-        this.eventProcessed = (byte) eventProcessed;
+        updateState(EVENT_PROCESSED_MASK, eventProcessed & EVENT_PROCESSED_MASK);
+    }
+
+    /**
+     * Marks the status as reloaded after a restart, its SLA has to be checked even if no event is due as the events of the
+     * job may have been missed while the server was down.
+     */
+    void setCheckAfterRestart() {
+        updateState(CHECK_AFTER_RESTART, CHECK_AFTER_RESTART);
+    }
+
+    boolean isCheckAfterRestart() {
+        return (state & CHECK_AFTER_RESTART) != 0;
+    }
+
+    /**
+     * @return true if the status was marked as reloaded after a restart, only once
+     */
+    boolean clearCheckAfterRestart() {
+        int current;
+        do {
+            current = state;
+            if ((current & CHECK_AFTER_RESTART) == 0) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, current, current & ~CHECK_AFTER_RESTART));
+        return true;
+    }
+
+    private void updateState(int mask, int bits) {
+        int current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, (current & ~mask) | bits));
     }
 
     @Override
@@ -235,7 +294,7 @@ public class SLACalcStatus extends SLAEvent {
 
     @Override
     public String getNotificationMsg() {
-        return regBean.getNotificationMsg();
+        return getDetails().getNotificationMsg();
     }
 
     @Override
@@ -250,12 +309,12 @@ public class SLACalcStatus extends SLAEvent {
 
     @Override
     public String getUpstreamApps() {
-        return regBean.getUpstreamApps();
+        return getDetails().getUpstreamApps();
     }
 
     @Override
     public String getJobData() {
-        return regBean.getJobData();
+        return getDetails().getJobData();
     }
 
     @Override
@@ -279,7 +338,7 @@ public class SLACalcStatus extends SLAEvent {
 
     @Override
     public Date getLastModifiedTime() {
-        return lastModifiedTime;
+        return toDate(lastModifiedTime);
     }
 
     public String getEntityKey() {
@@ -309,6 +368,78 @@ public class SLACalcStatus extends SLAEvent {
         setSLARegistrationBean(reg);
     }
 
+    /**
+     * Replaces the registration with a copy holding only what the SLA calculation and the alerts need, sharing the
+     * strings repeated across jobs. The notification message, the upstream apps and the job data are dropped, they are
+     * loaded from the database if an event needs them. The summary the status was loaded from is released.
+     */
+    void compact() {
+        compact(false);
+    }
+
+    /**
+     * Compacts the status, see {@link #compact()}.
+     *
+     * @param detailsInDatabase if the registration was loaded without the notification message, the upstream apps and
+     * the job data
+     */
+    void compact(boolean detailsInDatabase) {
+        SLARegistrationBean reg = regBean;
+        if (reg == null || (state & COMPACT) != 0) {
+            return;
+        }
+        SLARegistrationBean compact = new SLARegistrationBean();
+        compact.setId(jobId);
+        compact.setParentId(StringUtils.intern(reg.getParentId()));
+        compact.setAppName(StringUtils.intern(reg.getAppName()));
+        compact.setAppType(reg.getAppType());
+        compact.setUser(StringUtils.intern(reg.getUser()));
+        compact.setNominalTime(reg.getNominalTime());
+        compact.setExpectedStart(reg.getExpectedStart());
+        compact.setExpectedEnd(reg.getExpectedEnd());
+        compact.setExpectedDuration(reg.getExpectedDuration());
+        compact.setMsgType(reg.getMsgType());
+        for (Map.Entry<String, String> entry : reg.getSLAConfigMap().entrySet()) {
+            compact.addToSLAConfigMap(StringUtils.intern(entry.getKey()), StringUtils.intern(entry.getValue()));
+        }
+        compact.internSlaConfig();
+        boolean elided = detailsInDatabase || reg.getNotificationMsg() != null || reg.getUpstreamApps() != null
+                || reg.getJobData() != null;
+        updateState(DETAILS_ELIDED | COMPACT, (elided ? DETAILS_ELIDED : 0) | COMPACT);
+        regBean = compact;
+        summary = null;
+    }
+
+    /**
+     * Returns the registration with the notification message, the upstream apps and the job data, loading them from the
+     * database if {@link #compact()} dropped them.
+     */
+    private SLARegistrationBean getDetails() {
+        if ((state & DETAILS_ELIDED) == 0) {
+            return regBean;
+        }
+        SLARegistrationBean loaded = details;
+        if (loaded == null) {
+            try {
+                loaded = SLARegistrationQueryExecutor.getInstance().get(SLARegQuery.GET_SLA_REG_ON_RESTART, jobId);
+                details = loaded;
+            }
+            catch (JPAExecutorException e) {
+                LOG.warn("Could not load the SLA registration of job [{0}]", jobId, e);
+                loaded = regBean;
+            }
+        }
+        return loaded;
+    }
+
+    private static Date toDate(long time) {
+        return time == NULL_TIME ? null : new Date(time);
+    }
+
+    private static long toTime(Date date) {
+        return date == null ? NULL_TIME : date.getTime();
+    }
+
     int getRetryCount() {
         return retryCount;
     }
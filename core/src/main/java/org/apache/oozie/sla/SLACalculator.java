@@ -50,6 +50,18 @@ public interface SLACalculator {
 
     void updateAllSlaStatus();
 
+    /**
+     * Check if the SLAs tracked before a restart are still being reloaded, SLA events may be missing until then.
+     *
+     * @return true if warming up
+     */
+    boolean isWarmingUp();
+
+    /**
+     * Persist the pending SLA updates, invoked when the SLA service is destroyed.
+     */
+    void destroy();
+
     void clear();
 
     SLACalcStatus get(String jobId) throws JPAExecutorException;
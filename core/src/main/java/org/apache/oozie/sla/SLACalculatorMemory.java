@@ -20,14 +20,22 @@ package org.apache.oozie.sla;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.AppType;
@@ -42,6 +50,7 @@ import org.apache.oozie.client.event.SLAEvent.SLAStatus;
 import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.command.CommandException;
+import org.apache.oozie.command.sla.SLAJobEventXCommand;
 import org.apache.oozie.executor.jpa.BatchQueryExecutor;
 import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
@@ -63,6 +72,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.LogUtils;
+import org.apache.oozie.util.NamedThreadFactory;
 import org.apache.oozie.util.Pair;
 import org.apache.oozie.util.XLog;
 
@@ -73,8 +83,8 @@ import org.apache.oozie.util.XLog;
 public class SLACalculatorMemory implements SLACalculator {
 
     private static XLog LOG = XLog.getLog(SLACalculatorMemory.class);
-    // TODO optimization priority based insertion/processing/bumping up-down
     private Map<String, SLACalcStatus> slaMap;
+    private SLADeadlineQueue deadlineQueue;
     protected Set<String> historySet;
     private static int capacity;
     private static JPAService jpaService;
@@ -85,20 +95,64 @@ public class SLACalculatorMemory implements SLACalculator {
     public static final String INSTRUMENTATION_GROUP = "sla-calculator";
     public static final String SLA_MAP = "sla-map";
     private int maxRetryCount;
+    private long fullCheckInterval;
+    private long lastFullCheck;
+    private long lastCheck;
+    private int restartLoadThreads;
+    private volatile boolean warmingUp;
+    private Thread restartLoader;
+    private SLASummaryWriter summaryWriter;
+    // the summaries to reload after a restart are read in ranges of last modified time, each one by a thread
+    private static final long RESTART_LOAD_RANGE = 60 * 60 * 1000;
+    // the registrations of the reloaded summaries are read by batches of ids
+    private static final int RESTART_LOAD_BATCH_SIZE = 1000;
+    // time to wait for an asynchronous reload to stop when the calculator is destroyed
+    private static final long RESTART_LOAD_STOP_TIMEOUT = 10 * 1000;
 
     @Override
     public void init(Configuration conf) throws ServiceException {
         capacity = ConfigurationService.getInt(conf, SLAService.CONF_CAPACITY);
         jobEventLatency = ConfigurationService.getInt(conf, SLAService.CONF_JOB_EVENT_LATENCY);
         maxRetryCount = ConfigurationService.getInt(conf, SLAService.CONF_MAXIMUM_RETRY_COUNT);
+        fullCheckInterval = ConfigurationService.getLong(conf, SLAService.CONF_SLA_FULL_CHECK_INTERVAL) * 1000;
         slaMap = new ConcurrentHashMap<String, SLACalcStatus>();
+        deadlineQueue = new SLADeadlineQueue();
+        lastFullCheck = 0;
+        lastCheck = 0;
         historySet = Collections.synchronizedSet(new HashSet<String>());
         jpaService = Services.get().get(JPAService.class);
         eventHandler = Services.get().get(EventHandlerService.class);
         instrumentation = Services.get().get(InstrumentationService.class).get();
         // load events modified after
         modifiedAfter = conf.getInt(SLAService.CONF_EVENTS_MODIFIED_AFTER, 7);
-        loadOnRestart();
+        restartLoadThreads = ConfigurationService.getInt(conf, SLAService.CONF_RESTART_LOAD_THREADS);
+        warmingUp = true;
+        if (ConfigurationService.getBoolean(conf, SLAService.CONF_RESTART_LOAD_ASYNC)) {
+            restartLoader = new NamedThreadFactory("SLARestartLoad").newThread(new Runnable() {
+                @Override
+                public void run() {
+                    loadOnRestart();
+                }
+            });
+            restartLoader.start();
+        }
+        else {
+            loadOnRestart();
+        }
+        int summaryWriteInterval = ConfigurationService.getInt(conf, SLAService.CONF_SUMMARY_WRITE_INTERVAL);
+        if (summaryWriteInterval > 0) {
+            summaryWriter = new SLASummaryWriter(ConfigurationService.getInt(conf,
+                    SLAService.CONF_SUMMARY_WRITE_BATCH_SIZE), instrumentation);
+            Services.get().get(SchedulerService.class).schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flushSummaries();
+                }
+            }, summaryWriteInterval, summaryWriteInterval, SchedulerService.Unit.SEC);
+        }
+        else {
+            summaryWriter = null;
+        }
         Runnable purgeThread = new HistoryPurgeWorker();
         // schedule runnable by default 1 hours
         Services.get()
@@ -117,6 +171,8 @@ public class SLACalculatorMemory implements SLACalculator {
             if (Thread.currentThread().isInterrupted()) {
                 return;
             }
+            // the history commands update the SLA summaries read from the database
+            flushSummaries();
             Iterator<String> jobItr = historySet.iterator();
             while (jobItr.hasNext()) {
                 String jobId = jobItr.next();
@@ -141,19 +197,108 @@ public class SLACalculatorMemory implements SLACalculator {
         }
     }
 
+    /**
+     * Reloads the SLAs not processed yet, in parallel ranges of last modified time, with their registration. The
+     * calculator is warming up until it is done.
+     */
     private void loadOnRestart() {
+        LOG.info("Loading SLASummary records after restart, SLA is warming up");
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(restartLoadThreads,
+                new NamedThreadFactory("SLARestartLoad"));
+        final List<Future<Integer>> ranges = new ArrayList<Future<Integer>>();
+        int loaded = 0;
         try {
-            List<SLASummaryBean> summaryBeans = jpaService
-                    .execute(new SLASummaryGetRecordsOnRestartJPAExecutor(modifiedAfter));
-            for (SLASummaryBean summaryBean : summaryBeans) {
-                String jobId = summaryBean.getId();
-                putAndIncrement(jobId, new SLACalcStatus(summaryBean));
+            long rangeStart = start - modifiedAfter * 24L * 60 * 60 * 1000;
+            while (rangeStart < start) {
+                final Date from = new Date(rangeStart);
+                rangeStart += RESTART_LOAD_RANGE;
+                // the last range includes the records modified while loading
+                final Date to = new Date(rangeStart < start ? rangeStart : start + 24 * RESTART_LOAD_RANGE);
+                ranges.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return loadOnRestart(from, to);
+                    }
+                }));
+            }
+            for (Future<Integer> range : ranges) {
+                try {
+                    loaded += range.get();
+                }
+                catch (ExecutionException e) {
+                    LOG.warn("Failed to retrieve SLASummary records on restart", e.getCause());
+                }
             }
-            LOG.info("Loaded {0} SLASummary object after restart", slaMap.size());
+            LOG.info("Loaded {0} SLASummary object after restart in {1} ms", loaded, System.currentTimeMillis() - start);
         }
-        catch (Exception e) {
-            LOG.warn("Failed to retrieve SLASummary records on restart", e);
+        catch (InterruptedException e) {
+            LOG.warn("Interrupted retrieving SLASummary records on restart, loaded {0}", loaded);
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+            warmingUp = false;
+        }
+    }
+
+    private int loadOnRestart(Date modifiedFrom, Date modifiedTo) throws JPAExecutorException {
+        List<SLASummaryBean> summaryBeans = jpaService.execute(new SLASummaryGetRecordsOnRestartJPAExecutor(modifiedFrom,
+                modifiedTo));
+        int loaded = 0;
+        for (int i = 0; i < summaryBeans.size(); i += RESTART_LOAD_BATCH_SIZE) {
+            List<SLASummaryBean> batch = summaryBeans.subList(i, Math.min(i + RESTART_LOAD_BATCH_SIZE,
+                    summaryBeans.size()));
+            List<String> jobIds = new ArrayList<String>(batch.size());
+            for (SLASummaryBean summaryBean : batch) {
+                jobIds.add(summaryBean.getId());
+            }
+            Map<String, SLARegistrationBean> registrations = new HashMap<String, SLARegistrationBean>();
+            for (SLARegistrationBean registrationBean : SLARegistrationQueryExecutor.getInstance().getList(
+                    SLARegQuery.GET_SLA_CONFIGS, jobIds)) {
+                registrations.put(registrationBean.getId(), registrationBean);
+            }
+            for (SLASummaryBean summaryBean : batch) {
+                SLARegistrationBean registrationBean = registrations.get(summaryBean.getId());
+                SLACalcStatus slaCalc;
+                if (registrationBean == null) {
+                    // the registration is loaded at the first check
+                    slaCalc = new SLACalcStatus(summaryBean);
+                }
+                else {
+                    slaCalc = new SLACalcStatus(summaryBean, registrationBean);
+                    slaCalc.compact(true);
+                    slaCalc.setCheckAfterRestart();
+                }
+                if (putIfAbsentAndIncrement(summaryBean.getId(), slaCalc)) {
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return true while the SLAs tracked before the restart are being reloaded
+     */
+    @Override
+    public boolean isWarmingUp() {
+        return warmingUp;
+    }
+
+    @Override
+    public void destroy() {
+        if (restartLoader != null) {
+            restartLoader.interrupt();
+            try {
+                restartLoader.join(RESTART_LOAD_STOP_TIMEOUT);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            restartLoader = null;
         }
+        flushSummaries();
     }
 
     @Override
@@ -171,6 +316,7 @@ public class SLACalculatorMemory implements SLACalculator {
         SLACalcStatus memObj;
         memObj = slaMap.get(jobId);
         if (memObj == null && historySet.contains(jobId)) {
+            flushSummary(jobId);
             memObj = new SLACalcStatus(SLASummaryQueryExecutor.getInstance()
                     .get(SLASummaryQuery.GET_SLA_SUMMARY, jobId), SLARegistrationQueryExecutor.getInstance().get(
                     SLARegQuery.GET_SLA_REG_ON_RESTART, jobId));
@@ -191,6 +337,7 @@ public class SLACalculatorMemory implements SLACalculator {
         memObj = slaMap.get(jobId);
         // if the request came from immediately after restart don't use map SLACalcStatus.
         if (memObj == null || memObj.getSLARegistrationBean() == null) {
+            flushSummary(jobId);
             SLARegistrationBean registrationBean = SLARegistrationQueryExecutor.getInstance()
                     .get(SLARegQuery.GET_SLA_REG_ON_RESTART, jobId);
             SLASummaryBean summaryBean = memObj == null
@@ -215,6 +362,7 @@ public class SLACalculatorMemory implements SLACalculator {
     public void clear() {
         final int originalSize = slaMap.size();
         slaMap.clear();
+        deadlineQueue.clear();
         historySet.clear();
         instrumentation.decr(INSTRUMENTATION_GROUP, SLA_MAP, originalSize);
     }
@@ -238,8 +386,7 @@ public class SLACalculatorMemory implements SLACalculator {
         // get eventProcessed on DB for validation in HA
         SLASummaryBean summaryBean = null;
         try {
-            summaryBean = SLASummaryQueryExecutor.getInstance()
-                    .get(SLASummaryQuery.GET_SLA_SUMMARY_EVENTPROCESSED_LAST_MODIFIED, jobId);
+            summaryBean = getSummaryEventProcessed(jobId);
             resetRetryCount(jobId);
         }
         catch (final JPAExecutorException e) {
@@ -272,7 +419,7 @@ public class SLACalculatorMemory implements SLACalculator {
                 LOG.debug("{0} job has SLA event change. EventProc = {1}, status = {2}", slaCalc.getId(),
                         slaCalc.getEventProcessed(), slaCalc.getJobStatus());
                 try {
-                    SLAXCommandFactory.getSLAEventXCommand(slaCalc).call();
+                    getSLAEventXCommand(slaCalc, 0).call();
                     checkEventProc(slaCalc);
                 }
                 catch (XException e) {
@@ -282,7 +429,8 @@ public class SLACalculatorMemory implements SLACalculator {
                     }
                     else {
                         if (firstCheckAfterRetstart) {
-                            slaCalc.setSLARegistrationBean(null);
+                            // check it again as the first check after restart next time
+                            slaCalc.setCheckAfterRestart();
                         }
                     }
                 }
@@ -290,37 +438,111 @@ public class SLACalculatorMemory implements SLACalculator {
         }
     }
 
+    /**
+     * Returns the event processed and the last modified time of the SLA summary of a job, the pending update of this
+     * server if it has not been written to the database yet.
+     */
+    private SLASummaryBean getSummaryEventProcessed(String jobId) throws JPAExecutorException {
+        SLASummaryBean summaryBean = summaryWriter == null ? null : summaryWriter.getPending(jobId);
+        if (summaryBean == null) {
+            summaryBean = SLASummaryQueryExecutor.getInstance().get(
+                    SLASummaryQuery.GET_SLA_SUMMARY_EVENTPROCESSED_LAST_MODIFIED, jobId);
+        }
+        return summaryBean;
+    }
+
+    private SLAJobEventXCommand getSLAEventXCommand(SLACalcStatus slaCalc, long lockTimeOut) {
+        SLAJobEventXCommand command = SLAXCommandFactory.getSLAEventXCommand(slaCalc, lockTimeOut);
+        command.setSummaryWriter(summaryWriter);
+        return command;
+    }
+
+    /**
+     * Writes the pending update of the SLA summary of a job before it is read from the database.
+     */
+    private void flushSummary(String jobId) throws JPAExecutorException {
+        if (summaryWriter != null && summaryWriter.getPending(jobId) != null) {
+            summaryWriter.flush();
+        }
+    }
+
+    private void flushSummaries() {
+        if (summaryWriter != null) {
+            try {
+                summaryWriter.flush();
+            }
+            catch (JPAExecutorException e) {
+                LOG.warn("Failed to write [{0}] SLA summaries, lag [{1}] ms, retrying", summaryWriter.getPendingCount(),
+                        summaryWriter.getLag(), e);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    SLASummaryWriter getSummaryWriter() {
+        return summaryWriter;
+    }
+
     private boolean isChanged(SLACalcStatus slaCalc) {
+        return getNextCheckTime(slaCalc) < System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the time an SLA event of the job is due at: the earliest of the expected start, the expected duration after
+     * the actual start and the expected end not processed yet, plus the job event latency.
+     *
+     * @param slaCalc the SLA of the job
+     * @return the time in milliseconds, {@link Long#MIN_VALUE} if the job has to be checked right away and
+     * {@link SLADeadlineQueue#NEVER} if no event can be due until the job status changes
+     */
+    private long getNextCheckTime(SLACalcStatus slaCalc) {
         SLARegistrationBean reg = slaCalc.getSLARegistrationBean();
         byte eventProc = slaCalc.getEventProcessed();
+        long time = SLADeadlineQueue.NEVER;
 
         if ((eventProc & 1) == 0) { // first bit (start-processed) unset
-            if (reg.getExpectedStart() != null) {
-                if (reg.getExpectedStart().getTime() + jobEventLatency < System.currentTimeMillis()) {
-                    return true;
-                }
-            }
-            else {
-                return true;
+            if (reg.getExpectedStart() == null) {
+                return Long.MIN_VALUE;
             }
+            time = Math.min(time, reg.getExpectedStart().getTime() + jobEventLatency);
         }
         if (eventProc != 8 && ((eventProc >> 1) & 1) == 0) {
             if (reg.getExpectedDuration() == -1) {
-                return true;
+                return Long.MIN_VALUE;
             }
             else if (slaCalc.getActualStart() != null) {
-                if ((reg.getExpectedDuration() + jobEventLatency) < (System.currentTimeMillis() - slaCalc
-                        .getActualStart().getTime())) {
-                    return true;
-                }
+                time = Math.min(time, slaCalc.getActualStart().getTime() + reg.getExpectedDuration() + jobEventLatency);
             }
         }
         if (eventProc < 4) {
-            if (reg.getExpectedEnd().getTime() + jobEventLatency < System.currentTimeMillis()) {
-                return true;
+            if (reg.getExpectedEnd() == null) {
+                return Long.MIN_VALUE;
             }
+            time = Math.min(time, reg.getExpectedEnd().getTime() + jobEventLatency);
         }
-        return false;
+        return time;
+    }
+
+    /**
+     * Schedules the next periodic check of a job in {@link #deadlineQueue}, right away if its registration has not been
+     * loaded yet after a restart.
+     */
+    private void scheduleCheck(String jobId) {
+        SLACalcStatus slaCalc = slaMap.get(jobId);
+        if (slaCalc == null) {
+            deadlineQueue.remove(jobId);
+        }
+        else if (slaCalc.getSLARegistrationBean() == null || slaCalc.isCheckAfterRestart()) {
+            deadlineQueue.schedule(jobId, 0);
+        }
+        else {
+            deadlineQueue.schedule(jobId, getNextCheckTime(slaCalc));
+        }
+    }
+
+    @VisibleForTesting
+    Long getScheduledCheckTime(String jobId) {
+        return deadlineQueue.get(jobId);
     }
 
     @SuppressWarnings("rawtypes")
@@ -347,15 +569,29 @@ public class SLACalculatorMemory implements SLACalculator {
     }
 
     /**
-     * Periodically run by the SLAService worker threads to update SLA status by
-     * iterating through all the jobs in the map
+     * Periodically run by the SLAService worker threads to update SLA status.
+     * <p>
+     * Only the jobs with an SLA event due, in deadline order, and the jobs whose SLA summary has been modified in the
+     * database since the previous run, i.e. by another Oozie server, are checked. All the jobs in the map are checked at
+     * the first run and then every {@code oozie.sla.service.SLAService.full.check.interval} seconds.
      */
     @Override
     public void updateAllSlaStatus() {
         LOG.info("Running periodic SLA check");
-        Iterator<String> iterator = slaMap.keySet().iterator();
-        while (iterator.hasNext()) {
-            String jobId = iterator.next();
+        long now = System.currentTimeMillis();
+        Collection<String> jobIds;
+        if (fullCheckInterval <= 0 || now - lastFullCheck >= fullCheckInterval) {
+            jobIds = slaMap.keySet();
+            lastFullCheck = now;
+        }
+        else {
+            jobIds = new LinkedHashSet<String>(deadlineQueue.pollDue(now));
+            // the modification time is set by the server modifying it, allow for clock and commit delays
+            jobIds.addAll(getModifiedJobIds(new Date(lastCheck - jobEventLatency)));
+        }
+        lastCheck = now;
+        int checked = 0;
+        for (String jobId : jobIds) {
             try {
                 LOG.trace("Processing SLA for jobid={0}", jobId);
                 updateJobSla(jobId);
@@ -365,7 +601,30 @@ public class SLACalculatorMemory implements SLACalculator {
                 LOG.error("Exception in SLA processing for job [{0}]", jobId, e);
                 LogUtils.clearLogPrefix();
             }
+            finally {
+                scheduleCheck(jobId);
+            }
+            checked++;
         }
+        LOG.debug("Checked SLA of [{0}] jobs, [{1}] jobs in memory", checked, slaMap.size());
+    }
+
+    private List<String> getModifiedJobIds(Date modifiedAfter) {
+        List<String> jobIds = new ArrayList<String>();
+        try {
+            for (SLASummaryBean summaryBean : SLASummaryQueryExecutor.getInstance().getList(
+                    SLASummaryQuery.GET_SLA_SUMMARY_ID_MODIFIED_AFTER, modifiedAfter)) {
+                if (slaMap.containsKey(summaryBean.getId())) {
+                    jobIds.add(summaryBean.getId());
+                }
+            }
+        }
+        catch (JPAExecutorException e) {
+            LOG.warn("Failed to retrieve the SLA summary records modified after [{0}], checking all the jobs next time",
+                    modifiedAfter, e);
+            lastFullCheck = 0;
+        }
+        return jobIds;
     }
 
     /**
@@ -485,6 +744,7 @@ public class SLACalculatorMemory implements SLACalculator {
                     SLARegQuery.GET_SLA_REG_ALL, jobId);
             if (slaRegBean != null) { // filter out jobs picked by SLA job event listener
                                       // but not actually configured for SLA
+                flushSummary(jobId);
                 SLASummaryBean slaSummaryBean = SLASummaryQueryExecutor.getInstance().get(
                         SLASummaryQuery.GET_SLA_SUMMARY, jobId);
                 slaCalc = new SLACalcStatus(slaSummaryBean, slaRegBean);
@@ -492,8 +752,7 @@ public class SLACalculatorMemory implements SLACalculator {
             }
         }
         else {
-            SLASummaryBean summaryBean = ((SLASummaryQueryExecutor) SLASummaryQueryExecutor.getInstance()).get(
-                    SLASummaryQuery.GET_SLA_SUMMARY_EVENTPROCESSED_LAST_MODIFIED, jobId);
+            SLASummaryBean summaryBean = getSummaryEventProcessed(jobId);
             byte eventProc = summaryBean.getEventProcessed();
             if (!slaCalc.getLastModifiedTime().equals(summaryBean.getLastModifiedTime())) {
                 // Update last modified time.
@@ -506,17 +765,22 @@ public class SLACalculatorMemory implements SLACalculator {
         }
         if (slaCalc != null) {
             try {
-                SLAXCommandFactory.getSLAEventXCommand(slaCalc,
+                getSLAEventXCommand(slaCalc,
                         ConfigurationService.getLong(SLAService.CONF_SLA_CALC_LOCK_TIMEOUT, 20 * 1000)).call();
                 checkEventProc(slaCalc);
             }
             catch (XException e) {
                 if (firstCheckAfterRetstart) {
-                    slaCalc.setSLARegistrationBean(null);
+                    // check it again as the first check after restart next time
+                    slaCalc.setCheckAfterRestart();
                 }
                 LOG.error(e);
                 throw new ServiceException(e);
             }
+            finally {
+                // the actual start sets the time the duration is due at
+                scheduleCheck(jobId);
+            }
             return true;
         }
         else {
@@ -661,7 +925,8 @@ public class SLACalculatorMemory implements SLACalculator {
         if (slaCalc != null && slaCalc.getSLARegistrationBean() == null) {
             return updateSLARegistartion(slaCalc);
         }
-        return false;
+        // reloaded with its registration
+        return slaCalc != null && slaCalc.clearCheckAfterRestart();
     }
 
     public boolean updateSLARegistartion(SLACalcStatus slaCalc) throws JPAExecutorException {
@@ -671,6 +936,7 @@ public class SLACalculatorMemory implements SLACalculator {
                     SLARegistrationBean slaRegBean = SLARegistrationQueryExecutor.getInstance()
                             .get(SLARegQuery.GET_SLA_REG_ON_RESTART, slaCalc.getId());
                     slaCalc.updateSLARegistrationBean(slaRegBean);
+                    slaCalc.compact();
                     return true;
                 }
             }
@@ -679,7 +945,10 @@ public class SLACalculatorMemory implements SLACalculator {
     }
 
     private boolean putAndIncrement(final String jobId, final SLACalcStatus newStatus) {
-        if (slaMap.put(jobId, newStatus) == null) {
+        newStatus.compact();
+        final boolean added = slaMap.put(jobId, newStatus) == null;
+        scheduleCheck(jobId);
+        if (added) {
             LOG.trace("Added a new item to SLA map. [jobId={0}]", jobId);
             instrumentation.incr(INSTRUMENTATION_GROUP, SLA_MAP, 1);
             return true;
@@ -689,8 +958,22 @@ public class SLACalculatorMemory implements SLACalculator {
         return false;
     }
 
+    private boolean putIfAbsentAndIncrement(final String jobId, final SLACalcStatus newStatus) {
+        newStatus.compact();
+        if (slaMap.putIfAbsent(jobId, newStatus) == null) {
+            scheduleCheck(jobId);
+            instrumentation.incr(INSTRUMENTATION_GROUP, SLA_MAP, 1);
+            return true;
+        }
+
+        LOG.trace("Kept the existing item in SLA map. [jobId={0}]", jobId);
+        return false;
+    }
+
     private boolean removeAndDecrement(final String jobId) {
-        if (slaMap.remove(jobId) != null) {
+        final boolean removed = slaMap.remove(jobId) != null;
+        deadlineQueue.remove(jobId);
+        if (removed) {
             LOG.trace("Removed an existing item from SLA map. [jobId={0}]", jobId);
             instrumentation.decr(INSTRUMENTATION_GROUP, SLA_MAP, 1);
             return true;
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Job ids of the SLA entries ordered by the time their SLA has to be checked next, the earliest of their expected start,
+ * expected end and expected duration not processed yet.
+ * <p>
+ * A job id is in the queue at most once, scheduling it again replaces its previous time. Jobs whose SLA cannot be missed
+ * until something else changes, i.e. the duration of a job that has not started, have no time and are not in the queue.
+ */
+class SLADeadlineQueue {
+    static final long NEVER = Long.MAX_VALUE;
+
+    private final Map<String, Long> deadlines = new HashMap<String, Long>();
+    private final TreeSet<Deadline> queue = new TreeSet<Deadline>();
+
+    /**
+     * Schedules the SLA check of a job.
+     *
+     * @param jobId the job id
+     * @param time the time in milliseconds to check the job at, {@link #NEVER} to remove it
+     */
+    synchronized void schedule(String jobId, long time) {
+        if (time == NEVER) {
+            remove(jobId);
+            return;
+        }
+        Long previous = deadlines.put(jobId, time);
+        if (previous != null) {
+            queue.remove(new Deadline(previous, jobId));
+        }
+        queue.add(new Deadline(time, jobId));
+    }
+
+    synchronized void remove(String jobId) {
+        Long previous = deadlines.remove(jobId);
+        if (previous != null) {
+            queue.remove(new Deadline(previous, jobId));
+        }
+    }
+
+    /**
+     * Removes the jobs to check at or before a time.
+     *
+     * @param now the time in milliseconds
+     * @return the job ids, earliest first
+     */
+    synchronized List<String> pollDue(long now) {
+        List<String> due = new ArrayList<String>();
+        while (!queue.isEmpty() && queue.first().time <= now) {
+            Deadline deadline = queue.pollFirst();
+            deadlines.remove(deadline.jobId);
+            due.add(deadline.jobId);
+        }
+        return due;
+    }
+
+    /**
+     * @param jobId the job id
+     * @return the time the job is scheduled at, null if it is not in the queue
+     */
+    synchronized Long get(String jobId) {
+        return deadlines.get(jobId);
+    }
+
+    synchronized int size() {
+        return deadlines.size();
+    }
+
+    synchronized void clear() {
+        deadlines.clear();
+        queue.clear();
+    }
+
+    private static final class Deadline implements Comparable<Deadline> {
+        private final long time;
+        private final String jobId;
+
+        Deadline(long time, String jobId) {
+            this.time = time;
+            this.jobId = jobId;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            int result = Long.compare(time, other.time);
+            return result != 0 ? result : jobId.compareTo(other.jobId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Deadline && compareTo((Deadline) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return jobId.hashCode();
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.oozie.AppType;
 import org.apache.oozie.client.event.Event.MessageType;
 import org.apache.oozie.client.rest.JsonBean;
 import org.apache.oozie.util.DateUtils;
+import org.apache.oozie.util.StringUtils;
 import org.apache.openjpa.persistence.jdbc.Index;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -140,8 +141,8 @@ public class SLARegistrationBean implements JsonBean {
     @Transient
     private MessageType msgType;
 
-    private final String ALERT_EVENTS = "alert_events";
-    private final String ALERT_CONTACT = "alert_contact";
+    private static final String ALERT_EVENTS = "alert_events";
+    private static final String ALERT_CONTACT = "alert_contact";
 
     public SLARegistrationBean() {
         slaConfigMap = new HashMap<String, String>();
@@ -319,6 +320,13 @@ public class SLARegistrationBean implements JsonBean {
         slaConfig = slaConfigMapToString();
     }
 
+    /**
+     * Shares the SLA config string with the other beans having the same SLA config.
+     */
+    void internSlaConfig() {
+        slaConfig = StringUtils.intern(slaConfig);
+    }
+
     private void slaConfigStringToMap() {
         if (slaConfig != null) {
             String[] splitString = slaConfig.split("},");
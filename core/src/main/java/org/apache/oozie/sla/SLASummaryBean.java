@@ -79,11 +79,17 @@ import org.json.simple.JSONObject;
  @NamedQuery(name = "GET_SLA_SUMMARY_RECORDS_RESTART", query = "select OBJECT(w) from SLASummaryBean w where w.eventProcessed "
          + "<= 7 AND w.lastModifiedTS >= :lastModifiedTime"),
 
+ @NamedQuery(name = "GET_SLA_SUMMARY_RECORDS_RESTART_RANGE", query = "select OBJECT(w) from SLASummaryBean w where "
+         + "w.eventProcessed <= 7 AND w.lastModifiedTS >= :lastModifiedTime AND w.lastModifiedTS < :lastModifiedTimeEnd"),
+
  @NamedQuery(name = "GET_SLA_SUMMARY_EVENTPROCESSED", query = "select w.eventProcessed from SLASummaryBean w where w.jobId = :id"),
 
  @NamedQuery(name = "GET_SLA_SUMMARY_EVENTPROCESSED_LAST_MODIFIED",
          query = "select w.eventProcessed, w.lastModifiedTS from SLASummaryBean w where w.jobId = :id"),
 
+ @NamedQuery(name = "GET_SLA_SUMMARY_ID_MODIFIED_AFTER",
+         query = "select w.jobId from SLASummaryBean w where w.lastModifiedTS >= :lastModifiedTime"),
+
  @NamedQuery(name = "GET_SLA_SUMMARY_ALL", query = "select OBJECT(w) from SLASummaryBean w")
 
 })
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor.UpdateEntry;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.executor.jpa.SLASummaryQueryExecutor.SLASummaryQuery;
+import org.apache.oozie.util.Instrumentation;
+import org.apache.oozie.util.XLog;
+
+/**
+ * Write-behind buffer of the SLA status and actual times of the jobs, see
+ * {@link SLASummaryQuery#UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES}.
+ * <p>
+ * The updates of a job are coalesced, only its last one is written. They are written in a single batch when
+ * <code>batchSize</code> jobs have pending updates and every time {@link #flush()} is invoked, periodically by
+ * {@link SLACalculatorMemory}. The updates of a failed batch are written with the next one.
+ * <p>
+ * The updates pending when Oozie stops abruptly are lost: the SLA summaries of the jobs have the state of the previous
+ * write, the SLA of the jobs is computed again from their status when the SLA summaries are reloaded.
+ */
+public class SLASummaryWriter {
+    private static final XLog LOG = XLog.getLog(SLASummaryWriter.class);
+    public static final String INSTRUMENTATION_PENDING = "sla-summary-pending";
+    public static final String INSTRUMENTATION_WRITTEN = "sla-summary-written";
+    public static final String INSTRUMENTATION_COALESCED = "sla-summary-coalesced";
+
+    private final int batchSize;
+    private final Instrumentation instrumentation;
+    private final Object flushLock = new Object();
+    private Map<String, SLASummaryBean> pending = new LinkedHashMap<String, SLASummaryBean>();
+    private Map<String, SLASummaryBean> flushing = Collections.emptyMap();
+    private long oldestPending;
+    private long oldestFlushing;
+
+    /**
+     * @param batchSize the number of jobs with pending updates triggering a write
+     * @param instrumentation the instrumentation to count the updates in
+     */
+    public SLASummaryWriter(int batchSize, Instrumentation instrumentation) {
+        this.batchSize = batchSize;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Queues the update of the SLA summary of a job, replacing its pending update.
+     *
+     * @param bean the SLA summary with the status and actual times to write
+     */
+    public void write(SLASummaryBean bean) {
+        boolean full;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                oldestPending = System.currentTimeMillis();
+            }
+            if (pending.put(bean.getId(), bean) == null) {
+                instrumentation.incr(SLACalculatorMemory.INSTRUMENTATION_GROUP, INSTRUMENTATION_PENDING, 1);
+            }
+            else {
+                instrumentation.incr(SLACalculatorMemory.INSTRUMENTATION_GROUP, INSTRUMENTATION_COALESCED, 1);
+            }
+            full = pending.size() >= batchSize;
+        }
+        if (full) {
+            try {
+                flush();
+            }
+            catch (JPAExecutorException e) {
+                LOG.warn("Failed to write the SLA summaries, retrying with the next batch", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the update of the SLA summary of a job not written yet, it is more recent than the database.
+     *
+     * @param jobId the job id
+     * @return the SLA summary, null if the job has no pending update
+     */
+    public synchronized SLASummaryBean getPending(String jobId) {
+        SLASummaryBean bean = pending.get(jobId);
+        return bean != null ? bean : flushing.get(jobId);
+    }
+
+    /**
+     * @return the number of jobs with pending updates
+     */
+    public synchronized int getPendingCount() {
+        return pending.size() + flushing.size();
+    }
+
+    /**
+     * @return the time in milliseconds the oldest pending update has been waiting for, 0 if there is none
+     */
+    public synchronized long getLag() {
+        if (!flushing.isEmpty()) {
+            return System.currentTimeMillis() - oldestFlushing;
+        }
+        return pending.isEmpty() ? 0 : System.currentTimeMillis() - oldestPending;
+    }
+
+    /**
+     * Writes the pending updates in a single batch. If it fails, they are pending again unless the jobs have been
+     * updated since.
+     *
+     * @throws JPAExecutorException if the updates could not be written
+     */
+    public void flush() throws JPAExecutorException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                oldestFlushing = oldestPending;
+                flushing = pending;
+                pending = new LinkedHashMap<String, SLASummaryBean>();
+            }
+            boolean written = false;
+            try {
+                persist(flushing.values());
+                written = true;
+                instrumentation.incr(SLACalculatorMemory.INSTRUMENTATION_GROUP, INSTRUMENTATION_WRITTEN,
+                        flushing.size());
+                instrumentation.decr(SLACalculatorMemory.INSTRUMENTATION_GROUP, INSTRUMENTATION_PENDING,
+                        flushing.size());
+                LOG.debug("Wrote [{0}] SLA summaries, lag [{1}] ms", flushing.size(),
+                        System.currentTimeMillis() - oldestFlushing);
+            }
+            finally {
+                synchronized (this) {
+                    if (!written) {
+                        LOG.warn("Failed to write [{0}] SLA summaries, lag [{1}] ms", flushing.size(),
+                                System.currentTimeMillis() - oldestFlushing);
+                        Map<String, SLASummaryBean> retry = new LinkedHashMap<String, SLASummaryBean>(flushing);
+                        for (Map.Entry<String, SLASummaryBean> entry : pending.entrySet()) {
+                            if (retry.put(entry.getKey(), entry.getValue()) != null) {
+                                instrumentation.decr(SLACalculatorMemory.INSTRUMENTATION_GROUP,
+                                        INSTRUMENTATION_PENDING, 1);
+                            }
+                        }
+                        pending = retry;
+                        oldestPending = oldestFlushing;
+                    }
+                    flushing = Collections.emptyMap();
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    void persist(Collection<SLASummaryBean> beans) throws JPAExecutorException {
+        List<UpdateEntry> updateList = new ArrayList<UpdateEntry>(beans.size());
+        for (SLASummaryBean bean : beans) {
+            updateList.add(new UpdateEntry<SLASummaryQuery>(SLASummaryQuery.UPDATE_SLA_SUMMARY_FOR_STATUS_ACTUAL_TIMES,
+                    bean));
+        }
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(null, updateList, null);
+    }
+}
@@ -35,12 +35,14 @@ import org.apache.oozie.service.Services;
 import org.apache.oozie.sla.SLACalculator;
 import org.apache.oozie.sla.SLACalculatorMemory;
 import org.apache.oozie.sla.SLARegistrationBean;
+import org.apache.oozie.util.Instrumentable;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.Pair;
 import org.apache.oozie.util.XLog;
 
 import com.google.common.annotations.VisibleForTesting;
 
-public class SLAService implements Service {
+public class SLAService implements Service, Instrumentable {
 
     public static final String CONF_PREFIX = "oozie.sla.service.SLAService.";
     public static final String CONF_CALCULATOR_IMPL = CONF_PREFIX + "calculator.impl";
@@ -51,6 +53,11 @@ public class SLAService implements Service {
     //Time interval, in seconds, at which SLA Worker will be scheduled to run
     public static final String CONF_SLA_CHECK_INTERVAL = CONF_PREFIX + "check.interval";
     public static final String CONF_SLA_CHECK_INITIAL_DELAY = CONF_PREFIX + "check.initial.delay";
+    public static final String CONF_SLA_FULL_CHECK_INTERVAL = CONF_PREFIX + "full.check.interval";
+    public static final String CONF_RESTART_LOAD_THREADS = CONF_PREFIX + "restart.load.threads";
+    public static final String CONF_RESTART_LOAD_ASYNC = CONF_PREFIX + "restart.load.async";
+    public static final String CONF_SUMMARY_WRITE_INTERVAL = CONF_PREFIX + "summary.write.interval";
+    public static final String CONF_SUMMARY_WRITE_BATCH_SIZE = CONF_PREFIX + "summary.write.batch.size";
     public static final String CONF_SLA_CALC_LOCK_TIMEOUT = CONF_PREFIX + "oozie.sla.calc.default.lock.timeout";
     public static final String CONF_SLA_HISTORY_PURGE_INTERVAL = CONF_PREFIX + "history.purge.interval";
     public static final String CONF_MAXIMUM_RETRY_COUNT = CONF_PREFIX + "maximum.retry.count";
@@ -95,6 +102,24 @@ public class SLAService implements Service {
     @Override
     public void destroy() {
         slaEnabled = false;
+        if (calcImpl != null) {
+            calcImpl.destroy();
+        }
+    }
+
+    /**
+     * Instruments whether the SLA calculator is warming up.
+     *
+     * @param instr instrumentation to add the variable to
+     */
+    @Override
+    public void instrument(Instrumentation instr) {
+        instr.addVariable(SLACalculatorMemory.INSTRUMENTATION_GROUP, "warming-up", new Instrumentation.Variable<Boolean>() {
+            @Override
+            public Boolean getValue() {
+                return calcImpl != null && calcImpl.isWarmingUp();
+            }
+        });
     }
 
     @Override
@@ -111,6 +136,13 @@ public class SLAService implements Service {
         return calcImpl;
     }
 
+    /**
+     * @return true while the SLAs tracked before the restart are being reloaded
+     */
+    public boolean isWarmingUp() {
+        return calcImpl.isWarmingUp();
+    }
+
     public void runSLAWorker() {
         new SLAWorker(calcImpl).run();
     }
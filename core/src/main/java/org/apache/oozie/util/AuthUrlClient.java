@@ -34,6 +34,7 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
 import org.apache.hadoop.security.authentication.client.AuthenticationException;
 import org.apache.hadoop.security.authentication.client.Authenticator;
+import org.apache.hadoop.security.authentication.client.ConnectionConfigurator;
 import org.apache.hadoop.security.authentication.client.KerberosAuthenticator;
 import org.apache.hadoop.security.authentication.client.PseudoAuthenticator;
 import org.apache.oozie.service.ConfigurationService;
@@ -58,11 +59,21 @@ public class AuthUrlClient {
         }
     }
 
-    private static HttpURLConnection getConnection(URL url) throws IOException {
+    private static HttpURLConnection getConnection(URL url, final int readTimeoutMillis) throws IOException {
         AuthenticatedURL.Token token = new AuthenticatedURL.Token();
         HttpURLConnection conn;
         try {
-            conn = new AuthenticatedURL(AuthenticatorClass.newInstance()).openConnection(url, token);
+            ConnectionConfigurator configurator = null;
+            if (readTimeoutMillis > 0) {
+                configurator = new ConnectionConfigurator() {
+                    @Override
+                    public HttpURLConnection configure(HttpURLConnection conn) throws IOException {
+                        conn.setReadTimeout(readTimeoutMillis);
+                        return conn;
+                    }
+                };
+            }
+            conn = new AuthenticatedURL(AuthenticatorClass.newInstance(), configurator).openConnection(url, token);
         }
         catch (AuthenticationException | InstantiationException | IllegalAccessException ex) {
             throw new IOException("Could not authenticate, " + ex.getMessage(), ex);
@@ -113,6 +124,18 @@ public class AuthUrlClient {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public static BufferedReader callServer(String server) throws IOException {
+        return callServer(server, 0);
+    }
+
+    /**
+     * Calls other Oozie server over HTTP.
+     *
+     * @param server The URL of the other Oozie server
+     * @param readTimeoutMillis The maximum time to wait for data from the other Oozie server, 0 to wait forever
+     * @return BufferedReader of inputstream.
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static BufferedReader callServer(String server, final int readTimeoutMillis) throws IOException {
 
         if (AuthenticatorClass == null) {
             throw new IOException(errorMsg);
@@ -124,7 +147,7 @@ public class AuthUrlClient {
             reader = UserGroupInformation.getLoginUser().doAs(new PrivilegedExceptionAction<BufferedReader>() {
                 @Override
                 public BufferedReader run() throws IOException {
-                    HttpURLConnection conn = getConnection(url);
+                    HttpURLConnection conn = getConnection(url, readTimeoutMillis);
                     conn.setConnectTimeout(ConfigurationService.getInt(SERVER_SERVER_CONNECTION_TIMEOUT_SECONDS, 180));
                     BufferedReader reader = null;
                     if ((conn.getResponseCode() == HttpURLConnection.HTTP_OK)) {
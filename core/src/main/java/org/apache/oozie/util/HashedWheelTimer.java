@@ -0,0 +1,433 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A hashed wheel timer for tasks that have to run once after a delay.
+ * <p>
+ * Unlike {@link java.util.concurrent.ScheduledThreadPoolExecutor} or {@link PriorityDelayQueue}, which keep their
+ * elements in a heap, inserting and cancelling a timeout costs O(1). The price is precision: tasks are expired at tick
+ * boundaries, so a task may run up to one tick later than requested.
+ * <p>
+ * Timeouts are handed over to the wheel through a lock-free queue and are placed into their bucket by the single
+ * worker thread, which is also the thread that runs expired tasks. Expired tasks must therefore be short; typically
+ * they only hand over the real work to an executor.
+ * <p>
+ * The timer keeps track of the lag between the requested and the actual expiration time of the tasks.
+ */
+public class HashedWheelTimer {
+    private static final XLog LOG = XLog.getLog(HashedWheelTimer.class);
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    private final long tickDurationNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Thread workerThread;
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Set<Timeout> pendingTimeouts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    private volatile long startTime;
+    private long tick;
+
+    /**
+     * Create a hashed wheel timer.
+     *
+     * @param threadName name of the worker thread.
+     * @param tickDuration duration between two ticks.
+     * @param unit time unit of <code>tickDuration</code>.
+     * @param ticksPerWheel number of buckets, rounded up to the next power of two.
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        ParamChecker.notEmpty(threadName, "threadName");
+        Preconditions.checkNotNull(unit, "unit cannot be null");
+        Preconditions.checkArgument(tickDuration > 0, "tickDuration must be >0, is %s", tickDuration);
+        Preconditions.checkArgument(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30),
+                "ticksPerWheel must be in the range (0, 2^30], is %s", ticksPerWheel);
+
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+        tickDurationNanos = unit.toNanos(tickDuration);
+        Preconditions.checkArgument(tickDurationNanos < Long.MAX_VALUE / size,
+                "tickDuration is too long for a wheel of %s ticks", size);
+
+        workerThread = new Thread(new Worker(), threadName);
+        workerThread.setDaemon(true);
+    }
+
+    /**
+     * Start the worker thread. Calling it more than once has no effect.
+     */
+    public synchronized void start() {
+        if (state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            startTime = System.nanoTime();
+            workerThread.start();
+        }
+        else if (state.get() == STATE_STOPPED) {
+            throw new IllegalStateException("Timer has already been stopped");
+        }
+    }
+
+    /**
+     * Stop the worker thread and discard all the timeouts that have not yet expired.
+     *
+     * @return the tasks of the timeouts that have not expired.
+     */
+    public List<Runnable> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException("Timer cannot be stopped from one of its own tasks");
+        }
+        if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            workerThread.interrupt();
+            try {
+                workerThread.join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Runnable> unprocessed = new ArrayList<>(pendingTimeouts.size());
+        for (Timeout timeout : pendingTimeouts) {
+            unprocessed.add(timeout.task);
+        }
+        pendingTimeouts.clear();
+        newTimeouts.clear();
+        cancelledTimeouts.clear();
+        return unprocessed;
+    }
+
+    /**
+     * @return true if the timer has been stopped.
+     */
+    public boolean isStopped() {
+        return state.get() == STATE_STOPPED;
+    }
+
+    /**
+     * Schedule a task for one time execution after the given delay.
+     *
+     * @param task task to run, it is executed by the timer thread.
+     * @param delay delay of the execution.
+     * @param unit time unit of <code>delay</code>.
+     * @return the timeout handle, it can be used to cancel the execution.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(task, "task cannot be null");
+        Preconditions.checkNotNull(unit, "unit cannot be null");
+        if (state.get() == STATE_STOPPED) {
+            throw new IllegalStateException("Timer has already been stopped");
+        }
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        Timeout timeout = new Timeout(task, deadline);
+        pendingTimeouts.add(timeout);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return number of timeouts that have been neither expired nor cancelled.
+     */
+    public int pendingTimeouts() {
+        return pendingTimeouts.size();
+    }
+
+    /**
+     * @return the tasks of the timeouts that have been neither expired nor cancelled.
+     */
+    public List<Runnable> getPendingTasks() {
+        List<Runnable> tasks = new ArrayList<>(pendingTimeouts.size());
+        for (Timeout timeout : pendingTimeouts) {
+            tasks.add(timeout.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * @return the lag, in milliseconds, of the most recently expired timeout.
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    /**
+     * @return the maximum lag, in milliseconds, observed since the timer has been started.
+     */
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    /**
+     * @return number of timeouts expired since the timer has been started.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * @return the duration of one tick in milliseconds.
+     */
+    public long getTickDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickDurationNanos);
+    }
+
+    /**
+     * @return the number of buckets of the wheel.
+     */
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    private void recordLag(long lagNanos) {
+        long lag = TimeUnit.NANOSECONDS.toMillis(Math.max(lagNanos, 0));
+        lastLagMillis.set(lag);
+        long max = maxLagMillis.get();
+        while (lag > max && !maxLagMillis.compareAndSet(max, lag)) {
+            max = maxLagMillis.get();
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (state.get() == STATE_STARTED) {
+                long now = waitForNextTick();
+                if (now < 0) {
+                    break;
+                }
+                processCancelledTimeouts();
+                transferTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts(now);
+                tick++;
+            }
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickDurationNanos * (tick + 1);
+            while (true) {
+                long now = System.nanoTime() - startTime;
+                long sleepMillis = TimeUnit.NANOSECONDS.toMillis(deadline - now + 999_999);
+                if (sleepMillis <= 0) {
+                    return now;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                }
+                catch (InterruptedException ex) {
+                    if (state.get() == STATE_STOPPED) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void transferTimeouts() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = newTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state.get() != Timeout.ST_INIT) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickDurationNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // a timeout that is already due goes into the current bucket
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle of a task scheduled on a {@link HashedWheelTimer}.
+     */
+    public final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return the task of the timeout.
+         */
+        public Runnable getTask() {
+            return task;
+        }
+
+        /**
+         * Cancel the timeout. The task is removed from the wheel by the worker thread at the next tick.
+         *
+         * @return true if the timeout was cancelled, false if it had already expired or been cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.remove(this);
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        /**
+         * @param unit time unit of the returned value.
+         * @return the remaining delay, it is negative if the deadline has passed.
+         */
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire(long now) {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            pendingTimeouts.remove(this);
+            expiredCount.incrementAndGet();
+            recordLag(now - deadline);
+            try {
+                task.run();
+            }
+            catch (Throwable t) {
+                LOG.warn("Exception running timer task [{0}], {1}", task, t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, it is only accessed by the worker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            }
+            else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                if (timeout == tail) {
+                    head = tail = null;
+                }
+                else {
+                    head = next;
+                }
+            }
+            else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        private void expireTimeouts(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    timeout.expire(now);
+                }
+                else if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                }
+                else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
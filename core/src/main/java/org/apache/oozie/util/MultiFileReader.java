@@ -21,21 +21,32 @@ package org.apache.oozie.util;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Implementation of a {@link Reader} which can be used to read in multiple files sequentially.  That is, when the first file ends
  * it will silently move to the next file and so on.  If the file has a ".gz" extension, this Reader will properly handle it; all
  * other types of files will simply be read using a {@link FileReader}.
+ * <p>
+ * Optionally, only some byte ranges of the files are read, for example the ranges of a job given by the {@link XLogIndex} of
+ * the file, or only the log messages containing a text are read from the uncompressed files, see
+ * {@link PrefilteredLogInputStream}.
  */
 public class MultiFileReader extends Reader {
 
     private ArrayList<File> files;
+    private Map<File, List<long[]>> fileRanges;
+    private String prefilter;
     private int index;
     private Reader reader;
     private boolean closed;
@@ -47,7 +58,38 @@ public class MultiFileReader extends Reader {
      * @throws IOException If there was a problem opening the first file
      */
     public MultiFileReader(ArrayList<File> files) throws IOException {
+        this(files, Collections.<File, List<long[]>>emptyMap());
+    }
+
+    /**
+     * Constructs the MultiFileReader with the given files, reading only the given byte ranges of some of them.  The files will be
+     * read in the order given in the ArrayList.
+     *
+     * @param files The files to read
+     * @param fileRanges The byte ranges, as sorted <code>{start, end}</code> pairs, to read for each file; files without
+     * ranges are read entirely.  For gzip files the ranges are in the uncompressed content.
+     * @throws IOException If there was a problem opening the first file
+     */
+    public MultiFileReader(ArrayList<File> files, Map<File, List<long[]>> fileRanges) throws IOException {
+        this(files, fileRanges, null);
+    }
+
+    /**
+     * Constructs the MultiFileReader with the given files, reading only the given byte ranges of some of them and only the log
+     * messages containing the prefilter text of the other uncompressed files.  The files will be read in the order given in
+     * the ArrayList.
+     *
+     * @param files The files to read
+     * @param fileRanges The byte ranges, as sorted <code>{start, end}</code> pairs, to read for each file; files without
+     * ranges are read entirely.  For gzip files the ranges are in the uncompressed content.
+     * @param prefilter The text the first line of the log messages of the uncompressed files without ranges must contain,
+     * null to read them entirely
+     * @throws IOException If there was a problem opening the first file
+     */
+    public MultiFileReader(ArrayList<File> files, Map<File, List<long[]>> fileRanges, String prefilter) throws IOException {
         this.files = files;
+        this.fileRanges = fileRanges;
+        this.prefilter = prefilter;
         closed = false;
         index = 0;
         reader = null;
@@ -78,18 +120,88 @@ public class MultiFileReader extends Reader {
     private void openNextReader() throws IOException {
         if (index < files.size()) {
             // gzip files
+            InputStream is;
+            List<long[]> ranges = fileRanges.get(files.get(index));
             if (files.get(index).getName().endsWith(".gz")) {
-                GZIPInputStream gzipInputStream = new GZIPInputStream(new FileInputStream(files.get(index)));
-                reader = new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8);
+                is = new GZIPInputStream(new FileInputStream(files.get(index)));
+            }
+            // regular files, prefiltered if there are no ranges
+            else if (ranges == null && prefilter != null) {
+                is = new PrefilteredLogInputStream(files.get(index), prefilter);
             }
-            // regular files
             else {
-                reader = new InputStreamReader(new FileInputStream(files.get(index)), StandardCharsets.UTF_8);
+                is = new FileInputStream(files.get(index));
+            }
+            if (ranges != null) {
+                is = new RangeInputStream(is, ranges);
             }
+            reader = new InputStreamReader(is, StandardCharsets.UTF_8);
             index++;
         }
         else {
             closed = true;
         }
     }
+
+    /**
+     * InputStream reading only some byte ranges of another InputStream, skipping the bytes in between.
+     */
+    static class RangeInputStream extends FilterInputStream {
+        private final List<long[]> ranges;
+        private int rangeIndex;
+        private long position;
+
+        RangeInputStream(InputStream in, List<long[]> ranges) {
+            super(in);
+            this.ranges = ranges;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int numRead = read(b, 0, 1);
+            return numRead == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (rangeIndex < ranges.size() && position >= ranges.get(rangeIndex)[1]) {
+                rangeIndex++;
+            }
+            if (rangeIndex >= ranges.size()) {
+                return -1;
+            }
+            long[] range = ranges.get(rangeIndex);
+            while (position < range[0]) {
+                long skipped = in.skip(range[0] - position);
+                if (skipped <= 0) {
+                    if (in.read() == -1) {
+                        return -1;
+                    }
+                    skipped = 1;
+                }
+                position += skipped;
+            }
+            int numRead = in.read(b, off, (int) Math.min(len, range[1] - position));
+            if (numRead > 0) {
+                position += numRead;
+            }
+            return numRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("skip not supported");
+        }
+
+        @Override
+        public int available() throws IOException {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.oozie.util;
 import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,8 +31,12 @@ import org.apache.log4j.Appender;
 import org.apache.log4j.pattern.ExtrasPatternParser;
 import org.apache.log4j.rolling.RollingPolicyBase;
 import org.apache.log4j.rolling.RolloverDescription;
+import org.apache.log4j.rolling.RolloverDescriptionImpl;
 import org.apache.log4j.rolling.TimeBasedRollingPolicy;
 import org.apache.log4j.rolling.TriggeringPolicy;
+import org.apache.log4j.rolling.helper.Action;
+import org.apache.log4j.rolling.helper.ActionBase;
+import org.apache.log4j.rolling.helper.CompositeAction;
 import org.apache.log4j.spi.LoggingEvent;
 import org.apache.log4j.pattern.LiteralPatternConverter;
 import org.apache.oozie.service.Services;
@@ -39,7 +44,8 @@ import org.apache.oozie.service.XLogService;
 
 /**
  * Has the same behavior as the TimeBasedRollingPolicy.  Additionally, it will delete older logs (MaxHistory determines how many
- * older logs are retained).
+ * older logs are retained).  If Index is true, it also writes an {@link XLogIndex} of every rotated log file, used by
+ * {@link XLogStreamer} to skip the files and ranges without the requested job.
  */
 public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringPolicy {
 
@@ -54,6 +60,8 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
 
     private int maxHistory = 720;       // (720 hours / 24 hours per day = 30 days) as default
 
+    private boolean index = false;
+
     String oozieLogDir;
     String logFileName;
 
@@ -65,6 +73,14 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
         this.maxHistory = maxHistory;
     }
 
+    public boolean getIndex() {
+        return index;
+    }
+
+    public void setIndex(boolean index) {
+        this.index = index;
+    }
+
     public OozieRollingPolicy() {
         deleteSem = new Semaphore(1);
         deleteThread = new Thread();
@@ -106,7 +122,24 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
 
     @Override
     public RolloverDescription rollover(final String activeFile) throws SecurityException {
-        return tbrp.rollover(activeFile);
+        RolloverDescription description = tbrp.rollover(activeFile);
+        if (description == null || !index || oozieLogDir == null || logFileName == null) {
+            return description;
+        }
+        // Index the rotated file once it has been renamed (and compressed), in the asynchronous action thread
+        List<Action> asyncActions = new ArrayList<Action>();
+        if (description.getAsynchronous() != null) {
+            asyncActions.add(description.getAsynchronous());
+        }
+        asyncActions.add(new ActionBase() {
+            @Override
+            public boolean execute() throws IOException {
+                XLogIndex.indexRotatedFiles(oozieLogDir, logFileName);
+                return true;
+            }
+        });
+        return new RolloverDescriptionImpl(description.getActiveFileName(), description.getAppend(),
+                description.getSynchronous(), new CompositeAction(asyncActions, false));
     }
 
     @Override
@@ -139,6 +172,16 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
             String[] children = new File(oozieLogDir).list();
             if (children != null) {
                 for (String child : children) {
+                    if (XLogIndex.isIndexFile(child)) {
+                        // Indexes are deleted along with their log file, or if the log file is gone
+                        File childFile = new File(oozieLogDir, child);
+                        File logFile = new File(oozieLogDir, child.substring(0, child.length()
+                                - XLogIndex.INDEX_SUFFIX.length()));
+                        if (child.endsWith(XLogIndex.INDEX_SUFFIX) && !logFile.exists()) {
+                            childFile.delete();
+                        }
+                        continue;
+                    }
                     if (child.startsWith(logFileName) && !child.equals(logFileName)) {
                         File childFile = new File(new File(oozieLogDir).getAbsolutePath(), child);
                         if (child.endsWith(".gz")) {
@@ -160,7 +203,9 @@ public class OozieRollingPolicy extends RollingPolicyBase implements TriggeringP
             Collections.sort(fileList);
 
             for (int i = maxHistory; i < fileList.size(); i++) {
-                new File(fileList.get(i).getFileName()).delete();
+                File file = new File(fileList.get(i).getFileName());
+                file.delete();
+                XLogIndex.getIndexFile(file).delete();
             }
         }
     }
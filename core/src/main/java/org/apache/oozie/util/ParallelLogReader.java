@@ -0,0 +1,277 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link Reader} of the log messages of multiple log files matching a {@link XLogFilter}, decompressing and filtering the
+ * files in parallel.
+ * <p>
+ * Up to <code>threads</code> files, in the given order, are read at the same time, each one by its own thread with a
+ * {@link TimestampedMessageParser}; the matching messages are handed over through a bounded queue of
+ * <code>queueSize</code> messages per file, so the memory used does not depend on the size of the files. When a file is
+ * completely read the next one is started. The messages of the files being read are merged in timestamp order, the same
+ * way the logs of multiple Oozie servers are collated.
+ * <p>
+ * A message is returned as soon as no other file being read can have an earlier message: rotated log files named
+ * <code>*-YYYY-MM-DD-HH.gz</code> cannot have messages before their hour, so the messages of the previous hours flow while
+ * later files are still decompressed.
+ * <p>
+ * The threads are owned by the reader, a pool shared by concurrent requests could have all its threads waiting on full
+ * queues of requests that are waiting for the files not started yet. {@link #close()} stops them.
+ */
+public class ParallelLogReader extends Reader {
+    private static final XLog LOG = XLog.getLog(ParallelLogReader.class);
+    private static final Object EOF = new Object();
+
+    private final List<File> files;
+    private final Map<File, List<long[]>> fileRanges;
+    private final String prefilter;
+    private final XLogFilter filter;
+    private final int threads;
+    private final int queueSize;
+    private final ExecutorService executor;
+    private final List<Source> sources = new ArrayList<Source>();
+    private int nextFile;
+    private String message;
+    private int messagePosition;
+    private volatile boolean closed;
+
+    /**
+     * Constructs the ParallelLogReader.
+     *
+     * @param files the files to read, in timestamp order
+     * @param fileRanges the byte ranges to read of each file, see {@link MultiFileReader}
+     * @param prefilter the text of the log messages of the uncompressed files, see {@link MultiFileReader}
+     * @param filter the filter of the log messages
+     * @param threads the maximum number of files to read at the same time
+     * @param queueSize the maximum number of messages of a file read ahead
+     */
+    public ParallelLogReader(List<File> files, Map<File, List<long[]>> fileRanges, String prefilter, XLogFilter filter,
+            int threads, int queueSize) {
+        Preconditions.checkArgument(threads > 0, "threads must be >0, is %s", threads);
+        Preconditions.checkArgument(queueSize > 0, "queueSize must be >0, is %s", queueSize);
+        this.files = files;
+        this.fileRanges = fileRanges;
+        this.prefilter = prefilter;
+        this.filter = filter;
+        this.threads = Math.min(threads, Math.max(1, files.size()));
+        this.queueSize = queueSize;
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("ParallelLogReader"));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Reader closed");
+        }
+        if (message == null || messagePosition >= message.length()) {
+            message = nextMessage();
+            messagePosition = 0;
+            if (message == null) {
+                return -1;
+            }
+        }
+        int numRead = Math.min(len, message.length() - messagePosition);
+        message.getChars(messagePosition, messagePosition + numRead, cbuf, off);
+        messagePosition += numRead;
+        return numRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (Runnable notStarted : executor.shutdownNow()) {
+                ((Source) notStarted).parser.closeReader();
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest message of the files being read, waiting for the files that can have an earlier one.
+     */
+    private String nextMessage() throws IOException {
+        while (true) {
+            startSources();
+            if (sources.isEmpty()) {
+                executor.shutdown();
+                return null;
+            }
+            boolean finished = false;
+            for (Iterator<Source> it = sources.iterator(); it.hasNext();) {
+                Source source = it.next();
+                if (!source.fill(false)) {
+                    it.remove();
+                    finished = true;
+                }
+            }
+            if (finished) {
+                continue;
+            }
+            Source earliest = null;
+            for (Source source : sources) {
+                if (source.head != null && (earliest == null
+                        || source.head[0].compareTo(earliest.head[0]) < 0)) {
+                    earliest = source;
+                }
+            }
+            Source pending = null;
+            for (Source source : sources) {
+                if (source.head == null && (earliest == null || source.lowerBound == null
+                        || source.lowerBound.compareTo(earliest.head[0]) <= 0)) {
+                    pending = source;
+                    break;
+                }
+            }
+            if (pending == null) {
+                String next = earliest.head[1];
+                earliest.head = null;
+                return next;
+            }
+            if (!pending.fill(true)) {
+                sources.remove(pending);
+            }
+        }
+    }
+
+    private void startSources() throws IOException {
+        while (sources.size() < threads && nextFile < files.size()) {
+            File file = files.get(nextFile++);
+            ArrayList<File> list = new ArrayList<File>(Collections.singletonList(file));
+            // the parser is created here as it (re)constructs the pattern of the shared filter
+            BufferedReader reader = new BufferedReader(new MultiFileReader(list, fileRanges, prefilter));
+            Source source = new Source(file, new TimestampedMessageParser(reader, filter));
+            sources.add(source);
+            executor.execute(source);
+        }
+    }
+
+    /**
+     * Returns the earliest timestamp a message of a rotated log file can have, null if unknown.
+     */
+    static String getLowerBound(File file) {
+        Matcher m = XLogStreamer.gzTimePattern.matcher(file.getName());
+        if (m.matches()) {
+            return m.group(1) + "-" + m.group(2) + "-" + m.group(3) + " " + m.group(4) + ":00:00,000";
+        }
+        return null;
+    }
+
+    /**
+     * Reads and filters the messages of a file, the oldest message read and not returned yet is the head.
+     */
+    private class Source implements Runnable {
+        private final File file;
+        private final TimestampedMessageParser parser;
+        private final String lowerBound;
+        private final BlockingQueue<Object> queue;
+        private String[] head;
+        private boolean done;
+
+        Source(File file, TimestampedMessageParser parser) {
+            this.file = file;
+            this.parser = parser;
+            this.lowerBound = getLowerBound(file);
+            this.queue = new ArrayBlockingQueue<Object>(queueSize);
+        }
+
+        @Override
+        public void run() {
+            Object last = EOF;
+            try {
+                while (!closed && parser.increment()) {
+                    queue.put(new String[] {parser.getLastTimestamp(), parser.getLastMessage()});
+                }
+            }
+            catch (InterruptedException ex) {
+                return;
+            }
+            catch (Exception ex) {
+                if (!closed) {
+                    LOG.warn("Could not read log file [{0}], {1}", file, ex.getMessage(), ex);
+                }
+                last = ex;
+            }
+            finally {
+                try {
+                    parser.closeReader();
+                }
+                catch (IOException ex) {
+                    LOG.debug("Could not close log file [{0}]", file, ex);
+                }
+            }
+            try {
+                queue.put(last);
+            }
+            catch (InterruptedException ex) {
+                // closed
+            }
+        }
+
+        /**
+         * Takes the next message as head, if there is none.
+         *
+         * @param block if it has to wait for the next message
+         * @return false if the file has no more messages
+         */
+        boolean fill(boolean block) throws IOException {
+            if (head == null && !done) {
+                Object next;
+                try {
+                    next = block ? queue.take() : queue.poll();
+                }
+                catch (InterruptedException ex) {
+                    throw new InterruptedIOException("Interrupted reading log file " + file);
+                }
+                if (next == EOF) {
+                    done = true;
+                }
+                else if (next instanceof Exception) {
+                    throw new IOException("Could not read log file " + file + ", " + ((Exception) next).getMessage(),
+                            (Exception) next);
+                }
+                else if (next != null) {
+                    head = (String[]) next;
+                }
+            }
+            return head != null || !done;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * InputStream returning only the log messages of an uncompressed log file whose first line contains a given text, for
+ * example <code>JOB[0000001-200904160239-oozie-oozi-W]</code>.
+ * <p>
+ * The file is memory mapped, in windows, and searched with the Boyer-Moore-Horspool algorithm directly on the bytes, so the
+ * lines of other jobs are never decoded nor matched against the {@link XLogFilter} regular expressions. A message is a line
+ * starting with a timestamp and a log level plus the following lines without them (i.e. stack traces), the same way
+ * {@link TimestampedMessageParser} splits them. Matches of the text in the other lines of a message are ignored as the filter
+ * only looks at the first line.
+ * <p>
+ * The stream reads up to the length of the file when it is opened, the file must not be truncated while it is read.
+ */
+class PrefilteredLogInputStream extends InputStream {
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    // yyyy-MM-dd HH:mm:ss,SSS
+    private static final String TIMESTAMP_FORMAT = "0000-00-00 00:00:00,000";
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final byte[] pattern;
+    private final int[] shift;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long searchPosition;
+    private long position;
+    private long messageEnd;
+    private long messages;
+
+    PrefilteredLogInputStream(File file, String text) throws IOException {
+        this(file, text, DEFAULT_WINDOW_SIZE);
+    }
+
+    PrefilteredLogInputStream(File file, String text, int windowSize) throws IOException {
+        Preconditions.checkArgument(!text.isEmpty(), "text cannot be empty");
+        this.pattern = text.getBytes(StandardCharsets.UTF_8);
+        Preconditions.checkArgument(windowSize >= pattern.length, "windowSize must be >=%s, is %s", pattern.length,
+                windowSize);
+        this.windowSize = windowSize;
+        this.shift = new int[256];
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shift[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int numRead = read(b, 0, 1);
+        return numRead == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        try {
+            if (position >= messageEnd && !nextMessage()) {
+                return -1;
+            }
+            map(position);
+            int numRead = (int) Math.min(len, Math.min(messageEnd, windowEnd) - position);
+            window.position((int) (position - windowStart));
+            window.get(b, off, numRead);
+            position += numRead;
+            return numRead;
+        }
+        catch (InternalError ex) {
+            // the JVM reports a fault accessing a mapped file that has been truncated as an InternalError
+            throw new IOException("Could not read log file, it may have been truncated", ex);
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * @return the number of messages returned so far.
+     */
+    long getMessages() {
+        return messages;
+    }
+
+    private boolean nextMessage() throws IOException {
+        while (searchPosition < size) {
+            long match = find(searchPosition);
+            if (match == -1) {
+                searchPosition = size;
+                return false;
+            }
+            long lineStart = lineStart(match);
+            if (isMessageStart(lineStart)) {
+                long end = lineEnd(lineStart);
+                while (end < size && !isMessageStart(end)) {
+                    end = lineEnd(end);
+                }
+                position = lineStart;
+                messageEnd = end;
+                searchPosition = end;
+                messages++;
+                return true;
+            }
+            searchPosition = lineEnd(match);
+        }
+        return false;
+    }
+
+    private long find(long from) throws IOException {
+        int m = pattern.length;
+        long i = from;
+        while (i + m <= size) {
+            if (i < windowStart || i + m > windowEnd) {
+                mapFrom(i);
+            }
+            MappedByteBuffer w = window;
+            int j = (int) (i - windowStart);
+            int last = (int) (windowEnd - windowStart) - m;
+            while (j <= last) {
+                int k = m - 1;
+                while (w.get(j + k) == pattern[k]) {
+                    if (k == 0) {
+                        return windowStart + j;
+                    }
+                    k--;
+                }
+                j += shift[w.get(j + m - 1) & 0xFF];
+            }
+            i = windowStart + j;
+        }
+        return -1;
+    }
+
+    private long lineStart(long pos) throws IOException {
+        while (pos > 0 && get(pos - 1) != '\n') {
+            pos--;
+        }
+        return pos;
+    }
+
+    private long lineEnd(long pos) throws IOException {
+        while (pos < size) {
+            if (get(pos++) == '\n') {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Checks if a line starts with a timestamp, white spaces, a log level and white spaces, the beginning of
+     * {@link XLogFilter#PREFIX_REGEX}.
+     */
+    private boolean isMessageStart(long pos) throws IOException {
+        if (pos + TIMESTAMP_FORMAT.length() >= size) {
+            return false;
+        }
+        for (int i = 0; i < TIMESTAMP_FORMAT.length(); i++) {
+            byte c = get(pos + i);
+            boolean valid = TIMESTAMP_FORMAT.charAt(i) == '0' ? c >= '0' && c <= '9' : c == TIMESTAMP_FORMAT.charAt(i);
+            if (!valid) {
+                return false;
+            }
+        }
+        pos += TIMESTAMP_FORMAT.length();
+        int spaces = 0;
+        while (pos < size && isWhiteSpace(get(pos))) {
+            pos++;
+            spaces++;
+        }
+        int level = 0;
+        while (pos < size && isWordChar(get(pos))) {
+            pos++;
+            level++;
+        }
+        return spaces > 0 && level > 0 && pos < size && isWhiteSpace(get(pos));
+    }
+
+    private static boolean isWhiteSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+
+    private static boolean isWordChar(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private byte get(long pos) throws IOException {
+        map(pos);
+        return window.get((int) (pos - windowStart));
+    }
+
+    /**
+     * Makes sure the mapped window contains a position, a new window also covers some bytes before it for the scans
+     * backwards to the beginning of a line.
+     */
+    private void map(long pos) throws IOException {
+        if (pos < windowStart || pos >= windowEnd) {
+            mapFrom(Math.max(0, Math.min(pos - windowSize / 4, size - windowSize)));
+        }
+    }
+
+    private void mapFrom(long start) throws IOException {
+        windowStart = start;
+        windowEnd = Math.min(size, start + windowSize);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Token bucket rate limiter.
+ * <p>
+ * The bucket is refilled continuously at <code>rate</code> tokens per second up to <code>capacity</code> tokens.
+ * A full bucket allows a burst of <code>capacity</code> acquisitions.
+ */
+public class TokenBucket {
+    private final double rate;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Create a full token bucket.
+     *
+     * @param rate tokens added per second.
+     * @param capacity maximum number of tokens in the bucket.
+     */
+    public TokenBucket(double rate, double capacity) {
+        Preconditions.checkArgument(rate > 0, "rate must be >0, is %s", rate);
+        Preconditions.checkArgument(capacity >= 1, "capacity must be >=1, is %s", capacity);
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = now();
+    }
+
+    /**
+     * Try to take one token from the bucket.
+     *
+     * @return 0 if a token was taken, otherwise the time in milliseconds until a token becomes available.
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / rate));
+    }
+
+    /**
+     * Give back a token taken by {@link #tryAcquire()}, when the request it was taken for is rejected by another limit.
+     */
+    public synchronized void release() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * @return the number of tokens currently available.
+     */
+    public synchronized double getAvailableTokens() {
+        refill();
+        return tokens;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = now();
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * @return the current time in nanoseconds, overridden in tests.
+     */
+    protected long now() {
+        return System.nanoTime();
+    }
+}
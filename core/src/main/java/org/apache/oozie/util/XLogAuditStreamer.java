@@ -25,6 +25,7 @@ import java.util.Map;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.XLogService;
 
@@ -50,6 +51,12 @@ public class XLogAuditStreamer extends XLogStreamer {
         // no validate
     }
 
+    @Override
+    protected String getPrefilter() {
+        String value = prefilterEnabled ? getLiteralFilterParam(DagXLogInfoService.JOB) : null;
+        return value != null ? DagXLogInfoService.AUDIT_JOBID + " [" + value + "]" : null;
+    }
+
     @Override
     public boolean isLogEnabled() {
         return Services.get().get(XLogService.class).isAuditLogEnabled();
@@ -0,0 +1,386 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Sparse side index of a closed (rotated) Oozie log file.
+ * <p>
+ * For every job id (<code>JOB[...]</code>) and application name (<code>APP[...]</code>) found in the log, the index
+ * keeps the time range of its messages and the byte ranges of the (uncompressed) file containing them. Ranges always
+ * start at the first line of a message and end at the first line of the next message, and ranges closer than
+ * {@link #MERGE_GAP} bytes are merged to keep the index small. A log reader can then skip the files which don't contain
+ * the job and only read the ranges of the job in the others.
+ * <p>
+ * The index is written next to the log file, with the {@link #INDEX_SUFFIX} suffix, by {@link OozieRollingPolicy} when a
+ * file is rotated. It records the length of the log file and is ignored if the file changed since.
+ */
+public class XLogIndex {
+    private static final XLog LOG = XLog.getLog(XLogIndex.class);
+
+    public static final String INDEX_SUFFIX = ".idx";
+    public static final String JOB = "JOB";
+    public static final String APP = "APP";
+
+    @VisibleForTesting
+    static final int MERGE_GAP = 64 * 1024;
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String HEADER = "OOZIE-LOG-INDEX 1";
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("\\d\\d\\d\\d-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d,\\d\\d\\d");
+    private static final int TIMESTAMP_LENGTH = 23;
+    private static final String[] KEYS = {JOB, APP};
+
+    /**
+     * Time and byte ranges of the messages of a job or application in a log file.
+     */
+    public static class Entry {
+        private String firstTimestamp;
+        private String lastTimestamp;
+        private final List<long[]> ranges = new ArrayList<long[]>();
+
+        public String getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        public String getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        /**
+         * @return the byte ranges, as <code>{start, end}</code> pairs, sorted and not overlapping.
+         */
+        public List<long[]> getRanges() {
+            return Collections.unmodifiableList(ranges);
+        }
+
+        /**
+         * Check whether the messages of this entry may be in a time range.
+         *
+         * @param start start of the time range as <code>yyyy-MM-dd HH:mm:ss</code>, null for no start
+         * @param end end of the time range as <code>yyyy-MM-dd HH:mm:ss</code>, null for no end
+         * @return false if all the messages are out of the time range
+         */
+        public boolean overlaps(String start, String end) {
+            // Seconds precision, as in XLogFilter
+            return (start == null || lastTimestamp.substring(0, 19).compareTo(start) >= 0)
+                    && (end == null || firstTimestamp.substring(0, 19).compareTo(end) <= 0);
+        }
+
+        private void add(String timestamp, long start, long end) {
+            if (firstTimestamp == null) {
+                firstTimestamp = timestamp;
+            }
+            lastTimestamp = timestamp;
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && start - last[1] <= MERGE_GAP) {
+                last[1] = Math.max(last[1], end);
+            }
+            else {
+                ranges.add(new long[] {start, end});
+            }
+        }
+    }
+
+    private final long fileLength;
+    private final Map<String, Entry> entries;
+
+    private XLogIndex(long fileLength, Map<String, Entry> entries) {
+        this.fileLength = fileLength;
+        this.entries = entries;
+    }
+
+    /**
+     * Return the entry of a job id or application name.
+     *
+     * @param key {@link #JOB} or {@link #APP}
+     * @param value the job id or application name
+     * @return the entry, or null if the log file has no message of the job or application
+     */
+    public Entry getEntry(String key, String value) {
+        return entries.get(key + "[" + value + "]");
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Return the index file of a log file.
+     *
+     * @param logFile the log file
+     * @return the index file
+     */
+    public static File getIndexFile(File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Check whether a file name is the name of an index file.
+     *
+     * @param fileName the file name
+     * @return true for an index file
+     */
+    public static boolean isIndexFile(String fileName) {
+        return fileName.endsWith(INDEX_SUFFIX) || fileName.endsWith(INDEX_SUFFIX + TMP_SUFFIX);
+    }
+
+    /**
+     * Build the index of a log file, gzipped or not.
+     *
+     * @param logFile the log file
+     * @return the index
+     * @throws IOException thrown if the log file could not be read
+     */
+    public static XLogIndex build(File logFile) throws IOException {
+        long fileLength = logFile.length();
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        InputStream is = new FileInputStream(logFile);
+        if (logFile.getName().endsWith(".gz")) {
+            is = new GZIPInputStream(is);
+        }
+        try (InputStream in = new BufferedInputStream(is)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            long messageStart = 0;
+            String messageTimestamp = null;
+            List<String> messageKeys = new ArrayList<String>(KEYS.length);
+            int b;
+            do {
+                b = in.read();
+                if (b != -1) {
+                    line.write(b);
+                }
+                if ((b == '\n' || b == -1) && line.size() > 0) {
+                    String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    String timestamp = getTimestamp(text);
+                    if (timestamp != null) {
+                        // A new message starts, the previous one ends here
+                        addMessage(entries, messageKeys, messageTimestamp, messageStart, offset);
+                        messageStart = offset;
+                        messageTimestamp = timestamp;
+                        messageKeys.clear();
+                        for (String key : KEYS) {
+                            String value = getValue(text, key);
+                            if (value != null) {
+                                messageKeys.add(key + "[" + value + "]");
+                            }
+                        }
+                    }
+                    offset += line.size();
+                    line.reset();
+                }
+            } while (b != -1);
+            addMessage(entries, messageKeys, messageTimestamp, messageStart, offset);
+        }
+        return new XLogIndex(fileLength, entries);
+    }
+
+    private static void addMessage(Map<String, Entry> entries, List<String> keys, String timestamp, long start, long end) {
+        if (timestamp == null) {
+            return;
+        }
+        for (String key : keys) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+            entry.add(timestamp, start, end);
+        }
+    }
+
+    private static String getTimestamp(String line) {
+        if (line.length() < TIMESTAMP_LENGTH) {
+            return null;
+        }
+        String timestamp = line.substring(0, TIMESTAMP_LENGTH);
+        return TIMESTAMP_PATTERN.matcher(timestamp).matches() ? timestamp : null;
+    }
+
+    private static String getValue(String line, String key) {
+        int start = line.indexOf(" " + key + "[");
+        if (start == -1) {
+            return null;
+        }
+        start += key.length() + 2;
+        int end = line.indexOf(']', start);
+        if (end == -1) {
+            return null;
+        }
+        String value = line.substring(start, end);
+        return (value.isEmpty() || value.equals("-") || value.indexOf('\t') != -1) ? null : value;
+    }
+
+    /**
+     * Write the index next to its log file.
+     *
+     * @param logFile the log file
+     * @throws IOException thrown if the index could not be written
+     */
+    public void write(File logFile) throws IOException {
+        File indexFile = getIndexFile(logFile);
+        File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + TMP_SUFFIX);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile),
+                StandardCharsets.UTF_8))) {
+            writer.write(HEADER + "\t" + fileLength + "\n");
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(entry.getKey()).append('\t').append(entry.getValue().firstTimestamp).append('\t')
+                        .append(entry.getValue().lastTimestamp).append('\t');
+                for (long[] range : entry.getValue().ranges) {
+                    sb.append(range[0]).append('-').append(range[1]).append(',');
+                }
+                sb.setLength(sb.length() - 1);
+                writer.write(sb.append('\n').toString());
+            }
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            throw new IOException("Could not rename " + tmpFile + " to " + indexFile);
+        }
+    }
+
+    /**
+     * Load the index of a log file.
+     *
+     * @param logFile the log file
+     * @return the index, or null if the log file has no index, or if the index is corrupt or out of date
+     */
+    public static XLogIndex load(File logFile) {
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                StandardCharsets.UTF_8))) {
+            long fileLength = readHeader(reader, logFile);
+            if (fileLength == -1) {
+                return null;
+            }
+            Map<String, Entry> entries = new HashMap<String, Entry>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                Entry entry = new Entry();
+                entry.firstTimestamp = parts[1];
+                entry.lastTimestamp = parts[2];
+                for (String range : parts[3].split(",")) {
+                    int dash = range.indexOf('-');
+                    entry.ranges.add(new long[] {Long.parseLong(range.substring(0, dash)),
+                            Long.parseLong(range.substring(dash + 1))});
+                }
+                entries.put(parts[0], entry);
+            }
+            return new XLogIndex(fileLength, entries);
+        }
+        catch (IOException | RuntimeException ex) {
+            LOG.warn("Ignoring corrupt log index [{0}], {1}", indexFile, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static long readHeader(BufferedReader reader, File logFile) throws IOException {
+        String line = reader.readLine();
+        String[] header = line == null ? new String[0] : line.split("\t");
+        if (header.length != 2 || !header[0].equals(HEADER)) {
+            LOG.warn("Ignoring log index of [{0}] with unknown format", logFile);
+            return -1;
+        }
+        long fileLength = Long.parseLong(header[1]);
+        if (fileLength != logFile.length()) {
+            LOG.warn("Ignoring out of date log index of [{0}]", logFile);
+            return -1;
+        }
+        return fileLength;
+    }
+
+    /**
+     * Check whether a log file has an up to date index, reading only the header of the index.
+     *
+     * @param logFile the log file
+     * @return true if the log file has an up to date index
+     */
+    public static boolean hasIndex(File logFile) {
+        File indexFile = getIndexFile(logFile);
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+                StandardCharsets.UTF_8))) {
+            return readHeader(reader, logFile) != -1;
+        }
+        catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Build and write the index of the rotated log files of a log that don't have one yet.
+     *
+     * @param logDir the log directory
+     * @param logFileName the name of the active log file
+     */
+    public static void indexRotatedFiles(String logDir, String logFileName) {
+        String[] children = new File(logDir).list();
+        if (children == null) {
+            return;
+        }
+        for (String child : children) {
+            if (!child.startsWith(logFileName) || child.equals(logFileName) || isIndexFile(child)) {
+                continue;
+            }
+            File logFile = new File(logDir, child);
+            if (logFile.isFile() && !hasIndex(logFile)) {
+                try {
+                    long start = System.currentTimeMillis();
+                    XLogIndex index = build(logFile);
+                    index.write(logFile);
+                    LOG.debug("Indexed log file [{0}], [{1}] entries in [{2}] ms", logFile, index.entries.size(),
+                            System.currentTimeMillis() - start);
+                }
+                catch (IOException ex) {
+                    LOG.warn("Could not index log file [{0}], {1}", logFile, ex.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -20,11 +20,15 @@ package org.apache.oozie.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,6 +39,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.command.CommandException;
 import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.DagXLogInfoService;
 import org.apache.oozie.service.Service;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.XLogService;
@@ -46,6 +51,9 @@ public class XLogStreamer {
     private static XLog LOG = XLog.getLog(XLogStreamer.class);
     protected static final String CONF_PREFIX = Service.CONF_PREFIX + "XLogStreamingService.";
     public static final String STREAM_BUFFER_LEN = CONF_PREFIX + "buffer.len";
+    public static final String PREFILTER_ENABLED = CONF_PREFIX + "prefilter.enabled";
+    public static final String PARALLEL_THREADS = CONF_PREFIX + "parallel.threads";
+    public static final String PARALLEL_QUEUE_SIZE = CONF_PREFIX + "parallel.queue.size";
 
     private String logFile;
     private String logPath;
@@ -54,6 +62,9 @@ public class XLogStreamer {
     Map<String, String[]> requestParam;
     protected int totalDataWritten;
     protected int bufferLen;
+    protected boolean prefilterEnabled;
+    protected int parallelThreads;
+    protected int parallelQueueSize;
 
     public XLogStreamer(XLogFilter logFilter, String logPath, String logFile, long logRotationSecs) {
         if (logFile == null) {
@@ -65,6 +76,9 @@ public class XLogStreamer {
         this.logPath = logPath;
         this.logRotation = logRotationSecs * 1000l;
         bufferLen = ConfigurationService.getInt(STREAM_BUFFER_LEN, 4096);
+        prefilterEnabled = ConfigurationService.getBoolean(PREFILTER_ENABLED, true);
+        parallelThreads = ConfigurationService.getInt(PARALLEL_THREADS, 4);
+        parallelQueueSize = ConfigurationService.getInt(PARALLEL_QUEUE_SIZE, 1000);
     }
 
     public XLogStreamer(XLogFilter logFilter) {
@@ -138,9 +152,101 @@ public class XLogStreamer {
      * @throws IOException Signals that an I/O exception has occurred.
      */
 
-    private MultiFileReader getReader(Date startTime, Date endTime) throws IOException {
+    private Reader getReader(Date startTime, Date endTime) throws IOException {
         calculateAndValidateDateRange(startTime, endTime);
-        return new MultiFileReader(getFileList(logFilter.getStartDate(), logFilter.getEndDate()));
+        ArrayList<File> files = getFileList(logFilter.getStartDate(), logFilter.getEndDate());
+        Map<File, List<long[]>> fileRanges = new HashMap<File, List<long[]>>();
+        applyLogIndexes(files, fileRanges);
+        if (isParallelRead(files)) {
+            LOG.debug("Reading [{0}] log files with [{1}] threads", files.size(), parallelThreads);
+            return new ParallelLogReader(files, fileRanges, getPrefilter(), logFilter, parallelThreads, parallelQueueSize);
+        }
+        return new MultiFileReader(files, fileRanges, getPrefilter());
+    }
+
+    /**
+     * Returns if the log files are read in parallel, only worth it for multiple files with at least a gzip one.
+     */
+    private boolean isParallelRead(List<File> files) {
+        if (parallelThreads <= 1 || files.size() <= 1) {
+            return false;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(".gz")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the text the log messages of the filtered job (or application) contain, to skip the other messages of the
+     * uncompressed log files without decoding them, null if the filter is not a literal job or application.
+     */
+    protected String getPrefilter() {
+        if (!prefilterEnabled) {
+            return null;
+        }
+        String value = getLiteralFilterParam(DagXLogInfoService.JOB);
+        if (value != null) {
+            return DagXLogInfoService.JOB + "[" + value + "]";
+        }
+        value = getLiteralFilterParam(DagXLogInfoService.APP);
+        if (value != null) {
+            return DagXLogInfoService.APP + "[" + value + "]";
+        }
+        return null;
+    }
+
+    /**
+     * Uses the {@link XLogIndex} of the rotated log files, if any, to drop the files without messages of the filtered job
+     * (or application) in the time range, and to read only the ranges of the job in the others.
+     *
+     * @param files the log files, files are removed from it
+     * @param fileRanges the ranges to read of the log files
+     */
+    private void applyLogIndexes(ArrayList<File> files, Map<File, List<long[]>> fileRanges) {
+        String key = XLogIndex.JOB;
+        String value = getLiteralFilterParam(DagXLogInfoService.JOB);
+        if (value == null) {
+            key = XLogIndex.APP;
+            value = getLiteralFilterParam(DagXLogInfoService.APP);
+        }
+        if (value == null) {
+            return;
+        }
+        String start = logFilter.getStartDate() != null ? logFilter.getFormattedStartDate() : null;
+        String end = logFilter.getEndDate() != null ? logFilter.getFormattedEndDate() : null;
+        int skipped = 0;
+        for (Iterator<File> it = files.iterator(); it.hasNext();) {
+            File file = it.next();
+            XLogIndex index = XLogIndex.load(file);
+            if (index == null) {
+                continue;
+            }
+            XLogIndex.Entry entry = index.getEntry(key, value);
+            if (entry == null || !entry.overlaps(start, end)) {
+                it.remove();
+                skipped++;
+            }
+            else {
+                fileRanges.put(file, entry.getRanges());
+            }
+        }
+        LOG.debug("Log indexes for [{0}={1}], skipped [{2}] files, reading ranges of [{3}] files", key, value, skipped,
+                fileRanges.size());
+    }
+
+    /**
+     * Returns the value of a filter parameter if it is a literal value (e.g. a job id), null if it is not set or a regular
+     * expression.
+     */
+    protected String getLiteralFilterParam(String param) {
+        String value = logFilter.getFilterParams().get(param);
+        if (value == null || !value.matches("[\\w@.:-]+")) {
+            return null;
+        }
+        return value;
     }
 
     protected void calculateAndValidateDateRange(Date startTime, Date endTime) throws IOException {
@@ -232,6 +338,9 @@ public class XLogStreamer {
                 if (!fileName.startsWith(logFile) && !fileName.equals(logFile)) {
                     continue;
                 }
+                if (XLogIndex.isIndexFile(fileName)) {
+                    continue;
+                }
                 File file = new File(dir.getAbsolutePath(), fileName);
                 if (fileName.endsWith(".gz")) {
                     long gzFileCreationTime = getGZFileCreationTime(fileName, startTime, endTime);
@@ -42,6 +42,7 @@ import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.curator.x.discovery.details.InstanceSerializer;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
 import org.apache.oozie.ErrorCode;
 
 import static org.apache.oozie.service.HadoopAccessorService.KERBEROS_KEYTAB;
@@ -281,6 +282,28 @@ public class ZKUtils {
         return instances;
     }
 
+    /**
+     * Register a listener notified when the cached metadata of the Oozie Servers changes.
+     *
+     * @param listener the listener
+     */
+    public void addServiceCacheListener(ServiceCacheListener listener) {
+        if (sCache != null) {
+            sCache.addListener(listener);
+        }
+    }
+
+    /**
+     * Unregister a listener added with {@link #addServiceCacheListener(ServiceCacheListener)}.
+     *
+     * @param listener the listener
+     */
+    public void removeServiceCacheListener(ServiceCacheListener listener) {
+        if (sCache != null) {
+            sCache.removeListener(listener);
+        }
+    }
+
     /**
      * Returns the ID of this Oozie Server as seen by ZooKeeper and other Oozie Servers
      *
@@ -48,10 +48,15 @@ import org.apache.oozie.executor.jpa.CoordJobQueryExecutor.CoordJobQuery;
 import org.apache.oozie.executor.jpa.JPAExecutorException;
 import org.apache.oozie.executor.jpa.CoordJobGetActionsSubsetJPAExecutor;
 import org.apache.oozie.executor.jpa.SLAEventsGetForSeqIdJPAExecutor;
+import org.apache.oozie.executor.jpa.SLARegistrationQueryExecutor;
+import org.apache.oozie.executor.jpa.SLARegistrationQueryExecutor.SLARegQuery;
+import org.apache.oozie.service.EventHandlerService;
 import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.SchedulerService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.service.CoordMaterializeTriggerService;
+import org.apache.oozie.sla.SLARegistrationBean;
+import org.apache.oozie.sla.service.SLAService;
 import org.apache.oozie.test.XDataTestCase;
 import org.apache.oozie.util.DateUtils;
 import org.apache.oozie.util.XConfiguration;
@@ -549,6 +554,79 @@ public class TestCoordMaterializeTransitionXCommand extends XDataTestCase {
         checkCoordActionsTimeout(job.getId() + "@1", 300);
     }
 
+    public void testBackfillMaterialization() throws Exception {
+        Services.get().destroy();
+        Services services = new Services();
+        services.getConf().setInt(CoordMaterializeTriggerService.CONF_BACKFILL_THREADS, 4);
+        services.init();
+        Services.get().setService(FakeCallableQueueService.class);
+        Services.get().get(SchedulerService.class).destroy();
+        jpaService = Services.get().get(JPAService.class);
+
+        Date startTime = DateUtils.parseDateOozieTZ("2009-03-06T10:00Z");
+        Date endTime = DateUtils.parseDateOozieTZ("2009-03-07T10:00Z");
+        CoordinatorJobBean job = addRecordToCoordJobTable(CoordinatorJob.Status.RUNNING, startTime, endTime,
+                null, 300, "5", Timeunit.MINUTE);
+        job.setMatThrottling(30);
+        CoordJobQueryExecutor.getInstance().executeUpdate(CoordJobQuery.UPDATE_COORD_JOB, job);
+        new CoordMaterializeTransitionXCommand(job.getId(), ONE_HOUR_IN_SECONDS).call();
+
+        // the ranges materialized in parallel are stored with the numbers and nominal times of the sequential order
+        Date[] nominalTimes = new Date[30];
+        for (int i = 0; i < nominalTimes.length; i++) {
+            nominalTimes[i] = new Date(startTime.getTime() + i * 5 * TIME_IN_MIN);
+            CoordinatorActionBean action = getCoordAction(job.getId() + "@" + (i + 1));
+            assertEquals(nominalTimes[i], action.getNominalTime());
+            assertEquals(300, action.getTimeOut());
+        }
+        checkCoordActionsNominalTime(job.getId(), nominalTimes.length, nominalTimes);
+        job = jpaService.execute(new CoordJobGetJPAExecutor(job.getId()));
+        assertEquals(30, job.getLastActionNumber());
+        assertEquals(new Date(startTime.getTime() + 30 * 5 * TIME_IN_MIN), job.getNextMaterializedTime());
+    }
+
+    public void testBackfillMaterializationRegistersSla() throws Exception {
+        Services.get().destroy();
+        Services services = new Services();
+        services.getConf().set(Services.CONF_SERVICE_EXT_CLASSES,
+                EventHandlerService.class.getName() + "," + SLAService.class.getName());
+        services.getConf().setInt(CoordMaterializeTriggerService.CONF_BACKFILL_THREADS, 4);
+        services.init();
+        Services.get().setService(FakeCallableQueueService.class);
+        Services.get().get(SchedulerService.class).destroy();
+
+        Configuration conf = new XConfiguration();
+        File appPathFile = new File(getTestCaseDir(), "coordinator.xml");
+        String coordXml = "<coordinator-app name=\"NAME\" frequency=\"0 * * * *\""
+                + " start=\"2017-06-12T00:00Z\" end=\"2017-06-12T06:00Z\" timezone=\"UTC\""
+                + " xmlns=\"uri:oozie:coordinator:0.4\" xmlns:sla=\"uri:oozie:sla:0.2\">"
+                + "<controls> <execution>FIFO</execution> </controls>"
+                + "<action>"
+                + " <workflow> <app-path>hdfs:///tmp/workflows/</app-path> </workflow> "
+                + " <sla:info>"
+                + "  <sla:nominal-time>${coord:nominalTime()}</sla:nominal-time>"
+                + "  <sla:should-end>${10 * MINUTES}</sla:should-end>"
+                + " </sla:info>"
+                + "</action>"
+                + "</coordinator-app>";
+        writeToFile(coordXml, appPathFile);
+        conf.set(OozieClient.COORDINATOR_APP_PATH, appPathFile.toURI().toString());
+        conf.set(OozieClient.USER_NAME, getTestUser());
+        String jobId = new CoordSubmitXCommand(conf).call();
+        new CoordMaterializeTransitionXCommand(jobId, 6 * ONE_HOUR_IN_SECONDS).call();
+
+        // the SLA of the actions materialized in parallel is registered with the nominal time of each action
+        Date startTime = DateUtils.parseDateOozieTZ("2017-06-12T00:00Z");
+        for (int i = 0; i < 6; i++) {
+            String actionId = jobId + "@" + (i + 1);
+            SLARegistrationBean reg = SLARegistrationQueryExecutor.getInstance().get(SLARegQuery.GET_SLA_REG_ALL,
+                    actionId);
+            assertNotNull(actionId, reg);
+            assertEquals(jobId, reg.getParentId());
+            assertEquals(new Date(startTime.getTime() + i * 60 * TIME_IN_MIN), reg.getNominalTime());
+        }
+    }
+
     public void testMatLookupCommand1() throws Exception {
         Date startTime = DateUtils.parseDateOozieTZ("2009-02-01T01:00Z");
         Date endTime = DateUtils.parseDateOozieTZ("2009-02-03T23:59Z");
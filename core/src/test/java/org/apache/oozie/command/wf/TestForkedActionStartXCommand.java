@@ -28,18 +28,30 @@ import java.nio.charset.StandardCharsets;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.oozie.ForTestingActionExecutor;
+import org.apache.oozie.WorkflowActionBean;
+import org.apache.oozie.WorkflowJobBean;
 import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.WorkflowAction;
 import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.command.wf.ActionXCommand.ForkedActionExecutorContext;
+import org.apache.oozie.event.EventQueue;
+import org.apache.oozie.executor.jpa.BatchQueryExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionInsertJPAExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor;
+import org.apache.oozie.executor.jpa.WorkflowActionQueryExecutor.WorkflowActionQuery;
 import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor;
 import org.apache.oozie.executor.jpa.WorkflowJobQueryExecutor.WorkflowJobQuery;
 import org.apache.oozie.service.ActionService;
 import org.apache.oozie.service.ConfigurationService;
+import org.apache.oozie.service.EventHandlerService;
 import org.apache.oozie.service.ExtendedCallableQueueService;
+import org.apache.oozie.service.JPAService;
 import org.apache.oozie.service.LiteWorkflowStoreService;
 import org.apache.oozie.service.SchemaService;
 import org.apache.oozie.service.Services;
 import org.apache.oozie.test.XDataTestCase;
 import org.apache.oozie.util.XConfiguration;
+import org.apache.oozie.workflow.WorkflowInstance;
 
 public class TestForkedActionStartXCommand extends XDataTestCase {
 
@@ -149,6 +161,64 @@ public class TestForkedActionStartXCommand extends XDataTestCase {
                 WorkflowJob.Status.KILLED);
     }
 
+    public void testWfSuccessWithBatchPersist() throws Exception {
+        ConfigurationService.setBoolean(SignalXCommand.FORK_PARALLEL_BATCH_PERSIST, true);
+        testWfSuccess();
+    }
+
+    public void testWfFailureWithBatchPersist() throws Exception {
+        ConfigurationService.setBoolean(SignalXCommand.FORK_PARALLEL_BATCH_PERSIST, true);
+        testWfFailure();
+    }
+
+    public void testBatchPersistDefersUpdates() throws Exception {
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        WorkflowActionBean action = createWorkflowActionSetPending(job.getId(), "1", WorkflowAction.Status.PREP);
+        action.setType("test");
+        action.setConf("<test xmlns=\"uri:test\"><signal-value>based_on_action_status</signal-value>"
+                + "<external-status>ok</external-status><error>ok</error></test>");
+        Services.get().get(JPAService.class).execute(new WorkflowActionInsertJPAExecutor(action));
+        ForkedActionExecutorContext context = (ForkedActionExecutorContext) new ForkedActionStartXCommand(job, action)
+                .call();
+
+        // the updates are left to the signal command
+        assertFalse(context.getUpdateList().isEmpty());
+        assertSame(action, context.getUpdateList().get(0).getBean());
+        assertEquals(WorkflowAction.Status.PREP, WorkflowActionQueryExecutor.getInstance()
+                .get(WorkflowActionQuery.GET_ACTION, action.getId()).getStatus());
+
+        BatchQueryExecutor.getInstance().executeBatchInsertUpdateDelete(context.getInsertList(),
+                context.getUpdateList(), null);
+        assertEquals(action.getStatus(), WorkflowActionQueryExecutor.getInstance()
+                .get(WorkflowActionQuery.GET_ACTION, action.getId()).getStatus());
+        assertFalse(WorkflowAction.Status.PREP.equals(action.getStatus()));
+    }
+
+    public void testBatchPersistDefersEvent() throws Exception {
+        services.destroy();
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, ExtendedCallableQueueService.class.getName() + ","
+                + EventHandlerService.class.getName());
+        services = new Services();
+        services.getConf().setInt("oozie.service.EventHandlerService.worker.threads", 0);
+        services.init();
+        services.get(ActionService.class).registerAndInitExecutor(ForTestingActionExecutor.class);
+        EventQueue queue = services.get(EventHandlerService.class).getEventQueue();
+
+        WorkflowJobBean job = addRecordToWfJobTable(WorkflowJob.Status.RUNNING, WorkflowInstance.Status.RUNNING);
+        WorkflowActionBean action = createWorkflowActionSetPending(job.getId(), "1", WorkflowAction.Status.PREP);
+        action.setType("test");
+        action.setConf("<test xmlns=\"uri:test\"><signal-value>based_on_action_status</signal-value>"
+                + "<external-status>ok</external-status><error>ok</error></test>");
+        Services.get().get(JPAService.class).execute(new WorkflowActionInsertJPAExecutor(action));
+        queue.clear();
+        ForkedActionExecutorContext context = (ForkedActionExecutorContext) new ForkedActionStartXCommand(job, action)
+                .call();
+
+        // the event is generated by the signal command once it has persisted the updates
+        assertTrue(context.isEventDeferred());
+        assertEquals(0, queue.size());
+    }
+
     private void writeToFile(String appXml, String appPath) throws IOException {
         File wf = new File(URI.create(appPath));
         PrintWriter out = null;
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.coord;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.oozie.util.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestDatasetInstanceCalendar {
+
+    private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+
+    @Before
+    public void setUp() {
+        DatasetInstanceCalendar.clear();
+    }
+
+    @Test
+    public void testHourlyInstancesAcrossDaylightSavingTime() throws Exception {
+        assertInstances("2009-01-01T08:00Z", 1, TimeUnit.HOUR, LOS_ANGELES, 24 * 400);
+    }
+
+    @Test
+    public void testDailyInstancesAcrossDaylightSavingTime() throws Exception {
+        assertInstances("2009-01-01T08:00Z", 1, TimeUnit.DAY, LOS_ANGELES, 3000);
+        assertInstances("2009-01-01T08:00Z", 7, TimeUnit.DAY, LOS_ANGELES, 500);
+    }
+
+    @Test
+    public void testMonthlyInstances() throws Exception {
+        assertInstances("2009-01-01T08:00Z", 1, TimeUnit.MONTH, LOS_ANGELES, 1500);
+        assertInstances("2009-01-01T08:00Z", 1, TimeUnit.YEAR, LOS_ANGELES, 100);
+    }
+
+    @Test
+    public void testAdjustedInstancesAreUnresolved() throws Exception {
+        // Jan 31st + 1 month is Feb 28th, stepping from it is not the same as adding months to the initial instance
+        DatasetInstanceCalendar monthly = DatasetInstanceCalendar.get(DateUtils.parseDateUTC("2009-01-31T08:00Z"), 1,
+                TimeUnit.MONTH, LOS_ANGELES);
+        assertEquals(DatasetInstanceCalendar.UNRESOLVED_TIME, monthly.getInstanceTime(2));
+        assertNull(monthly.getFormattedInstance(2));
+        assertEquals(DatasetInstanceCalendar.UNRESOLVED,
+                monthly.getCurrentIndex(DateUtils.parseDateUTC("2009-05-01T08:00Z")));
+
+        // 02:30 is skipped on 2009-03-08 in Los Angeles
+        DatasetInstanceCalendar daily = DatasetInstanceCalendar.get(DateUtils.parseDateUTC("2009-03-01T10:30Z"), 1,
+                TimeUnit.DAY, LOS_ANGELES);
+        assertEquals(DatasetInstanceCalendar.UNRESOLVED_TIME, daily.getInstanceTime(10));
+    }
+
+    @Test
+    public void testLookupsFarApartKeepTheirWindows() throws Exception {
+        DatasetInstanceCalendar hourly = DatasetInstanceCalendar.get(DateUtils.parseDateUTC("2009-01-01T08:00Z"), 1,
+                TimeUnit.HOUR, LOS_ANGELES);
+        int far = 10 * DatasetInstanceCalendar.WINDOW_SIZE + 1;
+        String first = hourly.getFormattedInstance(0);
+        String last = hourly.getFormattedInstance(far);
+        // formatted instances are kept with their window, the same strings are returned if the windows were kept
+        assertSame(first, hourly.getFormattedInstance(0));
+        assertSame(last, hourly.getFormattedInstance(far));
+        assertSame(first, hourly.getFormattedInstance(0));
+    }
+
+    @Test
+    public void testUnsupportedTimeUnits() throws Exception {
+        Date initialInstance = DateUtils.parseDateUTC("2009-01-01T08:00Z");
+        assertNull(DatasetInstanceCalendar.get(initialInstance, 1, TimeUnit.CRON, LOS_ANGELES));
+        assertNull(DatasetInstanceCalendar.get(initialInstance, 1, TimeUnit.NONE, LOS_ANGELES));
+        assertNull(DatasetInstanceCalendar.get(initialInstance, 0, TimeUnit.HOUR, LOS_ANGELES));
+    }
+
+    private void assertInstances(String initialInstance, int frequency, TimeUnit timeUnit, TimeZone timeZone,
+            int count) throws Exception {
+        Date init = DateUtils.parseDateUTC(initialInstance);
+        DatasetInstanceCalendar calendar = DatasetInstanceCalendar.get(init, frequency, timeUnit, timeZone);
+        Calendar expected = Calendar.getInstance(timeZone);
+        expected.setTime(init);
+        for (int i = 0; i < count; i++) {
+            assertEquals("instance " + i, expected.getTimeInMillis(), calendar.getInstanceTime(i));
+            assertEquals("instance " + i, DateUtils.formatDateOozieTZ(expected), calendar.getFormattedInstance(i));
+            assertEquals("instance " + i, i, calendar.getCurrentIndex(expected.getTime()));
+            Date beforeNext = new Date(nextInstance(expected, timeUnit, frequency).getTimeInMillis() - 1);
+            assertEquals("before instance " + (i + 1), i, calendar.getCurrentIndex(beforeNext));
+            expected = nextInstance(expected, timeUnit, frequency);
+        }
+        // a lookup far back
+        assertEquals(init.getTime(), calendar.getInstanceTime(0));
+    }
+
+    private Calendar nextInstance(Calendar instance, TimeUnit timeUnit, int frequency) {
+        Calendar next = (Calendar) instance.clone();
+        next.add(timeUnit.getCalendarUnit(), frequency);
+        return next;
+    }
+}
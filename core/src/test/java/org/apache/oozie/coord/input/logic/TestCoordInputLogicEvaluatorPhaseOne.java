@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.coord.input.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.jexl2.Expression;
+import org.apache.commons.jexl2.JexlEngine;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.CoordinatorActionBean;
+import org.apache.oozie.coord.input.dependency.CoordInputInstance;
+import org.apache.oozie.coord.input.dependency.CoordPullInputDependency;
+import org.apache.oozie.coord.input.dependency.CoordPushInputDependency;
+import org.apache.oozie.service.DagXLogInfoService;
+import org.apache.oozie.util.XLog;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCoordInputLogicEvaluatorPhaseOne {
+
+    private static final String EXPRESSION = "(dependencyBuilder.input(\"A\").build() && dependencyBuilder.input(\"B\")"
+            + ".build()) || (dependencyBuilder.input(\"A\").build() && dependencyBuilder.input(\"C\").build())";
+
+    @BeforeClass
+    public static void setUpClass() {
+        // defined by the DagXLogInfoService, the evaluator sets them from the action
+        XLog.Info.defineParameter(DagXLogInfoService.TOKEN);
+        XLog.Info.defineParameter(DagXLogInfoService.APP);
+        XLog.Info.defineParameter(DagXLogInfoService.JOB);
+        XLog.Info.defineParameter(DagXLogInfoService.ACTION);
+    }
+
+    @Test
+    public void testPathCheckedOncePerEvaluation() {
+        CoordinatorActionBean action = createAction();
+        CountingEvaluator evaluator = new CountingEvaluator(action);
+        CoordInputLogicEvaluatorResult result = evaluate(new OozieJexlEngine(), evaluator);
+
+        assertFalse(result.isTrue());
+        // A is used by both branches, its first missing instance is checked once, B and C are never checked
+        assertEquals(Arrays.asList("/a/1"), evaluator.checked);
+    }
+
+    @Test
+    public void testAvailabilityKeptBetweenEvaluations() {
+        CoordinatorActionBean action = createAction();
+        JexlEngine engine = new OozieJexlEngine();
+        CountingEvaluator first = new CountingEvaluator(action, "/a/1", "/c/1", "/c/2");
+        assertFalse(evaluate(engine, first).isTrue());
+        assertEquals(Arrays.asList("/a/1", "/a/2"), first.checked);
+
+        // the instance of A found by the first evaluation is not checked again
+        CountingEvaluator second = new CountingEvaluator(action, "/a/2", "/b/1", "/b/2");
+        assertTrue(evaluate(engine, second).isTrue());
+        assertEquals(Arrays.asList("/a/2", "/b/1", "/b/2"), second.checked);
+    }
+
+    @Test
+    public void testConcurrentEvaluationsOnSharedEngine() throws Exception {
+        final JexlEngine engine = new OozieJexlEngine();
+        engine.setCache(16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 800; i++) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        CountingEvaluator evaluator = new CountingEvaluator(createAction(), "/a/1", "/a/2", "/c/1",
+                                "/c/2");
+                        return evaluate(engine, evaluator).isTrue();
+                    }
+                }));
+            }
+            // the dependencyBuilder property of each context is resolved while the other threads evaluate
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CoordInputLogicEvaluatorResult evaluate(JexlEngine engine, CoordInputLogicEvaluator evaluator) {
+        Expression e = engine.createExpression(EXPRESSION);
+        return (CoordInputLogicEvaluatorResult) e.evaluate(new CoordInputLogicEvaluatorUtil().new OozieJexlParser(
+                engine, new CoordInputLogicBuilder(evaluator)));
+    }
+
+    private CoordinatorActionBean createAction() {
+        CoordinatorActionBean action = new CoordinatorActionBean();
+        action.setId("0000000-000000000000000-oozie-C@1");
+        action.setNominalTime(new Date());
+        action.setCreatedTime(new Date());
+        action.setRunConf("<configuration/>");
+        CoordPullInputDependency pull = new CoordPullInputDependency();
+        pull.addInputInstanceList("A", createInstances("/a/1", "/a/2"));
+        pull.addInputInstanceList("B", createInstances("/b/1", "/b/2"));
+        pull.addInputInstanceList("C", createInstances("/c/1", "/c/2"));
+        action.setPullInputDependencies(pull);
+        action.setPushInputDependencies(new CoordPushInputDependency());
+        return action;
+    }
+
+    private List<CoordInputInstance> createInstances(String... paths) {
+        List<CoordInputInstance> instances = new ArrayList<CoordInputInstance>();
+        for (String path : paths) {
+            instances.add(new CoordInputInstance(path, false));
+        }
+        return instances;
+    }
+
+    private static class CountingEvaluator extends CoordInputLogicEvaluatorPhaseOne {
+        private final List<String> existing;
+        private final List<String> checked = new ArrayList<String>();
+
+        CountingEvaluator(CoordinatorActionBean action, String... existing) {
+            super(action);
+            this.existing = Arrays.asList(existing);
+        }
+
+        @Override
+        protected boolean pathExists(String sPath, Configuration jobConf) {
+            checked.add(sPath);
+            return existing.contains(sPath);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.JobEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestEventJournal {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(int i) {
+        return ("record-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private EventJournal open(File dir, int segmentSize, long retention) throws Exception {
+        EventJournal journal = new EventJournal(dir, segmentSize, retention);
+        journal.open();
+        return journal;
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        File dir = folder.newFolder();
+        EventJournal journal = open(dir, 1024, Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, journal.append(record(i)));
+        }
+        assertTrue("Rotated", journal.getSegmentCount() > 1);
+        List<EventJournal.Record> records = journal.read(45, 20);
+        assertEquals(20, records.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(45 + i, records.get(i).getOffset());
+            assertArrayEquals(record(45 + i), records.get(i).getData());
+        }
+        assertEquals(5, journal.read(95, 20).size());
+        assertEquals(0, journal.read(100, 20).size());
+        journal.close();
+
+        // the records and offsets are kept across restarts
+        journal = open(dir, 1024, Long.MAX_VALUE);
+        assertEquals(0, journal.getFirstOffset());
+        assertEquals(100, journal.getNextOffset());
+        assertArrayEquals(record(99), journal.read(99, 1).get(0).getData());
+        assertEquals(100, journal.append(record(100)));
+        assertArrayEquals(record(100), journal.read(100, 1).get(0).getData());
+        journal.close();
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        File dir = folder.newFolder();
+        EventJournal journal = open(dir, 256, 60 * 1000);
+        for (int i = 0; i < 50; i++) {
+            journal.append(record(i));
+        }
+        int segments = journal.getSegmentCount();
+        assertTrue(segments > 2);
+        File[] files = dir.listFiles();
+        for (File file : files) {
+            file.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000);
+        }
+        journal.purge();
+        assertEquals("The current segment is kept", 1, journal.getSegmentCount());
+        long first = journal.getFirstOffset();
+        assertTrue(first > 0);
+        List<EventJournal.Record> records = journal.read(0, 100);
+        assertEquals("Read from the first offset kept", first, records.get(0).getOffset());
+        assertEquals(50, records.get(records.size() - 1).getOffset() + 1);
+        journal.close();
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        File dir = folder.newFolder();
+        EventJournal journal = open(dir, 1024, Long.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            journal.append(record(i));
+        }
+        journal.close();
+        // corrupts the bytes of the last record as an interrupted write would
+        File segment = dir.listFiles()[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        int last = 2 * (8 + record(0).length) + 8;
+        file.seek(last);
+        file.write(0);
+        file.close();
+
+        journal = open(dir, 1024, Long.MAX_VALUE);
+        assertEquals(2, journal.getNextOffset());
+        assertEquals(2, journal.append(record(5)));
+        assertArrayEquals(record(5), journal.read(2, 1).get(0).getData());
+        journal.close();
+    }
+
+    @Test
+    public void testTornRecordBehindCheckpoint() throws Exception {
+        File dir = folder.newFolder();
+        EventJournal journal = open(dir, 1024, Long.MAX_VALUE);
+        for (int i = 0; i < 3; i++) {
+            journal.append(record(i));
+        }
+        // the consumer has read all the records before the host crashed
+        journal.writeCheckpoint("listener", 3);
+        journal.close();
+        File segment = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(EventJournal.SEGMENT_SUFFIX);
+            }
+        })[0];
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        file.seek(2 * (8 + record(0).length) + 8);
+        file.write(0);
+        file.close();
+
+        // the offset of the lost record is not given again
+        journal = open(dir, 1024, Long.MAX_VALUE);
+        assertEquals(3, journal.getNextOffset());
+        assertEquals(3, journal.append(record(5)));
+        List<EventJournal.Record> records = journal.read(journal.readCheckpoint("listener"), 10);
+        assertEquals(1, records.size());
+        assertArrayEquals(record(5), records.get(0).getData());
+        assertEquals(3, journal.read(0, 10).size());
+        journal.close();
+    }
+
+    @Test
+    public void testCorruptedSegment() throws Exception {
+        File dir = folder.newFolder();
+        EventJournal journal = open(dir, 256, Long.MAX_VALUE);
+        for (int i = 0; i < 50; i++) {
+            journal.append(record(i));
+        }
+        assertTrue(journal.getSegmentCount() > 2);
+        journal.close();
+        // corrupts the second record of the first segment
+        RandomAccessFile file = new RandomAccessFile(new File(dir, String.format("%020d", 0)
+                + EventJournal.SEGMENT_SUFFIX), "rw");
+        file.seek(8 + record(0).length + 8);
+        file.write(0);
+        file.close();
+
+        journal = open(dir, 256, Long.MAX_VALUE);
+        assertEquals(50, journal.getNextOffset());
+        List<EventJournal.Record> records = journal.read(0, 100);
+        assertEquals(0, records.get(0).getOffset());
+        assertTrue("Skipped to the next segment", records.get(1).getOffset() > 1);
+        assertEquals(49, records.get(records.size() - 1).getOffset());
+        assertEquals(records.get(1).getOffset(), journal.read(1, 1).get(0).getOffset());
+        journal.close();
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        EventJournal journal = open(folder.newFolder(), 1024, Long.MAX_VALUE);
+        assertEquals(-1, journal.readCheckpoint("listener"));
+        journal.writeCheckpoint("listener", 12);
+        journal.writeCheckpoint("listener", 42);
+        assertEquals(42, journal.readCheckpoint("listener"));
+        journal.close();
+    }
+
+    @Test
+    public void testJobEventRecord() throws Exception {
+        Date start = new Date(1395300000000L);
+        Date end = new Date(1395303600000L);
+        WorkflowJobEvent wfJobEvent = new WorkflowJobEvent("wfId", "coordId@1", WorkflowJob.Status.FAILED, "user",
+                "app", start, end);
+        wfJobEvent.setErrorCode("JA018");
+        WorkflowJobEvent wfCopy = (WorkflowJobEvent) JobEventRecord.toEvent(JobEventRecord.parse(
+                JobEventRecord.toBytes(wfJobEvent)));
+        assertEquals("wfId", wfCopy.getId());
+        assertEquals("coordId@1", wfCopy.getParentId());
+        assertEquals(WorkflowJob.Status.FAILED, wfCopy.getStatus());
+        assertEquals(JobEvent.EventStatus.FAILURE, wfCopy.getEventStatus());
+        assertEquals(start, wfCopy.getStartTime());
+        assertEquals(end, wfCopy.getEndTime());
+        assertEquals("JA018", wfCopy.getErrorCode());
+        assertNull(wfCopy.getErrorMessage());
+
+        CoordinatorActionEvent coordActionEvent = new CoordinatorActionEvent("coordId@1", "coordId",
+                CoordinatorAction.Status.WAITING, "user", "app", end, start, "hdfs://dir/_SUCCESS");
+        CoordinatorActionEvent coordCopy = (CoordinatorActionEvent) JobEventRecord.toEvent(JobEventRecord.parse(
+                JobEventRecord.toBytes(coordActionEvent)));
+        assertEquals(CoordinatorAction.Status.WAITING, coordCopy.getStatus());
+        assertEquals(end, coordCopy.getNominalTime());
+        assertNull(coordCopy.getEndTime());
+        assertEquals("hdfs://dir/_SUCCESS", coordCopy.getMissingDeps());
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.Event;
+import org.apache.oozie.service.EventHandlerService;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRingBufferEventQueue {
+
+    /**
+     * Number of events of {@link #testBenchmark()}, which only runs when it is set, i.e.
+     * <code>-Doozie.test.event.queue.benchmark.events=1000000</code>.
+     */
+    private static final String BENCHMARK_EVENTS = "oozie.test.event.queue.benchmark.events";
+
+    private static Configuration conf(int queueSize, int batchSize, String fullPolicy, String waitStrategy) {
+        Configuration conf = new Configuration(false);
+        conf.setInt(EventHandlerService.CONF_QUEUE_SIZE, queueSize);
+        conf.setInt(EventHandlerService.CONF_BATCH_SIZE, batchSize);
+        conf.set(RingBufferEventQueue.CONF_FULL_POLICY, fullPolicy);
+        conf.set(RingBufferEventQueue.CONF_WAIT_STRATEGY, waitStrategy);
+        conf.setLong(RingBufferEventQueue.CONF_BLOCK_TIMEOUT, 200);
+        return conf;
+    }
+
+    private static RingBufferEventQueue queue(int queueSize, int batchSize, String fullPolicy, String waitStrategy) {
+        RingBufferEventQueue queue = new RingBufferEventQueue();
+        queue.init(conf(queueSize, batchSize, fullPolicy, waitStrategy));
+        return queue;
+    }
+
+    private static Event event(int i) {
+        return new WorkflowJobEvent(i + "-W", null, WorkflowJob.Status.RUNNING, "user", "app", null, null);
+    }
+
+    @Test
+    public void testQueueOperations() {
+        RingBufferEventQueue queue = queue(6, 3, "drop", "sleep");
+        assertEquals(8, queue.getCapacity());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        List<Event> events = new ArrayList<Event>();
+        // several laps around the ring
+        for (int lap = 0; lap < 5; lap++) {
+            events.clear();
+            for (int i = 0; i < 7; i++) {
+                events.add(event(i));
+                queue.add(events.get(i));
+            }
+            assertEquals(7, queue.size());
+            assertSame(events.get(0), queue.peek());
+            assertEquals(events.subList(0, 3), queue.pollBatch());
+            assertSame(events.get(3), queue.poll());
+            assertEquals(events.subList(4, 7), queue.pollBatch());
+            assertEquals(0, queue.pollBatch().size());
+            assertTrue(queue.isEmpty());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            queue.add(event(i));
+        }
+        assertEquals(8, queue.size());
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(0, queue.getBlockedCount());
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        queue.add(event(0));
+        assertEquals(1, queue.pollBatch().size());
+    }
+
+    @Test
+    public void testBlockPolicy() throws Exception {
+        final RingBufferEventQueue queue = queue(2, 10, "block", "yield");
+        queue.add(event(0));
+        queue.add(event(1));
+
+        long start = System.currentTimeMillis();
+        queue.add(event(2));
+        assertTrue("Blocked until the timeout", System.currentTimeMillis() - start >= 200);
+        assertEquals(1, queue.getBlockedCount());
+        assertEquals(1, queue.getDroppedCount());
+
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                queue.poll();
+            }
+        };
+        consumer.start();
+        Event blocked = event(3);
+        queue.add(blocked);
+        consumer.join();
+        assertEquals(2, queue.getBlockedCount());
+        assertEquals("Added once a slot was freed", 1, queue.getDroppedCount());
+        List<Event> events = queue.pollBatch();
+        assertEquals(2, events.size());
+        assertSame(blocked, events.get(1));
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        for (String waitStrategy : new String[] {"spin", "yield", "sleep"}) {
+            RingBufferEventQueue queue = queue(64, 10, "block", waitStrategy);
+            final int events = 20000;
+            final AtomicLongArray delivered = new AtomicLongArray(events * 4);
+            assertEquals(waitStrategy, events * 4, run(queue, 4, 3, events, delivered));
+            assertEquals(waitStrategy, 0, queue.getDroppedCount());
+            for (int i = 0; i < delivered.length(); i++) {
+                assertEquals("Event " + i + " delivered once", 1, delivered.get(i));
+            }
+        }
+    }
+
+    /**
+     * Compares the throughput of RingBufferEventQueue and MemoryEventQueue with 4 producers and 2 consumers draining
+     * batches. It only runs when {@link #BENCHMARK_EVENTS} is set.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        Assume.assumeTrue("Benchmark not enabled", System.getProperty(BENCHMARK_EVENTS) != null);
+        int events = Integer.getInteger(BENCHMARK_EVENTS) / 4;
+        // the first round warms up
+        double[] rates = new double[2];
+        StringBuilder results = new StringBuilder();
+        for (int i = 0; i < 2; i++) {
+            EventQueue[] queues = new EventQueue[] {new MemoryEventQueue(), new RingBufferEventQueue()};
+            for (int q = 0; q < queues.length; q++) {
+                queues[q].init(conf(10000, 100, "drop", "sleep"));
+                long start = System.currentTimeMillis();
+                long consumed = run(queues[q], 4, 2, events, null);
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                rates[q] = events * 4 * 1000.0 / elapsed;
+                results.append(String.format("%s: [%d] events in [%d] ms (%.0f events/s), [%d] delivered, [%d] dropped. ",
+                        queues[q].getClass().getSimpleName(), events * 4, elapsed, rates[q], consumed,
+                        events * 4 - consumed));
+            }
+        }
+        assertTrue(results.toString(), rates[1] >= rates[0]);
+    }
+
+    /**
+     * Adds the events from producer threads while consumer threads drain them in batches.
+     *
+     * @param delivered counts of the deliveries of each event, it may be null
+     * @return the number of events delivered
+     */
+    private static long run(final EventQueue queue, int producers, int consumers, final int eventsPerProducer,
+            final AtomicLongArray delivered) throws InterruptedException {
+        final Event[] events = new Event[eventsPerProducer * producers];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = event(i);
+        }
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong producing = new AtomicLong(producers);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int first = p * eventsPerProducer;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = first; i < first + eventsPerProducer; i++) {
+                        queue.add(events[i]);
+                    }
+                    producing.decrementAndGet();
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    while (true) {
+                        boolean done = producing.get() == 0;
+                        List<Event> batch = queue.pollBatch();
+                        if (batch.isEmpty()) {
+                            if (done) {
+                                return;
+                            }
+                            Thread.yield();
+                        }
+                        consumed.addAndGet(batch.size());
+                        if (delivered != null) {
+                            for (Event event : batch) {
+                                String id = ((WorkflowJobEvent) event).getId();
+                                delivered.incrementAndGet(Integer.parseInt(id.substring(0, id.length() - 2)));
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return consumed.get();
+    }
+}
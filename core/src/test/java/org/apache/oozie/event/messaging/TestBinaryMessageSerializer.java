@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.event.messaging;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.oozie.AppType;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.event.JobEvent;
+import org.apache.oozie.client.event.SLAEvent;
+import org.apache.oozie.client.event.jms.BinaryMessageCodec;
+import org.apache.oozie.client.event.jms.JMSHeaderConstants;
+import org.apache.oozie.client.event.jms.JMSMessagingUtils;
+import org.apache.oozie.client.event.message.CoordinatorActionMessage;
+import org.apache.oozie.client.event.message.EventMessage;
+import org.apache.oozie.client.event.message.SLAMessage;
+import org.apache.oozie.client.event.message.WorkflowJobMessage;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestBinaryMessageSerializer {
+
+    /**
+     * Number of messages of {@link #testBenchmark()}, which only runs when it is set, i.e.
+     * <code>-Doozie.test.message.benchmark.messages=1000000</code>.
+     */
+    private static final String BENCHMARK_MESSAGES = "oozie.test.message.benchmark.messages";
+
+    private static WorkflowJobMessage workflowJobMessage() {
+        return new WorkflowJobMessage(JobEvent.EventStatus.FAILURE, "0000012-140320111713458-oozie-oozi-W",
+                "0000011-140320111713458-oozie-oozi-C@12", new Date(1395300000000L), new Date(1395303600000L),
+                WorkflowJob.Status.FAILED, "user1", "wf-app-name1", "JA018", "Main class [org.apache.oozie.action."
+                + "hadoop.JavaMain], exit code [1] \u00e9\u4e2d\ud83d\ude00");
+    }
+
+    private static CoordinatorActionMessage coordinatorActionMessage() {
+        return new CoordinatorActionMessage(JobEvent.EventStatus.WAITING, "0000011-140320111713458-oozie-oozi-C@12",
+                "0000011-140320111713458-oozie-oozi-C", new Date(1395300000000L), null, new Date(1395298800000L),
+                CoordinatorAction.Status.WAITING, "user1", "coord-app-name1",
+                "hdfs://localhost:8020/data/2014/03/20/10/_SUCCESS", null, null);
+    }
+
+    private static SLAMessage slaMessage() {
+        return new SLAMessage(SLAEvent.EventStatus.END_MISS, SLAEvent.SLAStatus.MISS, AppType.WORKFLOW_JOB,
+                "wf-app-name1", "user1", "0000012-140320111713458-oozie-oozi-W",
+                "0000011-140320111713458-oozie-oozi-C@12", new Date(1395298800000L), new Date(1395299400000L),
+                new Date(1395300000000L), new Date(1395302400000L), null, 3600000, -1, "notification of wf", null);
+    }
+
+    /**
+     * Reads the body as a consumer would, through a BytesMessage with the headers of the listeners.
+     */
+    private static <T extends EventMessage> T receive(byte[] body, Map<String, String> properties) throws Exception {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.writeBytes(body);
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            message.setStringProperty(property.getKey(), property.getValue());
+        }
+        message.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, BinaryMessageCodec.MESSAGE_FORMAT);
+        message.reset();
+        return JMSMessagingUtils.getEventMessage(message);
+    }
+
+    @Test
+    public void testWorkflowJobMessage() throws Exception {
+        BinaryMessageSerializer serializer = new BinaryMessageSerializer();
+        assertTrue(serializer.isBinary());
+        WorkflowJobMessage sent = workflowJobMessage();
+        WorkflowJobMessage received = receive(serializer.getSerializedBytes(sent), sent.getMessageProperties());
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getParentId(), received.getParentId());
+        assertEquals(sent.getStartTime(), received.getStartTime());
+        assertEquals(sent.getEndTime(), received.getEndTime());
+        assertEquals(WorkflowJob.Status.FAILED, received.getStatus());
+        assertEquals(sent.getErrorCode(), received.getErrorCode());
+        assertEquals(sent.getErrorMessage(), received.getErrorMessage());
+        assertEquals(JobEvent.EventStatus.FAILURE, received.getEventStatus());
+        assertEquals(AppType.WORKFLOW_JOB, received.getAppType());
+        assertEquals("user1", received.getUser());
+        assertEquals("wf-app-name1", received.getAppName());
+    }
+
+    @Test
+    public void testCoordinatorActionMessage() throws Exception {
+        BinaryMessageSerializer serializer = new BinaryMessageSerializer();
+        CoordinatorActionMessage sent = coordinatorActionMessage();
+        CoordinatorActionMessage received = receive(serializer.getSerializedBytes(sent),
+                sent.getMessageProperties());
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getParentId(), received.getParentId());
+        assertEquals(sent.getStartTime(), received.getStartTime());
+        assertNull(received.getEndTime());
+        assertEquals(sent.getNominalTime(), received.getNominalTime());
+        assertEquals(CoordinatorAction.Status.WAITING, received.getStatus());
+        assertEquals(sent.getMissingDependency(), received.getMissingDependency());
+        assertNull(received.getErrorCode());
+        assertNull(received.getErrorMessage());
+        assertEquals(AppType.COORDINATOR_ACTION, received.getAppType());
+    }
+
+    @Test
+    public void testSLAMessage() throws Exception {
+        BinaryMessageSerializer serializer = new BinaryMessageSerializer();
+        SLAMessage sent = slaMessage();
+        byte[] body = serializer.getSerializedBytes(sent);
+        SLAMessage received = BinaryMessageCodec.decode(body, SLAMessage.class);
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getParentId(), received.getParentId());
+        assertEquals(sent.getNominalTime(), received.getNominalTime());
+        assertEquals(sent.getExpectedStartTime(), received.getExpectedStartTime());
+        assertEquals(sent.getActualStartTime(), received.getActualStartTime());
+        assertEquals(sent.getExpectedEndTime(), received.getExpectedEndTime());
+        assertNull(received.getActualEndTime());
+        assertEquals(3600000, received.getExpectedDuration());
+        assertEquals(-1, received.getActualDuration());
+        assertEquals(sent.getNotificationMessage(), received.getNotificationMessage());
+        assertNull(received.getUpstreamApps());
+
+        // fields appended by a later version are ignored
+        byte[] newer = new byte[body.length + 3];
+        System.arraycopy(body, 0, newer, 0, body.length);
+        newer[0] = BinaryMessageCodec.VERSION + 1;
+        assertEquals(sent.getId(), BinaryMessageCodec.decode(newer, SLAMessage.class).getId());
+
+        try {
+            BinaryMessageCodec.decode(body, WorkflowJobMessage.class);
+            fail("An SLA message is not a workflow job message");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            BinaryMessageCodec.decode(new byte[] {BinaryMessageCodec.VERSION, 3, 10}, SLAMessage.class);
+            fail("The message is truncated");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteSerializedBytes() throws Exception {
+        BinaryMessageSerializer serializer = new BinaryMessageSerializer();
+        // a longer message first so that the buffer reused by the second one holds stale bytes past its end
+        serializer.getSerializedBytes(workflowJobMessage());
+        CoordinatorActionMessage sent = coordinatorActionMessage();
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        serializer.writeSerializedBytes(sent, message);
+        for (Map.Entry<String, String> property : sent.getMessageProperties().entrySet()) {
+            message.setStringProperty(property.getKey(), property.getValue());
+        }
+        message.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, BinaryMessageCodec.MESSAGE_FORMAT);
+        message.reset();
+        assertEquals(serializer.getSerializedBytes(sent).length, message.getBodyLength());
+        CoordinatorActionMessage received = JMSMessagingUtils.getEventMessage(message);
+        assertEquals(sent.getId(), received.getId());
+        assertEquals(sent.getMissingDependency(), received.getMissingDependency());
+    }
+
+    @Test
+    public void testEmptyBodyIsPrintable() throws Exception {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        for (Map.Entry<String, String> property : coordinatorActionMessage().getMessageProperties().entrySet()) {
+            message.setStringProperty(property.getKey(), property.getValue());
+        }
+        message.setStringProperty(JMSHeaderConstants.MESSAGE_FORMAT, BinaryMessageCodec.MESSAGE_FORMAT);
+        message.reset();
+        try {
+            JMSMessagingUtils.getEventMessage(message);
+            fail("The message is empty");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("MessageBody is [0 bytes]"));
+        }
+    }
+
+    /**
+     * Compares the serialized size and the throughput of the binary and JSON serializers. It only runs when
+     * {@link #BENCHMARK_MESSAGES} is set.
+     */
+    @Test
+    public void testBenchmark() {
+        Assume.assumeTrue("Benchmark not enabled", System.getProperty(BENCHMARK_MESSAGES) != null);
+        int messages = Integer.getInteger(BENCHMARK_MESSAGES);
+        EventMessage[] samples = {workflowJobMessage(), coordinatorActionMessage(), slaMessage()};
+        MessageSerializer[] serializers = {new JSONMessageSerializer(), new BinaryMessageSerializer()};
+        int[] sizes = new int[serializers.length];
+        for (int s = 0; s < serializers.length; s++) {
+            for (EventMessage sample : samples) {
+                sizes[s] += serializers[s].getSerializedBytes(sample).length;
+            }
+        }
+        assertTrue("Binary messages are smaller", sizes[1] < sizes[0]);
+        // the first round warms up
+        double[] rates = new double[serializers.length];
+        StringBuilder results = new StringBuilder();
+        for (int round = 0; round < 2; round++) {
+            for (int s = 0; s < serializers.length; s++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < messages; i++) {
+                    serializers[s].getSerializedBytes(samples[i % samples.length]);
+                }
+                long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+                rates[s] = messages * 1000.0 / elapsed;
+                results.append(String.format("%s: [%d] bytes per message, [%d] messages in [%d] ms (%.0f messages/s). ",
+                        serializers[s].getClass().getSimpleName(), sizes[s] / samples.length, messages, elapsed,
+                        rates[s]));
+            }
+        }
+        assertTrue(results.toString(), rates[1] > rates[0]);
+    }
+
+    @Test
+    public void testSerializedObject() {
+        BinaryMessageSerializer serializer = new BinaryMessageSerializer();
+        SLAMessage sent = slaMessage();
+        byte[] body = Base64.getDecoder().decode(serializer.getSerializedObject(sent));
+        assertArrayEquals(serializer.getSerializedBytes(sent), body);
+
+        int jsonSize = new JSONMessageSerializer().getSerializedBytes(sent).length;
+        assertTrue("Binary messages are smaller", body.length < jsonSize);
+    }
+}
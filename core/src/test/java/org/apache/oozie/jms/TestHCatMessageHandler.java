@@ -158,6 +158,55 @@ public class TestHCatMessageHandler extends XDataTestCase {
 
     }
 
+    /**
+     * Test that the partitions of the messages received in the batch window are marked available together
+     */
+    @Test
+    public void testBatchedMessages() throws Exception {
+        services.destroy();
+        services = super.setupServicesForHCatalog();
+        // the batch is processed by the test, not by the scheduler
+        services.getConf().setInt(PartitionDependencyManagerService.NOTIFICATION_BATCH_WINDOW, 3600000);
+        services.getConf().setInt(PartitionDependencyManagerService.NOTIFICATION_BATCH_SIZE, 3);
+        services.init();
+
+        HCatURI dep1 = new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/dt=20120101;country=us");
+        HCatURI dep2 = new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/dt=20120102;country=us");
+        HCatURI dep3 = new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/dt=20120103;country=us");
+        PartitionDependencyManagerService pdms = Services.get().get(PartitionDependencyManagerService.class);
+        pdms.addMissingDependency(dep1, "1234465451");
+        pdms.addMissingDependency(dep2, "1234465451");
+        pdms.addMissingDependency(dep3, "1234465452");
+
+        HCatMessageHandler hcatHandler = new HCatMessageHandler("hcat.server.com:5080");
+        hcatHandler.process(createAddPartitionMessage(dep1, "dt=20120101;country=us"));
+        hcatHandler.process(createAddPartitionMessage(dep1, "dt=20120102;country=us"));
+        assertTrue(pdms.getWaitingActions(dep1).contains("1234465451"));
+        assertTrue(pdms.getWaitingActions(dep2).contains("1234465451"));
+        pdms.processPendingPartitions();
+        assertNull(pdms.getWaitingActions(dep1));
+        assertNull(pdms.getWaitingActions(dep2));
+        assertEquals(2, pdms.getAvailableDependencyURIs("1234465451").size());
+
+        // the batch is processed once full
+        hcatHandler.process(createAddPartitionMessage(dep1, "dt=20120103;country=us", "dt=20120104;country=us",
+                "dt=20120105;country=us"));
+        assertNull(pdms.getWaitingActions(dep3));
+        assertTrue(pdms.getAvailableDependencyURIs("1234465452").contains(dep3.getURI().toString()));
+    }
+
+    private Message createAddPartitionMessage(HCatURI dep, String... partitions) throws Exception {
+        List<Map<String, String>> partitionsList = new ArrayList<Map<String,String>>();
+        for (String partition : partitions) {
+            partitionsList.add(getPartitionMap(partition));
+        }
+        JSONAddPartitionMessage jsonMsg = new JSONAddPartitionMessage("thrift://" + dep.getServer(), "", dep.getDb(),
+                dep.getTable(), partitionsList, System.currentTimeMillis());
+        Message msg = session.createTextMessage(jsonMsg.toString());
+        msg.setStringProperty(HCatConstants.HCAT_EVENT, HCatEventMessage.EventType.ADD_PARTITION.toString());
+        return msg;
+    }
+
     /**
      * Test the other type of messages - DROP_PARTITION and DROP_TABLE are
      * handled with the correct log messages
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.jms;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.jms.DeliveryMode;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestJMSEventPublisher {
+    private static final String BROKER = "vm://localhost?broker.persistent=false&broker.useJmx=false";
+
+    private ConnectionContext context;
+    private Session session;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("java.naming.factory.initial", "org.apache.activemq.jndi.ActiveMQInitialContextFactory");
+        props.setProperty("java.naming.provider.url", BROKER);
+        props.setProperty("connectionFactoryNames", "ConnectionFactory");
+        context = new DefaultConnectionContext();
+        context.createConnection(props);
+        session = context.createSession(Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    private JMSEventPublisher publisher(int threads, int batchSize, int maxInFlight, final boolean connected) {
+        JMSEventPublisher publisher = new JMSEventPublisher(null, null, DeliveryMode.NON_PERSISTENT, 0, threads,
+                batchSize, maxInFlight) {
+            @Override
+            ConnectionContext getConnectionContext() {
+                return connected ? context : null;
+            }
+        };
+        publisher.start();
+        return publisher;
+    }
+
+    @Test
+    public void testPublishInBatches() throws Exception {
+        MessageConsumer consumerA = context.createConsumer(session, "topicA");
+        MessageConsumer consumerB = context.createConsumer(session, "topicB");
+        JMSEventPublisher publisher = publisher(1, 10, 50, true);
+        for (int i = 0; i < 250; i++) {
+            assertTrue(publisher.publish(i % 2 == 0 ? "topicA" : "topicB",
+                    Collections.singletonMap("index", Integer.toString(i)), "message-" + i));
+        }
+        for (int i = 0; i < 250; i++) {
+            TextMessage message = (TextMessage) (i % 2 == 0 ? consumerA : consumerB).receive(5000);
+            assertNotNull("Message " + i, message);
+            assertEquals("message-" + i, message.getText());
+            assertEquals(Integer.toString(i), message.getStringProperty("index"));
+        }
+        publisher.destroy(5000);
+        assertFalse("Stopped", publisher.publish("topicA", Collections.<String, String>emptyMap(), "late"));
+        assertNull(consumerA.receive(200));
+    }
+
+    @Test
+    public void testDestroySendsQueuedMessages() throws Exception {
+        MessageConsumer consumer = context.createConsumer(session, "topicA");
+        JMSEventPublisher publisher = publisher(3, 7, 1000, true);
+        for (int i = 0; i < 500; i++) {
+            publisher.publish("topicA", Collections.<String, String>emptyMap(), "message-" + i);
+        }
+        publisher.destroy(10000);
+        assertEquals(0, publisher.getBacklog());
+        int received = 0;
+        while (consumer.receive(1000) != null) {
+            received++;
+        }
+        assertEquals(500, received);
+    }
+
+    @Test
+    public void testNoConnection() throws Exception {
+        JMSEventPublisher publisher = publisher(1, 10, 5, false);
+        // not sent, but the queue keeps draining
+        for (int i = 0; i < 50; i++) {
+            assertTrue(publisher.publish("topicA", Collections.<String, String>emptyMap(), "message-" + i));
+        }
+        publisher.destroy(5000);
+        assertEquals(0, publisher.getBacklog());
+    }
+}
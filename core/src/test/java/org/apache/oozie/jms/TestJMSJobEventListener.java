@@ -20,6 +20,7 @@ package org.apache.oozie.jms;
 
 import java.util.Date;
 
+import javax.jms.BytesMessage;
 import javax.jms.MessageConsumer;
 import javax.jms.Session;
 import javax.jms.TextMessage;
@@ -31,6 +32,7 @@ import org.apache.oozie.client.WorkflowJob;
 import org.apache.oozie.AppType;
 import org.apache.oozie.client.event.JobEvent.EventStatus;
 import org.apache.oozie.client.event.Event.MessageType;
+import org.apache.oozie.client.event.jms.BinaryMessageCodec;
 import org.apache.oozie.client.event.jms.JMSMessagingUtils;
 import org.apache.oozie.client.event.jms.JMSHeaderConstants;
 import org.apache.oozie.client.event.message.CoordinatorActionMessage;
@@ -99,6 +101,60 @@ public class TestJMSJobEventListener extends XTestCase {
         wfEventListener.destroy();
     }
 
+    @Test
+    public void testOnWorkflowJobEventAsync() throws Exception {
+        conf.setBoolean(JMSJobEventListener.JMS_PRODUCER_ASYNC, true);
+        JMSJobEventListener wfEventListener = new JMSJobEventListener();
+        wfEventListener.init(conf);
+        ConnectionContext jmsContext = getConnectionContext();
+        Session session = jmsContext.createSession(Session.AUTO_ACKNOWLEDGE);
+        WorkflowJobEvent wfe = null;
+        MessageConsumer consumer = null;
+        for (int i = 0; i < 10; i++) {
+            wfe = new WorkflowJobEvent("wfId" + i, "caId1", WorkflowJob.Status.RUNNING, "user1", "wf-app-name1",
+                    new Date(), null);
+            if (consumer == null) {
+                consumer = jmsContext.createConsumer(session, wfEventListener.getTopic(wfe));
+            }
+            wfEventListener.onWorkflowJobEvent(wfe);
+        }
+        for (int i = 0; i < 10; i++) {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            assertNotNull(message);
+            WorkflowJobMessage wfMessage = JMSMessagingUtils.getEventMessage(message);
+            assertEquals("wfId" + i, wfMessage.getId());
+            assertEquals(EventStatus.STARTED, wfMessage.getEventStatus());
+        }
+        wfEventListener.destroy();
+    }
+
+    @Test
+    public void testOnWorkflowJobEventBinary() throws Exception {
+        services.getConf().set(JMSTopicService.TOPIC_MESSAGE_FORMAT, "default=json, WORKFLOW=binary");
+        services.setService(JMSTopicService.class);
+        JMSJobEventListener wfEventListener = new JMSJobEventListener();
+        wfEventListener.init(conf);
+        Date startDate = DateUtils.parseDateUTC("2012-07-22T00:00Z");
+        WorkflowJobEvent wfe = new WorkflowJobEvent("wfId1", "caId1", WorkflowJob.Status.RUNNING, "user1",
+                "wf-app-name1", startDate, null);
+
+        ConnectionContext jmsContext = getConnectionContext();
+        Session session = jmsContext.createSession(Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = jmsContext.createConsumer(session, wfEventListener.getTopic(wfe));
+        wfEventListener.onWorkflowJobEvent(wfe);
+        BytesMessage message = (BytesMessage) consumer.receive(5000);
+        assertEquals(BinaryMessageCodec.MESSAGE_FORMAT, message.getStringProperty(JMSHeaderConstants.MESSAGE_FORMAT));
+        WorkflowJobMessage wfStartMessage = JMSMessagingUtils.getEventMessage(message);
+        assertEquals(WorkflowJob.Status.RUNNING, wfStartMessage.getStatus());
+        assertEquals(startDate, wfStartMessage.getStartTime());
+        assertNull(wfStartMessage.getEndTime());
+        assertEquals("wfId1", wfStartMessage.getId());
+        assertEquals("caId1", wfStartMessage.getParentId());
+        assertEquals(EventStatus.STARTED, wfStartMessage.getEventStatus());
+        assertEquals("user1", wfStartMessage.getUser());
+        assertEquals("wf-app-name1", wfStartMessage.getAppName());
+    }
+
     @Test
     public void testOnWorkflowJobSuccessEvent() throws Exception {
         JMSJobEventListener wfEventListener = new JMSJobEventListener();
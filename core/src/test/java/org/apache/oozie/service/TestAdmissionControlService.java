@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.service;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.oozie.service.AdmissionControlService.Operation;
+import org.apache.oozie.service.AdmissionControlService.Rejection;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestAdmissionControlService {
+    private Configuration conf;
+    private float queueLoad;
+    private float dbPoolLoad;
+    private AdmissionControlService service;
+
+    @Before
+    public void setUp() {
+        conf = new Configuration(false);
+        conf.setFloat(AdmissionControlService.CONF_BURST_SECONDS, 1);
+        conf.setFloat(AdmissionControlService.CONF_QUEUE_SOFT_THRESHOLD, 0.7f);
+        conf.setFloat(AdmissionControlService.CONF_QUEUE_HARD_THRESHOLD, 0.9f);
+        conf.setFloat(AdmissionControlService.CONF_DB_POOL_SOFT_THRESHOLD, 0.9f);
+        conf.setFloat(AdmissionControlService.CONF_DB_POOL_HARD_THRESHOLD, 1.0f);
+        conf.setLong(AdmissionControlService.CONF_SHED_RETRY_AFTER_SECONDS, 30);
+        queueLoad = 0;
+        dbPoolLoad = 0;
+        service = new AdmissionControlService() {
+            @Override
+            float getQueueLoad() {
+                return queueLoad;
+            }
+
+            @Override
+            float getDbPoolLoad() {
+                return dbPoolLoad;
+            }
+        };
+    }
+
+    @Test
+    public void testNoLimits() {
+        service.init(conf);
+        for (int i = 0; i < 1000; i++) {
+            assertNull(service.admit(Operation.SUBMIT, "joe"));
+        }
+    }
+
+    @Test
+    public void testUserRate() {
+        conf.setFloat(Operation.SUBMIT.getConfName(AdmissionControlService.CONF_USER_RATE), 2);
+        service.init(conf);
+
+        assertNull(service.admit(Operation.SUBMIT, "joe"));
+        assertNull(service.admit(Operation.SUBMIT, "joe"));
+        Rejection rejection = service.admit(Operation.SUBMIT, "joe");
+        assertNotNull("Third submission within the burst must be rejected", rejection);
+        assertTrue(rejection.getRetryAfterSeconds() >= 1);
+        assertTrue(rejection.getReason(), rejection.getReason().contains("joe"));
+
+        assertNull("Other users are not limited", service.admit(Operation.SUBMIT, "jane"));
+        assertNull("Other operations are not limited", service.admit(Operation.RERUN, "joe"));
+    }
+
+    @Test
+    public void testGlobalRate() {
+        conf.setFloat(Operation.BULK.getConfName(AdmissionControlService.CONF_GLOBAL_RATE), 1);
+        service.init(conf);
+
+        assertNull(service.admit(Operation.BULK, "joe"));
+        assertNotNull(service.admit(Operation.BULK, "jane"));
+    }
+
+    @Test
+    public void testGlobalRejectionDoesNotUseUserQuota() {
+        conf.setFloat(Operation.SUBMIT.getConfName(AdmissionControlService.CONF_USER_RATE), 2);
+        conf.setFloat(Operation.SUBMIT.getConfName(AdmissionControlService.CONF_GLOBAL_RATE), 1);
+        service.init(conf);
+
+        assertNull(service.admit(Operation.SUBMIT, "joe"));
+        for (int i = 0; i < 3; i++) {
+            Rejection rejection = service.admit(Operation.SUBMIT, "joe");
+            assertNotNull(rejection);
+            assertTrue(rejection.getReason(), rejection.getReason().startsWith("server exceeded"));
+        }
+    }
+
+    @Test
+    public void testIdleUsersAreEvicted() throws Exception {
+        conf.setFloat(Operation.SUBMIT.getConfName(AdmissionControlService.CONF_USER_RATE), 1000);
+        service.init(conf);
+
+        for (int i = 0; i < 100; i++) {
+            assertNull(service.admit(Operation.SUBMIT, "user" + i));
+        }
+        assertEquals(100, service.getUserBucketCount(Operation.SUBMIT));
+
+        // the buckets are full again after one second
+        Thread.sleep(1500);
+        assertEquals(0, service.getUserBucketCount(Operation.SUBMIT));
+    }
+
+    @Test
+    public void testShedOnQueueLoad() {
+        service.init(conf);
+
+        queueLoad = 0.5f;
+        assertNull(service.admit(Operation.SUBMIT, "joe"));
+
+        queueLoad = 0.95f;
+        Rejection rejection = service.admit(Operation.SUBMIT, "joe");
+        assertNotNull(rejection);
+        assertEquals(30, rejection.getRetryAfterSeconds());
+        assertTrue(rejection.getReason(), rejection.getReason().contains("callable queue"));
+    }
+
+    @Test
+    public void testShedOnDbPoolLoad() {
+        service.init(conf);
+
+        dbPoolLoad = 1.0f;
+        Rejection rejection = service.admit(Operation.RERUN, "joe");
+        assertNotNull(rejection);
+        assertTrue(rejection.getReason(), rejection.getReason().contains("connection pool"));
+
+        dbPoolLoad = -1;
+        assertNull("Unknown load must not shed", service.admit(Operation.RERUN, "joe"));
+    }
+
+    @Test
+    public void testShedProbability() {
+        service.init(conf);
+
+        assertFalse(service.shouldShed(0.5f, 0.7f, 0.9f));
+        assertTrue(service.shouldShed(0.9f, 0.7f, 0.9f));
+        assertFalse("Hard threshold 0 disables shedding", service.shouldShed(1f, 0.7f, 0f));
+
+        int shed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (service.shouldShed(0.8f, 0.7f, 0.9f)) {
+                shed++;
+            }
+        }
+        assertTrue("About half of the requests must be shed, shed " + shed, shed > 4_000 && shed < 6_000);
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.oozie.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -29,15 +30,18 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.oozie.service.AsyncXCommandExecutor.AccessibleRunnableScheduledFuture;
 import org.apache.oozie.service.AsyncXCommandExecutor.PriorityComparator;
 import org.apache.oozie.service.AsyncXCommandExecutor.ScheduledXCallable;
 import org.apache.oozie.service.CallableQueueService.CallableWrapper;
+import org.apache.oozie.util.HashedWheelTimer;
 import org.apache.oozie.util.XCallable;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -130,6 +134,34 @@ public class TestAsyncXCommandExecutor {
         assertTrue("Queuing result", result);
     }
 
+    @Test
+    public void testSubmitCallableWithDelayToTimerWheel() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("TestTimer", 10, TimeUnit.MILLISECONDS, 8);
+        asyncExecutor.setDelayedTimer(timer);
+        when(callableWrapper.getInitialDelay()).thenReturn(50L);
+        when(callableWrapper.getDelay(eq(TimeUnit.MILLISECONDS))).thenReturn(50L);
+        when(callableQueueService.canSubmitCallable(any(XCallable.class))).thenReturn(true);
+
+        try {
+            boolean result = asyncExecutor.queue(callableWrapper, false);
+
+            assertTrue("Queuing result", result);
+            assertEquals("Active commands", 1, asyncExecutor.getSize());
+            assertEquals("Pending timeouts", 1, timer.pendingTimeouts());
+            // the expired callable is handed over to the scheduled executor
+            ArgumentCaptor<ScheduledXCallable> expired = ArgumentCaptor.forClass(ScheduledXCallable.class);
+            verify(scheduledExecutor, Mockito.timeout(5_000)).execute(expired.capture());
+            verifyZeroInteractions(executor);
+            expired.getValue().run();
+            verify(executor).execute(same(callableWrapper));
+            assertEquals("Pending timeouts", 0, timer.pendingTimeouts());
+            assertEquals("Expired timeouts", 1, timer.getExpiredCount());
+        } finally {
+            asyncExecutor.shutdown();
+        }
+        assertTrue("Timer stopped", timer.isStopped());
+    }
+
     @Test
     public void testSubmissionSuccessfulAfterDelay() {
         when(callableWrapper.getInitialDelay()).thenReturn(100L);
@@ -460,6 +492,63 @@ public class TestAsyncXCommandExecutor {
         assertEquals("Priority - last element", 0, lastElement.getPriority());
     }
 
+    @Test
+    public void testFairShareOrderingWithinPriority() {
+        UserFairShareScheduler fairShare = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 0);
+        asyncExecutor.setFairShareScheduler(fairShare);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                CallableWrapper<?> wrapper = (CallableWrapper<?>) invocation.getArguments()[0];
+                priorityBlockingQueue.add(wrapper);
+                return null;
+            }
+        }).when(executor).execute(any(Runnable.class));
+        List<CallableWrapper<?>> heavyUser = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            heavyUser.add(createFairShareWrapper("heavy", 1));
+        }
+        CallableWrapper<?> lightUser = createFairShareWrapper("light", 1);
+        CallableWrapper<?> highPriority = createFairShareWrapper("heavy", 2);
+
+        for (CallableWrapper<?> wrapper : heavyUser) {
+            asyncExecutor.queue(wrapper, true);
+        }
+        asyncExecutor.queue(lightUser, true);
+        asyncExecutor.queue(highPriority, true);
+
+        assertEquals("Queue depth of heavy user", Integer.valueOf(11), fairShare.getQueueDepths().get("heavy"));
+        assertEquals("Queue depth of light user", Integer.valueOf(1), fairShare.getQueueDepths().get("light"));
+        assertTrue("Higher priority goes first", priorityBlockingQueue.poll() == highPriority);
+        // the first callables of both users have the same start tag
+        Set<CallableWrapper<?>> next = Sets.<CallableWrapper<?>>newHashSet(priorityBlockingQueue.poll(),
+                priorityBlockingQueue.poll());
+        assertTrue("Light user is not starved", next.contains(lightUser));
+        assertTrue("First callable of heavy user", next.contains(heavyUser.get(0)));
+    }
+
+    private CallableWrapper<?> createFairShareWrapper(String user, int priority) {
+        CallableWrapper<?> wrapper = mock(CallableWrapper.class, Mockito.RETURNS_DEEP_STUBS);
+        final AtomicLong fairShareTag = new AtomicLong();
+        when(wrapper.filterDuplicates()).thenReturn(true);
+        when(wrapper.getPriority()).thenReturn(priority);
+        when(wrapper.getUser()).thenReturn(user);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                fairShareTag.set((Long) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(wrapper).setFairShareTag(anyLong());
+        when(wrapper.getFairShareTag()).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                return fairShareTag.get();
+            }
+        });
+        return wrapper;
+    }
+
     private void testIllegalPriority(int prio) {
         when(callableWrapper.getPriority()).thenReturn(prio);
 
@@ -24,6 +24,7 @@ import org.apache.oozie.command.CommandException;
 import org.apache.oozie.command.PreconditionException;
 import org.apache.oozie.command.XCommand;
 import org.apache.oozie.test.XTestCase;
+import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.XCallable;
 import org.apache.oozie.util.XLog;
 
@@ -272,6 +273,78 @@ public class TestCallableQueueService extends XTestCase {
         assertTrue(callableHigh.order < callableLow.order);
     }
 
+    public void testQueueSizeWhenMaxRunningPerUserIsReached() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CallableQueueService.CONF_FAIRSHARE_ENABLED, "true");
+        setSystemProperty(CallableQueueService.CONF_FAIRSHARE_MAX_RUNNING_PER_USER, "1");
+        new Services().init();
+
+        final CallableQueueService queueservice = Services.get().get(CallableQueueService.class);
+        XLog.Info.get().setParameter(XLogService.USER, "joe");
+        final List<MyCallable> callables = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            MyCallable callable = new MyCallable("type" + i, 0, 100);
+            callables.add(callable);
+            queueservice.queue(callable);
+        }
+        XLog.Info.get().clearParameter(XLogService.USER);
+
+        waitFor(10000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                for (MyCallable callable : callables) {
+                    if (callable.executed == 0) {
+                        return false;
+                    }
+                }
+                return queueservice.queueSize() == 0;
+            }
+        });
+        for (MyCallable callable : callables) {
+            assertTrue(callable.executed != 0);
+        }
+        // callables requeued over the cap of the user are not counted twice
+        assertEquals("Queue size after execution", 0, queueservice.queueSize());
+    }
+
+    public void testMaxRunningPerUserWithInstrumentation() throws Exception {
+        Services.get().destroy();
+        setSystemProperty(CallableQueueService.CONF_FAIRSHARE_ENABLED, "true");
+        setSystemProperty(CallableQueueService.CONF_FAIRSHARE_MAX_RUNNING_PER_USER, "1");
+        new Services().init();
+
+        final CallableQueueService queueservice = Services.get().get(CallableQueueService.class);
+        Instrumentation instr = new Instrumentation();
+        queueservice.getFairShareScheduler().instrument(instr);
+        XLog.Info.get().setParameter(XLogService.USER, "joe");
+        final List<MyCallable> callables = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            MyCallable callable = new MyCallable("type" + i, 0, 100);
+            callables.add(callable);
+            queueservice.queue(callable);
+        }
+        XLog.Info.get().clearParameter(XLogService.USER);
+
+        waitFor(10000, new Predicate() {
+            public boolean evaluate() throws Exception {
+                for (MyCallable callable : callables) {
+                    if (callable.executed == 0) {
+                        return false;
+                    }
+                }
+                return queueservice.queueSize() == 0;
+            }
+        });
+        for (MyCallable callable : callables) {
+            assertTrue(callable.executed != 0);
+        }
+        assertEquals("Queue size after execution", 0, queueservice.queueSize());
+        // each callable is timed at least once, the callables parked at the cap of the user again when unparked
+        assertTrue(instr.getTimers().get(UserFairShareScheduler.INSTRUMENTATION_GROUP).get("user.joe.time.in.queue")
+                .getValue().getTicks() >= callables.size());
+        assertEquals(Integer.valueOf(0), queueservice.getFairShareScheduler().getParkedCounts().get("joe"));
+        assertEquals(Integer.valueOf(0), queueservice.getFairShareScheduler().getRunningCounts().get("joe"));
+    }
+
     public void testQueueSerial() throws Exception {
         EXEC_ORDER = new AtomicLong();
         final MyCallable callable1 = new MyCallable(0, 10);
@@ -245,6 +245,45 @@ public class TestEventHandlerService extends XDataTestCase {
         }
     }
 
+    @Test
+    public void testJournalConsumer() throws Exception {
+        Services.get().destroy();
+        Services services = new Services();
+        Configuration conf = services.getConf();
+        conf.set(Services.CONF_SERVICE_EXT_CLASSES, "org.apache.oozie.service.EventHandlerService");
+        conf.setBoolean(EventHandlerService.CONF_JOURNAL_ENABLED, true);
+        conf.set(EventHandlerService.CONF_JOURNAL_DIR, getTestCaseDir() + "/journal");
+        services.init();
+        EventHandlerService ehs = _testEventHandlerService();
+        assertNotNull(ehs.getEventJournal());
+
+        // starts with the events queued after its first run
+        ehs.queueEvent(new WorkflowJobEvent("jobid0", "parentid", WorkflowJob.Status.RUNNING, getTestUser(), "myapp",
+                null, null));
+        ehs.new JournalConsumer(new DummyJobEventListener()).run();
+        assertEquals("", output.toString());
+        ehs.queueEvent(new WorkflowJobEvent("jobid1", "parentid", WorkflowJob.Status.RUNNING, getTestUser(), "myapp",
+                null, null));
+        ehs.new JournalConsumer(new DummyJobEventListener()).run();
+        assertEquals("Dummy Workflow Job event STARTED", output.toString());
+        output.setLength(0);
+
+        // resumes from the checkpoint after a restart
+        ehs.queueEvent(new CoordinatorActionEvent("parentid@1", "parentid", CoordinatorAction.Status.WAITING,
+                getTestUser(), "myapp", null, null, null));
+        Services.get().destroy();
+        services = new Services();
+        conf = services.getConf();
+        conf.set(Services.CONF_SERVICE_EXT_CLASSES, "org.apache.oozie.service.EventHandlerService");
+        conf.setBoolean(EventHandlerService.CONF_JOURNAL_ENABLED, true);
+        conf.set(EventHandlerService.CONF_JOURNAL_DIR, getTestCaseDir() + "/journal");
+        services.init();
+        ehs = _testEventHandlerService();
+        assertEquals(3, ehs.getEventJournal().getNextOffset());
+        ehs.new JournalConsumer(new DummyJobEventListener()).run();
+        assertEquals("Dummy Coord Action event WAITING", output.toString());
+    }
+
     private EventHandlerService _testEventHandlerService() throws Exception {
         Services services = Services.get();
         EventHandlerService ehs = services.get(EventHandlerService.class);
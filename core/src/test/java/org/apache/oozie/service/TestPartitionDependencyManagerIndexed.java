@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.service;
+
+import org.apache.oozie.dependency.hcat.IndexedHCatDependencyCache;
+import org.apache.oozie.util.HCatURI;
+import org.junit.Test;
+
+public class TestPartitionDependencyManagerIndexed extends TestPartitionDependencyManagerService {
+
+    private void setupServices(int maxMemoryEntries, int maxOverflowEntries) throws ServiceException {
+        Services.get().destroy();
+        services = super.setupServicesForHCatalog();
+        services.getConf().set(PartitionDependencyManagerService.CACHE_MANAGER_IMPL,
+                IndexedHCatDependencyCache.class.getName());
+        services.getConf().setInt(PartitionDependencyManagerService.CACHE_PURGE_INTERVAL, 1000000);
+        services.getConf().setInt(IndexedHCatDependencyCache.CONF_MAX_MEMORY_ENTRIES, maxMemoryEntries);
+        services.getConf().setInt(IndexedHCatDependencyCache.CONF_MAX_OVERFLOW_ENTRIES, maxOverflowEntries);
+        services.getConf().set(IndexedHCatDependencyCache.CONF_OVERFLOW_DIR, getTestCaseDir());
+        services.init();
+    }
+
+    @Override
+    @Test
+    public void testPartitionDependency() throws Exception {
+        setupServices(-1, 0);
+        super.testPartitionDependency();
+    }
+
+    @Override
+    @Test
+    public void testMemoryUsageAndSpeed() throws Exception {
+        setupServices(-1, 0);
+        super.testMemoryUsageAndSpeed();
+    }
+
+    @Test
+    public void testPartitionDependencyWithOverflow() throws Exception {
+        // the partitions after the first one of each table go to the overflow tier
+        setupServices(1, 1000);
+        super.testPartitionDependency();
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        setupServices(500, 300);
+        PartitionDependencyManagerService pdms = Services.get().get(PartitionDependencyManagerService.class);
+        int numItems = 1000;
+        for (int i = 0; i < numItems; i++) {
+            HCatURI dep = new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/id=" + i);
+            pdms.addMissingDependency(dep, "" + i);
+        }
+        // First 500 in memory and next 300 in the overflow tier, the last 200 are dropped
+        verifyWaitingAction(pdms, 800);
+        for (int i = 800; i < numItems; i++) {
+            assertNull(pdms.getWaitingActions(new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/id=" + i)));
+        }
+
+        pdms.partitionAvailable("hcat.server.com:5080", "mydb", "mytbl", getPartitionMap("id=10"));
+        pdms.partitionAvailable("hcat.server.com:5080", "mydb", "mytbl", getPartitionMap("id=600"));
+        assertNull(pdms.getWaitingActions(new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/id=10")));
+        assertNull(pdms.getWaitingActions(new HCatURI("hcat://hcat.server.com:5080/mydb/mytbl/id=600")));
+        assertTrue(pdms.getAvailableDependencyURIs("10").contains("hcat://hcat.server.com:5080/mydb/mytbl/id=10"));
+        assertTrue(pdms.getAvailableDependencyURIs("600").contains(
+                "hcat://hcat.server.com:5080/mydb/mytbl/id=600"));
+    }
+}
@@ -258,6 +258,53 @@ public class TestShareLibService extends XFsTestCase {
                 "pig-10.jar");
     }
 
+    @Test
+    public void testCacheFileStatuses() throws Exception {
+        getOozieConfig().setBoolean(ShareLibService.CACHE_FILE_STATUS, true);
+        FileSystem fs = getFileSystem();
+        Path basePath = new Path(getOozieConfig().get(WorkflowAppService.SYSTEM_LIB_PATH));
+        Path libpath = new Path(basePath, ShareLibService.SHARE_LIB_PREFIX + ShareLibService.dt.get().format(new Date()));
+        Path pigPath = new Path(libpath, "pig");
+        fs.mkdirs(pigPath);
+        Path pigJar = new Path(pigPath, "pig.jar");
+        Path otherJar = new Path(getFsTestCaseDir(), "other.jar");
+        createFiles(pigJar, otherJar);
+
+        services.init();
+        ShareLibService shareLibService = services.get(ShareLibService.class);
+        assertTrue(shareLibService.getCachedFileStatuses().isEmpty());
+
+        Map<URI, FileStatus> statuses = new HashMap<URI, FileStatus>();
+        for (Path path : Arrays.asList(fs.makeQualified(pigJar), fs.makeQualified(otherJar), fs.makeQualified(pigPath))) {
+            statuses.put(path.toUri(), fs.getFileStatus(path));
+        }
+        shareLibService.cacheFileStatuses(statuses);
+
+        // only the share lib jar is cached
+        Map<URI, FileStatus> cached = shareLibService.getCachedFileStatuses();
+        assertEquals(1, cached.size());
+        assertEquals(fs.getFileStatus(pigJar), cached.get(fs.makeQualified(pigJar).toUri()));
+
+        shareLibService.updateShareLib();
+        assertTrue(shareLibService.getCachedFileStatuses().isEmpty());
+    }
+
+    @Test
+    public void testCacheFileStatusesDisabled() throws Exception {
+        FileSystem fs = getFileSystem();
+        Path basePath = new Path(getOozieConfig().get(WorkflowAppService.SYSTEM_LIB_PATH));
+        Path libpath = new Path(basePath, ShareLibService.SHARE_LIB_PREFIX + ShareLibService.dt.get().format(new Date()));
+        Path pigJar = new Path(new Path(libpath, "pig"), "pig.jar");
+        createFiles(pigJar);
+
+        services.init();
+        ShareLibService shareLibService = services.get(ShareLibService.class);
+        Map<URI, FileStatus> statuses = new HashMap<URI, FileStatus>();
+        statuses.put(fs.makeQualified(pigJar).toUri(), fs.getFileStatus(pigJar));
+        shareLibService.cacheFileStatuses(statuses);
+        assertTrue(shareLibService.getCachedFileStatuses().isEmpty());
+    }
+
     // retentionTime overflows to negative before OOZIE-3142
     @Test
     public void testRetentionOverflow() throws Exception {
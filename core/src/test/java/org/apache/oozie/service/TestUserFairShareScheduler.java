@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.oozie.util.Instrumentation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestUserFairShareScheduler {
+
+    @Test
+    public void testParseWeights() {
+        Map<String, Integer> weights = UserFairShareScheduler.parseWeights(new String[] {"etl:4", " adhoc : 2 ", " "});
+
+        assertEquals(2, weights.size());
+        assertEquals(Integer.valueOf(4), weights.get("etl"));
+        assertEquals(Integer.valueOf(2), weights.get("adhoc"));
+
+        try {
+            UserFairShareScheduler.parseWeights(new String[] {"etl"});
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testJobUsers() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 0);
+        assertNull(scheduler.getJobUser("0000000-000000000000000-oozie-W"));
+        assertNull(scheduler.getJobUser(null));
+
+        scheduler.setJobUser("0000000-000000000000000-oozie-W", null);
+        assertNull(scheduler.getJobUser("0000000-000000000000000-oozie-W"));
+
+        scheduler.setJobUser("0000000-000000000000000-oozie-W", "oozie doAs joe");
+        assertEquals("joe", scheduler.getJobUser("0000000-000000000000000-oozie-W"));
+    }
+
+    @Test
+    public void testToUser() {
+        assertEquals(UserFairShareScheduler.UNKNOWN_USER, UserFairShareScheduler.toUser(null));
+        assertEquals(UserFairShareScheduler.UNKNOWN_USER, UserFairShareScheduler.toUser(" "));
+        assertEquals("joe", UserFairShareScheduler.toUser("joe"));
+        assertEquals("joe", UserFairShareScheduler.toUser("oozie doAs joe"));
+    }
+
+    @Test
+    public void testBurstOfOneUserDoesNotStarveOthers() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 0);
+
+        List<Tagged> queue = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            queue.add(new Tagged("heavy", scheduler.nextTag("heavy")));
+        }
+        queue.add(new Tagged("light", scheduler.nextTag("light")));
+
+        Collections.sort(queue);
+        int position = 0;
+        while (!queue.get(position).user.equals("light")) {
+            position++;
+        }
+        assertTrue("Light user waits behind the burst of the heavy user, position " + position, position <= 1);
+    }
+
+    @Test
+    public void testWeightedShare() {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("etl", 3);
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(weights, 1, 0);
+
+        List<Tagged> queue = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            queue.add(new Tagged("etl", scheduler.nextTag("etl")));
+            queue.add(new Tagged("adhoc", scheduler.nextTag("adhoc")));
+        }
+        Collections.sort(queue);
+
+        int etl = 0;
+        for (Tagged tagged : queue.subList(0, 200)) {
+            if (tagged.user.equals("etl")) {
+                etl++;
+            }
+        }
+        assertEquals("etl should get 3/4 of the first 200 slots", 150, etl, 2);
+    }
+
+    @Test
+    public void testVirtualTimeAdvances() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 0);
+        long first = scheduler.nextTag("a");
+        long second = scheduler.nextTag("a");
+        assertEquals(first + UserFairShareScheduler.VIRTUAL_TIME_UNIT, second);
+
+        scheduler.advance(second);
+        assertEquals(second, scheduler.getVirtualTime());
+        scheduler.advance(first);
+        assertEquals("Virtual time never goes back", second, scheduler.getVirtualTime());
+
+        // a user that was idle starts at the current virtual time, it does not get credit for being idle
+        assertEquals(second, scheduler.nextTag("b"));
+    }
+
+    @Test
+    public void testMaxRunningPerUser() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 2);
+
+        assertTrue(scheduler.tryBegin("a"));
+        assertTrue(scheduler.tryBegin("a"));
+        assertFalse(scheduler.tryBegin("a"));
+        assertTrue(scheduler.tryBegin("b"));
+        scheduler.end("a");
+        assertTrue(scheduler.tryBegin("a"));
+        assertEquals(Integer.valueOf(2), scheduler.getRunningCounts().get("a"));
+        assertEquals(Integer.valueOf(1), scheduler.getRunningCounts().get("b"));
+    }
+
+    @Test
+    public void testParkedCallablesAreHandedBackOnEnd() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 1);
+        Runnable first = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        Runnable second = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        assertTrue(scheduler.tryBegin("a", first));
+        assertFalse(scheduler.tryBegin("a", first));
+        assertFalse(scheduler.tryBegin("a", second));
+        assertEquals(Integer.valueOf(2), scheduler.getParkedCounts().get("a"));
+
+        assertSame(first, scheduler.end("a"));
+        assertTrue(scheduler.tryBegin("a", first));
+        assertSame(second, scheduler.end("a"));
+        assertTrue(scheduler.tryBegin("a", second));
+        assertNull(scheduler.end("a"));
+        assertEquals(Integer.valueOf(0), scheduler.getParkedCounts().get("a"));
+        assertEquals(Integer.valueOf(0), scheduler.getRunningCounts().get("a"));
+    }
+
+    @Test
+    public void testTimeInQueueIsInstrumented() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 1);
+        Instrumentation instr = new Instrumentation();
+        scheduler.instrument(instr);
+        Instrumentation.Cron cron = new Instrumentation.Cron();
+        cron.start();
+        cron.stop();
+
+        scheduler.queued("a");
+        scheduler.dequeued("a", cron);
+
+        Map<String, Instrumentation.Element<Instrumentation.Timer>> timers =
+                instr.getTimers().get(UserFairShareScheduler.INSTRUMENTATION_GROUP);
+        assertEquals(1, timers.get("user.a.time.in.queue").getValue().getTicks());
+        assertEquals(0L, instr.getVariables().get(UserFairShareScheduler.INSTRUMENTATION_GROUP).get("user.a.parked")
+                .getValue());
+    }
+
+    @Test
+    public void testQueueDepths() {
+        UserFairShareScheduler scheduler = new UserFairShareScheduler(Collections.<String, Integer>emptyMap(), 1, 0);
+
+        scheduler.queued("a");
+        scheduler.queued("a");
+        scheduler.queued("b");
+        scheduler.dequeued("a", null);
+
+        assertEquals(Integer.valueOf(1), scheduler.getQueueDepths().get("a"));
+        assertEquals(Integer.valueOf(1), scheduler.getQueueDepths().get("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("etl", 0);
+        new UserFairShareScheduler(weights, 1, 0);
+    }
+
+    private static class Tagged implements Comparable<Tagged> {
+        private final String user;
+        private final long tag;
+
+        Tagged(String user, long tag) {
+            this.user = user;
+            this.tag = tag;
+        }
+
+        @Override
+        public int compareTo(Tagged o) {
+            return Long.compare(tag, o.tag);
+        }
+    }
+}
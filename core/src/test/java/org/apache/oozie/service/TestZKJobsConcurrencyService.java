@@ -27,6 +27,7 @@ import org.apache.oozie.ErrorCode;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.test.ZKXTestCase;
 import org.apache.oozie.util.ConfigUtils;
+import org.apache.oozie.util.ConsistentHashRing;
 import org.apache.oozie.util.Instrumentation;
 import org.apache.oozie.util.ZKUtils;
 
@@ -396,4 +397,81 @@ public class TestZKJobsConcurrencyService extends ZKXTestCase {
             }
         }
     }
+
+    public void testJobOwnership() throws Exception {
+        ConfigurationService.setBoolean(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED, true);
+        ConfigurationService.set(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_REBALANCE_WINDOW, "0");
+        ZKJobsConcurrencyService zkjcs = new ZKJobsConcurrencyService();
+        DummyZKOozie dummyOozie = null;
+        try {
+            dummyOozie = new DummyZKOozie("a", "http://blah");
+            zkjcs.init(Services.get());
+            ConsistentHashRing ring = zkjcs.getRing();
+            assertEquals(2, ring.getMembers().size());
+            int owned = 0;
+            for (int i = 0; i < 100; i++) {
+                String jobId = String.format("%07d-130521183438837-oozie-rkan-W", i);
+                boolean expected = ZK_ID.equals(ring.getOwner(jobId));
+                assertEquals(expected, zkjcs.isJobIdForThisServer(jobId));
+                assertEquals(expected, zkjcs.isJobOwnedByThisServer(jobId));
+                assertEquals("Actions belong to the owner of their job", expected, zkjcs.isJobOwnedByThisServer(jobId + "@1"));
+                owned += expected ? 1 : 0;
+            }
+            assertTrue("Jobs must be split between servers, owned " + owned, owned > 0 && owned < 100);
+            assertTrue(zkjcs.isJobIdForThisServer("blah"));
+            assertFalse("Only jobs can be owned", zkjcs.isJobOwnedByThisServer("blah"));
+        }
+        finally {
+            zkjcs.destroy();
+            if (dummyOozie != null) {
+                dummyOozie.teardown();
+            }
+        }
+    }
+
+    public void testRingIsRebuiltOnMembershipChange() throws Exception {
+        ConfigurationService.setBoolean(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED, true);
+        ConfigurationService.set(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_REBALANCE_WINDOW, "0");
+        final ZKJobsConcurrencyService zkjcs = new ZKJobsConcurrencyService();
+        DummyZKOozie dummyOozie = null;
+        try {
+            zkjcs.init(Services.get());
+            ConsistentHashRing ring = zkjcs.getRing();
+            assertEquals(1, ring.getMembers().size());
+            assertSame("The ring is cached", ring, zkjcs.getRing());
+
+            dummyOozie = new DummyZKOozie("a", "http://blah");
+            waitFor(10000, new Predicate() {
+                @Override
+                public boolean evaluate() throws Exception {
+                    return zkjcs.getRing().getMembers().size() == 2;
+                }
+            });
+            ring = zkjcs.getRing();
+            assertEquals(2, ring.getMembers().size());
+            assertSame("The ring is cached", ring, zkjcs.getRing());
+        }
+        finally {
+            zkjcs.destroy();
+            if (dummyOozie != null) {
+                dummyOozie.teardown();
+            }
+        }
+    }
+
+    public void testJobOwnershipRebalanceWindow() throws Exception {
+        ConfigurationService.setBoolean(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED, true);
+        ConfigurationService.set(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_REBALANCE_WINDOW, "3600");
+        ZKJobsConcurrencyService zkjcs = new ZKJobsConcurrencyService();
+        try {
+            zkjcs.init(Services.get());
+            String jobId = "0000001-130521183438837-oozie-rkan-W";
+            assertTrue("Single server owns all the jobs", zkjcs.isJobIdForThisServer(jobId));
+            assertFalse("No local locking during the rebalance window", zkjcs.isJobOwnedByThisServer(jobId));
+            assertTrue(zkjcs.isRebalancing());
+        }
+        finally {
+            zkjcs.destroy();
+        }
+    }
 }
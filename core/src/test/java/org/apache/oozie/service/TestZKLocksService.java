@@ -22,6 +22,8 @@ import java.util.UUID;
 
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.oozie.lock.LockToken;
 import org.apache.oozie.lock.TestMemoryLocks;
 import org.apache.oozie.service.ZKLocksService.ZKLockToken;
@@ -594,6 +596,130 @@ public class TestZKLocksService extends ZKXTestCase {
         }
     }
 
+    public void testOwnerLocks() throws Exception {
+        final String jobId = "0000001-130521183438837-oozie-rkan-W";
+        ConfigurationService.setBoolean(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED, true);
+        ConfigurationService.set(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_REBALANCE_WINDOW, "0");
+        // Contention must be noticed by the ZooKeeper watch, not by the periodic check
+        ConfigurationService.set(ZKLocksService.OWNER_LOCK_CHECK_INTERVAL, "3600");
+        Services.get().setService(ZKJobsConcurrencyService.class);
+        final ZKLocksService zkls = new ZKLocksService();
+        try {
+            zkls.init(Services.get());
+            LockToken lock = zkls.getWriteLock(jobId, TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            assertNotNull(lock);
+            assertFalse("The owner locks the job in memory", lock instanceof ZKLockToken);
+            lock.release();
+            assertTrue("The owner keeps the ZooKeeper lock", zkls.getOwnerLocks().get(jobId).isHeld());
+
+            // Another server still goes through ZooKeeper and is excluded until the owner gives the lock up
+            final InterProcessMutex otherServerLock = new InterProcessReadWriteLock(getClient(),
+                    ZKLocksService.LOCKS_NODE + "/" + jobId).writeLock();
+            assertFalse(otherServerLock.acquire(100, TimeUnit.MILLISECONDS));
+
+            lock = zkls.getWriteLock(jobId, TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            final boolean[] acquired = new boolean[] {false};
+            Thread otherServer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        acquired[0] = otherServerLock.acquire(30, TimeUnit.SECONDS);
+                        otherServerLock.release();
+                    }
+                    catch (Exception e) {
+                        log.error(e);
+                    }
+                }
+            };
+            otherServer.start();
+            sleep(1000);
+            checkOwnerLocks(zkls);
+            assertTrue("The owner lock is in use", zkls.getOwnerLocks().get(jobId).isHeld());
+            lock.release();
+            waitFor(10000, new Predicate() {
+                @Override
+                public boolean evaluate() throws Exception {
+                    return zkls.getOwnerLocks().get(jobId) == null;
+                }
+            });
+            assertNull("Contended owner lock is released", zkls.getOwnerLocks().get(jobId));
+            otherServer.join();
+            assertTrue(acquired[0]);
+
+            // Non job resources keep using ZooKeeper locks
+            lock = zkls.getWriteLock("blah", TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            assertTrue(lock instanceof ZKLockToken);
+            lock.release();
+        }
+        finally {
+            zkls.destroy();
+        }
+    }
+
+    public void testOwnerLocksOnConnectionStateChanges() throws Exception {
+        final String jobId = "0000001-130521183438837-oozie-rkan-W";
+        final String otherJobId = "0000002-130521183438837-oozie-rkan-W";
+        ConfigurationService.setBoolean(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_ENABLED, true);
+        ConfigurationService.set(ZKJobsConcurrencyService.CONF_JOB_OWNERSHIP_REBALANCE_WINDOW, "0");
+        ConfigurationService.set(ZKLocksService.OWNER_LOCK_CHECK_INTERVAL, "3600");
+        Services.get().setService(ZKJobsConcurrencyService.class);
+        final ZKLocksService zkls = new ZKLocksService();
+        try {
+            zkls.init(Services.get());
+            ConnectionStateListener listener = zkls.getOwnerLockConnectionListener();
+            LockToken lock = zkls.getWriteLock(jobId, TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            assertNotNull(lock);
+
+            // A suspended connection keeps the owner locks but does not grant any
+            listener.stateChanged(getClient(), ConnectionState.SUSPENDED);
+            assertTrue("The owner lock in use is kept", zkls.getOwnerLocks().get(jobId).isHeld());
+            assertNull(zkls.getWriteLock(otherJobId, 0));
+            listener.stateChanged(getClient(), ConnectionState.RECONNECTED);
+            LockToken otherLock = zkls.getWriteLock(otherJobId, TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            assertNotNull(otherLock);
+            otherLock.release();
+
+            // A lost connection gives up the owner locks, the one in use when the command releases it
+            listener.stateChanged(getClient(), ConnectionState.LOST);
+            waitFor(10000, new Predicate() {
+                @Override
+                public boolean evaluate() throws Exception {
+                    return zkls.getOwnerLocks().get(otherJobId) == null;
+                }
+            });
+            assertNull("The owner lock not in use is released", zkls.getOwnerLocks().get(otherJobId));
+            assertTrue("The owner lock in use is kept", zkls.getOwnerLocks().get(jobId).isHeld());
+            lock.release();
+            waitFor(10000, new Predicate() {
+                @Override
+                public boolean evaluate() throws Exception {
+                    return zkls.getOwnerLocks().get(jobId) == null;
+                }
+            });
+            assertNull("The owner lock is released once not in use", zkls.getOwnerLocks().get(jobId));
+
+            listener.stateChanged(getClient(), ConnectionState.RECONNECTED);
+            lock = zkls.getWriteLock(jobId, TestMemoryLocks.DEFAULT_LOCK_TIMEOUT);
+            assertNotNull(lock);
+            lock.release();
+        }
+        finally {
+            zkls.destroy();
+        }
+    }
+
+    // The check must not run on the thread holding the in-memory locks as they are reentrant
+    private void checkOwnerLocks(final ZKLocksService zkls) throws InterruptedException {
+        Thread checker = new Thread() {
+            @Override
+            public void run() {
+                zkls.checkOwnerLocks();
+            }
+        };
+        checker.start();
+        checker.join();
+    }
+
     static class ThreadLock extends Thread {
         ZKLocksService zkls;
         String path;
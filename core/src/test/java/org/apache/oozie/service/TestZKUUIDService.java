@@ -20,6 +20,7 @@ package org.apache.oozie.service;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.oozie.BulkResponseInfo;
@@ -247,6 +248,138 @@ public class TestZKUUIDService extends ZKXTestCase {
         }
     }
 
+    public void testBlockIDGeneration() throws Exception {
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_SIZE, "10");
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_MAX_SIZE, "10");
+        ZKUUIDService uuid1 = new ZKUUIDService();
+        ZKUUIDService uuid2 = new ZKUUIDService();
+        try {
+            setSystemProperty(UUIDService.CONF_GENERATOR, "counter");
+            uuid1.init(Services.get());
+            uuid2.init(Services.get());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, Integer.parseInt(uuid1.generateId(ApplicationType.WORKFLOW).substring(0, 7)));
+            }
+            assertEquals("Second server leased the second block", 10,
+                    Integer.parseInt(uuid2.generateId(ApplicationType.WORKFLOW).substring(0, 7)));
+            assertEquals("First server leased the third block", 20,
+                    Integer.parseInt(uuid1.generateId(ApplicationType.WORKFLOW).substring(0, 7)));
+            assertEquals(11, Integer.parseInt(uuid2.generateId(ApplicationType.WORKFLOW).substring(0, 7)));
+        }
+        finally {
+            uuid1.destroy();
+            uuid2.destroy();
+        }
+    }
+
+    public void testBlockSizeAdaptation() throws Exception {
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_SIZE, "4");
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_MAX_SIZE, "20");
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_GROW_THRESHOLD_MS, "1000");
+        ZKUUIDService uuid = new ZKUUIDService();
+        try {
+            setSystemProperty(UUIDService.CONF_GENERATOR, "counter");
+            uuid.init(Services.get());
+            assertEquals(4, uuid.getBlockSize());
+            uuid.adaptBlockSize(10);
+            assertEquals(8, uuid.getBlockSize());
+            uuid.adaptBlockSize(10);
+            uuid.adaptBlockSize(10);
+            assertEquals("Block size is capped", 20, uuid.getBlockSize());
+            uuid.adaptBlockSize(5000);
+            assertEquals("Block size is kept", 20, uuid.getBlockSize());
+            uuid.adaptBlockSize(20000);
+            assertEquals(10, uuid.getBlockSize());
+            uuid.adaptBlockSize(20000);
+            uuid.adaptBlockSize(20000);
+            assertEquals("Block size does not go below the configured size", 4, uuid.getBlockSize());
+        }
+        finally {
+            uuid.destroy();
+        }
+    }
+
+    public void testResetSequenceWithBlocks() throws Exception {
+        Services service = Services.get();
+        service.setService(ZKLocksService.class);
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_SIZE, "64");
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_MAX_SIZE, "64");
+        ZKUUIDService uuid = new ZKUUIDService();
+        try {
+            setSystemProperty(UUIDService.CONF_GENERATOR, "counter");
+            ZKUUIDService.setMaxSequence(900);
+            uuid.init(service);
+            String id = null;
+            for (int i = 0; i < 900; i++) {
+                id = uuid.generateId(ApplicationType.WORKFLOW);
+                assertEquals("Ids are consecutive up to the max", i, Integer.parseInt(id.substring(0, 7)));
+            }
+            id = uuid.generateId(ApplicationType.WORKFLOW);
+            assertTrue("Sequence is reset once the max is reached", id.startsWith("0000000-"));
+        }
+        finally {
+            uuid.destroy();
+        }
+    }
+
+    public void testBlockIDGenerationThroughput() throws Exception {
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_SIZE, "16");
+        ConfigurationService.set(ZKUUIDService.CONF_BLOCK_MAX_SIZE, "1024");
+        setSystemProperty(UUIDService.CONF_GENERATOR, "counter");
+        for (int servers : new int[] {1, 3}) {
+            checkIDGenerationThroughput(servers, 20000);
+        }
+    }
+
+    private void checkIDGenerationThroughput(int servers, final int idsPerServer) throws Exception {
+        final ZKUUIDService[] uuids = new ZKUUIDService[servers];
+        final boolean[][] generated = new boolean[servers][];
+        Thread[] threads = new Thread[servers];
+        try {
+            for (int i = 0; i < servers; i++) {
+                uuids[i] = new ZKUUIDService();
+                uuids[i].init(Services.get());
+                final int server = i;
+                threads[i] = new Thread() {
+                    public void run() {
+                        generated[server] = new boolean[idsPerServer * uuids.length * 2];
+                        for (int j = 0; j < idsPerServer; j++) {
+                            String id = uuids[server].generateId(ApplicationType.WORKFLOW);
+                            generated[server][Integer.parseInt(id.substring(0, 7))] = true;
+                        }
+                    }
+                };
+            }
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Generated [{0}] ids with [{1}] servers in [{2}] ms, [{3}] ids/s", idsPerServer * servers, servers,
+                    elapsedMs, idsPerServer * servers * 1000L / elapsedMs);
+            int total = 0;
+            for (int j = 0; j < generated[0].length; j++) {
+                int count = 0;
+                for (int i = 0; i < servers; i++) {
+                    count += generated[i][j] ? 1 : 0;
+                }
+                assertTrue("Id " + j + " generated by more than one server", count <= 1);
+                total += count;
+            }
+            assertEquals(idsPerServer * servers, total);
+        }
+        finally {
+            for (ZKUUIDService uuid : uuids) {
+                if (uuid != null) {
+                    uuid.destroy();
+                }
+            }
+        }
+    }
+
     public void testFallback() throws Exception {
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyMMddHHmmssSSS");
 
@@ -18,17 +18,24 @@
 package org.apache.oozie.service;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.commons.logging.LogFactory;
 import org.apache.oozie.client.rest.RestConstants;
 import org.apache.oozie.test.EmbeddedServletContainer;
@@ -631,4 +638,112 @@ public class TestZKXLogStreamingService extends ZKXTestCase {
         assertFalse(logError.contains("Truncated logs to max log scan duration"));
     }
 
+
+    public void testStreamingWithSlowOozieServers() throws Exception {
+        XLogFilter.reset();
+        XLogFilter.defineParameter("USER");
+        XLogFilter.defineParameter("GROUP");
+        XLogFilter.defineParameter("TOKEN");
+        XLogFilter.defineParameter("APP");
+        XLogFilter.defineParameter("JOB");
+        XLogFilter.defineParameter("ACTION");
+        XLogFilter xf = new XLogFilter();
+        xf.setParameter("JOB", "0000003-130610102426873-oozie-rkan-W");
+        File log4jFile = new File(getTestCaseConfDir(), "test-log4j.properties");
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        InputStream is = cl.getResourceAsStream("test-no-dash-log4j.properties");
+        Properties log4jProps = new Properties();
+        log4jProps.load(is);
+        // prevent conflicts with other tests by changing the log file location
+        log4jProps.setProperty("log4j.appender.oozie.File", getTestCaseDir() + "/oozie.log");
+        log4jProps.store(new FileOutputStream(log4jFile), "");
+        setSystemProperty(XLogService.LOG4J_FILE, log4jFile.getName());
+        assertFalse(doStreamDisabledCheck());
+        File logFile = new File(Services.get().get(XLogService.class).getOozieLogPath(),
+                                Services.get().get(XLogService.class).getOozieLogName());
+        logFile.getParentFile().mkdirs();
+        try (Writer logWriter = new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8)) {
+            logWriter.append(slowServerLogLine("10:25:44,000", "_L2_"));
+        }
+        ConfigurationService.set(ZKXLogStreamingService.CONF_PEER_TIMEOUT, "2");
+
+        // Three other "Oozie servers", the last one sends a message and then hangs
+        String[] ids = {"9876", "9877", "9878"};
+        String[] logs = {slowServerLogLine("10:25:43,000", "_L1_") + slowServerLogLine("10:25:46,000", "_L4_"),
+                slowServerLogLine("10:25:45,000", "_L3_") + slowServerLogLine("10:25:47,000", "_L5_"),
+                slowServerLogLine("10:25:48,000", "_L6_")};
+        List<EmbeddedServletContainer> containers = new ArrayList<>();
+        List<DummyZKOozie> dummyOozies = new ArrayList<>();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                EmbeddedServletContainer container = new EmbeddedServletContainer("oozie");
+                container.addServletEndpoint("/other-oozie-server/*", new DelayedLogStreamingServlet(logs[i],
+                        i == ids.length - 1 ? 10000 : 0, slowServerLogLine("10:25:49,000", "_L7_")));
+                containers.add(container);
+                container.start();
+                dummyOozies.add(new DummyZKOozie(ids[i], container.getServletURL("/other-oozie-server/*")));
+            }
+
+            long start = System.currentTimeMillis();
+            String out = doStreamLog(xf);
+            assertTrue("The servers must be called at the same time",
+                    System.currentTimeMillis() - start < 9000);
+            String[] outArr = out.split("\n");
+            assertEquals(7, outArr.length);
+            for (int i = 0; i < 6; i++) {
+                assertTrue(outArr[i], outArr[i].contains("_L" + (i + 1) + "_"));
+            }
+            assertTrue(outArr[6], outArr[6].contains("WARN ZKXLogStreamingService - Log streaming from Oozie server [9878]"));
+            assertTrue(outArr[6], outArr[6].contains("log information may be incomplete"));
+            assertFalse(out.contains("_L7_"));
+        }
+        finally {
+            for (DummyZKOozie dummyOozie : dummyOozies) {
+                dummyOozie.teardown();
+            }
+            for (EmbeddedServletContainer container : containers) {
+                container.stop();
+            }
+        }
+    }
+
+    private static String slowServerLogLine(String time, String marker) {
+        return "2013-06-10 " + time + " WARN ActionStartXCommand:542 SERVER[foo] USER[rkanter] GROUP[-] TOKEN[] APP[hive-wf] "
+                + "JOB[0000003-130610102426873-oozie-rkan-W] ACTION[0000003-130610102426873-oozie-rkan-W@hive-node] "
+                + "message " + marker + "\n";
+    }
+
+    /**
+     * Streams some logs from another Oozie "server", then waits before streaming the rest.
+     */
+    private static class DelayedLogStreamingServlet extends HttpServlet {
+        private final String logs;
+        private final long delay;
+        private final String delayedLogs;
+
+        DelayedLogStreamingServlet(String logs, long delay, String delayedLogs) {
+            this.logs = logs;
+            this.delay = delay;
+            this.delayedLogs = delayedLogs;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            response.setStatus(HttpServletResponse.SC_OK);
+            Writer writer = response.getWriter();
+            writer.append(logs);
+            if (delay > 0) {
+                writer.flush();
+                response.flushBuffer();
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException ex) {
+                    return;
+                }
+                writer.append(delayedLogs);
+            }
+            writer.close();
+        }
+    }
 }
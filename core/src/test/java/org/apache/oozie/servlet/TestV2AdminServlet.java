@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.servlet;
+
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.oozie.client.WorkflowJob;
+import org.apache.oozie.client.rest.JsonTags;
+import org.apache.oozie.client.rest.RestConstants;
+import org.apache.oozie.event.JobEventRecord;
+import org.apache.oozie.event.WorkflowJobEvent;
+import org.apache.oozie.service.EventHandlerService;
+import org.apache.oozie.service.Services;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+public class TestV2AdminServlet extends DagServletTestCase {
+
+    static {
+        new V2AdminServlet();
+    }
+    private static final boolean IS_SECURITY_ENABLED = false;
+
+    public void testJournalEvents() throws Exception {
+        setSystemProperty(Services.CONF_SERVICE_EXT_CLASSES, EventHandlerService.class.getName());
+        setSystemProperty(EventHandlerService.CONF_JOURNAL_ENABLED, "true");
+        setSystemProperty(EventHandlerService.CONF_JOURNAL_DIR, getTestCaseDir() + "/journal");
+        runTest("/v2/admin/*", V2AdminServlet.class, IS_SECURITY_ENABLED, new Callable<Void>() {
+            public Void call() throws Exception {
+                EventHandlerService ehs = Services.get().get(EventHandlerService.class);
+                for (int i = 0; i < 3; i++) {
+                    ehs.queueEvent(new WorkflowJobEvent("jobid" + i, null, WorkflowJob.Status.RUNNING, getTestUser(),
+                            "myapp", null, null));
+                }
+
+                Map<String, String> params = new HashMap<String, String>();
+                params.put(RestConstants.LEN_PARAM, "2");
+                JSONObject json = getEvents(params, HttpServletResponse.SC_OK);
+                assertEquals(0L, json.get(JsonTags.EVENTS_FIRST_OFFSET));
+                assertEquals(2L, json.get(JsonTags.EVENTS_NEXT_OFFSET));
+                JSONArray events = (JSONArray) json.get(JsonTags.EVENTS);
+                assertEquals(2, events.size());
+                assertEquals(0L, ((JSONObject) events.get(0)).get(JsonTags.EVENT_OFFSET));
+                assertEquals("jobid0", ((JSONObject) events.get(0)).get(JobEventRecord.ID));
+
+                // the next page
+                params.put(RestConstants.OFFSET_PARAM, "2");
+                json = getEvents(params, HttpServletResponse.SC_OK);
+                assertEquals(3L, json.get(JsonTags.EVENTS_NEXT_OFFSET));
+                events = (JSONArray) json.get(JsonTags.EVENTS);
+                assertEquals(1, events.size());
+                assertEquals("jobid2", ((JSONObject) events.get(0)).get(JobEventRecord.ID));
+
+                // nothing after the last event
+                params.put(RestConstants.OFFSET_PARAM, "3");
+                json = getEvents(params, HttpServletResponse.SC_OK);
+                assertEquals(3L, json.get(JsonTags.EVENTS_NEXT_OFFSET));
+                assertTrue(((JSONArray) json.get(JsonTags.EVENTS)).isEmpty());
+
+                params.put(RestConstants.LEN_PARAM, "0");
+                getEvents(params, HttpServletResponse.SC_BAD_REQUEST);
+                params.put(RestConstants.LEN_PARAM, "1");
+                params.put(RestConstants.OFFSET_PARAM, "first");
+                getEvents(params, HttpServletResponse.SC_BAD_REQUEST);
+                return null;
+            }
+        });
+    }
+
+    public void testJournalEventsNotEnabled() throws Exception {
+        runTest("/v2/admin/*", V2AdminServlet.class, IS_SECURITY_ENABLED, new Callable<Void>() {
+            public Void call() throws Exception {
+                getEvents(Collections.<String, String>emptyMap(), HttpServletResponse.SC_BAD_REQUEST);
+                return null;
+            }
+        });
+    }
+
+    private JSONObject getEvents(Map<String, String> params, int expectedCode) throws Exception {
+        URL url = createURL(RestConstants.ADMIN_EVENTS_RESOURCE, params);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("GET");
+        assertEquals(expectedCode, conn.getResponseCode());
+        if (expectedCode != HttpServletResponse.SC_OK) {
+            return null;
+        }
+        assertTrue(conn.getHeaderField("content-type").startsWith(RestConstants.JSON_CONTENT_TYPE));
+        return (JSONObject) JSONValue.parse(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+    }
+}
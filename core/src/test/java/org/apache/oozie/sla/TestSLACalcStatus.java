@@ -18,12 +18,33 @@
 
 package org.apache.oozie.sla;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.oozie.AppType;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.event.SLAEvent.EventStatus;
+import org.apache.oozie.client.event.SLAEvent.SLAStatus;
+import org.junit.Assume;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class TestSLACalcStatus {
 
+    /**
+     * Number of registrations of {@link #testMemoryFootprint()}, which only runs when it is set, i.e.
+     * <code>-Doozie.test.sla.memory.benchmark.registrations=1000000</code>.
+     */
+    private static final String BENCHMARK_REGISTRATIONS = "oozie.test.sla.memory.benchmark.registrations";
+
     @Test
     public void testRetryCountOperations() {
         final SLACalcStatus status = new SLACalcStatus();
@@ -38,4 +59,168 @@ public class TestSLACalcStatus {
         assertEquals("retryCount mismatch after reset", 0, status.getRetryCount());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testPackedState() {
+        final SLACalcStatus status = new SLACalcStatus();
+        assertNull(status.getSLAStatus());
+        assertNull(status.getEventStatus());
+        assertNull(status.getActualStart());
+        assertEquals(0, status.getEventProcessed());
+
+        status.setEventProcessed(5);
+        status.setSLAStatus(SLAStatus.MISS);
+        status.setEventStatus(EventStatus.END_MISS);
+        assertEquals(5, status.getEventProcessed());
+        assertEquals(SLAStatus.MISS, status.getSLAStatus());
+        assertEquals(EventStatus.END_MISS, status.getEventStatus());
+
+        status.setEventProcessed(8);
+        status.setSLAStatus(SLAStatus.NOT_STARTED);
+        status.setEventStatus(null);
+        assertEquals(8, status.getEventProcessed());
+        assertEquals(SLAStatus.NOT_STARTED, status.getSLAStatus());
+        assertNull(status.getEventStatus());
+
+        final Date start = new Date(0);
+        status.setActualStart(start);
+        status.setActualEnd(new Date(1000));
+        assertEquals(start, status.getActualStart());
+        assertEquals(new Date(1000), status.getActualEnd());
+        status.setActualStart(null);
+        assertNull(status.getActualStart());
+
+        final SLACalcStatus copy = new SLACalcStatus(status);
+        assertEquals(8, copy.getEventProcessed());
+        assertEquals(SLAStatus.NOT_STARTED, copy.getSLAStatus());
+        assertEquals(new Date(1000), copy.getActualEnd());
+    }
+
+    @Test
+    public void testCompact() {
+        final SLACalcStatus status1 = new SLACalcStatus(createRegistration(1));
+        final SLACalcStatus status2 = new SLACalcStatus(createRegistration(2));
+        status1.getSLARegistrationBean().addToSLAConfigMap(OozieClient.SLA_DISABLE_ALERT, "true");
+        status1.compact();
+        status2.compact();
+
+        final SLARegistrationBean reg = status1.getSLARegistrationBean();
+        assertEquals("0000001-200101000000000-oozie-oozi-C@2", reg.getId());
+        assertEquals("0000000-200101000000000-oozie-oozi-C", reg.getParentId());
+        assertEquals(AppType.COORDINATOR_ACTION, reg.getAppType());
+        assertEquals(new Date(3600 * 1000), reg.getExpectedStart());
+        assertEquals(new Date(7200 * 1000), reg.getExpectedEnd());
+        assertEquals(1800 * 1000, reg.getExpectedDuration());
+        assertEquals("alice@example.com", status1.getAlertContact());
+        assertEquals("START_MISS,END_MISS", status1.getAlertEvents());
+        assertEquals("true", status1.getSLAConfigMap().get(OozieClient.SLA_DISABLE_ALERT));
+        assertTrue(reg.getSlaConfig().contains(OozieClient.SLA_DISABLE_ALERT));
+        assertNull("Details are loaded when needed", reg.getNotificationMsg());
+        assertNull(reg.getJobData());
+
+        assertSame("Repeated strings are shared", reg.getAppName(), status2.getSLARegistrationBean().getAppName());
+        assertSame(reg.getUser(), status2.getSLARegistrationBean().getUser());
+        assertSame(reg.getParentId(), status2.getSLARegistrationBean().getParentId());
+        assertSame(status1.getAlertContact(), status2.getAlertContact());
+
+        status1.compact();
+        assertSame("Compacting twice is a no-op", reg, status1.getSLARegistrationBean());
+    }
+
+    /**
+     * A compacted status must not keep the registration it was created with, nor any registration holding the notification
+     * message, the upstream apps or the job data.
+     */
+    @Test
+    public void testCompactReleasesRegistration() throws Exception {
+        final SLARegistrationBean original = createRegistration(1);
+        final SLACalcStatus status = new SLACalcStatus(original);
+        status.setSLAStatus(SLAStatus.NOT_STARTED);
+        status.compact();
+
+        final SLARegistrationBean reg = status.getSLARegistrationBean();
+        assertNotSame(original, reg);
+        assertNull(reg.getUpstreamApps());
+        assertNull(reg.getCreatedTime());
+        for (Class<?> clazz = SLACalcStatus.class; clazz != null; clazz = clazz.getSuperclass()) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                final Object value = field.get(status);
+                assertNotSame("Field " + field.getName() + " keeps the original registration", original, value);
+                if (value instanceof SLARegistrationBean) {
+                    final SLARegistrationBean bean = (SLARegistrationBean) value;
+                    assertNull(field.getName(), bean.getNotificationMsg());
+                    assertNull(field.getName(), bean.getUpstreamApps());
+                    assertNull(field.getName(), bean.getJobData());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the registration of the i-th action of a coordinator with 100 actions, with new strings as read from the
+     * database.
+     */
+    /**
+     * Measures the heap used by the SLA statuses of registrations, as registered and once compacted. It only runs when
+     * {@link #BENCHMARK_REGISTRATIONS} is set.
+     */
+    @Test
+    public void testMemoryFootprint() {
+        Assume.assumeTrue("Benchmark not enabled", System.getProperty(BENCHMARK_REGISTRATIONS) != null);
+        final int count = Integer.getInteger(BENCHMARK_REGISTRATIONS);
+        final long full = measureFootprint(count, false);
+        final long compact = measureFootprint(count, true);
+        assertTrue(String.format("[%d] SLA registrations: [%d] MB (%d bytes each), compacted [%d] MB (%d bytes each)",
+                count, full / (1024 * 1024), full / count, compact / (1024 * 1024), compact / count), compact < full);
+    }
+
+    private static long measureFootprint(final int count, final boolean compact) {
+        final long before = usedMemory();
+        final Map<String, SLACalcStatus> slaMap = new HashMap<String, SLACalcStatus>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final SLACalcStatus status = new SLACalcStatus(createRegistration(i));
+            status.setSLAStatus(SLAStatus.NOT_STARTED);
+            status.setJobStatus(new String("WAITING"));
+            if (compact) {
+                status.compact();
+            }
+            slaMap.put(status.getId(), status);
+        }
+        final long used = usedMemory() - before;
+        assertEquals(count, slaMap.size());
+        return used;
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static SLARegistrationBean createRegistration(final int i) {
+        final int coordinator = i / 100;
+        final String coordinatorId = String.format("%07d-200101000000000-oozie-oozi-C", coordinator);
+        final SLARegistrationBean reg = new SLARegistrationBean();
+        reg.setId(String.format("%07d-200101000000000-oozie-oozi-C@%d", i, i % 100 + 1));
+        reg.setParentId(coordinatorId);
+        reg.setAppName("sla-coordinator-" + coordinator);
+        reg.setAppType(AppType.COORDINATOR_ACTION);
+        reg.setUser("user-" + coordinator % 10);
+        reg.setCreatedTime(new Date());
+        reg.setNominalTime(new Date(0));
+        reg.setExpectedStart(new Date(3600 * 1000));
+        reg.setExpectedEnd(new Date(7200 * 1000));
+        reg.setExpectedDuration(1800 * 1000);
+        reg.setAlertContact(new String("alice@example.com"));
+        reg.setAlertEvents(new String("START_MISS,END_MISS"));
+        reg.setNotificationMsg("Notifying of the SLA of the action " + i + " of coordinator " + coordinatorId);
+        reg.setUpstreamApps("upstream-" + coordinator);
+        reg.setJobData("Job data of the action " + i);
+        return reg;
+    }
+}
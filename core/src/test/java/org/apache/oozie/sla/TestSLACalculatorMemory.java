@@ -1002,6 +1002,86 @@ public class TestSLACalculatorMemory extends XDataTestCase {
         assertEquals(slaSummaryBean.getJobStatus(), WorkflowInstance.Status.SUCCEEDED.toString());
     }
 
+    public void testChecksScheduledByDeadline() throws Exception {
+        SLACalculatorMemory slaCalcMemory = new SLACalculatorMemory();
+        slaCalcMemory.init(Services.get().get(ConfigurationService.class).getConf());
+        long latency = ConfigurationService.getInt(SLAService.CONF_JOB_EVENT_LATENCY);
+
+        WorkflowJobBean job1 = addRecordToWfJobTable(WorkflowJob.Status.PREP, WorkflowInstance.Status.PREP);
+        SLARegistrationBean slaRegBean = _createSLARegistration(job1.getId(), AppType.WORKFLOW_JOB);
+        Date expectedStart = new Date(System.currentTimeMillis() + 1 * 3600 * 1000); // 1 hour ahead
+        slaRegBean.setExpectedStart(expectedStart);
+        slaRegBean.setExpectedDuration(30 * 60 * 1000);
+        slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 2 * 3600 * 1000)); // 2 hours ahead
+        String jobId = slaRegBean.getId();
+        slaCalcMemory.addRegistration(jobId, slaRegBean);
+        assertEquals(Long.valueOf(expectedStart.getTime() + latency), slaCalcMemory.getScheduledCheckTime(jobId));
+
+        // Nothing is due, the job stays scheduled at its expected start
+        slaCalcMemory.updateAllSlaStatus();
+        slaCalcMemory.updateAllSlaStatus();
+        assertEquals(Long.valueOf(expectedStart.getTime() + latency), slaCalcMemory.getScheduledCheckTime(jobId));
+
+        // Once started, the next deadline is the expected duration
+        Date actualStart = new Date();
+        job1.setStatus(WorkflowJob.Status.RUNNING);
+        job1.setStartTime(actualStart);
+        job1.setLastModifiedTime(new Date());
+        WorkflowJobQueryExecutor.getInstance().executeUpdate(WorkflowJobQuery.UPDATE_WORKFLOW_STATUS_MODTIME, job1);
+        slaCalcMemory.addJobStatus(jobId, WorkflowJob.Status.RUNNING.name(), EventStatus.STARTED, actualStart, null);
+        assertEquals(Long.valueOf(actualStart.getTime() + 30 * 60 * 1000 + latency),
+                slaCalcMemory.getScheduledCheckTime(jobId));
+
+        slaCalcMemory.removeRegistration(jobId);
+        assertNull(slaCalcMemory.getScheduledCheckTime(jobId));
+    }
+
+    public void testAsyncLoadOnRestartStopsOnDestroy() throws Exception {
+        Configuration conf = Services.get().get(ConfigurationService.class).getConf();
+        conf.setBoolean(SLAService.CONF_RESTART_LOAD_ASYNC, true);
+        SLACalculatorMemory slaCalcMemory = new SLACalculatorMemory();
+        slaCalcMemory.init(conf);
+        slaCalcMemory.destroy();
+        assertFalse("The reload is over once destroyed", slaCalcMemory.isWarmingUp());
+    }
+
+    public void testLoadOnRestartInParallel() throws Exception {
+        Configuration conf = Services.get().get(ConfigurationService.class).getConf();
+        SLACalculatorMemory slaCalcMemory = new SLACalculatorMemory();
+        slaCalcMemory.init(conf);
+        List<String> idList = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            SLARegistrationBean slaRegBean = _createSLARegistration("job-" + i + "-W", AppType.WORKFLOW_JOB);
+            slaRegBean.setExpectedStart(new Date(System.currentTimeMillis() + 1 * 3600 * 1000)); // 1 hour ahead
+            slaRegBean.setExpectedEnd(new Date(System.currentTimeMillis() + 2 * 3600 * 1000)); // 2 hours ahead
+            slaRegBean.setAlertContact("a@abc.com");
+            slaCalcMemory.addRegistration(slaRegBean.getId(), slaRegBean);
+            idList.add(slaRegBean.getId());
+        }
+        createWorkflow(idList);
+
+        // Spread the summaries over several of the ranges loaded in parallel
+        for (int i = 0; i < idList.size(); i++) {
+            SLACalcStatus calc = slaCalcMemory.get(idList.get(i));
+            calc.setLastModifiedTime(new Date(System.currentTimeMillis() - i * 3600 * 1000 - 1000));
+            SLASummaryQueryExecutor.getInstance().executeUpdate(SLASummaryQuery.UPDATE_SLA_SUMMARY_LAST_MODIFIED_TIME,
+                    new SLASummaryBean(calc));
+        }
+
+        conf.setInt(SLAService.CONF_RESTART_LOAD_THREADS, 3);
+        slaCalcMemory = new SLACalculatorMemory();
+        slaCalcMemory.init(conf);
+        assertFalse(slaCalcMemory.isWarmingUp());
+        assertEquals(idList.size(), slaCalcMemory.size());
+        for (String jobId : idList) {
+            SLACalcStatus calc = slaCalcMemory.get(jobId);
+            assertNotNull(jobId, calc);
+            assertEquals("a@abc.com", calc.getSLARegistrationBean().getAlertContact());
+            // Checked against the job on the first run after the restart
+            assertEquals(Long.valueOf(0), slaCalcMemory.getScheduledCheckTime(jobId));
+        }
+    }
+
     public void testSingleAddUpdateRemoveInstrumentedCorrectly() throws Exception {
         SLACalculatorMemory slaCalcMemory = new SLACalculatorMemory();
         slaCalcMemory.init(Services.get().get(ConfigurationService.class).getConf());
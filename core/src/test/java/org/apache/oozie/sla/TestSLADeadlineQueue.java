@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.sla;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestSLADeadlineQueue {
+
+    @Test
+    public void testPollDueInDeadlineOrder() {
+        SLADeadlineQueue queue = new SLADeadlineQueue();
+        queue.schedule("job-3", 300);
+        queue.schedule("job-1", 100);
+        queue.schedule("job-2", 200);
+        queue.schedule("job-0", Long.MIN_VALUE);
+        queue.schedule("job-4", SLADeadlineQueue.NEVER);
+        assertEquals(4, queue.size());
+        assertNull("Jobs without a deadline are not queued", queue.get("job-4"));
+
+        assertEquals(Arrays.asList("job-0", "job-1", "job-2"), queue.pollDue(200));
+        assertEquals(Collections.<String>emptyList(), queue.pollDue(200));
+        assertNull(queue.get("job-1"));
+        assertEquals(1, queue.size());
+        assertEquals(Collections.singletonList("job-3"), queue.pollDue(1000));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRescheduleAndRemove() {
+        SLADeadlineQueue queue = new SLADeadlineQueue();
+        queue.schedule("job-1", 100);
+        queue.schedule("job-2", 100);
+        queue.schedule("job-1", 500);
+        assertEquals(Long.valueOf(500), queue.get("job-1"));
+        assertEquals("A job is queued once", Collections.singletonList("job-2"), queue.pollDue(200));
+
+        queue.schedule("job-1", SLADeadlineQueue.NEVER);
+        assertEquals(0, queue.size());
+        assertEquals(Collections.<String>emptyList(), queue.pollDue(1000));
+
+        queue.schedule("job-1", 100);
+        queue.schedule("job-2", 100);
+        queue.remove("job-1");
+        queue.remove("job-3");
+        assertEquals(Collections.singletonList("job-2"), queue.pollDue(1000));
+
+        queue.schedule("job-1", 100);
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertEquals(Collections.<String>emptyList(), queue.pollDue(1000));
+    }
+}
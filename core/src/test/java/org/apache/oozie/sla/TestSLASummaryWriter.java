@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.sla;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.oozie.ErrorCode;
+import org.apache.oozie.executor.jpa.JPAExecutorException;
+import org.apache.oozie.util.Instrumentation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSLASummaryWriter {
+
+    private static class RecordingWriter extends SLASummaryWriter {
+        private final List<List<SLASummaryBean>> batches = new ArrayList<List<SLASummaryBean>>();
+        private boolean failing;
+
+        RecordingWriter(int batchSize, Instrumentation instrumentation) {
+            super(batchSize, instrumentation);
+        }
+
+        @Override
+        void persist(Collection<SLASummaryBean> beans) throws JPAExecutorException {
+            if (failing) {
+                throw new JPAExecutorException(ErrorCode.E0603, "failing");
+            }
+            batches.add(new ArrayList<SLASummaryBean>(beans));
+        }
+    }
+
+    private static SLASummaryBean summary(String jobId, int eventProcessed) {
+        SLASummaryBean bean = new SLASummaryBean();
+        bean.setId(jobId);
+        bean.setEventProcessed(eventProcessed);
+        return bean;
+    }
+
+    private static long counter(Instrumentation instrumentation, String name) {
+        return instrumentation.getCounters().get(SLACalculatorMemory.INSTRUMENTATION_GROUP).get(name).getValue();
+    }
+
+    @Test
+    public void testCoalesceAndFlush() throws Exception {
+        Instrumentation instrumentation = new Instrumentation();
+        RecordingWriter writer = new RecordingWriter(100, instrumentation);
+        writer.write(summary("job-1", 1));
+        writer.write(summary("job-2", 1));
+        SLASummaryBean last = summary("job-1", 5);
+        writer.write(last);
+        assertEquals(2, writer.getPendingCount());
+        assertSame(last, writer.getPending("job-1"));
+        assertTrue(writer.getLag() >= 0);
+        assertEquals(0, writer.batches.size());
+
+        writer.flush();
+        assertEquals(1, writer.batches.size());
+        assertEquals(2, writer.batches.get(0).size());
+        assertSame(last, writer.batches.get(0).get(0));
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(0, writer.getLag());
+        assertNull(writer.getPending("job-1"));
+        assertEquals(2, counter(instrumentation, SLASummaryWriter.INSTRUMENTATION_WRITTEN));
+        assertEquals(1, counter(instrumentation, SLASummaryWriter.INSTRUMENTATION_COALESCED));
+        assertEquals(0, counter(instrumentation, SLASummaryWriter.INSTRUMENTATION_PENDING));
+
+        writer.flush();
+        assertEquals("Nothing to write", 1, writer.batches.size());
+    }
+
+    @Test
+    public void testFlushOnBatchSize() {
+        RecordingWriter writer = new RecordingWriter(3, new Instrumentation());
+        writer.write(summary("job-1", 1));
+        writer.write(summary("job-2", 1));
+        writer.write(summary("job-2", 3));
+        assertEquals(0, writer.batches.size());
+        writer.write(summary("job-3", 1));
+        assertEquals(1, writer.batches.size());
+        assertEquals(3, writer.batches.get(0).size());
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void testRetryAfterFailure() throws Exception {
+        Instrumentation instrumentation = new Instrumentation();
+        RecordingWriter writer = new RecordingWriter(100, instrumentation);
+        writer.write(summary("job-1", 1));
+        writer.write(summary("job-2", 1));
+        writer.failing = true;
+        try {
+            writer.flush();
+            fail("The flush must fail");
+        }
+        catch (JPAExecutorException e) {
+            assertEquals(ErrorCode.E0603, e.getErrorCode());
+        }
+        assertEquals(2, writer.getPendingCount());
+        SLASummaryBean newer = summary("job-1", 7);
+        writer.write(newer);
+        writer.write(summary("job-3", 1));
+
+        writer.failing = false;
+        writer.flush();
+        assertEquals(1, writer.batches.size());
+        List<SLASummaryBean> batch = writer.batches.get(0);
+        assertEquals(3, batch.size());
+        assertSame("The failed update is replaced by the newer one", newer, batch.get(0));
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(0, counter(instrumentation, SLASummaryWriter.INSTRUMENTATION_PENDING));
+        assertEquals(3, counter(instrumentation, SLASummaryWriter.INSTRUMENTATION_WRITTEN));
+    }
+}
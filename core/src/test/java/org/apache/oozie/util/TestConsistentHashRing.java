@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestConsistentHashRing {
+    private static final int JOBS = 30_000;
+
+    private static String jobId(int i) {
+        return String.format("%07d-130521183438837-oozie-oozi-W", i);
+    }
+
+    @Test
+    public void testEmptyRing() {
+        assertNull(new ConsistentHashRing(Collections.<String>emptyList(), 16).getOwner("a"));
+    }
+
+    @Test
+    public void testOwnerDoesNotDependOnMemberOrder() {
+        ConsistentHashRing ring1 = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 64);
+        ConsistentHashRing ring2 = new ConsistentHashRing(Arrays.asList("c", "a", "b"), 64);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring1.getOwner(jobId(i)), ring2.getOwner(jobId(i)));
+        }
+    }
+
+    @Test
+    public void testBalance() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < JOBS; i++) {
+            String owner = ring.getOwner(jobId(i));
+            Integer count = counts.get(owner);
+            counts.put(owner, count == null ? 1 : count + 1);
+        }
+        assertEquals(3, counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            assertTrue("Unbalanced ring " + counts, entry.getValue() > JOBS / 3 * 0.75 && entry.getValue() < JOBS / 3 * 1.25);
+        }
+    }
+
+    @Test
+    public void testMinimalMovementOnJoin() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (int i = 0; i < JOBS; i++) {
+            String ownerBefore = before.getOwner(jobId(i));
+            String ownerAfter = after.getOwner(jobId(i));
+            if (!ownerBefore.equals(ownerAfter)) {
+                assertEquals("Jobs can only move to the new server", "d", ownerAfter);
+                moved++;
+            }
+        }
+        assertTrue("About a quarter of the jobs must move, moved " + moved, moved > JOBS / 4 * 0.75 && moved < JOBS / 4 * 1.25);
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestHashedWheelTimer {
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("TestHashedWheelTimer", 10, TimeUnit.MILLISECONDS, 16);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testWheelSizeIsPowerOfTwo() {
+        assertEquals(16, timer.getWheelSize());
+        HashedWheelTimer other = new HashedWheelTimer("Other", 1, TimeUnit.MILLISECONDS, 100);
+        assertEquals(128, other.getWheelSize());
+        other.stop();
+    }
+
+    @Test
+    public void testTaskExpiresAfterDelay() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue("Task did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Task expired too early", System.currentTimeMillis() - start >= 100);
+        assertEquals(1, timer.getExpiredCount());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void testDelayLongerThanOneRevolution() throws Exception {
+        // 16 ticks of 10ms, a 400ms delay needs more than two revolutions
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 400, TimeUnit.MILLISECONDS);
+
+        assertTrue("Task did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Task expired too early", System.currentTimeMillis() - start >= 400);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(task, 50, TimeUnit.MILLISECONDS);
+        HashedWheelTimer.Timeout expired = timer.newTimeout(task, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse("Cancel must be idempotent", cancelled.cancel());
+        assertEquals(1, timer.pendingTimeouts());
+
+        long limit = System.currentTimeMillis() + 5_000;
+        while (!expired.isExpired() && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertTrue(expired.isExpired());
+        assertTrue(cancelled.isCancelled());
+        assertFalse("Expired timeout cannot be cancelled", expired.cancel());
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testExceptionInTaskDoesNotStopTimer() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException("expected");
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue("Task did not expire", latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStopReturnsUnprocessedTasks() {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        timer.newTimeout(task, 1, TimeUnit.HOURS);
+        timer.newTimeout(task, 2, TimeUnit.HOURS);
+
+        List<Runnable> unprocessed = timer.stop();
+
+        assertEquals(2, unprocessed.size());
+        assertTrue(timer.isStopped());
+        assertEquals(0, timer.pendingTimeouts());
+        try {
+            timer.newTimeout(task, 1, TimeUnit.MILLISECONDS);
+            fail("Stopped timer must not accept new timeouts");
+        }
+        catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLagIsTracked() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue("Task did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue(timer.getLastLagMillis() >= 0);
+        assertTrue(timer.getMaxLagMillis() >= timer.getLastLagMillis());
+    }
+
+    @Test
+    public void testManyPendingTimeouts() throws Exception {
+        final int count = 100_000;
+        final AtomicInteger fired = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(count / 2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                fired.incrementAndGet();
+                latch.countDown();
+            }
+        };
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timeouts.add(timer.newTimeout(task, 200 + (i % 500), TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertEquals(count / 2, timer.pendingTimeouts());
+
+        assertTrue("Not all the tasks expired", latch.await(30, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(count / 2, fired.get());
+        assertEquals(count / 2, timer.getExpiredCount());
+        assertEquals(0, timer.pendingTimeouts());
+        int cancelled = 0;
+        int expired = 0;
+        for (HashedWheelTimer.Timeout timeout : timeouts) {
+            cancelled += timeout.isCancelled() ? 1 : 0;
+            expired += timeout.isExpired() ? 1 : 0;
+        }
+        assertEquals(count / 2, cancelled);
+        assertEquals(count / 2, expired);
+    }
+}
@@ -335,6 +335,53 @@ public class TestLogStreamer extends XTestCase {
         assertEquals(true, out[4].contains("_L5_"));
     }
 
+    public void testStreamLogWithIndex() throws IOException, CommandException, ServiceException {
+        setupLog4j();
+        new Services().init();
+        XLogFilter.reset();
+        XLogFilter.defineParameter("USER");
+        XLogFilter.defineParameter("GROUP");
+        XLogFilter.defineParameter("TOKEN");
+        XLogFilter.defineParameter("APP");
+        XLogFilter.defineParameter("JOB");
+        XLogFilter.defineParameter("ACTION");
+        String otherJobStatement = " USER[oozie] GROUP[-] TOKEN[-] APP[-] JOB[15-200904160239--example-forkjoinwf] ACTION[-] ";
+
+        // Only the first file has messages of the job
+        File f = new File(getTestCaseDir() + "/oozie.log-2012-04-24-19.gz");
+        StringBuilder logLines = new StringBuilder();
+        logLines.append("2012-04-24 19:43:13,958 DEBUG _L19_:323 -" + logStatement + "\n");
+        logLines.append("2012-04-24 19:43:14,958 DEBUG _O19_:323 -" + otherJobStatement + "\n");
+        writeToGZFile(f, logLines);
+        XLogIndex.build(f).write(f);
+
+        f = new File(getTestCaseDir() + "/oozie.log-2012-04-24-20.gz");
+        logLines = new StringBuilder();
+        logLines.append("2012-04-24 20:43:13,958 DEBUG _O20_:323 -" + otherJobStatement + "\n");
+        writeToGZFile(f, logLines);
+        XLogIndex.build(f).write(f);
+
+        Writer fw1 = new OutputStreamWriter(new FileOutputStream(getTestCaseDir() + "/oozie.log"),
+                StandardCharsets.UTF_8);
+        fw1.write("2012-04-24 22:43:13,958 DEBUG _L22_:323 -" + logStatement + "\n");
+        fw1.close();
+        new File(getTestCaseDir() + "/oozie.log").setLastModified(System.currentTimeMillis() - 5000);
+
+        StringWriter sw = new StringWriter();
+        XLogFilter xf = new XLogFilter();
+        xf.setParameter("JOB", "14-200904160239--example-forkjoinwf");
+        XLogStreamer str = new XLogStreamer(xf, getTestCaseDir(), "oozie.log", 1);
+        Calendar calendarEntry = Calendar.getInstance();
+        calendarEntry.set(2012, 3, 24, 19, 0);
+        str.streamLog(sw, calendarEntry.getTime(), new Date(System.currentTimeMillis()));
+        String[] out = sw.toString().split("\n");
+
+        // Index files are not streamed, and the output is the same as without indexes
+        assertEquals(2, out.length);
+        assertTrue(out[0].contains("_L19_"));
+        assertTrue(out[1].contains("_L22_"));
+    }
+
     public void testBufferLen() throws IOException, CommandException, ServiceException {
         new Services().init();
         XLogStreamer str = new XLogStreamer(null, getTestCaseDir(), "oozie.log", 1);
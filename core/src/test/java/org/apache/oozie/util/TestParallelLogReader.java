@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestParallelLogReader {
+    private static final String JOB_1 = "0000001-200904160239-oozie-oozi-W";
+    private static final String JOB_2 = "0000002-200904160239-oozie-oozi-W";
+    private static final Map<File, List<long[]>> NO_RANGES = Collections.emptyMap();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        XLogFilter.reset();
+        XLogFilter.defineParameter("USER");
+        XLogFilter.defineParameter("GROUP");
+        XLogFilter.defineParameter("TOKEN");
+        XLogFilter.defineParameter("APP");
+        XLogFilter.defineParameter("JOB");
+        XLogFilter.defineParameter("ACTION");
+    }
+
+    private static String logLine(String timestamp, String job, String message) {
+        return timestamp + " INFO XCommand:520 - USER[oozie] GROUP[-] TOKEN[-] APP[app] JOB[" + job + "] ACTION[-] "
+                + message + "\n";
+    }
+
+    private File writeLog(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        OutputStream os = new FileOutputStream(file);
+        if (name.endsWith(".gz")) {
+            os = new GZIPOutputStream(os);
+        }
+        try (Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static XLogFilter filter(String job) {
+        XLogFilter filter = new XLogFilter();
+        filter.setParameter("JOB", job);
+        return filter;
+    }
+
+    private static List<String> parse(Reader reader, XLogFilter filter) throws IOException {
+        List<String> messages = new ArrayList<String>();
+        TimestampedMessageParser parser = new TimestampedMessageParser(new BufferedReader(reader), filter);
+        try {
+            while (parser.increment()) {
+                messages.add(parser.getLastMessage());
+            }
+        }
+        finally {
+            parser.closeReader();
+        }
+        return messages;
+    }
+
+    /**
+     * Writes hourly rotated logs, plus the active log, with the messages of two jobs.
+     */
+    private ArrayList<File> writeRotatedLogs(int hours, int messagesPerHour) throws IOException {
+        ArrayList<File> files = new ArrayList<File>();
+        for (int hour = 0; hour <= hours; hour++) {
+            StringBuilder log = new StringBuilder();
+            for (int i = 0; i < messagesPerHour; i++) {
+                String timestamp = String.format("2009-06-24 %02d:%02d:%02d,000", hour, i * 60 / messagesPerHour, i % 60);
+                log.append(logLine(timestamp, i % 3 == 0 ? JOB_1 : JOB_2, "Message " + hour + "-" + i));
+                if (i % 10 == 0) {
+                    log.append("java.lang.Exception: message " + hour + "-" + i + "\n\tat Foo.bar(Foo.java:1)\n");
+                }
+            }
+            String name = hour < hours ? String.format("oozie.log-2009-06-24-%02d.gz", hour) : "oozie.log";
+            files.add(writeLog(name, log.toString()));
+        }
+        return files;
+    }
+
+    @Test
+    public void testSameMessagesAsSequentialRead() throws IOException {
+        ArrayList<File> files = writeRotatedLogs(6, 500);
+        List<String> expected = parse(new MultiFileReader(files), filter(JOB_1));
+        assertEquals(7 * 167, expected.size());
+        for (int threads : new int[] {1, 3, 10}) {
+            XLogFilter filter = filter(JOB_1);
+            assertEquals("Threads " + threads, expected,
+                    parse(new ParallelLogReader(files, NO_RANGES, null, filter, threads, 2), filter));
+        }
+        XLogFilter filter = filter(JOB_1);
+        assertEquals("Prefiltered", expected,
+                parse(new ParallelLogReader(files, NO_RANGES, "JOB[" + JOB_1 + "]", filter, 3, 100), filter));
+    }
+
+    @Test
+    public void testMergeInTimestampOrder() throws IOException {
+        File file1 = writeLog("server1.log.gz", logLine("2009-06-24 02:00:00,000", JOB_1, "A")
+                + logLine("2009-06-24 02:00:02,000", JOB_1, "C") + "java.lang.Exception: C\n"
+                + logLine("2009-06-24 02:00:04,000", JOB_2, "X") + logLine("2009-06-24 02:00:05,000", JOB_1, "E"));
+        File file2 = writeLog("server2.log.gz", logLine("2009-06-24 02:00:01,000", JOB_1, "B")
+                + logLine("2009-06-24 02:00:03,000", JOB_1, "D") + logLine("2009-06-24 02:00:06,000", JOB_1, "F"));
+        XLogFilter filter = filter(JOB_1);
+        List<String> messages = parse(new ParallelLogReader(Arrays.asList(file1, file2), NO_RANGES, null, filter, 2, 1),
+                filter);
+        StringBuilder order = new StringBuilder();
+        for (String message : messages) {
+            order.append(message.charAt(message.indexOf("ACTION[-] ") + 10));
+        }
+        assertEquals("ABCDEF", order.toString());
+        assertTrue(messages.get(2).contains("java.lang.Exception: C"));
+    }
+
+    @Test
+    public void testLowerBound() {
+        assertEquals("2009-06-24 02:00:00,000", ParallelLogReader.getLowerBound(new File("oozie.log-2009-06-24-02.gz")));
+        assertNull(ParallelLogReader.getLowerBound(new File("oozie.log")));
+    }
+
+    @Test
+    public void testCloseStopsThreads() throws Exception {
+        ArrayList<File> files = writeRotatedLogs(4, 5000);
+        XLogFilter filter = filter(JOB_1);
+        Reader reader = new ParallelLogReader(files, NO_RANGES, null, filter, 4, 1);
+        assertTrue(reader.read() != -1);
+        reader.close();
+        long timeout = System.currentTimeMillis() + 10000;
+        while (hasReaderThreads() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertFalse("Threads still running after close", hasReaderThreads());
+    }
+
+    private static boolean hasReaderThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("ParallelLogReader")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        ArrayList<File> files = writeRotatedLogs(2, 1000);
+        File truncated = files.get(1);
+        try (RandomAccessFile raf = new RandomAccessFile(truncated, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        XLogFilter filter = filter(JOB_1);
+        try {
+            parse(new ParallelLogReader(files, NO_RANGES, null, filter, 2, 10), filter);
+            fail("The truncated file must fail the read");
+        }
+        catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(truncated.getName()));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPrefilteredLogInputStream {
+    private static final String JOB_1 = "0000001-200904160239-oozie-oozi-W";
+    private static final String JOB_2 = "0000002-200904160239-oozie-oozi-W";
+
+    /**
+     * Size in MB of the synthetic log of {@link #testBenchmark()}, which only runs when it is set, i.e.
+     * <code>-Doozie.test.log.prefilter.benchmark.mb=4096</code> for a multi-GB log.
+     */
+    private static final String BENCHMARK_SIZE_MB = "oozie.test.log.prefilter.benchmark.mb";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        XLogFilter.reset();
+        XLogFilter.defineParameter("USER");
+        XLogFilter.defineParameter("GROUP");
+        XLogFilter.defineParameter("TOKEN");
+        XLogFilter.defineParameter("APP");
+        XLogFilter.defineParameter("JOB");
+        XLogFilter.defineParameter("ACTION");
+    }
+
+    private static String logLine(String time, String level, String job, String message) {
+        return "2009-06-24 " + time + " " + level + " XCommand:520 - USER[oozie] GROUP[-] TOKEN[-] APP[app] JOB[" + job
+                + "] ACTION[-] " + message + "\n";
+    }
+
+    private File writeLog(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static String readPrefiltered(File file, String text, int windowSize) throws IOException {
+        try (PrefilteredLogInputStream is = new PrefilteredLogInputStream(file, text, windowSize)) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> parse(File file, String job, boolean prefilter) throws IOException {
+        XLogFilter filter = new XLogFilter();
+        filter.setParameter("JOB", job);
+        ArrayList<File> files = new ArrayList<File>(Collections.singletonList(file));
+        List<String> messages = new ArrayList<String>();
+        try (BufferedReader reader = new BufferedReader(new MultiFileReader(files, Collections.<File, List<long[]>>emptyMap(),
+                prefilter ? "JOB[" + job + "]" : null))) {
+            TimestampedMessageParser parser = new TimestampedMessageParser(reader, filter);
+            while (parser.increment()) {
+                messages.add(parser.getLastMessage());
+            }
+        }
+        return messages;
+    }
+
+    private String writeTestLog(StringBuilder job1, StringBuilder candidates) throws IOException {
+        StringBuilder log = new StringBuilder();
+        log.append("continuation of a message of a previous file JOB[" + JOB_1 + "]\n");
+        String line = logLine("02:00:00,000", "INFO", JOB_1, "Start");
+        log.append(line);
+        job1.append(line);
+        log.append(logLine("02:00:01,000", "INFO", JOB_2, "Start"));
+        log.append("java.lang.Exception: JOB[" + JOB_1 + "]\n");
+        line = logLine("02:00:02,000", " WARN", JOB_1, "Error") + "java.lang.Exception: failed\n\tat Foo.bar(Foo.java:1)\n";
+        log.append(line);
+        job1.append(line);
+        candidates.append(job1);
+        // the filter discards it, but the prefilter does not look at the position of the text
+        line = logLine("02:00:03,000", "INFO", JOB_2, "Parent JOB[" + JOB_1 + "]")
+                + "2009-06-24 02:00:04,000 JOB[" + JOB_1 + "] is not a message start without a log level\n";
+        log.append(line);
+        candidates.append(line);
+        for (int i = 0; i < 100; i++) {
+            log.append(logLine("02:01:00,000", "DEBUG", JOB_2, "Filler message number " + i));
+        }
+        line = logLine("02:02:00,000", "INFO", JOB_1, "End");
+        log.append(line);
+        job1.append(line);
+        candidates.append(line.substring(0, line.length() - 1));
+        log.setLength(log.length() - 1);
+        return log.toString();
+    }
+
+    @Test
+    public void testPrefilter() throws IOException {
+        StringBuilder candidates = new StringBuilder();
+        File file = writeLog("oozie.log", writeTestLog(new StringBuilder(), candidates));
+
+        String text = "JOB[" + JOB_1 + "]";
+        for (int windowSize : new int[] {text.length(), text.length() + 7, 100, PrefilteredLogInputStream.DEFAULT_WINDOW_SIZE}) {
+            assertEquals("Window size " + windowSize, candidates.toString(), readPrefiltered(file, text, windowSize));
+        }
+        assertEquals("", readPrefiltered(file, "JOB[0000003-200904160239-oozie-oozi-W]", 100));
+        assertEquals("", readPrefiltered(writeLog("empty.log", ""), text, 100));
+    }
+
+    @Test
+    public void testSameMessagesAsFullScan() throws IOException {
+        StringBuilder job1 = new StringBuilder();
+        File file = writeLog("oozie.log", writeTestLog(job1, new StringBuilder()));
+        List<String> messages = parse(file, JOB_1, true);
+        assertEquals(job1.toString().replace("\n", System.getProperty("line.separator")), StringUtils.join(messages, ""));
+        assertEquals(parse(file, JOB_1, false), messages);
+
+        file = generateLog(new File(folder.getRoot(), "synthetic.log"), 1024 * 1024, 50);
+        messages = parse(file, jobId(7), true);
+        assertTrue(messages.size() > 0);
+        assertEquals(parse(file, jobId(7), false), messages);
+    }
+
+    /**
+     * Compares the time to stream the log of a job from a synthetic log with and without the prefilter. It only runs when
+     * {@link #BENCHMARK_SIZE_MB} is set.
+     */
+    @Test
+    public void testBenchmark() throws IOException {
+        Assume.assumeTrue("Benchmark not enabled", System.getProperty(BENCHMARK_SIZE_MB) != null);
+        long size = Long.getLong(BENCHMARK_SIZE_MB) * 1024 * 1024;
+        File file = generateLog(new File(folder.getRoot(), "benchmark.log"), size, 1000);
+        String job = jobId(500);
+        // the first round warms up
+        long[] full = null;
+        long[] prefiltered = null;
+        for (int i = 0; i < 2; i++) {
+            full = benchmark(file, job, false);
+            prefiltered = benchmark(file, job, true);
+            assertEquals("Same messages", full[0], prefiltered[0]);
+            assertEquals("Same content", full[1], prefiltered[1]);
+        }
+        assertTrue(String.format("Log of [%d] MB, [%d] messages of the job: full scan [%d] ms, prefiltered [%d] ms",
+                size / (1024 * 1024), full[0], full[2], prefiltered[2]), prefiltered[2] < full[2]);
+    }
+
+    private static long[] benchmark(File file, String job, boolean prefilter) throws IOException {
+        XLogFilter filter = new XLogFilter();
+        filter.setParameter("JOB", job);
+        ArrayList<File> files = new ArrayList<File>(Collections.singletonList(file));
+        Map<File, List<long[]>> ranges = Collections.emptyMap();
+        long start = System.currentTimeMillis();
+        long count = 0;
+        CRC32 crc = new CRC32();
+        try (BufferedReader reader = new BufferedReader(new MultiFileReader(files, ranges,
+                prefilter ? "JOB[" + job + "]" : null))) {
+            TimestampedMessageParser parser = new TimestampedMessageParser(reader, filter);
+            while (parser.increment()) {
+                count++;
+                crc.update(parser.getLastMessage().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return new long[] {count, crc.getValue(), Math.max(1, System.currentTimeMillis() - start)};
+    }
+
+    private static String jobId(int i) {
+        return String.format("%07d-200904160239-oozie-oozi-W", i);
+    }
+
+    /**
+     * Writes a log of about the given size with the messages of the given number of jobs interleaved, some of them with
+     * stack traces.
+     */
+    private static File generateLog(File file, long size, int jobs) throws IOException {
+        long written = 0;
+        int i = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8),
+                1024 * 1024)) {
+            while (written < size) {
+                int second = (i / 1000) % 3600;
+                String time = String.format("%02d:%02d:%02d,%03d", 2 + second / 3600, (second / 60) % 60, second % 60,
+                        i % 1000);
+                String line = logLine(time, i % 7 == 0 ? "DEBUG" : " INFO", jobId(i % jobs),
+                        "[org.apache.oozie.command.wf.ActionStartXCommand] Synthetic message number " + i);
+                if (i % 101 == 0) {
+                    line += "java.lang.Exception: JOB[" + jobId((i + 1) % jobs) + "]\n\tat Foo.bar(Foo.java:" + i + ")\n";
+                }
+                writer.write(line);
+                written += line.length();
+                i++;
+            }
+        }
+        return file;
+    }
+}
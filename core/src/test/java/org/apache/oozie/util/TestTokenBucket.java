@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestTokenBucket {
+
+    @Test
+    public void testBurstAndRefill() {
+        final AtomicLong clock = new AtomicLong(0);
+        TokenBucket bucket = new TokenBucket(2, 4) {
+            @Override
+            protected long now() {
+                return clock.get();
+            }
+        };
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("Burst acquisition " + i, 0, bucket.tryAcquire());
+        }
+        assertEquals("Empty bucket, next token in 500ms", 500, bucket.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(250, bucket.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(0, bucket.tryAcquire());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals("Bucket does not grow over its capacity", 4, bucket.getAvailableTokens(), 0.001);
+    }
+
+    @Test
+    public void testRelease() {
+        final AtomicLong clock = new AtomicLong(0);
+        TokenBucket bucket = new TokenBucket(1, 2) {
+            @Override
+            protected long now() {
+                return clock.get();
+            }
+        };
+
+        assertEquals(0, bucket.tryAcquire());
+        bucket.release();
+        assertEquals(2, bucket.getAvailableTokens(), 0.001);
+        bucket.release();
+        assertEquals("Bucket does not grow over its capacity", 2, bucket.getAvailableTokens(), 0.001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new TokenBucket(0, 1);
+    }
+}
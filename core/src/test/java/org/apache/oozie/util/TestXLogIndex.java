@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.oozie.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestXLogIndex {
+    private static final String JOB_1 = "0000001-200904160239-oozie-oozi-W";
+    private static final String JOB_2 = "0000002-200904160239-oozie-oozi-W";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String logLine(String time, String job, String app, String message) {
+        return "2009-06-24 " + time + " INFO XCommand:520 - SERVER[localhost] USER[oozie] GROUP[-] TOKEN[-] APP[" + app
+                + "] JOB[" + job + "] ACTION[-] " + message + "\n";
+    }
+
+    private File writeLog(String name, String content, boolean gzip) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        OutputStream os = new FileOutputStream(file);
+        if (gzip) {
+            os = new GZIPOutputStream(os);
+        }
+        try (Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static String readRanges(File file, List<long[]> ranges) throws IOException {
+        ArrayList<File> files = new ArrayList<File>(Collections.singletonList(file));
+        try (MultiFileReader reader = new MultiFileReader(files, Collections.singletonMap(file, ranges))) {
+            return IOUtils.toString(reader);
+        }
+    }
+
+    @Test
+    public void testIndexRanges() throws IOException {
+        StringBuilder job1 = new StringBuilder();
+        StringBuilder log = new StringBuilder();
+        String line = logLine("02:00:00,000", JOB_1, "app-1", "Start");
+        job1.append(line);
+        log.append(line);
+        line = logLine("02:00:01,000", JOB_1, "app-1", "Error") + "java.lang.Exception: JOB[" + JOB_2 + "]\n"
+                + "\tat Foo.bar(Foo.java:1)\n";
+        job1.append(line);
+        log.append(line);
+        // Push the second part of the job far enough to get a separate range
+        for (int i = 0; i < 2000; i++) {
+            log.append(logLine("02:10:00,000", JOB_2, "app-2", "Filler message number " + i));
+        }
+        line = logLine("02:20:00,000", JOB_1, "app-1", "End");
+        job1.append(line);
+        log.append(line);
+        log.append(logLine("02:30:00,000", JOB_2, "app-2", "End"));
+
+        for (boolean gzip : new boolean[] {false, true}) {
+            File file = writeLog(gzip ? "oozie.log-2009-06-24-02.gz" : "oozie.log-2009-06-24-02", log.toString(), gzip);
+            XLogIndex.build(file).write(file);
+            assertTrue(XLogIndex.hasIndex(file));
+            XLogIndex index = XLogIndex.load(file);
+            assertNotNull(index);
+
+            XLogIndex.Entry entry = index.getEntry(XLogIndex.JOB, JOB_1);
+            assertEquals("2009-06-24 02:00:00,000", entry.getFirstTimestamp());
+            assertEquals("2009-06-24 02:20:00,000", entry.getLastTimestamp());
+            assertEquals("Far apart messages are in separate ranges", 2, entry.getRanges().size());
+            assertEquals("Ranges include the multi-line messages", job1.toString(), readRanges(file, entry.getRanges()));
+            assertEquals(entry.getRanges().size(), index.getEntry(XLogIndex.APP, "app-1").getRanges().size());
+
+            entry = index.getEntry(XLogIndex.JOB, JOB_2);
+            assertEquals("Stack traces are not indexed", "2009-06-24 02:10:00,000", entry.getFirstTimestamp());
+            assertTrue(entry.overlaps("2009-06-24 02:25:00", null));
+            assertFalse(entry.overlaps("2009-06-24 02:31:00", null));
+            assertFalse(entry.overlaps(null, "2009-06-24 02:09:59"));
+
+            assertNull(index.getEntry(XLogIndex.JOB, "0000003-200904160239-oozie-oozi-W"));
+        }
+    }
+
+    @Test
+    public void testOutOfDateIndex() throws IOException {
+        File file = writeLog("oozie.log-2009-06-24-02", logLine("02:00:00,000", JOB_1, "app", "Start"), false);
+        XLogIndex.build(file).write(file);
+        assertNotNull(XLogIndex.load(file));
+        writeLog("oozie.log-2009-06-24-02", logLine("02:00:00,000", JOB_2, "app", "Start") + "more\n", false);
+        assertFalse(XLogIndex.hasIndex(file));
+        assertNull("Index of a modified file is ignored", XLogIndex.load(file));
+    }
+
+    @Test
+    public void testIndexRotatedFiles() throws IOException {
+        File active = writeLog("oozie.log", logLine("03:00:00,000", JOB_1, "app", "Active"), false);
+        File rotated = writeLog("oozie.log-2009-06-24-02", logLine("02:00:00,000", JOB_1, "app", "Rotated"), false);
+        File other = writeLog("other.log-2009-06-24-02", logLine("02:00:00,000", JOB_1, "app", "Other"), false);
+
+        XLogIndex.indexRotatedFiles(folder.getRoot().getAbsolutePath(), "oozie.log");
+        assertTrue(XLogIndex.hasIndex(rotated));
+        assertFalse("The active log is not indexed", XLogIndex.getIndexFile(active).exists());
+        assertFalse(XLogIndex.getIndexFile(other).exists());
+        assertTrue(XLogIndex.isIndexFile(XLogIndex.getIndexFile(rotated).getName()));
+
+        long modified = XLogIndex.getIndexFile(rotated).lastModified();
+        XLogIndex.indexRotatedFiles(folder.getRoot().getAbsolutePath(), "oozie.log");
+        assertEquals("Indexed files are not indexed again", modified, XLogIndex.getIndexFile(rotated).lastModified());
+    }
+}